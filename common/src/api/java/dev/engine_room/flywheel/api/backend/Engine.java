@@ -10,6 +10,7 @@ import dev.engine_room.flywheel.api.instance.Instance;
 import dev.engine_room.flywheel.api.task.Plan;
 import dev.engine_room.flywheel.api.visualization.VisualType;
 import dev.engine_room.flywheel.api.visualization.VisualizationContext;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.client.Camera;
 import net.minecraft.core.BlockPos;
@@ -54,8 +55,33 @@ public interface Engine {
 	 * <p> This will be called at most once per frame, and not necessarily every frame.
 	 *
 	 * @param sections The set of sections.
+	 * @deprecated Override {@link #lightSections(LongSet, LongSet, LongSet)} instead, which also gets the sections that
+	 * changed since the last call. This is only called by its default implementation.
 	 */
-	void lightSections(LongSet sections);
+	@Deprecated(forRemoval = true)
+	default void lightSections(LongSet sections) {
+		throw new UnsupportedOperationException(getClass().getName() + " must override lightSections(LongSet, LongSet, LongSet)");
+	}
+
+	/**
+	 * Update the set of sections that visuals have requested GPU light for.
+	 *
+	 * <p> This will be called at most once per frame, and not necessarily every frame.
+	 * Besides the whole set, the sections that were requested or released since the last call are passed, so engines
+	 * don't need to work them out themselves.
+	 * The sets may be modified after this method returns, so they must not be kept.
+	 *
+	 * <p> The default implementation passes a copy of the whole set on to {@link #lightSections(LongSet)}, so engines
+	 * that only override that keep working.
+	 *
+	 * @param sections The sections that are requested, unmodifiable.
+	 * @param added The sections that were requested since the last call.
+	 * @param removed The sections that are no longer requested since the last call.
+	 */
+	@SuppressWarnings("removal")
+	default void lightSections(LongSet sections, LongSet added, LongSet removed) {
+		lightSections(new LongOpenHashSet(sections));
+	}
 
 	void onLightUpdate(SectionPos sectionPos, LightLayer layer);
 
@@ -71,6 +97,24 @@ public interface Engine {
 	 */
 	void setupRender(RenderContext context);
 
+	/**
+	 * @return {@code true} if this engine supports {@linkplain #stageFrame() staging} frames.
+	 */
+	default boolean supportsFramePipelining() {
+		return false;
+	}
+
+	/**
+	 * Capture the current state of all instances to be uploaded by the next call to {@link #setupRender}.
+	 *
+	 * <p>Once this method has been called, {@link #setupRender} may run while visuals are already being updated for
+	 * the next frame, and only the state captured here is uploaded. This method is guaranteed to be called on the
+	 * render thread after {@linkplain #createFramePlan() the frame plan} has finished execution, while no visuals
+	 * are being updated. It is only called if {@link #supportsFramePipelining} returns {@code true}.
+	 */
+	default void stageFrame() {
+	}
+
 	/**
 	 * Render all instances necessary for the given visual type.
 	 *
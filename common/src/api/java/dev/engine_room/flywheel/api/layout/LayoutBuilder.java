@@ -23,6 +23,14 @@ public interface LayoutBuilder {
 
 	LayoutBuilder matrixArray(String name, FloatRepr repr, @Range(from = 2, to = 4) int size, @Range(from = 1, to = 256) int length);
 
+	/**
+	 * Place elements to leave as little padding as possible, instead of one after another in the order they're added.
+	 * <br>
+	 * Elements keep their order in {@link Layout#elements()} and in the struct shaders see, only their byte offsets
+	 * change, so writers need to use {@link Layout.Element#byteOffset()}.
+	 */
+	LayoutBuilder packed();
+
 	Layout build();
 
 	static LayoutBuilder create() {
@@ -31,6 +31,28 @@ public interface Model {
 	 */
 	Vector4fc boundingSphere();
 
+	/**
+	 * Get the less detailed versions of this model that may be rendered in its place at a distance.
+	 *
+	 * <p>The meshes returned by {@link #meshes()} are rendered below the distance of the first level.
+	 * Each level is rendered from its distance up to the distance of the next level, the last level
+	 * without limit. Backends may ignore levels of detail and always render {@link #meshes()}.</p>
+	 *
+	 * <p>All levels share the {@link #boundingSphere() bounding sphere} of this model.</p>
+	 *
+	 * @return A list of levels of detail sorted by increasing distance, or an empty list.
+	 */
+	default List<LevelOfDetail> levelsOfDetail() {
+		return List.of();
+	}
+
 	record ConfiguredMesh(Material material, Mesh mesh) {
 	}
+
+	/**
+	 * @param distance The distance in blocks from the camera from which this level is rendered.
+	 * @param meshes   The meshes to render instead of the model's own.
+	 */
+	record LevelOfDetail(float distance, List<ConfiguredMesh> meshes) {
+	}
 }
@@ -11,4 +11,11 @@ public interface BackendConfig {
 	 * @return The current light smoothness setting.
 	 */
 	LightSmoothness lightSmoothness();
+
+	/**
+	 * Whether meshes may be stored in a quantized vertex format when doing so doesn't visibly lose precision.
+	 *
+	 * @return {@code true} if compact vertices are enabled.
+	 */
+	boolean compactVertices();
 }
@@ -2,11 +2,16 @@ package dev.engine_room.flywheel.backend;
 
 import java.util.List;
 
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.system.MemoryUtil;
+
 import dev.engine_room.flywheel.api.Flywheel;
 import dev.engine_room.flywheel.api.layout.FloatRepr;
 import dev.engine_room.flywheel.api.layout.Layout;
 import dev.engine_room.flywheel.api.layout.LayoutBuilder;
+import dev.engine_room.flywheel.api.vertex.VertexList;
 import dev.engine_room.flywheel.backend.gl.array.VertexAttribute;
+import dev.engine_room.flywheel.lib.math.DataPacker;
 import dev.engine_room.flywheel.lib.vertex.FullVertexView;
 import dev.engine_room.flywheel.lib.vertex.VertexView;
 import net.minecraft.resources.ResourceLocation;
@@ -24,12 +29,164 @@ public final class InternalVertex {
 	public static final List<VertexAttribute> ATTRIBUTES = LayoutAttributes.attributes(LAYOUT);
 	public static final int STRIDE = LAYOUT.byteSize();
 
+	/**
+	 * A smaller vertex layout for meshes that can tolerate quantization.
+	 * <br>
+	 * Positions are stored as 16-bit fractions of the mesh's bounding box, texture coordinates as 16-bit fractions
+	 * of the unit square, and normals as 16-bit octahedral encodings. Attributes are in the same order as
+	 * {@link #LAYOUT} so both layouts bind to the same attribute locations. The 4th position component is padding.
+	 */
+	public static final Layout COMPACT_LAYOUT = LayoutBuilder.create()
+			.vector("position", FloatRepr.NORMALIZED_UNSIGNED_SHORT, 4)
+			.vector("color", FloatRepr.NORMALIZED_UNSIGNED_BYTE, 4)
+			.vector("tex", FloatRepr.NORMALIZED_UNSIGNED_SHORT, 2)
+			.vector("overlay", FloatRepr.SHORT, 2)
+			.vector("light", FloatRepr.UNSIGNED_SHORT, 2)
+			.vector("normal", FloatRepr.NORMALIZED_SHORT, 2)
+			.build();
+
+	public static final List<VertexAttribute> COMPACT_ATTRIBUTES = LayoutAttributes.attributes(COMPACT_LAYOUT);
+	public static final int COMPACT_STRIDE = COMPACT_LAYOUT.byteSize();
+
 	public static final ResourceLocation LAYOUT_SHADER = Flywheel.rl("internal/vertex_input.vert");
 
+	/**
+	 * The largest bounding box extent, in blocks, that a compact mesh may have.
+	 * At this extent 16-bit positions are still accurate to within 1/1024th of a block.
+	 */
+	private static final float MAX_COMPACT_EXTENT = 128;
+	private static final float MAX_UNSIGNED_SHORT = 65535;
+	private static final float MAX_SHORT = 32767;
+
 	private InternalVertex() {
 	}
 
 	public static VertexView createVertexView() {
 		return new FullVertexView();
 	}
+
+	/**
+	 * Check whether the given vertices can be stored in the {@link #COMPACT_LAYOUT} without visible loss of precision.
+	 *
+	 * @param vertexList The vertices to check.
+	 * @return The bounds to quantize positions against, or {@code null} if the vertices must use the full layout.
+	 */
+	@Nullable
+	public static CompactBounds computeCompactBounds(VertexList vertexList) {
+		int vertexCount = vertexList.vertexCount();
+
+		if (vertexCount == 0) {
+			return null;
+		}
+
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < vertexCount; i++) {
+			float u = vertexList.u(i);
+			float v = vertexList.v(i);
+
+			// Repeating textures use coordinates outside the unit square, which we can't represent.
+			if (!(u >= 0 && u <= 1 && v >= 0 && v <= 1)) {
+				return null;
+			}
+
+			float x = vertexList.x(i);
+			float y = vertexList.y(i);
+			float z = vertexList.z(i);
+
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+		}
+
+		float extentX = maxX - minX;
+		float extentY = maxY - minY;
+		float extentZ = maxZ - minZ;
+
+		// Also catches NaNs.
+		if (!(extentX <= MAX_COMPACT_EXTENT && extentY <= MAX_COMPACT_EXTENT && extentZ <= MAX_COMPACT_EXTENT)) {
+			return null;
+		}
+
+		return new CompactBounds(minX, minY, minZ, extentX, extentY, extentZ);
+	}
+
+	/**
+	 * Write the given vertices in the {@link #COMPACT_LAYOUT}.
+	 *
+	 * @param src    The vertices to write.
+	 * @param ptr    The address to write to. Must have room for {@code src.vertexCount() * COMPACT_STRIDE} bytes.
+	 * @param bounds The bounds computed for the vertices by {@link #computeCompactBounds}.
+	 */
+	public static void writeCompact(VertexList src, long ptr, CompactBounds bounds) {
+		for (int i = 0; i < src.vertexCount(); i++) {
+			MemoryUtil.memPutShort(ptr, quantize(src.x(i), bounds.minX, bounds.extentX));
+			MemoryUtil.memPutShort(ptr + 2, quantize(src.y(i), bounds.minY, bounds.extentY));
+			MemoryUtil.memPutShort(ptr + 4, quantize(src.z(i), bounds.minZ, bounds.extentZ));
+			MemoryUtil.memPutShort(ptr + 6, (short) 0);
+			MemoryUtil.memPutByte(ptr + 8, DataPacker.packNormU8(src.r(i)));
+			MemoryUtil.memPutByte(ptr + 9, DataPacker.packNormU8(src.g(i)));
+			MemoryUtil.memPutByte(ptr + 10, DataPacker.packNormU8(src.b(i)));
+			MemoryUtil.memPutByte(ptr + 11, DataPacker.packNormU8(src.a(i)));
+			MemoryUtil.memPutShort(ptr + 12, quantize(src.u(i), 0, 1));
+			MemoryUtil.memPutShort(ptr + 14, quantize(src.v(i), 0, 1));
+			MemoryUtil.memPutInt(ptr + 16, src.overlay(i));
+			MemoryUtil.memPutInt(ptr + 20, src.light(i));
+			putOctahedralNormal(ptr + 24, src.normalX(i), src.normalY(i), src.normalZ(i));
+
+			ptr += COMPACT_STRIDE;
+		}
+	}
+
+	private static short quantize(float value, float min, float extent) {
+		if (extent == 0) {
+			return 0;
+		}
+
+		float normalized = Math.min(Math.max((value - min) / extent, 0), 1);
+		return (short) Math.round(normalized * MAX_UNSIGNED_SHORT);
+	}
+
+	/**
+	 * Project the normal onto the unit octahedron and unfold the lower hemisphere over the upper one.
+	 * Must be kept in sync with {@code _flw_decodeOctahedral} in vertex_input.vert.
+	 */
+	private static void putOctahedralNormal(long ptr, float x, float y, float z) {
+		float l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+
+		float octX;
+		float octY;
+
+		if (l1 == 0) {
+			octX = 0;
+			octY = 0;
+		} else {
+			octX = x / l1;
+			octY = y / l1;
+
+			if (z < 0) {
+				float foldedX = (1 - Math.abs(octY)) * (octX >= 0 ? 1 : -1);
+				float foldedY = (1 - Math.abs(octX)) * (octY >= 0 ? 1 : -1);
+				octX = foldedX;
+				octY = foldedY;
+			}
+		}
+
+		MemoryUtil.memPutShort(ptr, (short) Math.round(octX * MAX_SHORT));
+		MemoryUtil.memPutShort(ptr + 2, (short) Math.round(octY * MAX_SHORT));
+	}
+
+	/**
+	 * The axis aligned box that positions of a compact mesh are quantized against.
+	 */
+	public record CompactBounds(float minX, float minY, float minZ, float extentX, float extentY, float extentZ) {
+	}
 }
@@ -29,6 +29,16 @@ public enum LightSmoothness implements StringRepresentable {
 		if (innerFaceCorrection) {
 			comp.define("_FLW_INNER_FACE_CORRECTION");
 		}
+		if (occlusion()) {
+			comp.define("_FLW_LIGHT_OCCLUSION");
+		}
+	}
+
+	/**
+	 * @return Whether light sections need to carry the precomputed occlusion channel for this smoothness.
+	 */
+	public boolean occlusion() {
+		return smoothnessDefine == 2;
 	}
 
 	@Override
@@ -1,43 +1,225 @@
 package dev.engine_room.flywheel.backend.engine;
 
+import java.util.BitSet;
+
+import org.lwjgl.system.MemoryUtil;
+
 import dev.engine_room.flywheel.lib.memory.MemoryBlock;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
+/**
+ * A block of equally sized elements, handed out one at a time or in runs of consecutive elements.
+ * <p>A run is referred to by the index of its first element.
+ */
 public class Arena {
 	private final long elementSizeBytes;
+	private final long initialSizeBytes;
 
 	private MemoryBlock memoryBlock;
 
-	// Monotonic index, generally represents the size of the arena.
+	// One past the last element in use, generally represents the size of the arena.
+	// The element right below it is never free, freeing it moves top down instead.
 	private int top = 0;
-	// List of free indices.
-	private final IntList freeStack = new IntArrayList();
+	// Free indices below top.
+	private final BitSet free = new BitSet();
+	private int freeCount = 0;
+	// The first index of each run in use.
+	private final BitSet starts = new BitSet();
+	// The length of each run longer than one element.
+	private final Int2IntOpenHashMap lengths = new Int2IntOpenHashMap();
+	{
+		lengths.defaultReturnValue(1);
+	}
 
 	public Arena(long elementSizeBytes, int initialCapacity) {
 		this.elementSizeBytes = elementSizeBytes;
+		initialSizeBytes = elementSizeBytes * initialCapacity;
 
-		memoryBlock = MemoryBlock.malloc(elementSizeBytes * initialCapacity);
+		memoryBlock = MemoryBlock.malloc(initialSizeBytes);
 	}
 
 	public int alloc() {
-		// First re-use freed elements.
-		if (!freeStack.isEmpty()) {
-			return freeStack.removeInt(freeStack.size() - 1);
-		}
+		return alloc(1);
+	}
+
+	/**
+	 * Allocate a run of consecutive elements.
+	 *
+	 * @param count How many elements the run needs.
+	 * @return The index of the first element.
+	 */
+	public int alloc(int count) {
+		// First re-use freed elements, lowest first to keep the arena packed.
+		int i = findFree(count, top);
+
+		if (i >= 0) {
+			free.clear(i, i + count);
+			freeCount -= count;
+		} else {
+			// Make sure there's room to move top up.
+			long size = memoryBlock.size();
+			while ((top + count) * elementSizeBytes > size) {
+				size *= 2;
+			}
+			if (size != memoryBlock.size()) {
+				memoryBlock = memoryBlock.realloc(size);
+			}
 
-		// Make sure there's room to increment top.
-		if (top * elementSizeBytes >= memoryBlock.size()) {
-			memoryBlock = memoryBlock.realloc(memoryBlock.size() * 2);
+			// Take the top index and move up.
+			i = top;
+			top += count;
 		}
 
-		// Return the top index and increment.
-		return top++;
+		starts.set(i);
+		if (count != 1) {
+			lengths.put(i, count);
+		}
+		return i;
 	}
 
+	/**
+	 * Free the element or run starting at the given index.
+	 */
 	public void free(int i) {
+		int count = lengths.remove(i);
+		starts.clear(i);
+
 		// That's it! Now pls don't try to use it.
-		freeStack.add(i);
+		if (i + count != top) {
+			free.set(i, i + count);
+			freeCount += count;
+			return;
+		}
+
+		// Freeing the last element shrinks the arena, along with any free elements right below it.
+		top = i;
+		shrinkTop();
+	}
+
+	private void shrinkTop() {
+		while (top > 0 && free.get(top - 1)) {
+			free.clear(top - 1);
+			freeCount--;
+			top--;
+		}
+	}
+
+	/**
+	 * Move the last element or run into the lowest free indices it fits in, shrinking the arena by at least one.
+	 * <p>Whoever owns the last element needs to use the index it moved to from then on.
+	 *
+	 * @return The index the last element moved to, or -1 if there are no free indices to fill.
+	 */
+	public int moveLastToFree() {
+		int from = lastStart();
+		if (from < 0) {
+			return -1;
+		}
+
+		int count = lengths.get(from);
+		int to = findFree(count, from);
+		if (to < 0) {
+			return -1;
+		}
+
+		free.clear(to, to + count);
+		freeCount -= count;
+		starts.set(to);
+		if (count != 1) {
+			lengths.put(to, count);
+		}
+
+		MemoryUtil.memCopy(indexToPointer(from), indexToPointer(to), count * elementSizeBytes);
+		free(from);
+
+		return to;
+	}
+
+	/**
+	 * @return The index of the first element or run above the lowest free index, or -1 if there are no free indices.
+	 */
+	public int firstStartAfterFree() {
+		int i = free.nextSetBit(0);
+		return i < 0 ? -1 : free.nextClearBit(i);
+	}
+
+	/**
+	 * Move the element or run starting at the given index down over the free indices right below it, so they end up
+	 * above it instead, where they join any free indices there.
+	 * <p>Whoever owns the element needs to use the index it moved to from then on.
+	 *
+	 * @return The index the element moved to.
+	 */
+	public int slideDown(int from) {
+		int to = free.previousClearBit(from - 1) + 1;
+		if (to == from) {
+			return from;
+		}
+
+		int count = lengths.remove(from);
+		int distance = from - to;
+
+		// The old and new places can overlap, so copy in steps no longer than the distance moved.
+		for (int i = 0; i < count; i += distance) {
+			MemoryUtil.memCopy(indexToPointer(from + i), indexToPointer(to + i), Math.min(distance, count - i) * elementSizeBytes);
+		}
+
+		starts.clear(from);
+		starts.set(to);
+		if (count != 1) {
+			lengths.put(to, count);
+		}
+		free.clear(to, to + count);
+		free.set(to + count, from + count);
+		shrinkTop();
+
+		return to;
+	}
+
+	/**
+	 * @return The index of the last element or run, or -1 if the arena is empty.
+	 */
+	public int lastStart() {
+		return top == 0 ? -1 : starts.previousSetBit(top - 1);
+	}
+
+	/**
+	 * @return How many elements the run starting at the given index has.
+	 */
+	public int length(int i) {
+		return lengths.get(i);
+	}
+
+	private int findFree(int count, int below) {
+		for (int i = free.nextSetBit(0); i >= 0 && i < below; ) {
+			int end = free.nextClearBit(i);
+
+			if (end - i >= count) {
+				return i;
+			}
+
+			i = free.nextSetBit(end);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Give memory back if the arena is using a quarter or less of it, without going below the initial capacity.
+	 * <p>Any pointers into the arena are invalid afterwards.
+	 */
+	public void trim() {
+		long used = top * elementSizeBytes;
+		long size = memoryBlock.size();
+
+		// Halving keeps the size at the initial size times a power of 2, same as growing.
+		while (size / 2 >= initialSizeBytes && used * 4 <= size) {
+			size /= 2;
+		}
+
+		if (size != memoryBlock.size()) {
+			memoryBlock = memoryBlock.realloc(size);
+		}
 	}
 
 	public long indexToPointer(int i) {
@@ -52,6 +234,13 @@ public class Arena {
 		return top;
 	}
 
+	/**
+	 * @return How many indices below {@link #capacity()} are free.
+	 */
+	public int freeCount() {
+		return freeCount;
+	}
+
 	public long byteCapacity() {
 		return memoryBlock.size();
 	}
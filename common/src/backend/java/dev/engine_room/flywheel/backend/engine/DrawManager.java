@@ -35,6 +35,16 @@ public abstract class DrawManager<N extends AbstractInstancer<?>> {
 	 * All new instancers land here before having resources allocated in {@link #flush}.
 	 */
 	protected final Queue<UninitializedInstancer<N, ?>> initializationQueue = new ConcurrentLinkedQueue<>();
+	/**
+	 * Instancers that were queued for initialization before the last {@link #stage}.
+	 * <br>
+	 * Only used when pipelining, as instancers created while we flush must wait until they are staged.
+	 */
+	private final List<UninitializedInstancer<N, ?>> stagedInitializations = new ArrayList<>();
+	/**
+	 * Whether {@link #stage} has been called, meaning {@link #flush} runs while visuals are updated for the next frame.
+	 */
+	protected boolean pipelined;
 
 	@SuppressWarnings("unchecked")
 	public <I extends Instance> Instancer<I> getInstancer(Environment environment, InstanceType<I> type, Model model, VisualType visualType, int bias) {
@@ -42,6 +52,14 @@ public abstract class DrawManager<N extends AbstractInstancer<?>> {
 	}
 
 	public void flush(LightStorage lightStorage, EnvironmentStorage environmentStorage) {
+		if (pipelined) {
+			for (var instancer : stagedInitializations) {
+				initialize(instancer.key(), instancer.instancer());
+			}
+			stagedInitializations.clear();
+			return;
+		}
+
 		// Thread safety: flush is called from the render thread after all visual updates have been made,
 		// so there are no:tm: threads we could be racing with.
 		for (var instancer : initializationQueue) {
@@ -50,6 +68,28 @@ public abstract class DrawManager<N extends AbstractInstancer<?>> {
 		initializationQueue.clear();
 	}
 
+	/**
+	 * @return {@code true} if this draw manager can {@linkplain #stage stage} instancers.
+	 */
+	public boolean supportsPipelining() {
+		return false;
+	}
+
+	/**
+	 * Capture the state of all instancers to be uploaded by the next {@link #flush}, so that visuals can be updated
+	 * for the next frame while the current frame is uploaded and drawn.
+	 * <br>
+	 * Called on the render thread while no visuals are being updated. Only called if {@link #supportsPipelining}.
+	 */
+	public void stage(EnvironmentStorage environmentStorage) {
+		pipelined = true;
+
+		UninitializedInstancer<N, ?> instancer;
+		while ((instancer = initializationQueue.poll()) != null) {
+			stagedInitializations.add(instancer);
+		}
+	}
+
 	public void onRenderOriginChanged() {
 		instancers.values()
 				.forEach(AbstractInstancer::clear);
@@ -129,6 +169,7 @@ public abstract class DrawManager<N extends AbstractInstancer<?>> {
 	public void delete() {
 		instancers.clear();
 		initializationQueue.clear();
+		stagedInitializations.clear();
 	}
 
 	protected record UninitializedInstancer<N, I extends Instance>(InstancerKey<I> key, N instancer) {
@@ -34,6 +34,7 @@ public class EngineImpl implements Engine {
 	private final LightStorage lightStorage;
 
 	private BlockPos renderOrigin = BlockPos.ZERO;
+	private boolean pipelined;
 
 	public EngineImpl(LevelAccessor level, DrawManager<? extends AbstractInstancer<?>> drawManager, int maxOriginDistance) {
 		this.drawManager = drawManager;
@@ -75,8 +76,8 @@ public class EngineImpl implements Engine {
 	}
 
 	@Override
-	public void lightSections(LongSet sections) {
-		lightStorage.sections(sections);
+	public void lightSections(LongSet sections, LongSet added, LongSet removed) {
+		lightStorage.sections(added, removed);
 	}
 
 	@Override
@@ -84,11 +85,26 @@ public class EngineImpl implements Engine {
 		lightStorage.onLightUpdate(sectionPos.asLong());
 	}
 
+	@Override
+	public boolean supportsFramePipelining() {
+		return drawManager.supportsPipelining();
+	}
+
+	@Override
+	public void stageFrame() {
+		pipelined = true;
+		// Embeddings are updated by visuals, so their matrices have to be captured along with the instances.
+		environmentStorage.flush();
+		drawManager.stage(environmentStorage);
+	}
+
 	@Override
 	public void setupRender(RenderContext context) {
 		try (var state = GlStateTracker.getRestoreState()) {
 			Uniforms.update(context);
-			environmentStorage.flush();
+			if (!pipelined) {
+				environmentStorage.flush();
+			}
 			drawManager.flush(lightStorage, environmentStorage);
 		}
 	}
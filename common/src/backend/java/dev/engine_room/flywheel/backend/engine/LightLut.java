@@ -33,6 +33,7 @@ public final class LightLut {
 	// [0] : base chunk X, X index count, followed by linear indices of y blocks
 	// [yBlockIndex] : baseChunk Y, Y index count, followed by linear indices of z blocks for this x
 	// [zBlockIndex] : baseChunk Z, Z index count, followed by linear indices of lighting chunks
+	// multiple lighting chunks may share an index when their data is identical, see LightStorage
 	// this data layout allows a single buffer to represent the lighting volume, without requiring the entire 3d lookup volume to be allocated
 	public static IntArrayList buildLut(Long2IntMap sectionIndicesMaps) {
 		if (sectionIndicesMaps.isEmpty()) {
@@ -0,0 +1,164 @@
+package dev.engine_room.flywheel.backend.engine;
+
+import java.util.Arrays;
+
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.lib.math.MoreMath;
+
+/**
+ * The distinct packed light values of a section, used to store its light as indices into them.
+ *
+ * <p>Encoded light is laid out as ints:
+ * <br>[0] : bits per index, one of 0, 1, 2, 4, or 8
+ * <br>[1..4] : the palette, up to 16 packed light bytes
+ * <br>[5..] : the indices, packed starting from the lowest bit of each int, in the same x, z, y order as the blocks
+ *
+ * <p>With 8 bits there's no palette and the indices are the packed light values themselves. Indices never straddle
+ * two ints, which keeps decoding in light_lut.glsl simple.
+ */
+public final class LightPalette {
+	public static final int MAX_SIZE = 16;
+	public static final int RAW_BITS = 8;
+	private static final int PALETTE_START_BYTES = Integer.BYTES;
+	private static final int INDICES_START_BYTES = PALETTE_START_BYTES + MAX_SIZE;
+
+	private final byte[] values = new byte[MAX_SIZE];
+	// The index of each packed light value in the palette, or -1.
+	private final byte[] indices = new byte[256];
+	private int size;
+	private int bits;
+
+	private LightPalette() {
+		Arrays.fill(indices, (byte) -1);
+	}
+
+	/**
+	 * Find the palette for some packed light values.
+	 *
+	 * @param ptr   Pointer to the packed light values, one byte each.
+	 * @param count How many values there are.
+	 */
+	public static LightPalette of(long ptr, int count) {
+		var palette = new LightPalette();
+
+		for (int i = 0; i < count; i++) {
+			int value = MemoryUtil.memGetByte(ptr + i) & 0xFF;
+
+			if (palette.indices[value] >= 0) {
+				continue;
+			}
+
+			if (palette.size == MAX_SIZE) {
+				// Too many values, store them as they are.
+				palette.bits = RAW_BITS;
+				return palette;
+			}
+
+			palette.indices[value] = (byte) palette.size;
+			palette.values[palette.size++] = (byte) value;
+		}
+
+		palette.bits = bitsFor(palette.size);
+		return palette;
+	}
+
+	private static int bitsFor(int size) {
+		if (size <= 1) {
+			return 0;
+		} else if (size <= 2) {
+			return 1;
+		} else if (size <= 4) {
+			return 2;
+		} else {
+			return 4;
+		}
+	}
+
+	public int bits() {
+		return bits;
+	}
+
+	public int encodedSizeBytes(int count) {
+		return encodedSizeBytes(bits, count);
+	}
+
+	/**
+	 * @param bits  Bits per index.
+	 * @param count How many values are encoded.
+	 * @return How many bytes the encoding takes.
+	 */
+	public static int encodedSizeBytes(int bits, int count) {
+		// Always have at least one int of indices, so decoding never reads past the end.
+		int indexInts = Math.max(1, MoreMath.ceilingDiv(count * bits, Integer.SIZE));
+		return INDICES_START_BYTES + indexInts * Integer.BYTES;
+	}
+
+	/**
+	 * Encode the packed light values this palette was made from.
+	 *
+	 * @param ptr   Pointer to the packed light values, one byte each.
+	 * @param count How many values there are.
+	 * @param dst   Pointer to write {@link #encodedSizeBytes} bytes to.
+	 */
+	public void encode(long ptr, int count, long dst) {
+		MemoryUtil.memPutInt(dst, bits);
+		MemoryUtil.memSet(dst + PALETTE_START_BYTES, 0, MAX_SIZE);
+
+		long out = dst + INDICES_START_BYTES;
+
+		if (bits == RAW_BITS) {
+			MemoryUtil.memCopy(ptr, out, count);
+			// Zero the rest of the last int.
+			long end = dst + encodedSizeBytes(count);
+			MemoryUtil.memSet(out + count, 0, end - out - count);
+			return;
+		}
+
+		for (int i = 0; i < size; i++) {
+			MemoryUtil.memPutByte(dst + PALETTE_START_BYTES + i, values[i]);
+		}
+
+		long indicesStart = out;
+		int word = 0;
+		int used = 0;
+
+		for (int i = 0; i < count; i++) {
+			int value = MemoryUtil.memGetByte(ptr + i) & 0xFF;
+			word |= indices[value] << used;
+			used += bits;
+
+			if (used == Integer.SIZE) {
+				MemoryUtil.memPutInt(out, word);
+				out += Integer.BYTES;
+				word = 0;
+				used = 0;
+			}
+		}
+
+		if (used != 0 || out == indicesStart) {
+			MemoryUtil.memPutInt(out, word);
+		}
+	}
+
+	/**
+	 * Decode one packed light value, the same way light_lut.glsl does.
+	 *
+	 * @param encoded Pointer to the encoded light.
+	 * @param index   The index of the value.
+	 * @return The packed light value.
+	 */
+	public static int decode(long encoded, int index) {
+		int bits = MemoryUtil.memGetInt(encoded);
+		int bitOffset = index * bits;
+
+		int word = MemoryUtil.memGetInt(encoded + INDICES_START_BYTES + (long) (bitOffset >>> 5) * Integer.BYTES);
+		int value = (word >>> (bitOffset & 31)) & ((1 << bits) - 1);
+
+		if (bits < RAW_BITS) {
+			value = MemoryUtil.memGetByte(encoded + PALETTE_START_BYTES + value) & 0xFF;
+		}
+
+		return value;
+	}
+}
@@ -1,15 +1,24 @@
 package dev.engine_room.flywheel.backend.engine;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.jetbrains.annotations.Nullable;
 import org.lwjgl.system.MemoryUtil;
 
 import dev.engine_room.flywheel.api.task.Plan;
+import dev.engine_room.flywheel.backend.BackendConfig;
 import dev.engine_room.flywheel.backend.engine.indirect.StagingBuffer;
 import dev.engine_room.flywheel.backend.gl.buffer.GlBuffer;
 import dev.engine_room.flywheel.lib.math.MoreMath;
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 import dev.engine_room.flywheel.lib.task.SimplePlan;
+import dev.engine_room.flywheel.lib.util.StringUtil;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.Long2IntMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
@@ -19,10 +28,12 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.core.SectionPos;
 import net.minecraft.world.level.LevelAccessor;
 import net.minecraft.world.level.LightLayer;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
 import net.minecraft.world.level.lighting.LayerLightEventListener;
 
 /**
- * TODO: AO data
  * A managed arena of light sections for uploading to the GPU.
  *
  * <p>Each section represents an 18x18x18 block volume of light data.
@@ -30,21 +41,70 @@ import net.minecraft.world.level.lighting.LayerLightEventListener;
  * shader invocation only needs to access a single section of data.
  * Even still, neighboring shader invocations may need to access other sections.
  *
- * <p>Sections are logically stored as a 9x9x9 array of longs,
+ * <p>Sections are collected as a 9x9x9 array of longs,
  * where each long holds a 2x2x2 array of light data.
  * <br>Both the greater array and the longs are packed in x, z, y order.
  *
- * <p>Thus, each section occupies 5832 bytes.
+ * <p>Thus, each section is collected into 5832 bytes. In the arena the light is stored as indices into a palette of
+ * the section's distinct values instead, see {@link LightPalette}. Most sections only have a few, so they take a
+ * fraction of that. Sections take a run of {@value #PAGE_SIZE_BYTES} byte pages big enough for their data, and the LUT
+ * points at their first page.
+ *
+ * <p>When the light smoothness needs it, sections also carry an occlusion channel of two ints for each of the
+ * 16x16x16 blocks inside the section: a 27 bit mask of which blocks in the 3x3x3 volume around it are solid, and
+ * which corners of that volume vanilla AO leaves out for each axis. It's computed once when the section is collected,
+ * so smooth lighting reads two ints per fragment instead of 27 solid bits, and matches vanilla AO even though that
+ * looks one block further out than the light data reaches. That adds 32KiB to each section.
+ *
+ * <p>In the arena, a section is its solid bits, then the occlusion channel if there is one, then its encoded light.
+ *
+ * <p>Sections where every block has the same light and is equally solid, like open sky or deep underground,
+ * share a single slot in the arena per distinct value. The LUT points all of them at the same index.
  */
 public class LightStorage {
 	public static final int BLOCKS_PER_SECTION = 18 * 18 * 18;
 	public static final int LIGHT_SIZE_BYTES = BLOCKS_PER_SECTION;
 	public static final int SOLID_SIZE_BYTES = MoreMath.ceilingDiv(BLOCKS_PER_SECTION, Integer.SIZE) * Integer.BYTES;
+	/**
+	 * The size of a collected section without the occlusion channel.
+	 */
 	public static final int SECTION_SIZE_BYTES = SOLID_SIZE_BYTES + LIGHT_SIZE_BYTES;
-	private static final int DEFAULT_ARENA_CAPACITY_SECTIONS = 64;
+	// Where the occlusion channel is in a collected section.
+	public static final int OCCLUSION_START_BYTES = SECTION_SIZE_BYTES;
+	public static final int OCCLUSION_SIZE_BYTES = 16 * 16 * 16 * 2 * Integer.BYTES;
+	// How far past the section solid blocks are collected when computing the occlusion channel.
+	static final int OCCLUSION_MARGIN = 2;
+	static final int OCCLUSION_SOLID_SIZE = 16 + OCCLUSION_MARGIN * 2;
+	static final int COMPLETELY_SOLID = (1 << 27) - 1;
+	public static final int PAGE_SIZE_BYTES = 256;
+	private static final int DEFAULT_ARENA_CAPACITY_PAGES = 256;
 	private static final int INVALID_SECTION = -1;
+	// Sections are at most 6.5KiB each, or 38.5KiB with occlusion, so this moves and uploads at most 2.5MiB a frame.
+	private static final int COMPACTION_MOVES_PER_FRAME = 64;
+	static final int NOT_UNIFORM = -1;
+	// 5832 is divisible by 8, so the solid bits end exactly on a byte boundary.
+	private static final int SOLID_DATA_BYTES = BLOCKS_PER_SECTION / Byte.SIZE;
+
+	// Reads the nibbles of 16 blocks along x at once.
+	private static final VarHandle NIBBLE_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final boolean NATIVE_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	// Stand-ins for homogenous data layers, one for each light level.
+	private static final byte[][] FILLED_NIBBLES = new byte[16][];
+	static {
+		for (int i = 0; i < FILLED_NIBBLES.length; i++) {
+			FILLED_NIBBLES[i] = new byte[DataLayer.SIZE];
+			Arrays.fill(FILLED_NIBBLES[i], (byte) (i | i << 4));
+		}
+	}
+
+	private static final AtomicLong TOTAL_UPLOAD_BYTES = new AtomicLong();
+	private static volatile long lastUploadBytes;
 
 	private final LevelAccessor level;
+	private final boolean occlusion;
+	private final int collectedSizeBytes;
+	// Where the encoded light starts in the arena.
+	private final int lightStartBytes;
 
 	private final Arena arena;
 	private final Long2IntMap section2ArenaIndex = new Long2IntOpenHashMap();
@@ -52,27 +112,68 @@ public class LightStorage {
 		section2ArenaIndex.defaultReturnValue(INVALID_SECTION);
 	}
 
+	// Which uniform value each uniform section has. Sections without an entry have a slot to themselves.
+	private final Long2IntMap section2Uniform = new Long2IntOpenHashMap();
+	{
+		section2Uniform.defaultReturnValue(NOT_UNIFORM);
+	}
+	private final Int2IntMap uniform2ArenaIndex = new Int2IntOpenHashMap();
+	{
+		uniform2ArenaIndex.defaultReturnValue(INVALID_SECTION);
+	}
+	private final Int2IntOpenHashMap uniformRefCounts = new Int2IntOpenHashMap();
+
+	// Sections are collected here first so uniform ones don't need a slot of their own.
+	private final MemoryBlock scratch;
+
 	private final BitSet changed = new BitSet();
 	private boolean needsLutRebuild = false;
+	private boolean compacting = false;
+	// Compaction doesn't start again until a section is allocated or freed.
+	private boolean compactionBackoff = false;
 
 	private final LongSet updatedSections = new LongOpenHashSet();
-	@Nullable
-	private LongSet requestedSections;
+	private final LongSet addedSections = new LongOpenHashSet();
+	private final LongSet removedSections = new LongOpenHashSet();
 
 	public LightStorage(LevelAccessor level) {
+		this(level, BackendConfig.INSTANCE.lightSmoothness()
+				.occlusion());
+	}
+
+	/**
+	 * @param level     The level to collect sections from.
+	 * @param occlusion Whether to compute and store the occlusion channel.
+	 */
+	public LightStorage(LevelAccessor level, boolean occlusion) {
 		this.level = level;
+		this.occlusion = occlusion;
+		collectedSizeBytes = SECTION_SIZE_BYTES + (occlusion ? OCCLUSION_SIZE_BYTES : 0);
+		lightStartBytes = SOLID_SIZE_BYTES + (occlusion ? OCCLUSION_SIZE_BYTES : 0);
 
-		arena = new Arena(SECTION_SIZE_BYTES, DEFAULT_ARENA_CAPACITY_SECTIONS);
+		arena = new Arena(PAGE_SIZE_BYTES, DEFAULT_ARENA_CAPACITY_PAGES);
+		scratch = MemoryBlock.malloc(collectedSizeBytes);
 	}
 
 	/**
-	 * Set the set of requested sections.
-	 * <p> When set, this will be processed in the next frame plan. It may not be set every frame.
+	 * Change the set of requested sections.
+	 * <p> Changes are accumulated and processed in the next frame plan. They may not be made every frame.
 	 *
-	 * @param sections The set of sections requested by the impl.
+	 * @param added The sections newly requested by the impl.
+	 * @param removed The sections the impl no longer requests.
 	 */
-	public void sections(LongSet sections) {
-		requestedSections = sections;
+	public void sections(LongSet added, LongSet removed) {
+		// A section that comes and goes before the next frame plan cancels out.
+		for (long section : removed) {
+			if (!addedSections.remove(section)) {
+				removedSections.add(section);
+			}
+		}
+		for (long section : added) {
+			if (!removedSections.remove(section)) {
+				addedSections.add(section);
+			}
+		}
 	}
 
 	public void onLightUpdate(long section) {
@@ -81,68 +182,128 @@ public class LightStorage {
 
 	public <C> Plan<C> createFramePlan() {
 		return SimplePlan.of(() -> {
-			if (updatedSections.isEmpty() && requestedSections == null) {
-				return;
-			}
+			updateSections();
+			compact();
+		});
+	}
+
+	private void updateSections() {
+		if (updatedSections.isEmpty() && addedSections.isEmpty() && removedSections.isEmpty()) {
+			return;
+		}
+
+		removeUnusedSections();
 
-			removeUnusedSections();
-
-			// Start building the set of sections we need to collect this frame.
-			LongSet sectionsToCollect;
-			if (requestedSections == null) {
-				// If none were requested, then we need to collect all sections that received updates.
-				sectionsToCollect = new LongOpenHashSet();
-			} else {
-				// If we did receive a new set of requested sections, we only
-				// need to collect the sections that weren't yet tracked.
-				sectionsToCollect = new LongOpenHashSet(requestedSections);
-				sectionsToCollect.removeAll(section2ArenaIndex.keySet());
+		// Start building the set of sections we need to collect this frame.
+		// Newly requested sections need to be collected if they weren't yet tracked.
+		LongSet sectionsToCollect = new LongOpenHashSet();
+		for (long section : addedSections) {
+			if (!section2ArenaIndex.containsKey(section)) {
+				sectionsToCollect.add(section);
 			}
+		}
 
-			// updatedSections contains all sections that received light updates,
-			// but we only care about its intersection with our tracked sections.
-			for (long updatedSection : updatedSections) {
-				// Since sections contain the border light of their neighbors, we need to collect the neighbors as well.
-				for (int x = -1; x <= 1; x++) {
-					for (int y = -1; y <= 1; y++) {
-						for (int z = -1; z <= 1; z++) {
-							long section = SectionPos.offset(updatedSection, x, y, z);
-							if (section2ArenaIndex.containsKey(section)) {
-								sectionsToCollect.add(section);
-							}
+		// updatedSections contains all sections that received light updates,
+		// but we only care about its intersection with our tracked sections.
+		for (long updatedSection : updatedSections) {
+			// Since sections contain the border light of their neighbors, we need to collect the neighbors as well.
+			for (int x = -1; x <= 1; x++) {
+				for (int y = -1; y <= 1; y++) {
+					for (int z = -1; z <= 1; z++) {
+						long section = SectionPos.offset(updatedSection, x, y, z);
+						if (section2ArenaIndex.containsKey(section)) {
+							sectionsToCollect.add(section);
 						}
 					}
 				}
 			}
+		}
 
-			// Now actually do the collection.
-			// TODO: Should this be done in parallel?
-			sectionsToCollect.forEach(this::collectSection);
+		// Now actually do the collection.
+		// TODO: Should this be done in parallel?
+		sectionsToCollect.forEach(this::collectSection);
 
-			updatedSections.clear();
-			requestedSections = null;
-		});
+		updatedSections.clear();
+		addedSections.clear();
 	}
 
-	private void removeUnusedSections() {
-		if (requestedSections == null) {
-			return;
+	/**
+	 * Move sections from the end of the arena into the holes left by removed ones, a few per frame, once enough of
+	 * the arena is holes. When the last section doesn't fit in any hole, the sections above the lowest hole slide down
+	 * instead, merging the holes until it does. When there are no holes left, give the memory past the last section
+	 * back.
+	 */
+	private void compact() {
+		if (!compacting) {
+			if (compactionBackoff || arena.capacity() <= DEFAULT_ARENA_CAPACITY_PAGES || arena.freeCount() * 2 < arena.capacity()) {
+				return;
+			}
+
+			compacting = true;
+		}
+
+		// Where each moved section started this frame, by where it is now.
+		Int2IntMap origins = new Int2IntOpenHashMap();
+
+		for (int i = 0; i < COMPACTION_MOVES_PER_FRAME; i++) {
+			int from = arena.lastStart();
+			int to = arena.moveLastToFree();
+
+			if (to < 0) {
+				from = arena.firstStartAfterFree();
+
+				if (from < 0) {
+					// No holes left.
+					compacting = false;
+					compactionBackoff = true;
+					break;
+				}
+
+				to = arena.slideDown(from);
+			}
+
+			origins.put(to, origins.containsKey(from) ? origins.remove(from) : from);
+			changed.set(to, to + arena.length(to));
 		}
 
-		var entries = section2ArenaIndex.long2IntEntrySet();
-		var it = entries.iterator();
-		while (it.hasNext()) {
-			var entry = it.next();
-			var section = entry.getLongKey();
+		if (!origins.isEmpty()) {
+			Int2IntMap moved = new Int2IntOpenHashMap();
+			for (var entry : origins.int2IntEntrySet()) {
+				moved.put(entry.getIntValue(), entry.getIntKey());
+			}
 
-			if (!requestedSections.contains(section)) {
-				arena.free(entry.getIntValue());
-				needsLutRebuild = true;
-				it.remove();
+			for (var entry : section2ArenaIndex.long2IntEntrySet()) {
+				int index = entry.getIntValue();
+				if (moved.containsKey(index)) {
+					entry.setValue(moved.get(index));
+				}
+			}
+			for (var entry : uniform2ArenaIndex.int2IntEntrySet()) {
+				int index = entry.getIntValue();
+				if (moved.containsKey(index)) {
+					entry.setValue(moved.get(index));
+				}
 			}
+
+			needsLutRebuild = true;
+		}
+
+		if (!compacting) {
+			arena.trim();
 		}
 	}
 
+	private void removeUnusedSections() {
+		for (long section : removedSections) {
+			releaseSlot(section);
+		}
+
+		removedSections.clear();
+	}
+
+	/**
+	 * @return How many pages of the arena are in use, including the holes between them.
+	 */
 	public int capacity() {
 		return arena.capacity();
 	}
@@ -153,175 +314,551 @@ public class LightStorage {
 		var blockLight = lightEngine.getLayerListener(LightLayer.BLOCK);
 		var skyLight = lightEngine.getLayerListener(LightLayer.SKY);
 
-		int index = indexForSection(section);
-
-		changed.set(index);
-
-		long ptr = arena.indexToPointer(index);
+		long ptr = scratch.ptr();
 
 		// Zero it out first. This is basically free and makes it easier to handle missing sections later.
-		MemoryUtil.memSet(ptr, 0, SECTION_SIZE_BYTES);
+		MemoryUtil.memSet(ptr, 0, collectedSizeBytes);
 
 		collectSolidData(ptr, section);
 
-		collectCenter(blockLight, skyLight, ptr, section);
-
-		for (SectionEdge i : SectionEdge.values()) {
-			collectYZPlane(blockLight, skyLight, ptr, SectionPos.offset(section, i.sectionOffset, 0, 0), i);
-			collectXZPlane(blockLight, skyLight, ptr, SectionPos.offset(section, 0, i.sectionOffset, 0), i);
-			collectXYPlane(blockLight, skyLight, ptr, SectionPos.offset(section, 0, 0, i.sectionOffset), i);
+		// Look up the data layers of the section and its neighbors once, then copy from them in bulk.
+		var blockData = new DataLayer[27];
+		var skyData = new DataLayer[27];
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (dx != 0 && dy != 0 && dz != 0) {
+						continue;
+					}
 
-			for (SectionEdge j : SectionEdge.values()) {
-				collectXStrip(blockLight, skyLight, ptr, SectionPos.offset(section, 0, i.sectionOffset, j.sectionOffset), i, j);
-				collectYStrip(blockLight, skyLight, ptr, SectionPos.offset(section, i.sectionOffset, 0, j.sectionOffset), i, j);
-				collectZStrip(blockLight, skyLight, ptr, SectionPos.offset(section, i.sectionOffset, j.sectionOffset, 0), i, j);
+					var pos = SectionPos.of(SectionPos.offset(section, dx, dy, dz));
+					int neighbor = neighborIndex(dx, dy, dz);
+					blockData[neighbor] = blockLight.getDataLayerData(pos);
+					skyData[neighbor] = skyLight.getDataLayerData(pos);
+				}
 			}
 		}
 
+		collectLight(ptr, blockData, skyData);
 		collectCorners(blockLight, skyLight, ptr, section);
-	}
 
-	private void collectSolidData(long ptr, long section) {
-		var blockPos = new BlockPos.MutableBlockPos();
-		int xMin = SectionPos.sectionToBlockCoord(SectionPos.x(section));
-		int yMin = SectionPos.sectionToBlockCoord(SectionPos.y(section));
-		int zMin = SectionPos.sectionToBlockCoord(SectionPos.z(section));
+		store(section, ptr);
+	}
 
-		var bitSet = new BitSet(BLOCKS_PER_SECTION);
-		int index = 0;
-		for (int y = -1; y < 17; y++) {
-			for (int z = -1; z < 17; z++) {
-				for (int x = -1; x < 17; x++) {
-					blockPos.set(xMin + x, yMin + y, zMin + z);
+	/**
+	 * Store freshly collected data for the given section in the arena.
+	 *
+	 * @param section The section the data is for.
+	 * @param ptr     Pointer to the collected data, which is encoded into the arena.
+	 */
+	void store(long section, long ptr) {
+		int uniform = uniformValue(ptr);
 
-					boolean isFullBlock = level.getBlockState(blockPos)
-							.isCollisionShapeFullBlock(level, blockPos);
+		if (uniform != NOT_UNIFORM && occlusion && hasHiddenCorners(ptr)) {
+			// Hidden corners depend on blocks past the light data, so they can still differ between such sections.
+			uniform = NOT_UNIFORM;
+		}
 
-					if (isFullBlock) {
-						bitSet.set(index);
-					}
+		int oldUniform = section2Uniform.get(section);
 
-					index++;
-				}
+		if (uniform != NOT_UNIFORM) {
+			if (uniform == oldUniform) {
+				// Already pointing at the right data.
+				return;
 			}
+
+			releaseSlot(section);
+			section2ArenaIndex.put(section, acquireUniform(uniform, ptr));
+			section2Uniform.put(section, uniform);
+			needsLutRebuild = true;
+			return;
 		}
 
-		var longArray = bitSet.toLongArray();
-		for (long l : longArray) {
-			MemoryUtil.memPutLong(ptr, l);
-			ptr += Long.BYTES;
+		var palette = LightPalette.of(ptr + SOLID_SIZE_BYTES, LIGHT_SIZE_BYTES);
+		int pages = pagesFor(palette);
+		int index = section2ArenaIndex.get(section);
+
+		if (index == INVALID_SECTION || oldUniform != NOT_UNIFORM || arena.length(index) != pages) {
+			// Need a slot of our own, of the right size.
+			releaseSlot(section);
+			index = arena.alloc(pages);
+			compactionBackoff = false;
+			section2ArenaIndex.put(section, index);
+			needsLutRebuild = true;
 		}
+
+		encode(ptr, palette, index);
 	}
 
-	private void writeSolid(long ptr, int index, boolean blockValid) {
-		if (!blockValid) {
+	private int acquireUniform(int uniform, long ptr) {
+		int index = uniform2ArenaIndex.get(uniform);
+
+		if (index == INVALID_SECTION) {
+			var palette = LightPalette.of(ptr + SOLID_SIZE_BYTES, LIGHT_SIZE_BYTES);
+			index = arena.alloc(pagesFor(palette));
+			compactionBackoff = false;
+			uniform2ArenaIndex.put(uniform, index);
+			encode(ptr, palette, index);
+		}
+
+		uniformRefCounts.addTo(uniform, 1);
+		return index;
+	}
+
+	private void releaseSlot(long section) {
+		int index = section2ArenaIndex.remove(section);
+
+		if (index == INVALID_SECTION) {
 			return;
 		}
-		int intIndex = index / Integer.SIZE;
-		int bitIndex = index % Integer.SIZE;
 
-		long offset = intIndex * Integer.BYTES;
+		int uniform = section2Uniform.remove(section);
 
-		int bitField = MemoryUtil.memGetInt(ptr + offset);
-		bitField |= 1 << bitIndex;
+		if (uniform == NOT_UNIFORM) {
+			arena.free(index);
+			compactionBackoff = false;
+		} else if (uniformRefCounts.addTo(uniform, -1) == 1) {
+			// That was the last section sharing this slot.
+			uniformRefCounts.remove(uniform);
+			arena.free(uniform2ArenaIndex.remove(uniform));
+			compactionBackoff = false;
+		}
 
-		MemoryUtil.memPutInt(ptr + offset, bitField);
+		needsLutRebuild = true;
 	}
 
-	private void collectXStrip(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section, SectionEdge y, SectionEdge z) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
-			return;
+	private int pagesFor(LightPalette palette) {
+		return MoreMath.ceilingDiv(lightStartBytes + palette.encodedSizeBytes(LIGHT_SIZE_BYTES), PAGE_SIZE_BYTES);
+	}
+
+	private void encode(long ptr, LightPalette palette, int index) {
+		long dst = arena.indexToPointer(index);
+
+		MemoryUtil.memCopy(ptr, dst, SOLID_SIZE_BYTES);
+		if (occlusion) {
+			MemoryUtil.memCopy(ptr + OCCLUSION_START_BYTES, dst + SOLID_SIZE_BYTES, OCCLUSION_SIZE_BYTES);
 		}
-		for (int x = 0; x < 16; x++) {
-			write(ptr, x, y.relative, z.relative, blockData.get(x, y.pos, z.pos), skyData.get(x, y.pos, z.pos));
+		palette.encode(ptr + SOLID_SIZE_BYTES, LIGHT_SIZE_BYTES, dst + lightStartBytes);
+
+		changed.set(index, index + arena.length(index));
+	}
+
+	/**
+	 * Check whether every block in the given section data has the same light and solidity.
+	 *
+	 * @param ptr Pointer to the base of a section's data.
+	 * @return The packed light byte with the solid flag in bit 8, or {@link #NOT_UNIFORM}.
+	 */
+	static int uniformValue(long ptr) {
+		byte solidByte = MemoryUtil.memGetByte(ptr);
+
+		if (solidByte != 0 && solidByte != (byte) 0xFF) {
+			return NOT_UNIFORM;
+		}
+
+		if (!isFilled(ptr, SOLID_DATA_BYTES, solidByte)) {
+			return NOT_UNIFORM;
 		}
+
+		long lightPtr = ptr + SOLID_SIZE_BYTES;
+		byte lightByte = MemoryUtil.memGetByte(lightPtr);
+
+		if (!isFilled(lightPtr, LIGHT_SIZE_BYTES, lightByte)) {
+			return NOT_UNIFORM;
+		}
+
+		return (lightByte & 0xFF) | (solidByte != 0 ? 1 << 8 : 0);
 	}
 
-	private void collectYStrip(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section, SectionEdge x, SectionEdge z) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
-			return;
+	private static boolean hasHiddenCorners(long ptr) {
+		long occlusionPtr = ptr + OCCLUSION_START_BYTES;
+
+		for (int i = 0; i < 16 * 16 * 16; i++) {
+			if (MemoryUtil.memGetInt(occlusionPtr + (2L * i + 1) * Integer.BYTES) != 0) {
+				return true;
+			}
 		}
-		for (int y = 0; y < 16; y++) {
-			write(ptr, x.relative, y, z.relative, blockData.get(x.pos, y, z.pos), skyData.get(x.pos, y, z.pos));
+
+		return false;
+	}
+
+	private static boolean isFilled(long ptr, int bytes, byte value) {
+		long pattern = (value & 0xFFL) * 0x0101010101010101L;
+		int i = 0;
+
+		for (; i + Long.BYTES <= bytes; i += Long.BYTES) {
+			if (MemoryUtil.memGetLong(ptr + i) != pattern) {
+				return false;
+			}
 		}
+
+		for (; i < bytes; i++) {
+			if (MemoryUtil.memGetByte(ptr + i) != value) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
-	private void collectZStrip(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section, SectionEdge x, SectionEdge y) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
-			return;
+	private void collectSolidData(long ptr, long section) {
+		// The occlusion channel looks one block further out than the light data does.
+		int margin = occlusion ? OCCLUSION_MARGIN : 1;
+		var solid = collectSolid(section, margin);
+
+		writeSolidData(ptr, solid, margin);
+
+		if (occlusion) {
+			collectOcclusionData(ptr, solid);
+		}
+	}
+
+	private BitSet collectSolid(long section, int margin) {
+		var blockPos = new BlockPos.MutableBlockPos();
+		int sectionX = SectionPos.x(section);
+		int sectionY = SectionPos.y(section);
+		int sectionZ = SectionPos.z(section);
+		int size = 16 + margin * 2;
+
+		var bitSet = new BitSet(size * size * size);
+
+		// Go through the chunk sections the volume covers, instead of finding the chunk again for every block.
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					int cx = sectionX + dx;
+					int cy = sectionY + dy;
+					int cz = sectionZ + dz;
+					var chunk = level.getChunk(cx, cz, ChunkStatus.FULL, false);
+					SolidTest solid;
+
+					if (chunk == null) {
+						// Levels that don't hand out their chunks still go through the slow path.
+						solid = (x, y, z) -> {
+							blockPos.set(SectionPos.sectionToBlockCoord(cx, x), SectionPos.sectionToBlockCoord(cy, y), SectionPos.sectionToBlockCoord(cz, z));
+							return level.getBlockState(blockPos)
+									.isCollisionShapeFullBlock(level, blockPos);
+						};
+					} else {
+						int sectionIndex = chunk.getSectionIndexFromSectionY(cy);
+
+						if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) {
+							// Outside the build height, nothing is solid.
+							continue;
+						}
+
+						LevelChunkSection chunkSection = chunk.getSection(sectionIndex);
+
+						if (chunkSection.hasOnlyAir()) {
+							continue;
+						}
+
+						solid = (x, y, z) -> {
+							blockPos.set(SectionPos.sectionToBlockCoord(cx, x), SectionPos.sectionToBlockCoord(cy, y), SectionPos.sectionToBlockCoord(cz, z));
+							return chunkSection.getBlockState(x, y, z)
+									.isCollisionShapeFullBlock(level, blockPos);
+						};
+					}
+
+					collectNeighborSolid(bitSet, dx, dy, dz, margin, solid);
+				}
+			}
 		}
-		for (int z = 0; z < 16; z++) {
-			write(ptr, x.relative, y.relative, z, blockData.get(x.pos, y.pos, z), skyData.get(x.pos, y.pos, z));
+
+		return bitSet;
+	}
+
+	/**
+	 * Set the bits of the solid blocks of one neighboring section, or the section itself, that fall in the volume.
+	 *
+	 * @param out    Solid blocks with the given margin around the section, in x, z, y order.
+	 * @param margin How many blocks past the section the volume goes.
+	 * @param solid  Whether a block is solid, by its position in the neighboring section.
+	 */
+	static void collectNeighborSolid(BitSet out, int dx, int dy, int dz, int margin, SolidTest solid) {
+		int size = 16 + margin * 2;
+		int xMin = dx < 0 ? 16 - margin : 0;
+		int yMin = dy < 0 ? 16 - margin : 0;
+		int zMin = dz < 0 ? 16 - margin : 0;
+		int xMax = dx > 0 ? margin : 16;
+		int yMax = dy > 0 ? margin : 16;
+		int zMax = dz > 0 ? margin : 16;
+
+		for (int y = yMin; y < yMax; y++) {
+			for (int z = zMin; z < zMax; z++) {
+				for (int x = xMin; x < xMax; x++) {
+					if (solid.isSolid(x, y, z)) {
+						int index = (x + dx * 16 + margin) + (z + dz * 16 + margin) * size + (y + dy * 16 + margin) * size * size;
+						out.set(index);
+					}
+				}
+			}
 		}
 	}
 
-	private void collectYZPlane(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section, SectionEdge x) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
-			return;
+	/**
+	 * Write the solid bits of the 18x18x18 volume to the given section.
+	 *
+	 * @param ptr    Pointer to the base of a section's data.
+	 * @param solid  Solid blocks collected with the given margin around the section, in x, z, y order.
+	 * @param margin How many blocks past the section the solid blocks were collected, at least 1.
+	 */
+	static void writeSolidData(long ptr, BitSet solid, int margin) {
+		var bitSet = solid;
+
+		if (margin != 1) {
+			int size = 16 + margin * 2;
+			int skip = margin - 1;
+
+			bitSet = new BitSet(BLOCKS_PER_SECTION);
+			int index = 0;
+			for (int y = skip; y < size - skip; y++) {
+				for (int z = skip; z < size - skip; z++) {
+					for (int x = skip; x < size - skip; x++) {
+						if (solid.get(x + z * size + y * size * size)) {
+							bitSet.set(index);
+						}
+
+						index++;
+					}
+				}
+			}
 		}
+
+		var longArray = bitSet.toLongArray();
+		for (long l : longArray) {
+			MemoryUtil.memPutLong(ptr, l);
+			ptr += Long.BYTES;
+		}
+	}
+
+	/**
+	 * Fill in the occlusion channel for the given section.
+	 *
+	 * <p>For a full face, vanilla AO averages the shade of the block in front of the face, the two blocks beside it
+	 * towards a vertex, and the corner block between those. If the blocks past both sides, one further out from the
+	 * face, are solid, it uses the side along the face's first axis again in place of the corner. Those are the
+	 * hidden corners. Which side replaces them depends on the face the same way as vanilla's adjacency info, which the
+	 * shader takes care of.
+	 *
+	 * <p>Uniform sections stay uniform: the channel only depends on solid blocks, and is all empty or all full.
+	 *
+	 * @param ptr   Pointer to the base of a section's data.
+	 * @param solid Solid blocks collected {@value #OCCLUSION_MARGIN} blocks past the section, in x, z, y order.
+	 */
+	static void collectOcclusionData(long ptr, BitSet solid) {
+		long occlusionPtr = ptr + OCCLUSION_START_BYTES;
+
 		for (int y = 0; y < 16; y++) {
 			for (int z = 0; z < 16; z++) {
-				write(ptr, x.relative, y, z, blockData.get(x.pos, y, z), skyData.get(x.pos, y, z));
+				for (int x = 0; x < 16; x++) {
+					int center = solidIndex(x + OCCLUSION_MARGIN, y + OCCLUSION_MARGIN, z + OCCLUSION_MARGIN);
+
+					int mask = 0;
+					int bit = 0;
+					for (int dy = -1; dy <= 1; dy++) {
+						for (int dz = -1; dz <= 1; dz++) {
+							for (int dx = -1; dx <= 1; dx++) {
+								if (solid.get(center + solidIndex(dx, dy, dz))) {
+									mask |= 1 << bit;
+								}
+								bit++;
+							}
+						}
+					}
+
+					int hidden = 0;
+
+					// Smooth lighting doesn't look any further when surrounded, and this keeps deep underground
+					// sections uniform.
+					if (mask != COMPLETELY_SOLID) {
+						for (int axis = 0; axis < 3; axis++) {
+							hidden |= hiddenCorners(solid, center, axis, -1);
+							hidden |= hiddenCorners(solid, center, axis, 1);
+						}
+					}
+
+					MemoryUtil.memPutInt(occlusionPtr, mask);
+					MemoryUtil.memPutInt(occlusionPtr + Integer.BYTES, hidden);
+					occlusionPtr += 2 * Integer.BYTES;
+				}
 			}
 		}
 	}
 
-	private void collectXZPlane(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section, SectionEdge y) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
-			return;
-		}
-		for (int z = 0; z < 16; z++) {
-			for (int x = 0; x < 16; x++) {
-				write(ptr, x, y.relative, z, blockData.get(x, y.pos, z), skyData.get(x, y.pos, z));
+	/**
+	 * Find the hidden corners on one face of a block.
+	 *
+	 * @param center The index of the block in the solid bits.
+	 * @param axis   The axis of the face, 0, 1, 2 for x, y, z.
+	 * @param sign   Which way along the axis the face points, -1 or 1.
+	 * @return Bit (x + 1) / 2 + (z + 1) + (y + 1) * 2 + axis * 8 set for each hidden corner at offset x, y, z.
+	 */
+	private static int hiddenCorners(BitSet solid, int center, int axis, int sign) {
+		int uAxis = (axis + 1) % 3;
+		int vAxis = (axis + 2) % 3;
+		int out = 0;
+		var offset = new int[3];
+
+		for (int a = -1; a <= 1; a += 2) {
+			for (int b = -1; b <= 1; b += 2) {
+				// Past the sides, one further out from the face than the sides themselves.
+				offset[axis] = sign * 2;
+				offset[uAxis] = a;
+				offset[vAxis] = 0;
+				boolean uCovered = solid.get(center + solidIndex(offset[0], offset[1], offset[2]));
+
+				offset[uAxis] = 0;
+				offset[vAxis] = b;
+				boolean vCovered = solid.get(center + solidIndex(offset[0], offset[1], offset[2]));
+
+				if (uCovered && vCovered) {
+					offset[axis] = sign;
+					offset[uAxis] = a;
+					out |= 1 << ((offset[0] + 1) / 2 + (offset[2] + 1) + (offset[1] + 1) * 2 + axis * 8);
+				}
 			}
 		}
+
+		return out;
+	}
+
+	private static int solidIndex(int x, int y, int z) {
+		return x + z * OCCLUSION_SOLID_SIZE + y * OCCLUSION_SOLID_SIZE * OCCLUSION_SOLID_SIZE;
 	}
 
-	private void collectXYPlane(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section, SectionEdge z) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
+	private void writeSolid(long ptr, int index, boolean blockValid) {
+		if (!blockValid) {
 			return;
 		}
-		for (int y = 0; y < 16; y++) {
-			for (int x = 0; x < 16; x++) {
-				write(ptr, x, y, z.relative, blockData.get(x, y, z.pos), skyData.get(x, y, z.pos));
+		int intIndex = index / Integer.SIZE;
+		int bitIndex = index % Integer.SIZE;
+
+		long offset = intIndex * Integer.BYTES;
+
+		int bitField = MemoryUtil.memGetInt(ptr + offset);
+		bitField |= 1 << bitIndex;
+
+		MemoryUtil.memPutInt(ptr + offset, bitField);
+	}
+
+	/**
+	 * Copy the light of a section and the faces and edges of its neighbors from their data layers.
+	 *
+	 * <p>The corners are left out, they go through the light engine instead so that missing sections still get light.
+	 *
+	 * @param ptr       Pointer to the base of a section's data.
+	 * @param blockData Block light of the 3x3x3 sections around and including the section, in x, z, y order.
+	 *                  Null for missing layers, sections missing either layer are left dark.
+	 * @param skyData   Sky light of the same sections.
+	 */
+	static void collectLight(long ptr, DataLayer[] blockData, DataLayer[] skyData) {
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (dx != 0 && dy != 0 && dz != 0) {
+						continue;
+					}
+
+					int neighbor = neighborIndex(dx, dy, dz);
+					var block = blockData[neighbor];
+					var sky = skyData[neighbor];
+
+					if (block != null && sky != null) {
+						collectLight(ptr, nibbles(block), nibbles(sky), dx, dy, dz);
+					}
+				}
 			}
 		}
 	}
 
-	private void collectCenter(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section) {
-		var pos = SectionPos.of(section);
-		var blockData = blockLight.getDataLayerData(pos);
-		var skyData = skyLight.getDataLayerData(pos);
-		if (blockData == null || skyData == null) {
-			return;
-		}
-		for (int y = 0; y < 16; y++) {
-			for (int z = 0; z < 16; z++) {
-				for (int x = 0; x < 16; x++) {
-					write(ptr, x, y, z, blockData.get(x, y, z), skyData.get(x, y, z));
+	/**
+	 * Copy the part of a neighboring section that falls in the 18x18x18 volume, a row along x at a time.
+	 */
+	private static void collectLight(long ptr, byte[] block, byte[] sky, int dx, int dy, int dz) {
+		int xMin = edgeMin(dx);
+		int yMin = edgeMin(dy);
+		int zMin = edgeMin(dz);
+		int yMax = yMin + edgeSize(dy);
+		int zMax = zMin + edgeSize(dz);
+		boolean fullRows = edgeSize(dx) == 16;
+
+		for (int y = yMin; y < yMax; y++) {
+			for (int z = zMin; z < zMax; z++) {
+				int index = y << 8 | z << 4 | xMin;
+				long dst = ptr + SOLID_SIZE_BYTES + lightOffset(xMin + dx * 16, y + dy * 16, z + dz * 16);
+
+				if (fullRows) {
+					collectRow(dst, block, sky, index >> 1);
+				} else {
+					MemoryUtil.memPutByte(dst, (byte) (nibble(block, index) | nibble(sky, index) << 4));
 				}
 			}
 		}
 	}
 
+	/**
+	 * Pack a full row of 16 blocks, reading the 8 bytes of nibbles from each layer at once.
+	 */
+	private static void collectRow(long dst, byte[] block, byte[] sky, int byteIndex) {
+		long blockNibbles = (long) NIBBLE_LONGS.get(block, byteIndex);
+		long skyNibbles = (long) NIBBLE_LONGS.get(sky, byteIndex);
+
+		putLongLittleEndian(dst, spreadNibbles(blockNibbles) | spreadNibbles(skyNibbles) << 4);
+		putLongLittleEndian(dst + Long.BYTES, spreadNibbles(blockNibbles >>> 32) | spreadNibbles(skyNibbles >>> 32) << 4);
+	}
+
+	/**
+	 * Write in the same byte order the nibbles are read in, so the first block goes first on any platform.
+	 */
+	private static void putLongLittleEndian(long ptr, long value) {
+		MemoryUtil.memPutLong(ptr, NATIVE_LITTLE_ENDIAN ? value : Long.reverseBytes(value));
+	}
+
+	/**
+	 * Move the lowest 8 nibbles into the low halves of 8 bytes, in the same order.
+	 */
+	private static long spreadNibbles(long nibbles) {
+		nibbles &= 0xFFFFFFFFL;
+		nibbles = (nibbles | nibbles << 16) & 0x0000FFFF0000FFFFL;
+		nibbles = (nibbles | nibbles << 8) & 0x00FF00FF00FF00FFL;
+		return (nibbles | nibbles << 4) & 0x0F0F0F0F0F0F0F0FL;
+	}
+
+	private static int nibble(byte[] nibbles, int index) {
+		return nibbles[index >> 1] >> ((index & 1) << 2) & 0xF;
+	}
+
+	private static byte[] nibbles(DataLayer layer) {
+		if (layer.isDefinitelyHomogenous()) {
+			// Asking for the data would allocate it, and the layer belongs to the light engine.
+			return FILLED_NIBBLES[layer.get(0, 0, 0)];
+		}
+		return layer.getData();
+	}
+
+	/**
+	 * @return The first position in a neighboring section that falls in the 18x18x18 volume.
+	 */
+	private static int edgeMin(int offset) {
+		return offset < 0 ? 15 : 0;
+	}
+
+	/**
+	 * @return How many positions in a neighboring section fall in the 18x18x18 volume.
+	 */
+	private static int edgeSize(int offset) {
+		return offset == 0 ? 16 : 1;
+	}
+
+	static int neighborIndex(int dx, int dy, int dz) {
+		return (dx + 1) + (dz + 1) * 3 + (dy + 1) * 9;
+	}
+
+	private static int lightOffset(int x, int y, int z) {
+		return (x + 1) + (z + 1) * 18 + (y + 1) * 18 * 18;
+	}
+
 	private void collectCorners(LayerLightEventListener blockLight, LayerLightEventListener skyLight, long ptr, long section) {
 		var blockPos = new BlockPos.MutableBlockPos();
 		int xMin = SectionPos.sectionToBlockCoord(SectionPos.x(section));
@@ -348,41 +885,14 @@ public class LightStorage {
 	 * @param sky The sky light level, from [0, 15].
 	 */
 	private void write(long ptr, int x, int y, int z, int block, int sky) {
-		int x1 = x + 1;
-		int y1 = y + 1;
-		int z1 = z + 1;
-
-		int offset = x1 + z1 * 18 + y1 * 18 * 18;
-
 		long packedByte = (block & 0xF) | ((sky & 0xF) << 4);
 
-		MemoryUtil.memPutByte(ptr + SOLID_SIZE_BYTES + offset, (byte) packedByte);
-	}
-
-	/**
-	 * Get a pointer to the base of the given section.
-	 * <p> If the section is not yet reserved, allocate a chunk in the arena.
-	 * @param section The section to write to.
-	 * @return A raw pointer to the base of the section.
-	 */
-	private long ptrForSection(long section) {
-		return arena.indexToPointer(indexForSection(section));
-	}
-
-	private int indexForSection(long section) {
-		int out = section2ArenaIndex.get(section);
-
-		// Need to allocate.
-		if (out == INVALID_SECTION) {
-			out = arena.alloc();
-			section2ArenaIndex.put(section, out);
-			needsLutRebuild = true;
-		}
-		return out;
+		MemoryUtil.memPutByte(ptr + SOLID_SIZE_BYTES + lightOffset(x, y, z), (byte) packedByte);
 	}
 
 	public void delete() {
 		arena.delete();
+		scratch.free();
 	}
 
 	public boolean checkNeedsLutRebuildAndClear() {
@@ -392,19 +902,79 @@ public class LightStorage {
 	}
 
 	public void uploadChangedSections(StagingBuffer staging, int dstVbo) {
-		for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
-			staging.enqueueCopy(arena.indexToPointer(i), SECTION_SIZE_BYTES, dstVbo, i * SECTION_SIZE_BYTES);
+		forgetSectionsPastEnd();
+
+		long bytes = 0;
+		for (int start = changed.nextSetBit(0); start >= 0; ) {
+			int end = changed.nextClearBit(start);
+			long size = (long) (end - start) * PAGE_SIZE_BYTES;
+
+			staging.enqueueCopy(arena.indexToPointer(start), size, dstVbo, (long) start * PAGE_SIZE_BYTES);
+			bytes += size;
+
+			start = changed.nextSetBit(end);
 		}
 		changed.clear();
+		countUpload(bytes);
 	}
 
+	/**
+	 * Upload changed sections to the given buffer, which holds the whole arena.
+	 * <p>Runs of changed pages are streamed as one span each. The whole arena is only uploaded when the
+	 * buffer needs to grow.
+	 */
 	public void upload(GlBuffer buffer) {
-		if (changed.isEmpty()) {
+		forgetSectionsPastEnd();
+
+		boolean resize = buffer.size() < (long) arena.capacity() * PAGE_SIZE_BYTES || buffer.size() > arena.byteCapacity();
+
+		if (changed.isEmpty() && !resize) {
+			countUpload(0);
 			return;
 		}
 
-		buffer.upload(arena.indexToPointer(0), arena.capacity() * SECTION_SIZE_BYTES);
+		long bytes = 0;
+
+		if (resize) {
+			// Match the size of the arena's memory, which doubles and halves, so this doesn't happen with every
+			// new section. Nothing reads the bytes past the last section.
+			bytes = arena.byteCapacity();
+			buffer.upload(arena.indexToPointer(0), bytes);
+		} else {
+			for (int start = changed.nextSetBit(0); start >= 0; ) {
+				int end = changed.nextClearBit(start);
+				long size = (long) (end - start) * PAGE_SIZE_BYTES;
+
+				buffer.uploadSpan((long) start * PAGE_SIZE_BYTES, arena.indexToPointer(start), size);
+				bytes += size;
+
+				start = changed.nextSetBit(end);
+			}
+		}
+
 		changed.clear();
+		countUpload(bytes);
+	}
+
+	private void forgetSectionsPastEnd() {
+		// Sections compacted away or freed from the end of the arena don't need uploading anymore.
+		changed.clear(arena.capacity(), Math.max(changed.length(), arena.capacity()));
+	}
+
+	private static void countUpload(long bytes) {
+		lastUploadBytes = bytes;
+		TOTAL_UPLOAD_BYTES.addAndGet(bytes);
+	}
+
+	/**
+	 * @return A summary of how much light data was uploaded to the GPU, for the debug screen.
+	 */
+	public static String debugInfo() {
+		return "Light uploads: " + StringUtil.formatBytes(lastUploadBytes) + " last frame, " + StringUtil.formatBytes(TOTAL_UPLOAD_BYTES.get()) + " total";
+	}
+
+	int arenaIndex(long section) {
+		return section2ArenaIndex.get(section);
 	}
 
 	public IntArrayList createLut() {
@@ -413,27 +983,22 @@ public class LightStorage {
 	}
 
 	private enum SectionEdge {
-		LOW(15, -1, -1),
-		HIGH(0, 16, 1),
+		LOW(-1),
+		HIGH(16),
 		;
 
-		/**
-		 * The position in the section to collect.
-		 */
-		private final int pos;
 		/**
 		 * The position relative to the main section.
 		 */
 		private final int relative;
-		/**
-		 * The offset to the neighboring section.
-		 */
-		private final int sectionOffset;
 
-		SectionEdge(int pos, int relative, int sectionOffset) {
-			this.pos = pos;
+		SectionEdge(int relative) {
 			this.relative = relative;
-			this.sectionOffset = sectionOffset;
 		}
 	}
+
+	@FunctionalInterface
+	interface SolidTest {
+		boolean isSolid(int x, int y, int z);
+	}
 }
@@ -4,27 +4,44 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jetbrains.annotations.Nullable;
 import org.lwjgl.opengl.GL32;
+import org.lwjgl.system.MemoryUtil;
 
+import dev.engine_room.flywheel.api.model.IndexSequence;
 import dev.engine_room.flywheel.api.model.Mesh;
+import dev.engine_room.flywheel.backend.BackendConfig;
 import dev.engine_room.flywheel.backend.InternalVertex;
 import dev.engine_room.flywheel.backend.gl.GlPrimitive;
 import dev.engine_room.flywheel.backend.gl.array.GlVertexArray;
 import dev.engine_room.flywheel.backend.gl.buffer.GlBuffer;
+import dev.engine_room.flywheel.backend.gl.shader.GlProgram;
 import dev.engine_room.flywheel.backend.util.ReferenceCounted;
 import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 import dev.engine_room.flywheel.lib.vertex.VertexView;
 
 public class MeshPool {
+	private static final AtomicLong UNIQUE_MESHES = new AtomicLong();
+	private static final AtomicLong MESH_LOOKUPS = new AtomicLong();
+	private static final AtomicLong DEDUPLICATED_MESHES = new AtomicLong();
+
 	private final VertexView vertexView;
+	/**
+	 * Maps each mesh object to its pooled mesh. Several meshes may share one pooled mesh if their contents are equal.
+	 */
 	private final Map<Mesh, PooledMesh> meshes = new HashMap<>();
+	private final Map<ContentKey, PooledMesh> meshesByContent = new HashMap<>();
 	private final List<PooledMesh> meshList = new ArrayList<>();
 	private final List<PooledMesh> recentlyAllocated = new ArrayList<>();
 
 	private final GlBuffer vbo;
+	private final GlBuffer compactVbo;
+	private final GlVertexArray vertexArray;
+	private final GlVertexArray compactVertexArray;
 	private final IndexPool indexPool;
+	private final boolean allowCompact;
 
 	private boolean dirty;
 	private boolean anyToRemove;
@@ -35,11 +52,26 @@ public class MeshPool {
 	public MeshPool() {
 		vertexView = InternalVertex.createVertexView();
 		vbo = new GlBuffer();
+		compactVbo = new GlBuffer();
 		indexPool = new IndexPool();
+		allowCompact = BackendConfig.INSTANCE.compactVertices();
+
+		vertexArray = GlVertexArray.create();
+		compactVertexArray = GlVertexArray.create();
+
+		indexPool.bind(vertexArray);
+		vertexArray.bindVertexBuffer(0, vbo.handle(), 0, InternalVertex.STRIDE);
+		vertexArray.bindAttributes(0, 0, InternalVertex.ATTRIBUTES);
+
+		indexPool.bind(compactVertexArray);
+		compactVertexArray.bindVertexBuffer(0, compactVbo.handle(), 0, InternalVertex.COMPACT_STRIDE);
+		compactVertexArray.bindAttributes(0, 0, InternalVertex.COMPACT_ATTRIBUTES);
 	}
 
 	/**
 	 * Allocate a model in the arena.
+	 * <br>
+	 * Meshes with the same vertices and index sequence as an already allocated mesh share its allocation.
 	 *
 	 * @param mesh The model to allocate.
 	 * @return A handle to the allocated model.
@@ -49,14 +81,65 @@ public class MeshPool {
 	}
 
 	private PooledMesh _alloc(Mesh m) {
-		PooledMesh bufferedModel = new PooledMesh(m);
+		MESH_LOOKUPS.incrementAndGet();
+
+		int vertexCount = m.vertexCount();
+		// Zeroed so the padding bytes of the vertex layout don't affect the hash.
+		var scratch = MemoryBlock.calloc(Math.max(vertexCount, 1), InternalVertex.STRIDE);
+		long byteSize = (long) vertexCount * InternalVertex.STRIDE;
+
+		vertexView.ptr(scratch.ptr());
+		vertexView.vertexCount(vertexCount);
+		m.write(vertexView);
+
+		var key = new ContentKey(hashBytes(scratch.ptr(), byteSize), vertexCount, m.indexCount(), m.indexSequence());
+		var existing = meshesByContent.get(key);
+
+		if (existing != null && existing.contentEquals(scratch.ptr(), byteSize)) {
+			scratch.free();
+			DEDUPLICATED_MESHES.incrementAndGet();
+			return existing;
+		}
+
+		InternalVertex.CompactBounds compactBounds = null;
+		if (allowCompact) {
+			// The content check above may have pointed the view elsewhere.
+			vertexView.ptr(scratch.ptr());
+			vertexView.vertexCount(vertexCount);
+			compactBounds = InternalVertex.computeCompactBounds(vertexView);
+		}
+		scratch.free();
+
+		PooledMesh bufferedModel = new PooledMesh(m, key, compactBounds);
 		meshList.add(bufferedModel);
 		recentlyAllocated.add(bufferedModel);
+		UNIQUE_MESHES.incrementAndGet();
+
+		// In the unlikely event of a hash collision, the first mesh keeps the content slot.
+		if (existing == null) {
+			meshesByContent.put(key, bufferedModel);
+		}
 
 		dirty = true;
 		return bufferedModel;
 	}
 
+	private static long hashBytes(long ptr, long byteSize) {
+		long hash = byteSize;
+		long i = 0;
+
+		for (; i + Long.BYTES <= byteSize; i += Long.BYTES) {
+			hash = (hash ^ MemoryUtil.memGetLong(ptr + i)) * 0x9E3779B97F4A7C15L;
+			hash ^= hash >>> 29;
+		}
+
+		for (; i < byteSize; i++) {
+			hash = (hash ^ MemoryUtil.memGetByte(ptr + i)) * 0x9E3779B97F4A7C15L;
+		}
+
+		return hash;
+	}
+
 	@Nullable
 	public MeshPool.PooledMesh get(Mesh mesh) {
 		return meshes.get(mesh);
@@ -96,49 +179,103 @@ public class MeshPool {
 		meshList.removeIf(pooledMesh -> {
 			boolean deleted = pooledMesh.isDeleted();
 			if (deleted) {
-				meshes.remove(pooledMesh.mesh);
+				meshesByContent.remove(pooledMesh.contentKey, pooledMesh);
+				UNIQUE_MESHES.decrementAndGet();
 			}
 			return deleted;
 		});
+
+		// Any number of meshes may point to a deleted pooled mesh.
+		meshes.values()
+				.removeIf(PooledMesh::isDeleted);
 	}
 
 	private void uploadAll() {
 		long neededSize = 0;
+		long neededCompactSize = 0;
+		int maxCompactVertexCount = 0;
 		for (PooledMesh mesh : meshList) {
-			neededSize += mesh.byteSize();
+			if (mesh.isCompact()) {
+				neededCompactSize += mesh.byteSize();
+				maxCompactVertexCount = Math.max(maxCompactVertexCount, mesh.vertexCount());
+			} else {
+				neededSize += mesh.byteSize();
+			}
 		}
 
-		final var vertexBlock = MemoryBlock.malloc(neededSize);
-		final long vertexPtr = vertexBlock.ptr();
+		// Either layout may be unused, and allocating zero bytes isn't portable.
+		final var vertexBlock = MemoryBlock.malloc(Math.max(neededSize, 1));
+		final var compactVertexBlock = MemoryBlock.malloc(Math.max(neededCompactSize, 1));
+		// Compact meshes are written in the full layout first and then quantized.
+		final var scratchBlock = MemoryBlock.malloc(Math.max((long) maxCompactVertexCount * InternalVertex.STRIDE, 1));
 
-		int byteIndex = 0;
+		long byteIndex = 0;
+		long compactByteIndex = 0;
 		int baseVertex = 0;
+		int compactBaseVertex = 0;
 		for (PooledMesh mesh : meshList) {
-			mesh.baseVertex = baseVertex;
+			if (mesh.isCompact()) {
+				mesh.baseVertex = compactBaseVertex;
 
-			vertexView.ptr(vertexPtr + byteIndex);
-			vertexView.vertexCount(mesh.vertexCount());
-			mesh.mesh.write(vertexView);
+				vertexView.ptr(scratchBlock.ptr());
+				vertexView.vertexCount(mesh.vertexCount());
+				mesh.mesh.write(vertexView);
+				InternalVertex.writeCompact(vertexView, compactVertexBlock.ptr() + compactByteIndex, mesh.compactBounds);
+
+				compactByteIndex += mesh.byteSize();
+				compactBaseVertex += mesh.vertexCount();
+			} else {
+				mesh.baseVertex = baseVertex;
 
-			byteIndex += mesh.byteSize();
-			baseVertex += mesh.vertexCount();
+				vertexView.ptr(vertexBlock.ptr() + byteIndex);
+				vertexView.vertexCount(mesh.vertexCount());
+				mesh.mesh.write(vertexView);
+
+				byteIndex += mesh.byteSize();
+				baseVertex += mesh.vertexCount();
+			}
 		}
 
-		vbo.upload(vertexBlock);
+		vbo.upload(vertexBlock.ptr(), neededSize);
+		compactVbo.upload(compactVertexBlock.ptr(), neededCompactSize);
 
 		vertexBlock.free();
+		compactVertexBlock.free();
+		scratchBlock.free();
 	}
 
-	public void bind(GlVertexArray vertexArray) {
-		indexPool.bind(vertexArray);
-		vertexArray.bindVertexBuffer(0, vbo.handle(), 0, InternalVertex.STRIDE);
-		vertexArray.bindAttributes(0, 0, InternalVertex.ATTRIBUTES);
+	/**
+	 * Bind the vertex array for meshes in either the full or the compact vertex layout.
+	 *
+	 * @param compact Whether to bind the vertex array for compact meshes.
+	 */
+	public void bindForDraw(boolean compact) {
+		if (compact) {
+			compactVertexArray.bindForDraw();
+		} else {
+			vertexArray.bindForDraw();
+		}
+	}
+
+	/**
+	 * @return A summary of how many meshes were deduplicated by content, for the debug screen.
+	 */
+	public static String debugInfo() {
+		long lookups = MESH_LOOKUPS.get();
+		long hits = DEDUPLICATED_MESHES.get();
+		long percent = lookups == 0 ? 0 : hits * 100 / lookups;
+		return "Meshes: " + UNIQUE_MESHES.get() + " unique, " + hits + "/" + lookups + " deduplicated (" + percent + "%)";
 	}
 
 	public void delete() {
+		UNIQUE_MESHES.addAndGet(-meshList.size());
 		vbo.delete();
+		compactVbo.delete();
+		vertexArray.delete();
+		compactVertexArray.delete();
 		indexPool.delete();
 		meshes.clear();
+		meshesByContent.clear();
 		meshList.clear();
 	}
 
@@ -146,10 +283,34 @@ public class MeshPool {
 		public static final int INVALID_BASE_VERTEX = -1;
 
 		private final Mesh mesh;
+		private final ContentKey contentKey;
+		@Nullable
+		private final InternalVertex.CompactBounds compactBounds;
 		private int baseVertex = INVALID_BASE_VERTEX;
 
-		private PooledMesh(Mesh mesh) {
+		private PooledMesh(Mesh mesh, ContentKey contentKey, @Nullable InternalVertex.CompactBounds compactBounds) {
 			this.mesh = mesh;
+			this.contentKey = contentKey;
+			this.compactBounds = compactBounds;
+		}
+
+		private boolean contentEquals(long otherPtr, long byteSize) {
+			var scratch = MemoryBlock.calloc(Math.max(mesh.vertexCount(), 1), InternalVertex.STRIDE);
+			vertexView.ptr(scratch.ptr());
+			vertexView.vertexCount(mesh.vertexCount());
+			mesh.write(vertexView);
+
+			long ptr = scratch.ptr();
+			boolean equal = true;
+			for (long i = 0; i < byteSize; i++) {
+				if (MemoryUtil.memGetByte(ptr + i) != MemoryUtil.memGetByte(otherPtr + i)) {
+					equal = false;
+					break;
+				}
+			}
+
+			scratch.free();
+			return equal;
 		}
 
 		public int vertexCount() {
@@ -157,7 +318,58 @@ public class MeshPool {
 		}
 
 		public int byteSize() {
-			return mesh.vertexCount() * InternalVertex.STRIDE;
+			return mesh.vertexCount() * (isCompact() ? InternalVertex.COMPACT_STRIDE : InternalVertex.STRIDE);
+		}
+
+		/**
+		 * @return Whether this mesh is stored in the compact vertex layout.
+		 */
+		public boolean isCompact() {
+			return compactBounds != null;
+		}
+
+		/**
+		 * Write the parameters the vertex shader needs to decode this mesh's vertices.
+		 * <br>
+		 * Layout: origin xyz, extent xyz as floats, then a uint that is 1 if the mesh is compact.
+		 *
+		 * @param ptr The address to write 28 bytes to.
+		 */
+		public void writeVertexFormat(long ptr) {
+			if (compactBounds != null) {
+				MemoryUtil.memPutFloat(ptr, compactBounds.minX());
+				MemoryUtil.memPutFloat(ptr + 4, compactBounds.minY());
+				MemoryUtil.memPutFloat(ptr + 8, compactBounds.minZ());
+				MemoryUtil.memPutFloat(ptr + 12, compactBounds.extentX());
+				MemoryUtil.memPutFloat(ptr + 16, compactBounds.extentY());
+				MemoryUtil.memPutFloat(ptr + 20, compactBounds.extentZ());
+				MemoryUtil.memPutInt(ptr + 24, 1);
+			} else {
+				MemoryUtil.memPutFloat(ptr, 0);
+				MemoryUtil.memPutFloat(ptr + 4, 0);
+				MemoryUtil.memPutFloat(ptr + 8, 0);
+				MemoryUtil.memPutFloat(ptr + 12, 1);
+				MemoryUtil.memPutFloat(ptr + 16, 1);
+				MemoryUtil.memPutFloat(ptr + 20, 1);
+				MemoryUtil.memPutInt(ptr + 24, 0);
+			}
+		}
+
+		/**
+		 * Bind this mesh's vertex array and set the uniforms the vertex shader needs to decode its vertices.
+		 *
+		 * @param program The instancing program about to draw this mesh.
+		 */
+		public void setup(GlProgram program) {
+			bindForDraw(isCompact());
+
+			if (compactBounds != null) {
+				program.setVec3("_flw_meshOriginUniform", compactBounds.minX(), compactBounds.minY(), compactBounds.minZ());
+				program.setVec3("_flw_meshExtentUniform", compactBounds.extentX(), compactBounds.extentY(), compactBounds.extentZ());
+				program.setBool("_flw_compactVertexUniform", true);
+			} else {
+				program.setBool("_flw_compactVertexUniform", false);
+			}
 		}
 
 		public int indexCount() {
@@ -194,4 +406,7 @@ public class MeshPool {
 			MeshPool.this.anyToRemove = true;
 		}
 	}
+
+	private record ContentKey(long hash, int vertexCount, int indexCount, IndexSequence indexSequence) {
+	}
 }
@@ -16,10 +16,10 @@ public class IndirectBuffers {
 	public static final long INT_SIZE = Integer.BYTES;
 	public static final long PTR_SIZE = Pointer.POINTER_SIZE;
 
-	public static final long MODEL_STRIDE = 28;
+	public static final long MODEL_STRIDE = 40;
 
 	// Byte size of a draw command, plus our added mesh data.
-	public static final long DRAW_COMMAND_STRIDE = 44;
+	public static final long DRAW_COMMAND_STRIDE = 72;
 	public static final long DRAW_COMMAND_OFFSET = 0;
 
 	// Offsets to the 3 segments
@@ -78,9 +78,9 @@ public class IndirectBuffers {
 		draw = new ResizableStorageArray(DRAW_COMMAND_STRIDE, DRAW_GROWTH_FACTOR);
 	}
 
-	void updateCounts(int instanceCount, int modelCount, int drawCount) {
+	void updateCounts(int instanceCount, int targetCount, int modelCount, int drawCount) {
 		instance.ensureCapacity(instanceCount);
-		target.ensureCapacity(instanceCount);
+		target.ensureCapacity(targetCount);
 		modelIndex.ensureCapacity(instanceCount);
 		model.ensureCapacity(modelCount);
 		draw.ensureCapacity(drawCount);
@@ -93,7 +93,7 @@ public class IndirectBuffers {
 		MemoryUtil.memPutInt(ptr + DRAW_HANDLE_OFFSET, draw.handle());
 
 		MemoryUtil.memPutAddress(ptr + INSTANCE_SIZE_OFFSET, instanceStride * instanceCount);
-		MemoryUtil.memPutAddress(ptr + TARGET_SIZE_OFFSET, INT_SIZE * instanceCount);
+		MemoryUtil.memPutAddress(ptr + TARGET_SIZE_OFFSET, INT_SIZE * targetCount);
 		MemoryUtil.memPutAddress(ptr + MODEL_INDEX_SIZE_OFFSET, INT_SIZE * instanceCount);
 		MemoryUtil.memPutAddress(ptr + MODEL_SIZE_OFFSET, MODEL_STRIDE * modelCount);
 		MemoryUtil.memPutAddress(ptr + DRAW_SIZE_OFFSET, DRAW_COMMAND_STRIDE * drawCount);
@@ -2,7 +2,6 @@ package dev.engine_room.flywheel.backend.engine.indirect;
 
 import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
 import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
-import static org.lwjgl.opengl.GL30.glUniform1ui;
 import static org.lwjgl.opengl.GL42.GL_COMMAND_BARRIER_BIT;
 import static org.lwjgl.opengl.GL42.glMemoryBarrier;
 import static org.lwjgl.opengl.GL43.glDispatchCompute;
@@ -13,6 +12,8 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
+import org.lwjgl.system.MemoryUtil;
+
 import dev.engine_room.flywheel.api.instance.Instance;
 import dev.engine_room.flywheel.api.instance.InstanceType;
 import dev.engine_room.flywheel.api.material.Material;
@@ -30,18 +31,32 @@ import dev.engine_room.flywheel.lib.material.LightShaders;
 import dev.engine_room.flywheel.lib.math.MoreMath;
 
 public class IndirectCullingGroup<I extends Instance> {
+	private static final float SLAB_HEADROOM_FACTOR = 0.25f;
+	private static final int MIN_SLAB_HEADROOM = 16;
+	private static final int MIN_DEFRAGMENT_SIZE = 4096;
+
 	private static final Comparator<IndirectDraw> DRAW_COMPARATOR = Comparator.comparing(IndirectDraw::visualType)
 			.thenComparing(IndirectDraw::isEmbedded)
+			.thenComparing(IndirectDraw::isCompact)
 			.thenComparing(IndirectDraw::bias)
+			.thenComparing(IndirectDraw::lodLevel)
 			.thenComparing(IndirectDraw::indexOfMeshInModel)
 			.thenComparing(IndirectDraw::material, MaterialRenderState.COMPARATOR);
 
 	private final InstanceType<I> instanceType;
 	private final long instanceStride;
 	private final IndirectBuffers buffers;
+	private final MeshPool meshPool;
 	private final List<IndirectInstancer<I>> instancers = new ArrayList<>();
 	private final List<IndirectDraw> indirectDraws = new ArrayList<>();
 	private final Map<VisualType, List<MultiDraw>> multiDraws = new EnumMap<>(VisualType.class);
+	/**
+	 * Each instancer owns a stable slab of the instance and model index buffers, with headroom to grow into.
+	 * Slabs only move when they overflow or when the buffers are defragmented, so most frames only upload the
+	 * instances that changed.
+	 */
+	private final SlabAllocator instanceAllocator = new SlabAllocator();
+	private final SlabAllocator modelAllocator = new SlabAllocator();
 
 	private final IndirectPrograms programs;
 	private final GlProgram cullProgram;
@@ -49,49 +64,113 @@ public class IndirectCullingGroup<I extends Instance> {
 	private boolean needsDrawBarrier;
 	private boolean needsDrawSort;
 	private int instanceCountThisFrame;
+	private int targetCountThisFrame;
+	private int modelCountThisFrame;
 
-	IndirectCullingGroup(InstanceType<I> instanceType, IndirectPrograms programs) {
+	IndirectCullingGroup(InstanceType<I> instanceType, IndirectPrograms programs, MeshPool meshPool) {
 		this.instanceType = instanceType;
 		instanceStride = MoreMath.align4(instanceType.layout()
 				.byteSize());
 		buffers = new IndirectBuffers(instanceStride);
+		this.meshPool = meshPool;
 
 		this.programs = programs;
 		cullProgram = programs.getCullingProgram(instanceType);
 	}
 
 	public void flushInstancers() {
-		instanceCountThisFrame = 0;
-		int modelIndex = 0;
-        for (var iterator = instancers.iterator(); iterator.hasNext(); ) {
-            var instancer = iterator.next();
-            instancer.update();
-			var instanceCount = instancer.instanceCount();
+		for (var iterator = instancers.iterator(); iterator.hasNext(); ) {
+			var instancer = iterator.next();
+			instancer.update();
+			var instanceCount = instancer.frameInstanceCount();
 
 			if (instanceCount == 0) {
 				iterator.remove();
+				freeSlabs(instancer);
 				instancer.delete();
 				continue;
 			}
 
-			instancer.modelIndex = modelIndex;
-			instancer.baseInstance = instanceCountThisFrame;
-			instanceCountThisFrame += instanceCount;
+			if (instancer.modelIndex == -1) {
+				instancer.modelIndex = modelAllocator.allocate(instancer.lodCount());
+			}
+
+			if (instanceCount > instancer.slabCapacity) {
+				// Freeing first lets the slab grow in place if the space after it is free.
+				instanceAllocator.free(instancer.baseInstance, instancer.slabCapacity);
+				instancer.slabCapacity = slabCapacity(instanceCount);
+				instancer.baseInstance = instanceAllocator.allocate(instancer.slabCapacity);
+			}
+		}
+
+		defragment();
+
+		// Holes between slabs are covered too, the cull shader skips them.
+		instanceCountThisFrame = instanceAllocator.end();
+		modelCountThisFrame = modelAllocator.end();
 
-			modelIndex++;
-        }
+		// The culling results of levels of detail after the first go after all the instances in the target buffer.
+		targetCountThisFrame = instanceCountThisFrame;
+		for (var instancer : instancers) {
+			instancer.lodTargetBase = targetCountThisFrame;
+			targetCountThisFrame += (instancer.lodCount() - 1) * instancer.frameInstanceCount();
+		}
 
-        if (indirectDraws.removeIf(IndirectDraw::deleted)) {
+		if (indirectDraws.removeIf(IndirectDraw::deleted)) {
 			needsDrawSort = true;
 		}
 	}
 
+	private static int slabCapacity(int instanceCount) {
+		return instanceCount + Math.max(MIN_SLAB_HEADROOM, (int) (instanceCount * SLAB_HEADROOM_FACTOR));
+	}
+
+	private void freeSlabs(IndirectInstancer<I> instancer) {
+		if (instancer.baseInstance != -1) {
+			instanceAllocator.free(instancer.baseInstance, instancer.slabCapacity);
+		}
+
+		if (instancer.modelIndex != -1) {
+			modelAllocator.free(instancer.modelIndex, instancer.lodCount());
+		}
+	}
+
+	/**
+	 * Once more than half of the instance buffer is holes, move the highest slab into a lower hole.
+	 * Only one slab is moved per frame so the cost of re-uploading moved instancers is spread out.
+	 */
+	private void defragment() {
+		int end = instanceAllocator.end();
+
+		if (end < MIN_DEFRAGMENT_SIZE || instanceAllocator.allocated() * 2 > end) {
+			return;
+		}
+
+		IndirectInstancer<I> highest = null;
+		for (var instancer : instancers) {
+			if (highest == null || instancer.baseInstance > highest.baseInstance) {
+				highest = instancer;
+			}
+		}
+
+		if (highest == null) {
+			return;
+		}
+
+		int newBase = instanceAllocator.allocateBelow(highest.slabCapacity, highest.baseInstance);
+
+		if (newBase != -1) {
+			instanceAllocator.free(highest.baseInstance, highest.slabCapacity);
+			highest.baseInstance = newBase;
+		}
+	}
+
 	public void upload(StagingBuffer stagingBuffer) {
 		if (nothingToDo()) {
 			return;
 		}
 
-		buffers.updateCounts(instanceCountThisFrame, instancers.size(), indirectDraws.size());
+		buffers.updateCounts(instanceCountThisFrame, targetCountThisFrame, modelCountThisFrame, indirectDraws.size());
 
 		// Upload only instances that have changed.
 		uploadInstances(stagingBuffer);
@@ -149,7 +228,7 @@ public class IndirectCullingGroup<I extends Instance> {
 			// if the next draw call has a different VisualType or Material, start a new MultiDraw
 			if (i == indirectDraws.size() - 1 || incompatibleDraws(draw1, indirectDraws.get(i + 1))) {
 				multiDraws.computeIfAbsent(draw1.visualType(), s -> new ArrayList<>())
-						.add(new MultiDraw(draw1.material(), draw1.isEmbedded(), start, i + 1));
+						.add(new MultiDraw(draw1.material(), draw1.isEmbedded(), draw1.isCompact(), start, i + 1));
 				start = i + 1;
 			}
 		}
@@ -163,6 +242,11 @@ public class IndirectCullingGroup<I extends Instance> {
 		if (draw1.isEmbedded() != draw2.isEmbedded()) {
 			return true;
 		}
+
+		// Compact and full meshes live in different vertex arrays.
+		if (draw1.isCompact() != draw2.isCompact()) {
+			return true;
+		}
 		return !MaterialRenderState.materialEquals(draw1.material(), draw2.material());
 	}
 
@@ -170,24 +254,32 @@ public class IndirectCullingGroup<I extends Instance> {
 		return multiDraws.containsKey(visualType);
 	}
 
-	public void add(IndirectInstancer<I> instancer, InstancerKey<I> key, MeshPool meshPool) {
-		instancer.modelIndex = instancers.size();
+	public void add(IndirectInstancer<I> instancer, InstancerKey<I> key) {
 		instancers.add(instancer);
 
-        List<Model.ConfiguredMesh> meshes = key.model()
-				.meshes();
-        for (int i = 0; i < meshes.size(); i++) {
-            var entry = meshes.get(i);
+		Model model = key.model();
+		addDraws(instancer, key, model.meshes(), 0);
 
-            MeshPool.PooledMesh mesh = meshPool.alloc(entry.mesh());
-            var draw = new IndirectDraw(instancer, entry.material(), mesh, key.visualType(), key.bias(), i);
-            indirectDraws.add(draw);
-            instancer.addDraw(draw);
-        }
+		List<Model.LevelOfDetail> levelsOfDetail = model.levelsOfDetail();
+		for (int i = 0; i < levelsOfDetail.size(); i++) {
+			addDraws(instancer, key, levelsOfDetail.get(i)
+					.meshes(), i + 1);
+		}
 
 		needsDrawSort = true;
 	}
 
+	private void addDraws(IndirectInstancer<I> instancer, InstancerKey<I> key, List<Model.ConfiguredMesh> meshes, int lodLevel) {
+		for (int i = 0; i < meshes.size(); i++) {
+			var entry = meshes.get(i);
+
+			MeshPool.PooledMesh mesh = meshPool.alloc(entry.mesh());
+			var draw = new IndirectDraw(instancer, entry.material(), mesh, key.visualType(), key.bias(), lodLevel, i);
+			indirectDraws.add(draw);
+			instancer.addDraw(draw);
+		}
+	}
+
 	public void submit(VisualType visualType) {
 		if (nothingToDo(visualType)) {
 			return;
@@ -210,15 +302,14 @@ public class IndirectCullingGroup<I extends Instance> {
 				baseDrawUniformLoc = drawProgram.getUniformLocation("_flw_baseDraw");
 			}
 
-			glUniform1ui(baseDrawUniformLoc, multiDraw.start);
-
+			meshPool.bindForDraw(multiDraw.compact);
 			MaterialRenderState.setup(multiDraw.material);
 
-			multiDraw.submit();
+			multiDraw.submit(baseDrawUniformLoc);
 		}
 	}
 
-	public void bindWithContextShader(ContextShader override) {
+	public GlProgram bindWithContextShader(ContextShader override) {
 		var program = programs.getIndirectProgram(instanceType, override, LightShaders.SMOOTH_WHEN_EMBEDDED);
 
 		program.bind();
@@ -227,8 +318,7 @@ public class IndirectCullingGroup<I extends Instance> {
 
 		drawBarrier();
 
-		var flwBaseDraw = program.getUniformLocation("_flw_baseDraw");
-		glUniform1ui(flwBaseDraw, 0);
+		return program;
 	}
 
 	private void drawBarrier() {
@@ -252,10 +342,10 @@ public class IndirectCullingGroup<I extends Instance> {
 	}
 
 	private void uploadModels(StagingBuffer stagingBuffer) {
-		var totalSize = instancers.size() * IndirectBuffers.MODEL_STRIDE;
+		var totalSize = modelCountThisFrame * IndirectBuffers.MODEL_STRIDE;
 		var handle = buffers.model.handle();
 
-		stagingBuffer.enqueueCopy(totalSize, handle, 0, this::writeModels);
+		stagingBuffer.enqueueCopy(totalSize, handle, 0, ptr -> writeModels(ptr, totalSize));
 	}
 
 	private void uploadDraws(StagingBuffer stagingBuffer) {
@@ -265,10 +355,12 @@ public class IndirectCullingGroup<I extends Instance> {
 		stagingBuffer.enqueueCopy(totalSize, handle, 0, this::writeCommands);
 	}
 
-	private void writeModels(long writePtr) {
-		for (var model : instancers) {
-			model.writeModel(writePtr);
-			writePtr += IndirectBuffers.MODEL_STRIDE;
+	private void writeModels(long writePtr, long totalSize) {
+		// Descriptors of freed slots must not be mistaken for live ones by the cull shader.
+		MemoryUtil.memSet(writePtr, 0, totalSize);
+
+		for (var instancer : instancers) {
+			instancer.writeModels(writePtr + instancer.modelIndex * IndirectBuffers.MODEL_STRIDE);
 		}
 	}
 
@@ -280,6 +372,10 @@ public class IndirectCullingGroup<I extends Instance> {
 	}
 
 	public void delete() {
+		for (var instancer : instancers) {
+			instancer.delete();
+		}
+
 		buffers.delete();
 	}
 
@@ -293,9 +389,9 @@ public class IndirectCullingGroup<I extends Instance> {
 		return out;
 	}
 
-	private record MultiDraw(Material material, boolean embedded, int start, int end) {
-		private void submit() {
-			GlCompat.safeMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, this.start * IndirectBuffers.DRAW_COMMAND_STRIDE, this.end - this.start, (int) IndirectBuffers.DRAW_COMMAND_STRIDE);
+	private record MultiDraw(Material material, boolean embedded, boolean compact, int start, int end) {
+		private void submit(int baseDrawUniformLoc) {
+			GlCompat.safeMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, this.start * IndirectBuffers.DRAW_COMMAND_STRIDE, this.end - this.start, (int) IndirectBuffers.DRAW_COMMAND_STRIDE, baseDrawUniformLoc, this.start);
 		}
 	}
 }
@@ -15,6 +15,7 @@ public class IndirectDraw {
 	private final MeshPool.PooledMesh mesh;
 	private final VisualType visualType;
 	private final int bias;
+	private final int lodLevel;
 	private final int indexOfMeshInModel;
 
 	private final int materialVertexIndex;
@@ -23,12 +24,13 @@ public class IndirectDraw {
 	private final int packedMaterialProperties;
 	private boolean deleted;
 
-	public IndirectDraw(IndirectInstancer<?> instancer, Material material, MeshPool.PooledMesh mesh, VisualType visualType, int bias, int indexOfMeshInModel) {
+	public IndirectDraw(IndirectInstancer<?> instancer, Material material, MeshPool.PooledMesh mesh, VisualType visualType, int bias, int lodLevel, int indexOfMeshInModel) {
 		this.instancer = instancer;
 		this.material = material;
 		this.mesh = mesh;
 		this.visualType = visualType;
 		this.bias = bias;
+		this.lodLevel = lodLevel;
 		this.indexOfMeshInModel = indexOfMeshInModel;
 
 		mesh.acquire();
@@ -51,6 +53,10 @@ public class IndirectDraw {
 		return instancer.environment instanceof EmbeddedEnvironment;
 	}
 
+	public boolean isCompact() {
+		return mesh.isCompact();
+	}
+
 	public MeshPool.PooledMesh mesh() {
 		return mesh;
 	}
@@ -63,6 +69,10 @@ public class IndirectDraw {
 		return bias;
 	}
 
+	public int lodLevel() {
+		return lodLevel;
+	}
+
 	public int indexOfMeshInModel() {
 		return indexOfMeshInModel;
 	}
@@ -72,9 +82,9 @@ public class IndirectDraw {
 		MemoryUtil.memPutInt(ptr + 4, 0); // instanceCount - to be set by the apply shader
 		MemoryUtil.memPutInt(ptr + 8, mesh.firstIndex()); // firstIndex
 		MemoryUtil.memPutInt(ptr + 12, mesh.baseVertex()); // baseVertex
-		MemoryUtil.memPutInt(ptr + 16, instancer.baseInstance); // baseInstance
+		MemoryUtil.memPutInt(ptr + 16, instancer.targetBase(lodLevel)); // baseInstance
 
-		MemoryUtil.memPutInt(ptr + 20, instancer.modelIndex); // modelIndex
+		MemoryUtil.memPutInt(ptr + 20, instancer.modelIndex + lodLevel); // modelIndex
 
 		MemoryUtil.memPutInt(ptr + 24, instancer.environment.matrixIndex()); // matrixIndex
 
@@ -82,6 +92,8 @@ public class IndirectDraw {
 		MemoryUtil.memPutInt(ptr + 32, materialFragmentIndex); // materialFragmentIndex
 		MemoryUtil.memPutInt(ptr + 36, packedFogAndCutout); // packedFogAndCutout
 		MemoryUtil.memPutInt(ptr + 40, packedMaterialProperties); // packedMaterialProperties
+
+		mesh.writeVertexFormat(ptr + 44); // meshOrigin, meshExtent, compactVertex
 	}
 
 	public void writeWithOverrides(long ptr, int instanceIndex, Material materialOverride) {
@@ -99,6 +111,8 @@ public class IndirectDraw {
 		MemoryUtil.memPutInt(ptr + 32, MaterialShaderIndices.fragmentIndex(materialOverride.shaders())); // materialFragmentIndex
 		MemoryUtil.memPutInt(ptr + 36, MaterialEncoder.packUberShader(materialOverride)); // packedFogAndCutout
 		MemoryUtil.memPutInt(ptr + 40, MaterialEncoder.packProperties(materialOverride)); // packedMaterialProperties
+
+		mesh.writeVertexFormat(ptr + 44); // meshOrigin, meshExtent, compactVertex
 	}
 
 	public void delete() {
@@ -3,11 +3,12 @@ package dev.engine_room.flywheel.backend.engine.indirect;
 import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
 import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
 import static org.lwjgl.opengl.GL30.glBindBufferRange;
-import static org.lwjgl.opengl.GL40.glDrawElementsIndirect;
 import static org.lwjgl.opengl.GL42.glMemoryBarrier;
 import static org.lwjgl.opengl.GL43.GL_SHADER_STORAGE_BARRIER_BIT;
 import static org.lwjgl.opengl.GL43.GL_SHADER_STORAGE_BUFFER;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,8 +29,8 @@ import dev.engine_room.flywheel.backend.engine.MeshPool;
 import dev.engine_room.flywheel.backend.engine.TextureBinder;
 import dev.engine_room.flywheel.backend.engine.embed.EnvironmentStorage;
 import dev.engine_room.flywheel.backend.engine.uniform.Uniforms;
+import dev.engine_room.flywheel.backend.gl.GlCompat;
 import dev.engine_room.flywheel.backend.gl.GlStateTracker;
-import dev.engine_room.flywheel.backend.gl.array.GlVertexArray;
 import dev.engine_room.flywheel.backend.gl.buffer.GlBuffer;
 import dev.engine_room.flywheel.backend.gl.buffer.GlBufferType;
 import dev.engine_room.flywheel.lib.material.SimpleMaterial;
@@ -40,7 +41,9 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 	private final IndirectPrograms programs;
 	private final StagingBuffer stagingBuffer;
 	private final MeshPool meshPool;
-	private final GlVertexArray vertexArray;
+	private static final Comparator<CrumblingDraw> CRUMBLING_DRAW_COMPARATOR = Comparator.<CrumblingDraw, Boolean>comparing(crumblingDraw -> crumblingDraw.draw.isCompact())
+			.thenComparing(crumblingDraw -> crumblingDraw.draw.material(), MaterialRenderState.COMPARATOR);
+
 	private final Map<InstanceType<?>, IndirectCullingGroup<?>> cullingGroups = new HashMap<>();
 	private final GlBuffer crumblingDrawBuffer = new GlBuffer();
 	private final LightBuffers lightBuffers;
@@ -54,8 +57,6 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 
 		stagingBuffer = new StagingBuffer(this.programs);
 		meshPool = new MeshPool();
-		vertexArray = GlVertexArray.create();
-		meshPool.bind(vertexArray);
 		lightBuffers = new LightBuffers();
 		matrixBuffer = new MatrixBuffer();
 	}
@@ -68,8 +69,8 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 	@SuppressWarnings("unchecked")
 	@Override
 	protected <I extends Instance> void initialize(InstancerKey<I> key, IndirectInstancer<?> instancer) {
-		var group = (IndirectCullingGroup<I>) cullingGroups.computeIfAbsent(key.type(), t -> new IndirectCullingGroup<>(t, programs));
-		group.add((IndirectInstancer<I>) instancer, key, meshPool);
+		var group = (IndirectCullingGroup<I>) cullingGroups.computeIfAbsent(key.type(), t -> new IndirectCullingGroup<>(t, programs, meshPool));
+		group.add((IndirectInstancer<I>) instancer, key);
 	}
 
 	public boolean hasVisualType(VisualType visualType) {
@@ -89,7 +90,6 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 		try (var state = GlStateTracker.getRestoreState()) {
 			TextureBinder.bindLightAndOverlay();
 
-			vertexArray.bindForDraw();
 			lightBuffers.bind();
 			matrixBuffer.bind();
 			Uniforms.bindAll();
@@ -119,8 +119,10 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 		cullingGroups.values()
 				.removeIf(IndirectCullingGroup::checkEmptyAndDelete);
 
-		instancers.values()
-				.removeIf(instancer -> instancer.instanceCount() == 0);
+		if (!pipelined) {
+			instancers.values()
+					.removeIf(instancer -> instancer.instanceCount() == 0);
+		}
 
 		meshPool.flush();
 
@@ -159,6 +161,26 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 		needsBarrier = true;
 	}
 
+	@Override
+	public boolean supportsPipelining() {
+		return true;
+	}
+
+	@Override
+	public void stage(EnvironmentStorage environmentStorage) {
+		super.stage(environmentStorage);
+
+		// Instancers that are empty now will be deleted by the next flush, so make sure no visual can pick them up
+		// again in the meantime.
+		instancers.values()
+				.removeIf(instancer -> {
+					instancer.stage();
+					return instancer.frameInstanceCount() == 0;
+				});
+
+		matrixBuffer.stage(environmentStorage);
+	}
+
 	@Override
 	public void delete() {
 		super.delete();
@@ -169,6 +191,8 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 
 		stagingBuffer.delete();
 
+		matrixBuffer.delete();
+
 		meshPool.delete();
 
 		crumblingDrawBuffer.delete();
@@ -186,54 +210,106 @@ public class IndirectDrawManager extends DrawManager<IndirectInstancer<?>> {
 		try (var state = GlStateTracker.getRestoreState()) {
 			TextureBinder.bindLightAndOverlay();
 
-			vertexArray.bindForDraw();
 			Uniforms.bindAll();
 
 			var crumblingMaterial = SimpleMaterial.builder();
-
-			// Scratch memory for writing draw commands.
-			var block = MemoryBlock.malloc(IndirectBuffers.DRAW_COMMAND_STRIDE);
+			List<CrumblingDraw> crumblingDraws = new ArrayList<>();
 
 			GlBufferType.DRAW_INDIRECT_BUFFER.bind(crumblingDrawBuffer.handle());
-			glBindBufferRange(GL_SHADER_STORAGE_BUFFER, BufferBindings.DRAW, crumblingDrawBuffer.handle(), 0, IndirectBuffers.DRAW_COMMAND_STRIDE);
 
 			for (var groupEntry : byType.entrySet()) {
 				var byProgress = groupEntry.getValue();
 
+				var group = cullingGroups.get(groupEntry.getKey()
+						.instanceType());
+
+				if (group == null) {
+					// Only possible when pipelining, if all the instancers were created after the last stage.
+					continue;
+				}
+
 				// Set up the crumbling program buffers. Nothing changes here between draws.
-				cullingGroups.get(groupEntry.getKey())
-						.bindWithContextShader(ContextShader.CRUMBLING);
+				var program = group.bindWithContextShader(ContextShader.CRUMBLING);
+				var baseDrawUniformLoc = program.getUniformLocation("_flw_baseDraw");
 
 				for (var progressEntry : byProgress.int2ObjectEntrySet()) {
-					Samplers.CRUMBLING.makeActive();
-					TextureBinder.bind(ModelBakery.BREAKING_LOCATIONS.get(progressEntry.getIntKey()));
+					crumblingDraws.clear();
 
 					for (var instanceHandlePair : progressEntry.getValue()) {
 						IndirectInstancer<?> instancer = instanceHandlePair.first();
 						int instanceIndex = instanceHandlePair.second().index;
 
-						for (IndirectDraw draw : instancer.draws()) {
-							// Transform the material to be suited for crumbling.
-							CommonCrumbling.applyCrumblingProperties(crumblingMaterial, draw.material());
-
-							MaterialRenderState.setup(crumblingMaterial);
-
-							// Upload the draw command.
-							draw.writeWithOverrides(block.ptr(), instanceIndex, crumblingMaterial);
-							crumblingDrawBuffer.upload(block);
+						if (instancer.baseInstance == -1 || instanceIndex >= instancer.frameInstanceCount()) {
+							// The instance was created after the last stage and isn't on the GPU yet.
+							continue;
+						}
 
-							// Submit! Everything is already bound by here.
-							glDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, 0);
+						for (IndirectDraw draw : instancer.draws()) {
+							// Crumbling is only visible up close, so always use the full detail meshes.
+							if (draw.lodLevel() == 0) {
+								crumblingDraws.add(new CrumblingDraw(draw, instanceIndex));
+							}
 						}
 					}
 
+					if (crumblingDraws.isEmpty()) {
+						continue;
+					}
+
+					Samplers.CRUMBLING.makeActive();
+					TextureBinder.bind(ModelBakery.BREAKING_LOCATIONS.get(progressEntry.getIntKey()));
+
+					submitCrumblingDraws(crumblingDraws, crumblingMaterial, baseDrawUniformLoc);
 				}
 			}
 
 			MaterialRenderState.reset();
 			TextureBinder.resetLightAndOverlay();
+		}
+	}
 
-			block.free();
+	/**
+	 * Write the draw commands for all crumbling draws of one progress stage into a single buffer,
+	 * then submit one multi-draw for each run of draws that share a vertex array and material.
+	 */
+	private void submitCrumblingDraws(List<CrumblingDraw> crumblingDraws, SimpleMaterial.Builder crumblingMaterial, int baseDrawUniformLoc) {
+		crumblingDraws.sort(CRUMBLING_DRAW_COMPARATOR);
+
+		long size = crumblingDraws.size() * IndirectBuffers.DRAW_COMMAND_STRIDE;
+		var block = MemoryBlock.malloc(size);
+
+		long ptr = block.ptr();
+		for (var crumblingDraw : crumblingDraws) {
+			// Transform the material to be suited for crumbling.
+			CommonCrumbling.applyCrumblingProperties(crumblingMaterial, crumblingDraw.draw.material());
+			crumblingDraw.draw.writeWithOverrides(ptr, crumblingDraw.instanceIndex, crumblingMaterial);
+			ptr += IndirectBuffers.DRAW_COMMAND_STRIDE;
 		}
+
+		crumblingDrawBuffer.upload(block);
+		block.free();
+
+		glBindBufferRange(GL_SHADER_STORAGE_BUFFER, BufferBindings.DRAW, crumblingDrawBuffer.handle(), 0, size);
+
+		for (int start = 0, i = 0; i < crumblingDraws.size(); i++) {
+			var draw = crumblingDraws.get(i).draw;
+
+			if (i == crumblingDraws.size() - 1 || incompatibleCrumblingDraws(draw, crumblingDraws.get(i + 1).draw)) {
+				CommonCrumbling.applyCrumblingProperties(crumblingMaterial, draw.material());
+				MaterialRenderState.setup(crumblingMaterial);
+				meshPool.bindForDraw(draw.isCompact());
+
+				GlCompat.safeMultiDrawElementsIndirect(GL_TRIANGLES, GL_UNSIGNED_INT, start * IndirectBuffers.DRAW_COMMAND_STRIDE, i + 1 - start, (int) IndirectBuffers.DRAW_COMMAND_STRIDE, baseDrawUniformLoc, start);
+
+				start = i + 1;
+			}
+		}
+	}
+
+	private static boolean incompatibleCrumblingDraws(IndirectDraw draw1, IndirectDraw draw2) {
+		return draw1.isCompact() != draw2.isCompact() || !MaterialRenderState.materialEquals(draw1.material(), draw2.material());
+	}
+
+	private record CrumblingDraw(IndirectDraw draw, int instanceIndex) {
 	}
 }
@@ -3,6 +3,7 @@ package dev.engine_room.flywheel.backend.engine.indirect;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jetbrains.annotations.Nullable;
 import org.joml.Vector4fc;
 import org.lwjgl.system.MemoryUtil;
 
@@ -12,26 +13,91 @@ import dev.engine_room.flywheel.api.instance.InstanceWriter;
 import dev.engine_room.flywheel.api.model.Model;
 import dev.engine_room.flywheel.backend.engine.AbstractInstancer;
 import dev.engine_room.flywheel.backend.engine.embed.Environment;
+import dev.engine_room.flywheel.backend.util.AtomicBitSet;
 import dev.engine_room.flywheel.lib.math.MoreMath;
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 
 public class IndirectInstancer<I extends Instance> extends AbstractInstancer<I> {
+	/**
+	 * Changed instances closer together than this are uploaded in one copy, along with the clean ones in between.
+	 * Every copy takes at least one scatter command, which moves up to 256 bytes anyway.
+	 */
+	private static final long MAX_UPLOAD_GAP_BYTES = 256;
+
 	private final long instanceStride;
+	/**
+	 * The most clean instances to upload between two changed ones instead of splitting the copy.
+	 */
+	private final int maxUploadGap;
 	private final InstanceWriter<I> writer;
 	private final List<IndirectDraw> associatedDraws = new ArrayList<>();
 	private final Vector4fc boundingSphere;
+	/**
+	 * The distance at which each level of detail starts, with the model's own meshes as level 0.
+	 */
+	private final float[] lodDistances;
 
 	public int modelIndex = -1;
 	public int baseInstance = -1;
+	/**
+	 * The number of instances that fit in the slab starting at {@link #baseInstance}.
+	 */
+	public int slabCapacity;
+	/**
+	 * Where the culling results for levels of detail after the first are written to in the target buffer.
+	 * Level 0 uses the same range as the instances themselves.
+	 */
+	public int lodTargetBase = -1;
 	private int lastModelIndex = -1;
 	private int lastBaseInstance = -1;
 	private int lastInstanceCount = -1;
 
+	/**
+	 * Set once the draw manager starts {@linkplain #stage staging} instances. From then on, uploads read from the
+	 * staged copy of the instances so that visuals may update the instances themselves at the same time.
+	 */
+	private boolean pipelined;
+	@Nullable
+	private MemoryBlock stagedData;
+	private final AtomicBitSet stagedChanged = new AtomicBitSet();
+	private int stagedInstanceCount;
+
 	public IndirectInstancer(InstanceType<I> type, Environment environment, Model model) {
 		super(type, environment);
 		instanceStride = MoreMath.align4(type.layout()
 				.byteSize());
+		maxUploadGap = (int) (MAX_UPLOAD_GAP_BYTES / instanceStride);
 		writer = this.type.writer();
 		boundingSphere = model.boundingSphere();
+
+		var levelsOfDetail = model.levelsOfDetail();
+		lodDistances = new float[levelsOfDetail.size() + 1];
+		for (int i = 0; i < levelsOfDetail.size(); i++) {
+			lodDistances[i + 1] = levelsOfDetail.get(i)
+					.distance();
+		}
+	}
+
+	/**
+	 * @return The number of model descriptors this instancer needs, one per level of detail.
+	 */
+	public int lodCount() {
+		return lodDistances.length;
+	}
+
+	public int targetBase(int lodLevel) {
+		if (lodLevel == 0) {
+			return baseInstance;
+		}
+
+		return lodTargetBase + (lodLevel - 1) * frameInstanceCount();
+	}
+
+	/**
+	 * @return The number of instances that are uploaded and drawn this frame.
+	 */
+	public int frameInstanceCount() {
+		return pipelined ? stagedInstanceCount : instances.size();
 	}
 
 	public void addDraw(IndirectDraw draw) {
@@ -43,17 +109,71 @@ public class IndirectInstancer<I extends Instance> extends AbstractInstancer<I>
 	}
 
 	public void update() {
+		if (!pipelined) {
+			removeDeletedInstances();
+		}
+	}
+
+	/**
+	 * Copy the current state of all changed instances to be uploaded by the next frame.
+	 * Must be called while no visuals are being updated.
+	 */
+	public void stage() {
+		pipelined = true;
 		removeDeletedInstances();
+
+		int instanceCount = instances.size();
+		long byteSize = Math.max(instanceCount * instanceStride, instanceStride);
+
+		if (stagedData == null) {
+			stagedData = MemoryBlock.malloc(byteSize);
+		} else if (stagedData.size() < byteSize) {
+			stagedData = stagedData.realloc(Math.max(byteSize, stagedData.size() * 2));
+		}
+
+		long basePtr = stagedData.ptr();
+
+		// Staging whole merged spans means the clean instances in them are fresh when they get uploaded.
+		changed.forEachSetSpan(maxUploadGap, (startInclusive, endInclusive) -> {
+			if (startInclusive >= instanceCount) {
+				return;
+			}
+			int actualEnd = Math.min(endInclusive, instanceCount - 1);
+
+			long ptr = basePtr + startInclusive * instanceStride;
+			for (int i = startInclusive; i <= actualEnd; i++) {
+				writer.write(ptr, instances.get(i));
+				ptr += instanceStride;
+			}
+
+			stagedChanged.set(startInclusive, actualEnd + 1);
+		});
+
+		changed.clear();
+		stagedInstanceCount = instanceCount;
 	}
 
-	public void writeModel(long ptr) {
-		MemoryUtil.memPutInt(ptr, 0); // instanceCount - to be incremented by the cull shader
-		MemoryUtil.memPutInt(ptr + 4, baseInstance); // baseInstance
-		MemoryUtil.memPutInt(ptr + 8, environment.matrixIndex()); // matrixIndex
-		MemoryUtil.memPutFloat(ptr + 12, boundingSphere.x()); // boundingSphere
-		MemoryUtil.memPutFloat(ptr + 16, boundingSphere.y());
-		MemoryUtil.memPutFloat(ptr + 20, boundingSphere.z());
-		MemoryUtil.memPutFloat(ptr + 24, boundingSphere.w());
+	/**
+	 * Write one model descriptor per level of detail.
+	 *
+	 * @return The pointer after the last descriptor.
+	 */
+	public long writeModels(long ptr) {
+		for (int lodLevel = 0; lodLevel < lodDistances.length; lodLevel++) {
+			MemoryUtil.memPutInt(ptr, 0); // instanceCount - to be incremented by the cull shader
+			MemoryUtil.memPutInt(ptr + 4, targetBase(lodLevel)); // baseInstance
+			MemoryUtil.memPutInt(ptr + 8, environment.matrixIndex()); // matrixIndex
+			MemoryUtil.memPutFloat(ptr + 12, boundingSphere.x()); // boundingSphere
+			MemoryUtil.memPutFloat(ptr + 16, boundingSphere.y());
+			MemoryUtil.memPutFloat(ptr + 20, boundingSphere.z());
+			MemoryUtil.memPutFloat(ptr + 24, boundingSphere.w());
+			MemoryUtil.memPutInt(ptr + 28, lodDistances.length); // lodCount
+			MemoryUtil.memPutFloat(ptr + 32, lodDistances[lodLevel]); // lodDistance
+			MemoryUtil.memPutInt(ptr + 36, frameInstanceCount()); // liveInstanceCount
+			ptr += IndirectBuffers.MODEL_STRIDE;
+		}
+
+		return ptr;
 	}
 
 	public void uploadInstances(StagingBuffer stagingBuffer, int instanceVbo) {
@@ -67,57 +187,72 @@ public class IndirectInstancer<I extends Instance> extends AbstractInstancer<I>
 	}
 
 	public void uploadModelIndices(StagingBuffer stagingBuffer, int modelIndexVbo) {
-		long modelIndexBaseByte = baseInstance * IndirectBuffers.INT_SIZE;
+		int instanceCount = frameInstanceCount();
 
-		if (baseInstance != lastBaseInstance || modelIndex != lastModelIndex || instances.size() > lastInstanceCount) {
-			uploadAllModelIndices(stagingBuffer, modelIndexBaseByte, modelIndexVbo);
+		if (baseInstance != lastBaseInstance || modelIndex != lastModelIndex) {
+			uploadModelIndices(stagingBuffer, modelIndexVbo, 0, instanceCount);
+		} else if (instanceCount > lastInstanceCount) {
+			uploadModelIndices(stagingBuffer, modelIndexVbo, lastInstanceCount, instanceCount);
 		}
+		// When shrinking, the stale indices past the end are ignored thanks to the live instance count in the model.
 	}
 
 	public void resetChanged() {
 		lastModelIndex = modelIndex;
 		lastBaseInstance = baseInstance;
-		lastInstanceCount = instances.size();
-		changed.clear();
+		lastInstanceCount = frameInstanceCount();
+		frameChanged().clear();
+	}
+
+	private AtomicBitSet frameChanged() {
+		return pipelined ? stagedChanged : changed;
+	}
+
+	private void writeInstances(long ptr, int startInclusive, int endExclusive) {
+		if (pipelined) {
+			MemoryUtil.memCopy(stagedData.ptr() + startInclusive * instanceStride, ptr, (endExclusive - startInclusive) * instanceStride);
+			return;
+		}
+
+		for (int i = startInclusive; i < endExclusive; i++) {
+			writer.write(ptr, instances.get(i));
+			ptr += instanceStride;
+		}
 	}
 
 	private void uploadChangedInstances(StagingBuffer stagingBuffer, long baseByte, int instanceVbo) {
-		changed.forEachSetSpan((startInclusive, endInclusive) -> {
+		int frameInstanceCount = frameInstanceCount();
+
+		// Staging already merged nearby spans, and the staged data in any other gaps may be stale.
+		int maxGap = pipelined ? 0 : maxUploadGap;
+
+		frameChanged().forEachSetSpan(maxGap, (startInclusive, endInclusive) -> {
 			// Generally we're good about ensuring we don't have changed bits set out of bounds, but check just in case
-			if (startInclusive >= instances.size()) {
+			if (startInclusive >= frameInstanceCount) {
 				return;
 			}
-			int actualEnd = Math.min(endInclusive, instances.size() - 1);
+			int actualEnd = Math.min(endInclusive, frameInstanceCount - 1);
 
 			int instanceCount = actualEnd - startInclusive + 1;
 			long totalSize = instanceCount * instanceStride;
 
-			stagingBuffer.enqueueCopy(totalSize, instanceVbo, baseByte + startInclusive * instanceStride, ptr -> {
-				for (int i = startInclusive; i <= actualEnd; i++) {
-					var instance = instances.get(i);
-					writer.write(ptr, instance);
-					ptr += instanceStride;
-				}
-			});
+			stagingBuffer.enqueueCopy(totalSize, instanceVbo, baseByte + startInclusive * instanceStride, ptr -> writeInstances(ptr, startInclusive, actualEnd + 1));
 		});
 	}
 
 	private void uploadAllInstances(StagingBuffer stagingBuffer, long baseByte, int instanceVbo) {
-		long totalSize = instances.size() * instanceStride;
+		int instanceCount = frameInstanceCount();
+		long totalSize = instanceCount * instanceStride;
 
-		stagingBuffer.enqueueCopy(totalSize, instanceVbo, baseByte, ptr -> {
-			for (I instance : instances) {
-				writer.write(ptr, instance);
-				ptr += instanceStride;
-			}
-		});
+		stagingBuffer.enqueueCopy(totalSize, instanceVbo, baseByte, ptr -> writeInstances(ptr, 0, instanceCount));
 	}
 
-	private void uploadAllModelIndices(StagingBuffer stagingBuffer, long modelIndexBaseByte, int modelIndexVbo) {
-		long modelIndexTotalSize = instances.size() * IndirectBuffers.INT_SIZE;
+	private void uploadModelIndices(StagingBuffer stagingBuffer, int modelIndexVbo, int start, int end) {
+		long modelIndexTotalSize = (end - start) * IndirectBuffers.INT_SIZE;
+		long modelIndexBaseByte = (baseInstance + start) * IndirectBuffers.INT_SIZE;
 
 		stagingBuffer.enqueueCopy(modelIndexTotalSize, modelIndexVbo, modelIndexBaseByte, ptr -> {
-			for (int i = 0; i < instances.size(); i++) {
+			for (int i = start; i < end; i++) {
 				MemoryUtil.memPutInt(ptr, modelIndex);
 				ptr += IndirectBuffers.INT_SIZE;
 			}
@@ -129,5 +264,10 @@ public class IndirectInstancer<I extends Instance> extends AbstractInstancer<I>
 		for (IndirectDraw draw : draws()) {
 			draw.delete();
 		}
+
+		if (stagedData != null) {
+			stagedData.free();
+			stagedData = null;
+		}
 	}
 }
@@ -7,11 +7,16 @@ import dev.engine_room.flywheel.backend.engine.LightStorage;
 
 public class LightBuffers {
 	private final ResizableStorageArray lut = new ResizableStorageArray(4);
-	private final ResizableStorageArray sections = new ResizableStorageArray(LightStorage.SECTION_SIZE_BYTES);
+	// Sized in pages, sections take a run of them each.
+	private final ResizableStorageArray sections = new ResizableStorageArray(LightStorage.PAGE_SIZE_BYTES);
 
 	public void flush(StagingBuffer staging, LightStorage light) {
 		var capacity = light.capacity();
 
+		// The light storage compacts itself after many sections are removed, down to none at all.
+		// GL can't make empty buffers, so keep at least a page.
+		sections.trim(Math.max(capacity, 1));
+
 		if (capacity == 0) {
 			return;
 		}
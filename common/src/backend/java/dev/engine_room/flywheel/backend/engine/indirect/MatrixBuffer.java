@@ -1,16 +1,48 @@
 package dev.engine_room.flywheel.backend.engine.indirect;
 
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.opengl.GL46;
 import org.lwjgl.system.MemoryUtil;
 
 import dev.engine_room.flywheel.backend.engine.embed.EnvironmentStorage;
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 
 public class MatrixBuffer {
 	private final ResizableStorageArray matrices = new ResizableStorageArray(EnvironmentStorage.MATRIX_SIZE_BYTES);
+	/**
+	 * A copy of the matrices taken by {@link #stage}, used instead of the arena when pipelining.
+	 * Visuals may create new embeddings while we upload, which can reallocate the arena.
+	 */
+	@Nullable
+	private MemoryBlock staged;
+	private int stagedCapacity;
 
-	public void flush(StagingBuffer stagingBuffer, EnvironmentStorage environmentStorage) {
+	public void stage(EnvironmentStorage environmentStorage) {
 		var arena = environmentStorage.arena;
-		var capacity = arena.capacity();
+		stagedCapacity = arena.capacity();
+		long byteSize = Math.max((long) stagedCapacity * EnvironmentStorage.MATRIX_SIZE_BYTES, 1);
+
+		if (staged == null) {
+			staged = MemoryBlock.malloc(byteSize);
+		} else if (staged.size() < byteSize) {
+			staged = staged.realloc(byteSize);
+		}
+
+		MemoryUtil.memCopy(arena.indexToPointer(0), staged.ptr(), (long) stagedCapacity * EnvironmentStorage.MATRIX_SIZE_BYTES);
+	}
+
+	public void flush(StagingBuffer stagingBuffer, EnvironmentStorage environmentStorage) {
+		long srcPtr;
+		int capacity;
+
+		if (staged != null) {
+			srcPtr = staged.ptr();
+			capacity = stagedCapacity;
+		} else {
+			var arena = environmentStorage.arena;
+			srcPtr = arena.indexToPointer(0);
+			capacity = arena.capacity();
+		}
 
 		if (capacity == 0) {
 			return;
@@ -18,8 +50,9 @@ public class MatrixBuffer {
 
 		matrices.ensureCapacity(capacity);
 
-		stagingBuffer.enqueueCopy(arena.byteCapacity(), matrices.handle(), 0, ptr -> {
-			MemoryUtil.memCopy(arena.indexToPointer(0), ptr, arena.byteCapacity());
+		long byteSize = (long) capacity * EnvironmentStorage.MATRIX_SIZE_BYTES;
+		stagingBuffer.enqueueCopy(byteSize, matrices.handle(), 0, ptr -> {
+			MemoryUtil.memCopy(srcPtr, ptr, byteSize);
 		});
 	}
 
@@ -30,4 +63,13 @@ public class MatrixBuffer {
 
 		GL46.glBindBufferRange(GL46.GL_SHADER_STORAGE_BUFFER, BufferBindings.MATRICES, matrices.handle(), 0, matrices.byteCapacity());
 	}
+
+	public void delete() {
+		matrices.delete();
+
+		if (staged != null) {
+			staged.free();
+			staged = null;
+		}
+	}
 }
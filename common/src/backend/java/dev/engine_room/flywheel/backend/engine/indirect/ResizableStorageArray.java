@@ -56,6 +56,17 @@ public class ResizableStorageArray {
 		}
 	}
 
+	/**
+	 * Shrink the buffer if less than half of it is needed to hold the given capacity, keeping the contents that fit.
+	 */
+	public void trim(long capacity) {
+		long trimmed = grow(capacity);
+		if (trimmed * 2 <= this.capacity) {
+			buffer.ensureCapacity(stride * trimmed);
+			this.capacity = trimmed;
+		}
+	}
+
 	public void delete() {
 		buffer.delete();
 	}
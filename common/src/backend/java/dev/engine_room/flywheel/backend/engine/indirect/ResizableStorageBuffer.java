@@ -33,7 +33,8 @@ public class ResizableStorageBuffer extends GlObject {
 
 			glNamedBufferStorage(newHandle, capacity, 0);
 
-			glCopyNamedBufferSubData(oldHandle, newHandle, 0, 0, this.capacity);
+			// Keep as much as fits in case we're shrinking.
+			glCopyNamedBufferSubData(oldHandle, newHandle, 0, 0, Math.min(this.capacity, capacity));
 
 			deleteInternal(oldHandle);
 
@@ -0,0 +1,109 @@
+package dev.engine_room.flywheel.backend.engine.indirect;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hands out ranges of a one dimensional index space, e.g. slots in a GPU buffer.
+ * <br>
+ * Freed ranges are coalesced with their neighbours and reused first-fit, so ranges that are never freed never move.
+ */
+public class SlabAllocator {
+	/**
+	 * Free ranges below {@link #end}, keyed by their start and mapping to their size.
+	 */
+	private final TreeMap<Integer, Integer> freeRanges = new TreeMap<>();
+	private int end;
+	private int allocated;
+
+	/**
+	 * Allocate a range, preferring the lowest free range that fits.
+	 *
+	 * @param size The size of the range.
+	 * @return The start of the range.
+	 */
+	public int allocate(int size) {
+		int start = allocateBelow(size, end);
+
+		if (start != -1) {
+			return start;
+		}
+
+		start = end;
+		end += size;
+		allocated += size;
+		return start;
+	}
+
+	/**
+	 * Allocate a range that ends at or before the given limit, without growing the index space.
+	 *
+	 * @param size  The size of the range.
+	 * @param limit The index the range must end at or before.
+	 * @return The start of the range, or -1 if no free range fits.
+	 */
+	public int allocateBelow(int size, int limit) {
+		for (Map.Entry<Integer, Integer> entry : freeRanges.entrySet()) {
+			int start = entry.getKey();
+			int freeSize = entry.getValue();
+
+			if (start + size > limit) {
+				break;
+			}
+
+			if (freeSize >= size) {
+				freeRanges.remove(start);
+
+				if (freeSize > size) {
+					freeRanges.put(start + size, freeSize - size);
+				}
+
+				allocated += size;
+				return start;
+			}
+		}
+
+		return -1;
+	}
+
+	public void free(int start, int size) {
+		if (size <= 0) {
+			return;
+		}
+
+		allocated -= size;
+
+		var below = freeRanges.lowerEntry(start);
+		if (below != null && below.getKey() + below.getValue() == start) {
+			freeRanges.remove(below.getKey());
+			start = below.getKey();
+			size += below.getValue();
+		}
+
+		Integer above = freeRanges.remove(start + size);
+		if (above != null) {
+			size += above;
+		}
+
+		if (start + size == end) {
+			// Coalescing guarantees nothing free is directly below, so the index space just shrinks.
+			end = start;
+		} else {
+			freeRanges.put(start, size);
+		}
+	}
+
+	/**
+	 * @return One past the highest allocated index.
+	 */
+	public int end() {
+		return end;
+	}
+
+	/**
+	 * @return The total size of all allocated ranges.
+	 */
+	public int allocated() {
+		return allocated;
+	}
+}
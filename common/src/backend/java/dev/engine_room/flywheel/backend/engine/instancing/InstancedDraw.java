@@ -4,6 +4,8 @@ import dev.engine_room.flywheel.api.material.Material;
 import dev.engine_room.flywheel.backend.engine.GroupKey;
 import dev.engine_room.flywheel.backend.engine.MeshPool;
 import dev.engine_room.flywheel.backend.gl.TextureBuffer;
+import dev.engine_room.flywheel.backend.gl.shader.GlProgram;
+import it.unimi.dsi.fastutil.ints.IntList;
 
 public class InstancedDraw {
 	public final GroupKey<?> groupKey;
@@ -42,24 +44,47 @@ public class InstancedDraw {
 		return deleted;
 	}
 
-	public void render(TextureBuffer buffer) {
+	public void render(TextureBuffer buffer, GlProgram program) {
 		if (mesh.isInvalid()) {
 			return;
 		}
 
+		mesh.setup(program);
 		instancer.bind(buffer);
 
 		mesh.draw(instancer.instanceCount());
 	}
 
-	public void renderOne(TextureBuffer buffer) {
-		if (mesh.isInvalid()) {
+	/**
+	 * Render only the given instances, drawing each run of consecutive indices with a single instanced draw call.
+	 *
+	 * @param indices The indices of the instances to render, sorted in ascending order.
+	 */
+	public void renderInstances(TextureBuffer buffer, GlProgram program, IntList indices) {
+		if (mesh.isInvalid() || indices.isEmpty()) {
 			return;
 		}
 
+		mesh.setup(program);
 		instancer.bind(buffer);
 
-		mesh.draw(1);
+		int runStart = indices.getInt(0);
+		int runLength = 1;
+
+		for (int i = 1; i <= indices.size(); i++) {
+			if (i < indices.size() && indices.getInt(i) == runStart + runLength) {
+				runLength++;
+				continue;
+			}
+
+			program.setInt("_flw_baseInstance", runStart);
+			mesh.draw(runLength);
+
+			if (i < indices.size()) {
+				runStart = indices.getInt(i);
+				runLength = 1;
+			}
+		}
 	}
 
 	public void delete() {
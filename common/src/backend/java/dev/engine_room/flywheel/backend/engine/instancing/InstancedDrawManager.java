@@ -27,10 +27,12 @@ import dev.engine_room.flywheel.backend.engine.embed.EnvironmentStorage;
 import dev.engine_room.flywheel.backend.engine.uniform.Uniforms;
 import dev.engine_room.flywheel.backend.gl.GlStateTracker;
 import dev.engine_room.flywheel.backend.gl.TextureBuffer;
-import dev.engine_room.flywheel.backend.gl.array.GlVertexArray;
 import dev.engine_room.flywheel.backend.gl.shader.GlProgram;
 import dev.engine_room.flywheel.lib.material.LightShaders;
 import dev.engine_room.flywheel.lib.material.SimpleMaterial;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
 import net.minecraft.client.resources.model.ModelBakery;
 
 public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
@@ -43,7 +45,6 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 	 * A map of vertex types to their mesh pools.
 	 */
 	private final MeshPool meshPool;
-	private final GlVertexArray vao;
 	private final TextureBuffer instanceTexture;
 	private final InstancedLight light;
 
@@ -52,11 +53,8 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 		this.programs = programs;
 
 		meshPool = new MeshPool();
-		vao = GlVertexArray.create();
 		instanceTexture = new TextureBuffer();
 		light = new InstancedLight();
-
-		meshPool.bind(vao);
 	}
 
 	@Override
@@ -96,7 +94,6 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 
 		try (var state = GlStateTracker.getRestoreState()) {
 			Uniforms.bindAll();
-			vao.bindForDraw();
 			TextureBinder.bindLightAndOverlay();
 			light.bind();
 
@@ -119,7 +116,6 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 		meshPool.delete();
 		instanceTexture.delete();
 		programs.release();
-		vao.delete();
 
 		light.delete();
 
@@ -164,7 +160,6 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 
 		try (var state = GlStateTracker.getRestoreState()) {
 			Uniforms.bindAll();
-			vao.bindForDraw();
 			TextureBinder.bindLightAndOverlay();
 
 			for (var groupEntry : byType.entrySet()) {
@@ -179,11 +174,17 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 					Samplers.CRUMBLING.makeActive();
 					TextureBinder.bind(ModelBakery.BREAKING_LOCATIONS.get(progressEntry.getIntKey()));
 
+					// Group the crumbling instances by instancer so each draw only needs to be set up once.
+					Map<InstancedInstancer<?>, IntList> byInstancer = new Reference2ObjectLinkedOpenHashMap<>();
 					for (var instanceHandlePair : progressEntry.getValue()) {
-						InstancedInstancer<?> instancer = instanceHandlePair.first();
-						var index = instanceHandlePair.second().index;
+						byInstancer.computeIfAbsent(instanceHandlePair.first(), $ -> new IntArrayList())
+								.add(instanceHandlePair.second().index);
+					}
 
-						program.setInt("_flw_baseInstance", index);
+					for (var instancerEntry : byInstancer.entrySet()) {
+						InstancedInstancer<?> instancer = instancerEntry.getKey();
+						IntList indices = instancerEntry.getValue();
+						indices.sort(null);
 
 						for (InstancedDraw draw : instancer.draws()) {
 							CommonCrumbling.applyCrumblingProperties(crumblingMaterial, draw.material());
@@ -193,7 +194,7 @@ public class InstancedDrawManager extends DrawManager<InstancedInstancer<?>> {
 
 							Samplers.INSTANCE_BUFFER.makeActive();
 
-							draw.renderOne(instanceTexture);
+							draw.renderInstances(instanceTexture, program, indices);
 						}
 					}
 				}
@@ -17,7 +17,17 @@ import dev.engine_room.flywheel.lib.math.MoreMath;
 import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 
 public class InstancedInstancer<I extends Instance> extends AbstractInstancer<I> {
+	/**
+	 * Changed instances closer together than this are uploaded together, along with the clean ones in between.
+	 * Every span is its own buffer upload, which costs far more than sending a few extra bytes.
+	 */
+	private static final int MAX_UPLOAD_GAP_BYTES = 1024;
+
 	private final int instanceStride;
+	/**
+	 * The most clean instances to upload between two changed ones instead of splitting the upload.
+	 */
+	private final int maxUploadGap;
 
 	private final InstanceWriter<I> writer;
 	@Nullable
@@ -30,6 +40,7 @@ public class InstancedInstancer<I extends Instance> extends AbstractInstancer<I>
 		var layout = type.layout();
 		// Align to one texel in the texture buffer
 		instanceStride = MoreMath.align16(layout.byteSize());
+		maxUploadGap = MAX_UPLOAD_GAP_BYTES / instanceStride;
 		writer = type.writer();
 	}
 
@@ -73,7 +84,7 @@ public class InstancedInstancer<I extends Instance> extends AbstractInstancer<I>
 	}
 
 	private void writeChanged() {
-		changed.forEachSetSpan((startInclusive, endInclusive) -> {
+		changed.forEachSetSpan(maxUploadGap, (startInclusive, endInclusive) -> {
 			// Generally we're good about ensuring we don't have changed bits set out of bounds, but check just in case
 			if (startInclusive >= instances.size()) {
 				return;
@@ -1,5 +1,6 @@
 package dev.engine_room.flywheel.backend.engine.instancing;
 
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.opengl.GL32;
 import org.lwjgl.system.MemoryUtil;
 
@@ -7,6 +8,7 @@ import dev.engine_room.flywheel.backend.Samplers;
 import dev.engine_room.flywheel.backend.engine.LightStorage;
 import dev.engine_room.flywheel.backend.gl.TextureBuffer;
 import dev.engine_room.flywheel.backend.gl.buffer.GlBuffer;
+import dev.engine_room.flywheel.backend.gl.buffer.GlBufferUsage;
 import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 
 public class InstancedLight {
@@ -14,10 +16,14 @@ public class InstancedLight {
 	private final GlBuffer sections;
 	private final TextureBuffer lutTexture;
 	private final TextureBuffer sectionsTexture;
+	// Reused between LUT rebuilds, grown as needed.
+	@Nullable
+	private MemoryBlock lutBlock;
 
 	public InstancedLight() {
 		lut = new GlBuffer();
-		sections = new GlBuffer();
+		// Changed sections are streamed into this every time light changes.
+		sections = new GlBuffer(GlBufferUsage.DYNAMIC_DRAW);
 		lutTexture = new TextureBuffer(GL32.GL_R32UI);
 		sectionsTexture = new TextureBuffer(GL32.GL_R32UI);
 	}
@@ -30,26 +36,23 @@ public class InstancedLight {
 	}
 
 	public void flush(LightStorage light) {
-		if (light.capacity() == 0) {
-			return;
-		}
-
+		// Even with no sections left the buffer may need to shrink and the LUT to be emptied.
 		light.upload(sections);
 
 		if (light.checkNeedsLutRebuildAndClear()) {
 			var lut = light.createLut();
+			long size = (long) lut.size() * Integer.BYTES;
 
-			var up = MemoryBlock.malloc((long) lut.size() * Integer.BYTES);
-
-			long ptr = up.ptr();
-
-			for (int i = 0; i < lut.size(); i++) {
-				MemoryUtil.memPutInt(ptr + (long) Integer.BYTES * i, lut.getInt(i));
+			if (lutBlock == null) {
+				lutBlock = MemoryBlock.malloc(Math.max(size, Integer.BYTES));
+			} else if (lutBlock.size() < size) {
+				lutBlock = lutBlock.realloc(size);
 			}
 
-			this.lut.upload(up);
+			MemoryUtil.memIntBuffer(lutBlock.ptr(), lut.size())
+					.put(lut.elements(), 0, lut.size());
 
-			up.free();
+			this.lut.upload(lutBlock.ptr(), size);
 		}
 	}
 
@@ -58,5 +61,9 @@ public class InstancedLight {
 		sections.delete();
 		lutTexture.delete();
 		sectionsTexture.delete();
+
+		if (lutBlock != null) {
+			lutBlock.free();
+		}
 	}
 }
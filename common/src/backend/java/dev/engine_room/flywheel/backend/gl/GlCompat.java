@@ -7,6 +7,7 @@ import org.lwjgl.PointerBuffer;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL20C;
+import org.lwjgl.opengl.GL30;
 import org.lwjgl.opengl.GL31C;
 import org.lwjgl.opengl.GL40;
 import org.lwjgl.opengl.GL43;
@@ -90,6 +91,24 @@ public final class GlCompat {
 		}
 	}
 
+	/**
+	 * Like {@link #safeMultiDrawElementsIndirect(int, int, long, int, int)}, but also sets the uniform that shaders
+	 * add to {@code gl_DrawID} to find their draw command. When falling back to consecutive DI {@code gl_DrawID}
+	 * is always 0, so the uniform is incremented between draws instead.
+	 */
+	public static void safeMultiDrawElementsIndirect(int mode, int type, long indirect, int drawcount, int stride, int baseDrawUniform, int baseDraw) {
+		if (GlCompat.DRIVER == Driver.INTEL) {
+			for (int i = 0; i < drawcount; i++) {
+				GL30.glUniform1ui(baseDrawUniform, baseDraw + i);
+				GL40.glDrawElementsIndirect(mode, type, indirect);
+				indirect += stride;
+			}
+		} else {
+			GL30.glUniform1ui(baseDrawUniform, baseDraw);
+			GL43.glMultiDrawElementsIndirect(mode, type, indirect, drawcount, stride);
+		}
+	}
+
 	private static Driver readVendorString() {
 		if (CAPABILITIES == null) {
 			return Driver.UNKNOWN;
@@ -398,6 +398,26 @@ public class AtomicBitSet {
 		}
 	}
 
+	/**
+	 * Iterate over each span of set bits, merging spans separated by at most {@code maxGap} clear bits.
+	 * <br>
+	 * Useful when each span costs something on top of its length, such as a separate copy. The merged spans
+	 * include the clear bits in between, so the consumer must be fine with handling those as well.
+	 *
+	 * @param maxGap   The longest run of clear bits to merge over. 0 or less reports the exact spans.
+	 * @param consumer The consumer to accept each span.
+	 */
+	public void forEachSetSpan(int maxGap, BitSpanConsumer consumer) {
+		if (maxGap <= 0) {
+			forEachSetSpan(consumer);
+			return;
+		}
+
+		var merger = new SpanMerger(maxGap, consumer);
+		forEachSetSpan(merger);
+		merger.finish();
+	}
+
 	/**
 	 * @return the number of bits which are currently specified by this bit set.  This is the maximum value
 	 * to which you might need to iterate, if you were to iterate over all bits in this set.
@@ -615,6 +635,37 @@ public class AtomicBitSet {
 		return toBitSet().toString();
 	}
 
+	private static class SpanMerger implements BitSpanConsumer {
+		private final int maxGap;
+		private final BitSpanConsumer consumer;
+		private int start = -1;
+		private int end = -1;
+
+		private SpanMerger(int maxGap, BitSpanConsumer consumer) {
+			this.maxGap = maxGap;
+			this.consumer = consumer;
+		}
+
+		@Override
+		public void accept(int startInclusive, int endInclusive) {
+			if (start != -1 && startInclusive - end - 1 > maxGap) {
+				consumer.accept(start, end);
+				start = -1;
+			}
+
+			if (start == -1) {
+				start = startInclusive;
+			}
+			end = endInclusive;
+		}
+
+		private void finish() {
+			if (start != -1) {
+				consumer.accept(start, end);
+			}
+		}
+	}
+
 	@FunctionalInterface
 	public interface BitSpanConsumer {
 		/**
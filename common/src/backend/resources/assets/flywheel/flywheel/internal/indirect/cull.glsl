@@ -35,11 +35,10 @@ bool _flw_testSphere(vec3 center, float radius) {
     return all(xyInside) && all(zInside);
 }
 
-bool _flw_isVisible(uint instanceIndex, uint modelIndex) {
+bool _flw_isVisible(uint instanceIndex, uint modelIndex, out vec3 center) {
     uint matrixIndex = _flw_models[modelIndex].matrixIndex;
     BoundingSphere sphere = _flw_models[modelIndex].boundingSphere;
 
-    vec3 center;
     float radius;
     _flw_unpackBoundingSphere(sphere, center, radius);
 
@@ -54,6 +53,26 @@ bool _flw_isVisible(uint instanceIndex, uint modelIndex) {
     return _flw_testSphere(center, radius);
 }
 
+// Pick the least detailed level whose distance the instance is beyond.
+// The descriptors of an instancer's levels of detail are contiguous, starting with level 0.
+uint _flw_selectLod(uint modelIndex, vec3 center) {
+    uint lodCount = _flw_models[modelIndex].lodCount;
+
+    if (lodCount <= 1u) {
+        return modelIndex;
+    }
+
+    float distance = length(center - flw_cameraPos);
+
+    for (uint lod = lodCount - 1u; lod > 0u; lod--) {
+        if (distance >= _flw_models[modelIndex + lod].lodDistance) {
+            return modelIndex + lod;
+        }
+    }
+
+    return modelIndex;
+}
+
 void main() {
     uint instanceIndex = gl_GlobalInvocationID.x;
 
@@ -63,7 +82,16 @@ void main() {
 
     uint modelIndex = _flw_modelIndices[instanceIndex];
 
-    if (_flw_isVisible(instanceIndex, modelIndex)) {
+    // Slots in the headroom of a slab or between slabs hold stale model indices.
+    // Only a slot within the live range of the instancer it points to is a real instance.
+    if (modelIndex >= _flw_models.length() || instanceIndex - _flw_models[modelIndex].baseInstance >= _flw_models[modelIndex].liveInstanceCount) {
+        return;
+    }
+
+    vec3 center;
+    if (_flw_isVisible(instanceIndex, modelIndex, center)) {
+        modelIndex = _flw_selectLod(modelIndex, center);
+
         uint localIndex = atomicAdd(_flw_models[modelIndex].instanceCount, 1);
         uint targetIndex = _flw_models[modelIndex].baseInstance + localIndex;
         _flw_instanceIndices[targetIndex] = instanceIndex;
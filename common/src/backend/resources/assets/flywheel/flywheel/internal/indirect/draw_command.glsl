@@ -12,4 +12,12 @@ struct MeshDrawCommand {
     uint materialFragmentIndex;
     uint packedFogAndCutout;
     uint packedMaterialProperties;
+
+    float meshOriginX;
+    float meshOriginY;
+    float meshOriginZ;
+    float meshExtentX;
+    float meshExtentY;
+    float meshExtentZ;
+    uint compactVertex;
 };
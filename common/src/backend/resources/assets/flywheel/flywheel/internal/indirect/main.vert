@@ -36,6 +36,10 @@ void main() {
     _flw_unpackMaterialProperties(packedMaterialProperties, flw_material);
     _flw_packedMaterial = uvec3(draw.materialFragmentIndex, draw.packedFogAndCutout, packedMaterialProperties);
 
+    _flw_compactVertex = draw.compactVertex != 0u;
+    _flw_meshOrigin = vec3(draw.meshOriginX, draw.meshOriginY, draw.meshOriginZ);
+    _flw_meshExtent = vec3(draw.meshExtentX, draw.meshExtentY, draw.meshExtentZ);
+
     #ifdef FLW_EMBEDDED
     _flw_unpackMatrices(_flw_matrices[draw.matrixIndex], _flw_modelMatrix, _flw_normalMatrix);
     //    _flw_modelMatrix = mat4(1.);
@@ -10,6 +10,15 @@ struct ModelDescriptor {
     uint baseInstance;
     uint matrixIndex;
     BoundingSphere boundingSphere;
+    /** The number of levels of detail of the instancer, only read from the descriptor of level 0. */
+    uint lodCount;
+    /** The distance from the camera at which this level of detail starts. */
+    float lodDistance;
+    /**
+     * The number of instances at the start of the instancer's slab that are in use, only read from the descriptor
+     * of level 0. Zero for unused descriptors.
+     */
+    uint liveInstanceCount;
 };
 
 void _flw_unpackBoundingSphere(in BoundingSphere sphere, out vec3 center, out float radius) {
@@ -5,6 +5,10 @@
 uniform uvec4 _flw_packedMaterial;
 uniform int _flw_baseInstance = 0;
 
+uniform bool _flw_compactVertexUniform = false;
+uniform vec3 _flw_meshOriginUniform = vec3(0.);
+uniform vec3 _flw_meshExtentUniform = vec3(1.);
+
 #ifdef FLW_EMBEDDED
 uniform mat4 _flw_modelMatrixUniform;
 uniform mat3 _flw_normalMatrixUniform;
@@ -14,6 +18,10 @@ void main() {
     _flw_uberMaterialVertexIndex = _flw_packedMaterial.x;
     _flw_unpackMaterialProperties(_flw_packedMaterial.w, flw_material);
 
+    _flw_compactVertex = _flw_compactVertexUniform;
+    _flw_meshOrigin = _flw_meshOriginUniform;
+    _flw_meshExtent = _flw_meshExtentUniform;
+
     FlwInstance instance = _flw_unpackInstance(_flw_baseInstance + gl_InstanceID);
 
     #ifdef FLW_EMBEDDED
@@ -1,12 +1,21 @@
 const uint _FLW_BLOCKS_PER_SECTION = 18 * 18 * 18;
-const uint _FLW_LIGHT_SIZE_BYTES = _FLW_BLOCKS_PER_SECTION;
 const uint _FLW_SOLID_SIZE_BYTES = ((_FLW_BLOCKS_PER_SECTION + 31) / 32) * 4;
-const uint _FLW_LIGHT_START_BYTES = _FLW_SOLID_SIZE_BYTES;
-const uint _FLW_LIGHT_SECTION_SIZE_BYTES = _FLW_SOLID_SIZE_BYTES + _FLW_LIGHT_SIZE_BYTES;
+#ifdef _FLW_LIGHT_OCCLUSION
+// Two uints for each block inside the section, precomputed when the section is collected.
+const uint _FLW_OCCLUSION_SIZE_BYTES = 16 * 16 * 16 * 2 * 4;
+#else
+const uint _FLW_OCCLUSION_SIZE_BYTES = 0;
+#endif
+
+// Sections take a run of pages each, as many as their encoded light needs. The LUT points at the first page.
+const uint _FLW_LIGHT_PAGE_SIZE_INTS = 256 / 4;
 
 const uint _FLW_SOLID_START_INTS = 0;
-const uint _FLW_LIGHT_START_INTS = _FLW_SOLID_SIZE_BYTES / 4;
-const uint _FLW_LIGHT_SECTION_SIZE_INTS = _FLW_LIGHT_SECTION_SIZE_BYTES / 4;
+const uint _FLW_OCCLUSION_START_INTS = _FLW_SOLID_SIZE_BYTES / 4;
+const uint _FLW_LIGHT_START_INTS = (_FLW_SOLID_SIZE_BYTES + _FLW_OCCLUSION_SIZE_BYTES) / 4;
+// The encoded light is the bits per index, a palette of 16 bytes, then the indices. See LightPalette.
+const uint _FLW_LIGHT_PALETTE_START_INTS = _FLW_LIGHT_START_INTS + 1;
+const uint _FLW_LIGHT_INDICES_START_INTS = _FLW_LIGHT_START_INTS + 5;
 
 const uint _FLW_COMPLETELY_SOLID = 0x7FFFFFFu;
 const float _FLW_EPSILON = 1e-5;
@@ -65,14 +74,23 @@ bool _flw_chunkCoordToSectionIndex(ivec3 sectionPos, out uint index) {
 }
 
 uvec2 _flw_lightAt(uint sectionOffset, uvec3 blockInSectionPos) {
-    uint byteOffset = blockInSectionPos.x + blockInSectionPos.z * 18u + blockInSectionPos.y * 18u * 18u;
+    uint blockIndex = blockInSectionPos.x + blockInSectionPos.z * 18u + blockInSectionPos.y * 18u * 18u;
+
+    // The same for the whole section, so repeated fetches of it should get folded together.
+    uint bits = _flw_indexLight(sectionOffset + _FLW_LIGHT_START_INTS);
+    uint bitOffset = blockIndex * bits;
+
+    uint word = _flw_indexLight(sectionOffset + _FLW_LIGHT_INDICES_START_INTS + (bitOffset >> 5u));
+    uint packed = (word >> (bitOffset & 31u)) & ((1u << bits) - 1u);
 
-    uint uintOffset = byteOffset >> 2u;
-    uint bitOffset = (byteOffset & 3u) << 3;
+    // With 8 bits there's no palette, the indices are the packed light themselves.
+    if (bits < 8u) {
+        uint paletteWord = _flw_indexLight(sectionOffset + _FLW_LIGHT_PALETTE_START_INTS + (packed >> 2u));
+        packed = (paletteWord >> ((packed & 3u) << 3u)) & 0xFFu;
+    }
 
-    uint raw = _flw_indexLight(sectionOffset + _FLW_LIGHT_START_INTS + uintOffset);
-    uint block = (raw >> bitOffset) & 0xFu;
-    uint sky = (raw >> (bitOffset + 4u)) & 0xFu;
+    uint block = packed & 0xFu;
+    uint sky = (packed >> 4u) & 0xFu;
 
     return uvec2(block, sky);
 }
@@ -94,7 +112,7 @@ bool flw_lightFetch(ivec3 blockPos, out vec2 lightCoord) {
         return false;
     }
     // The offset of the section in the light buffer.
-    uint sectionOffset = lightSectionIndex * _FLW_LIGHT_SECTION_SIZE_INTS;
+    uint sectionOffset = lightSectionIndex * _FLW_LIGHT_PAGE_SIZE_INTS;
 
     uvec3 blockInSectionPos = (blockPos & 0xF) + 1;
 
@@ -156,6 +174,32 @@ uint _flw_fetchSolid3x3x3(uint sectionOffset, ivec3 blockInSectionPos) {
     return ret;
 }
 
+/// Fetch the solid blocks in a 3x3x3 area centered on our block, and which of its corners vanilla AO leaves out.
+///
+/// Vanilla doesn't look at a corner block when the blocks past both sides beside it on the face are solid, and uses
+/// the side along the face's first axis again instead. Those outer blocks aren't in the light section, so the
+/// occlusion channel has a bit for each corner of the 3x3x3 area where that happens, 8 bits per axis of the face.
+///
+/// @param hidden Output. Bit (x / 2) + z + y * 2 + axis * 8 for each hidden corner, with axis 0, 1, 2 for x, y, z.
+/// @return The solid mask in the same layout as _flw_fetchSolid3x3x3.
+uint _flw_fetchOcclusion(uint sectionOffset, ivec3 blockInSectionPos, out uint hidden) {
+    #ifdef _FLW_LIGHT_OCCLUSION
+
+    // blockInSectionPos is always inside the section, so there's data for it.
+    uvec3 interiorPos = uvec3(blockInSectionPos - 1);
+    uint offset = sectionOffset + _FLW_OCCLUSION_START_INTS + (interiorPos.x + interiorPos.z * 16u + interiorPos.y * 256u) * 2u;
+
+    hidden = _flw_indexLight(offset + 1u);
+    return _flw_indexLight(offset);
+
+    #else
+
+    hidden = 0u;
+    return _flw_fetchSolid3x3x3(sectionOffset, blockInSectionPos);
+
+    #endif
+}
+
 /// Premtively collect all light in a 3x3x3 area centered on our block.
 /// Depending on the normal, we won't use all the data, but fetching on demand will have many duplicated fetches.
 /// Only fetching what we'll actually use using a bitmask turned out significantly slower, but perhaps a less
@@ -229,7 +273,29 @@ uint[27] _flw_fetchLight3x3x3(uint sectionOffset, ivec3 blockInSectionPos, uint
 /// @param interpolant The position within the center block.
 /// @param c00..c11 4 offsets to determine which "direction" we are averaging.
 /// @param oppositeMask A bitmask telling this function which bit to flip to get the opposite index for a given corner
-vec3 _flw_lightForDirection(uint[27] lights, vec3 interpolant, uint c00, uint c01, uint c10, uint c11, uint oppositeMask) {
+/// @param hidden The hidden corners for the axis of this direction, from _flw_fetchOcclusion.
+/// @param sideStep The index step along the axis a hidden corner moves back to the center to find its replacement.
+vec3 _flw_lightForDirection(uint[27] lights, vec3 interpolant, uint c00, uint c01, uint c10, uint c11, uint oppositeMask, uint hidden, uint sideStep) {
+    // @formatter:off
+
+    // Corners are never the replacement for another corner, so the order doesn't matter.
+    #define _FLW_REPLACE_HIDDEN(_x, _y, _z) if ((hidden & (1u << (_x / 2u + _z + _y * 2u))) != 0u) { \
+        const uint corner = _flw_index3x3x3(_x, _y, _z); \
+        uint coord = sideStep == 1u ? _x : (sideStep == 3u ? _z : _y); \
+        lights[corner] = lights[coord == 0u ? corner + sideStep : corner - sideStep]; \
+    }
+
+    _FLW_REPLACE_HIDDEN(0u, 0u, 0u)
+    _FLW_REPLACE_HIDDEN(2u, 0u, 0u)
+    _FLW_REPLACE_HIDDEN(0u, 0u, 2u)
+    _FLW_REPLACE_HIDDEN(2u, 0u, 2u)
+    _FLW_REPLACE_HIDDEN(0u, 2u, 0u)
+    _FLW_REPLACE_HIDDEN(2u, 2u, 0u)
+    _FLW_REPLACE_HIDDEN(0u, 2u, 2u)
+    _FLW_REPLACE_HIDDEN(2u, 2u, 2u)
+
+    // @formatter:on
+
     // Sum up the light and number of valid blocks in each corner for this direction
     uint[8] summed;
 
@@ -316,7 +382,7 @@ bool flw_light(vec3 worldPos, vec3 normal, out FlwLightAo light) {
         return false;
     }
     // The offset of the section in the light buffer.
-    uint sectionOffset = lightSectionIndex * _FLW_LIGHT_SECTION_SIZE_INTS;
+    uint sectionOffset = lightSectionIndex * _FLW_LIGHT_PAGE_SIZE_INTS;
 
     // The block's position in the section adjusted into 18x18x18 space
     ivec3 blockInSectionPos = (blockPos & 0xF) + 1;
@@ -357,7 +423,8 @@ bool flw_light(vec3 worldPos, vec3 normal, out FlwLightAo light) {
     // Lighting and AO accurate to chunk baking
     #elif _FLW_LIGHT_SMOOTHNESS == 2
 
-    uint solid = _flw_fetchSolid3x3x3(sectionOffset, blockInSectionPos);
+    uint hidden;
+    uint solid = _flw_fetchOcclusion(sectionOffset, blockInSectionPos, hidden);
 
     if (solid == _FLW_COMPLETELY_SOLID) {
         // No point in doing any work if the entire 3x3x3 volume around us is filled.
@@ -372,31 +439,35 @@ bool flw_light(vec3 worldPos, vec3 normal, out FlwLightAo light) {
 
     vec3 interpolant = fract(worldPos);
 
+    uint hiddenX = hidden & 0xFFu;
+    uint hiddenY = (hidden >> 8u) & 0xFFu;
+    uint hiddenZ = (hidden >> 16u) & 0xFFu;
+
     // Average the light in relevant directions at each corner, skipping directions that would have no influence
 
     vec3 lightX;
     if (normal.x > _FLW_EPSILON) {
-        lightX = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(1u, 0u, 0u), _flw_index3x3x3(1u, 0u, 1u), _flw_index3x3x3(1u, 1u, 0u), _flw_index3x3x3(1u, 1u, 1u), 1u);
+        lightX = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(1u, 0u, 0u), _flw_index3x3x3(1u, 0u, 1u), _flw_index3x3x3(1u, 1u, 0u), _flw_index3x3x3(1u, 1u, 1u), 1u, hiddenX, 3u);
     } else if (normal.x < -_FLW_EPSILON) {
-        lightX = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 0u), _flw_index3x3x3(0u, 0u, 1u), _flw_index3x3x3(0u, 1u, 0u), _flw_index3x3x3(0u, 1u, 1u), 1u);
+        lightX = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 0u), _flw_index3x3x3(0u, 0u, 1u), _flw_index3x3x3(0u, 1u, 0u), _flw_index3x3x3(0u, 1u, 1u), 1u, hiddenX, 3u);
     } else {
         lightX = vec3(0.);
     }
 
     vec3 lightZ;
     if (normal.z > _FLW_EPSILON) {
-        lightZ = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 1u), _flw_index3x3x3(0u, 1u, 1u), _flw_index3x3x3(1u, 0u, 1u), _flw_index3x3x3(1u, 1u, 1u), 2u);
+        lightZ = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 1u), _flw_index3x3x3(0u, 1u, 1u), _flw_index3x3x3(1u, 0u, 1u), _flw_index3x3x3(1u, 1u, 1u), 2u, hiddenZ, 9u);
     } else if (normal.z < -_FLW_EPSILON) {
-        lightZ = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 0u), _flw_index3x3x3(0u, 1u, 0u), _flw_index3x3x3(1u, 0u, 0u), _flw_index3x3x3(1u, 1u, 0u), 2u);
+        lightZ = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 0u), _flw_index3x3x3(0u, 1u, 0u), _flw_index3x3x3(1u, 0u, 0u), _flw_index3x3x3(1u, 1u, 0u), 2u, hiddenZ, 1u);
     } else {
         lightZ = vec3(0.);
     }
 
     vec3 lightY;
     if (normal.y > _FLW_EPSILON) {
-        lightY = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 1u, 0u), _flw_index3x3x3(0u, 1u, 1u), _flw_index3x3x3(1u, 1u, 0u), _flw_index3x3x3(1u, 1u, 1u), 4u);
+        lightY = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 1u, 0u), _flw_index3x3x3(0u, 1u, 1u), _flw_index3x3x3(1u, 1u, 0u), _flw_index3x3x3(1u, 1u, 1u), 4u, hiddenY, 3u);
     } else if (normal.y < -_FLW_EPSILON) {
-        lightY = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 0u), _flw_index3x3x3(0u, 0u, 1u), _flw_index3x3x3(1u, 0u, 0u), _flw_index3x3x3(1u, 0u, 1u), 4u);
+        lightY = _flw_lightForDirection(lights, interpolant, _flw_index3x3x3(0u, 0u, 0u), _flw_index3x3x3(0u, 0u, 1u), _flw_index3x3x3(1u, 0u, 0u), _flw_index3x3x3(1u, 0u, 1u), 4u, hiddenY, 3u);
     } else {
         lightY = vec3(0.);
     }
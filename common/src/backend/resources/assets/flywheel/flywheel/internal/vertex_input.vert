@@ -5,13 +5,37 @@ in vec2 _flw_aOverlay;
 in vec2 _flw_aLight;
 in vec3 _flw_aNormal;
 
+// Set by the pipeline's main before _flw_layoutVertex is called.
+// Compact meshes store positions as fractions of their bounding box and octahedrally encoded normals.
+bool _flw_compactVertex = false;
+vec3 _flw_meshOrigin = vec3(0.);
+vec3 _flw_meshExtent = vec3(1.);
+
+// Must be kept in sync with InternalVertex#putOctahedralNormal.
+vec3 _flw_decodeOctahedral(vec2 oct) {
+    vec3 normal = vec3(oct, 1.0 - abs(oct.x) - abs(oct.y));
+
+    if (normal.z < 0.0) {
+        normal.xy = (1.0 - abs(normal.yx)) * vec2(normal.x >= 0.0 ? 1.0 : -1.0, normal.y >= 0.0 ? 1.0 : -1.0);
+    }
+
+    return normalize(normal);
+}
+
 void _flw_layoutVertex() {
-    flw_vertexPos = vec4(_flw_aPos, 1.0);
+    if (_flw_compactVertex) {
+        flw_vertexPos = vec4(_flw_meshOrigin + _flw_aPos * _flw_meshExtent, 1.0);
+        flw_vertexNormal = _flw_decodeOctahedral(_flw_aNormal.xy);
+    } else {
+        flw_vertexPos = vec4(_flw_aPos, 1.0);
+        flw_vertexNormal = _flw_aNormal;
+    }
+
+    // Both layouts store texture coordinates such that the driver hands us the same floats.
     flw_vertexColor = _flw_aColor;
     flw_vertexTexCoord = _flw_aTexCoord;
     // Integer vertex attributes explode on some drivers for some draw calls, so get the driver
     // to cast the int to a float so we can cast it back to an int and reliably get a sane value.
     flw_vertexOverlay = ivec2(_flw_aOverlay);
     flw_vertexLight = _flw_aLight / 256.0;
-    flw_vertexNormal = _flw_aNormal;
 }
@@ -0,0 +1,153 @@
+package dev.engine_room.flywheel.lib.instance;
+
+import dev.engine_room.flywheel.api.instance.InstanceHandle;
+import dev.engine_room.flywheel.api.instance.InstanceType;
+import dev.engine_room.flywheel.lib.internal.FlwLibLink;
+import net.minecraft.util.Mth;
+
+/**
+ * A transformed instance with a rotation and translation that are animated on the GPU.
+ *
+ * <p>
+ *     The animation is driven by a progress value that moves linearly from {@link #startProgress} towards
+ *     {@link #endProgress} at {@link #progressPerTick}, starting at the moment given by {@link #startTick} and
+ *     {@link #startPartialTick}. The progress is then eased, and the eased value scales the {@link #angle} of the
+ *     rotation around the {@link #pivotX pivot} and the {@link #translationX translation}. The animation is
+ *     applied in model space, before the pose of the instance.
+ * </p>
+ *
+ * <p>
+ *     Since the shader evaluates the animation every frame, an animation only needs to be uploaded once
+ *     when it starts rather than once per frame while it plays.
+ * </p>
+ */
+public class AnimatedInstance extends TransformedInstance {
+	public float pivotX;
+	public float pivotY;
+	public float pivotZ;
+	public float axisX;
+	public float axisY = 1;
+	public float axisZ;
+	public float translationX;
+	public float translationY;
+	public float translationZ;
+	/**
+	 * The rotation around the axis, in radians, when the eased progress is 1.
+	 */
+	public float angle;
+	public Easing easing = Easing.LINEAR;
+
+	public float startProgress;
+	public float endProgress;
+	public float progressPerTick;
+	public int startTick;
+	public float startPartialTick;
+
+	public AnimatedInstance(InstanceType<? extends AnimatedInstance> type, InstanceHandle handle) {
+		super(type, handle);
+	}
+
+	public AnimatedInstance pivot(float x, float y, float z) {
+		pivotX = x;
+		pivotY = y;
+		pivotZ = z;
+		return this;
+	}
+
+	public AnimatedInstance axis(float x, float y, float z) {
+		float invLength = Mth.invSqrt(x * x + y * y + z * z);
+		axisX = x * invLength;
+		axisY = y * invLength;
+		axisZ = z * invLength;
+		return this;
+	}
+
+	public AnimatedInstance angle(float radians) {
+		angle = radians;
+		return this;
+	}
+
+	public AnimatedInstance translation(float x, float y, float z) {
+		translationX = x;
+		translationY = y;
+		translationZ = z;
+		return this;
+	}
+
+	public AnimatedInstance easing(Easing easing) {
+		this.easing = easing;
+		return this;
+	}
+
+	/**
+	 * Start an animation at the current frame.
+	 *
+	 * @param from            The progress at the current frame.
+	 * @param to              The progress to stop at.
+	 * @param progressPerTick How quickly the progress moves towards {@code to}. Must not be negative.
+	 * @param partialTick     The partial tick of the current frame.
+	 * @return {@code this}
+	 */
+	public AnimatedInstance animate(float from, float to, float progressPerTick, float partialTick) {
+		startProgress = from;
+		endProgress = to;
+		this.progressPerTick = progressPerTick;
+		startTick = FlwLibLink.INSTANCE.getRenderTicks();
+		startPartialTick = partialTick;
+		return this;
+	}
+
+	/**
+	 * Stop animating and hold the given progress.
+	 *
+	 * @param progress The progress to hold.
+	 * @return {@code this}
+	 */
+	public AnimatedInstance hold(float progress) {
+		return animate(progress, progress, 0, 0);
+	}
+
+	/**
+	 * Compute the progress that the GPU will use at the current frame. Useful to check if an animation needs to be
+	 * restarted because the state it follows changed unexpectedly.
+	 *
+	 * @param partialTick The partial tick of the current frame.
+	 * @return The progress, before easing.
+	 */
+	public float progress(float partialTick) {
+		// Matches animationProgress in instance/animated.glsl.
+		float elapsed = Math.max((FlwLibLink.INSTANCE.getRenderTicks() - startTick) + (partialTick - startPartialTick), 0);
+		float distance = endProgress - startProgress;
+		return startProgress + Math.copySign(Math.min(elapsed * progressPerTick, Math.abs(distance)), distance);
+	}
+
+	/**
+	 * The curves that map progress to the fraction of the angle and translation that is applied.
+	 * Must be kept in sync with {@code animationEase} in instance/animated.glsl.
+	 */
+	public enum Easing {
+		LINEAR,
+		/**
+		 * {@code 1 - (1 - p)^3}, used by chest lids.
+		 */
+		CUBIC_OUT,
+		/**
+		 * The decaying swing of a bell, assuming the progress spans the 50 ticks a bell shakes for.
+		 */
+		DAMPED_SWING;
+
+		public float ease(float progress) {
+			return switch (this) {
+				case LINEAR -> progress;
+				case CUBIC_OUT -> {
+					float inverse = 1 - progress;
+					yield 1 - inverse * inverse * inverse;
+				}
+				case DAMPED_SWING -> {
+					float ticks = progress * 50;
+					yield Mth.sin(ticks / Mth.PI) / (4 + ticks / 3);
+				}
+			};
+		}
+	}
+}
@@ -8,6 +8,7 @@ import dev.engine_room.flywheel.api.instance.InstanceType;
 import dev.engine_room.flywheel.api.layout.FloatRepr;
 import dev.engine_room.flywheel.api.layout.IntegerRepr;
 import dev.engine_room.flywheel.api.layout.LayoutBuilder;
+import dev.engine_room.flywheel.api.layout.UnsignedIntegerRepr;
 import dev.engine_room.flywheel.lib.util.ExtraMemoryOps;
 
 public final class InstanceTypes {
@@ -33,6 +34,31 @@ public final class InstanceTypes {
 			.cullShader(Flywheel.rl("instance/cull/transformed.glsl"))
 			.register();
 
+	/**
+	 * The same instances as {@link #TRANSFORMED} in a little over half the bytes. Only the top 3 rows of the pose are
+	 * uploaded, and the normal matrix is derived from it in the shader instead, so {@link TransformedInstance#normal}
+	 * is ignored.
+	 */
+	public static final InstanceType<TransformedInstance> COMPACT_TRANSFORMED = SimpleInstanceType.builder(TransformedInstance::new)
+			.layout(LayoutBuilder.create()
+					.vector("color", FloatRepr.NORMALIZED_UNSIGNED_BYTE, 4)
+					.vector("overlay", IntegerRepr.SHORT, 2)
+					.vector("light", FloatRepr.UNSIGNED_SHORT, 2)
+					.matrix("pose", FloatRepr.FLOAT, 3, 4)
+					.build())
+			.writer((ptr, instance) -> {
+				MemoryUtil.memPutByte(ptr, instance.red);
+				MemoryUtil.memPutByte(ptr + 1, instance.green);
+				MemoryUtil.memPutByte(ptr + 2, instance.blue);
+				MemoryUtil.memPutByte(ptr + 3, instance.alpha);
+				ExtraMemoryOps.put2x16(ptr + 4, instance.overlay);
+				ExtraMemoryOps.put2x16(ptr + 8, instance.light);
+				ExtraMemoryOps.putAffineMatrix4f(ptr + 12, instance.model);
+			})
+			.vertexShader(Flywheel.rl("instance/compact_transformed.vert"))
+			.cullShader(Flywheel.rl("instance/cull/compact_transformed.glsl"))
+			.register();
+
 	public static final InstanceType<OrientedInstance> ORIENTED = SimpleInstanceType.builder(OrientedInstance::new)
 			.layout(LayoutBuilder.create()
 					.vector("color", FloatRepr.NORMALIZED_UNSIGNED_BYTE, 4)
@@ -61,6 +87,54 @@ public final class InstanceTypes {
 			.cullShader(Flywheel.rl("instance/cull/oriented.glsl"))
 			.register();
 
+	public static final InstanceType<AnimatedInstance> ANIMATED = SimpleInstanceType.builder(AnimatedInstance::new)
+			.layout(LayoutBuilder.create()
+					.vector("color", FloatRepr.NORMALIZED_UNSIGNED_BYTE, 4)
+					.vector("overlay", IntegerRepr.SHORT, 2)
+					.vector("light", FloatRepr.UNSIGNED_SHORT, 2)
+					.matrix("pose", FloatRepr.FLOAT, 4)
+					.matrix("normal", FloatRepr.FLOAT, 3)
+					.vector("pivot", FloatRepr.FLOAT, 3)
+					.vector("axis", FloatRepr.FLOAT, 3)
+					.vector("translation", FloatRepr.FLOAT, 3)
+					.scalar("angle", FloatRepr.FLOAT)
+					.scalar("startProgress", FloatRepr.FLOAT)
+					.scalar("endProgress", FloatRepr.FLOAT)
+					.scalar("progressPerTick", FloatRepr.FLOAT)
+					.scalar("startTick", IntegerRepr.INT)
+					.scalar("startPartialTick", FloatRepr.FLOAT)
+					.scalar("easing", UnsignedIntegerRepr.UNSIGNED_INT)
+					.build())
+			.writer((ptr, instance) -> {
+				MemoryUtil.memPutByte(ptr, instance.red);
+				MemoryUtil.memPutByte(ptr + 1, instance.green);
+				MemoryUtil.memPutByte(ptr + 2, instance.blue);
+				MemoryUtil.memPutByte(ptr + 3, instance.alpha);
+				ExtraMemoryOps.put2x16(ptr + 4, instance.overlay);
+				ExtraMemoryOps.put2x16(ptr + 8, instance.light);
+				ExtraMemoryOps.putMatrix4f(ptr + 12, instance.model);
+				ExtraMemoryOps.putMatrix3f(ptr + 76, instance.normal);
+				MemoryUtil.memPutFloat(ptr + 112, instance.pivotX);
+				MemoryUtil.memPutFloat(ptr + 116, instance.pivotY);
+				MemoryUtil.memPutFloat(ptr + 120, instance.pivotZ);
+				MemoryUtil.memPutFloat(ptr + 124, instance.axisX);
+				MemoryUtil.memPutFloat(ptr + 128, instance.axisY);
+				MemoryUtil.memPutFloat(ptr + 132, instance.axisZ);
+				MemoryUtil.memPutFloat(ptr + 136, instance.translationX);
+				MemoryUtil.memPutFloat(ptr + 140, instance.translationY);
+				MemoryUtil.memPutFloat(ptr + 144, instance.translationZ);
+				MemoryUtil.memPutFloat(ptr + 148, instance.angle);
+				MemoryUtil.memPutFloat(ptr + 152, instance.startProgress);
+				MemoryUtil.memPutFloat(ptr + 156, instance.endProgress);
+				MemoryUtil.memPutFloat(ptr + 160, instance.progressPerTick);
+				MemoryUtil.memPutInt(ptr + 164, instance.startTick);
+				MemoryUtil.memPutFloat(ptr + 168, instance.startPartialTick);
+				MemoryUtil.memPutInt(ptr + 172, instance.easing.ordinal());
+			})
+			.vertexShader(Flywheel.rl("instance/animated.vert"))
+			.cullShader(Flywheel.rl("instance/cull/animated.glsl"))
+			.register();
+
 	public static final InstanceType<ShadowInstance> SHADOW = SimpleInstanceType.builder(ShadowInstance::new)
 			.layout(LayoutBuilder.create()
 					.vector("pos", FloatRepr.FLOAT, 3)
@@ -0,0 +1,412 @@
+package dev.engine_room.flywheel.lib.instance;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.api.instance.Instance;
+import dev.engine_room.flywheel.api.instance.InstanceWriter;
+import dev.engine_room.flywheel.api.layout.ArrayElementType;
+import dev.engine_room.flywheel.api.layout.FloatRepr;
+import dev.engine_room.flywheel.api.layout.Layout;
+import dev.engine_room.flywheel.api.layout.MatrixElementType;
+import dev.engine_room.flywheel.api.layout.ScalarElementType;
+import dev.engine_room.flywheel.api.layout.ValueRepr;
+import dev.engine_room.flywheel.api.layout.VectorElementType;
+
+/**
+ * Generates {@link InstanceWriter}s from a {@link Layout}, by reading the public fields of the instance class that
+ * share a name with each element.
+ * <br>
+ * A scalar element is written from one field. A vector element is written from one field with {@code x()}, {@code y()},
+ * {@code z()} and {@code w()} methods, like a JOML vector or quaternion, from one integer field packed with the first
+ * component in the lowest bits, or from one field per component, which default to the element name followed by
+ * {@code X}, {@code Y}, {@code Z} and {@code W}. A matrix element is written from one JOML matrix field, column by
+ * column.
+ * <br>
+ * Float fields are converted to the element's representation, rounding and clamping normalized ones. Integer fields are
+ * already taken to be in the element's representation and are only truncated to its size, and enum fields are written
+ * as their ordinal.
+ */
+public final class InstanceWriters {
+	private static final MethodType WRITE_TYPE = MethodType.methodType(void.class, long.class, Instance.class);
+	private static final String[] COMPONENTS = {"x", "y", "z", "w"};
+	private static final String[] COMPONENT_SUFFIXES = {"X", "Y", "Z", "W"};
+
+	private static final MethodHandle PUT_BYTE;
+	private static final MethodHandle PUT_SHORT;
+	private static final MethodHandle PUT_INT;
+	private static final MethodHandle PUT_FLOAT;
+	private static final MethodHandle UNPACK;
+	private static final MethodHandle NORMALIZED_SIGNED;
+	private static final MethodHandle NORMALIZED_UNSIGNED;
+	private static final MethodHandle NORMALIZED_INT;
+	private static final MethodHandle NORMALIZED_UNSIGNED_INT;
+	private static final MethodHandle TRUNCATE;
+	private static final MethodHandle ORDINAL;
+
+	static {
+		var lookup = MethodHandles.lookup();
+
+		try {
+			PUT_BYTE = lookup.findStatic(InstanceWriters.class, "putByte", MethodType.methodType(void.class, long.class, long.class, int.class));
+			PUT_SHORT = lookup.findStatic(InstanceWriters.class, "putShort", MethodType.methodType(void.class, long.class, long.class, int.class));
+			PUT_INT = lookup.findStatic(InstanceWriters.class, "putInt", MethodType.methodType(void.class, long.class, long.class, int.class));
+			PUT_FLOAT = lookup.findStatic(InstanceWriters.class, "putFloat", MethodType.methodType(void.class, long.class, long.class, float.class));
+			UNPACK = lookup.findStatic(InstanceWriters.class, "unpack", MethodType.methodType(int.class, int.class, int.class));
+			NORMALIZED_SIGNED = lookup.findStatic(InstanceWriters.class, "normalizedSigned", MethodType.methodType(int.class, float.class, float.class));
+			NORMALIZED_UNSIGNED = lookup.findStatic(InstanceWriters.class, "normalizedUnsigned", MethodType.methodType(int.class, float.class, float.class));
+			NORMALIZED_INT = lookup.findStatic(InstanceWriters.class, "normalizedInt", MethodType.methodType(int.class, float.class));
+			NORMALIZED_UNSIGNED_INT = lookup.findStatic(InstanceWriters.class, "normalizedUnsignedInt", MethodType.methodType(int.class, float.class));
+			TRUNCATE = lookup.findStatic(InstanceWriters.class, "truncate", MethodType.methodType(int.class, float.class));
+			ORDINAL = lookup.findVirtual(Enum.class, "ordinal", MethodType.methodType(int.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private InstanceWriters() {
+	}
+
+	public static <I extends Instance> Builder<I> builder(Class<I> instanceClass, Layout layout) {
+		return new Builder<>(instanceClass, layout);
+	}
+
+	private static MethodHandle element(Class<?> instanceClass, Layout.Element element, String[] fieldNames) {
+		var name = element.name();
+		long offset = element.byteOffset();
+
+		if (element.type() instanceof ScalarElementType scalar) {
+			if (fieldNames.length != 1) {
+				throw new IllegalArgumentException("Scalar element '" + name + "' needs exactly 1 field!");
+			}
+
+			return store(offset, scalar.repr(), getter(instanceClass, fieldNames[0]));
+		} else if (element.type() instanceof VectorElementType vector) {
+			return vector(instanceClass, name, offset, vector, fieldNames);
+		} else if (element.type() instanceof MatrixElementType matrix) {
+			if (fieldNames.length != 1) {
+				throw new IllegalArgumentException("Matrix element '" + name + "' needs exactly 1 field!");
+			}
+
+			var getter = getter(instanceClass, fieldNames[0]);
+			var components = new ArrayList<MethodHandle>();
+			long componentOffset = offset;
+
+			for (int column = 0; column < matrix.columns(); column++) {
+				for (int row = 0; row < matrix.rows(); row++) {
+					var component = MethodHandles.filterReturnValue(getter, accessor(getter, "m" + column + row));
+					components.add(store(componentOffset, matrix.repr(), component));
+					componentOffset += matrix.repr()
+							.byteSize();
+				}
+			}
+
+			return sequence(components);
+		} else if (element.type() instanceof ArrayElementType) {
+			throw new IllegalArgumentException("Array element '" + name + "' can't be generated!");
+		}
+
+		throw new IllegalArgumentException("Unknown element type " + element.type());
+	}
+
+	private static MethodHandle vector(Class<?> instanceClass, String name, long offset, VectorElementType vector, String[] fieldNames) {
+		var repr = vector.repr();
+		var components = new ArrayList<MethodHandle>();
+
+		if (fieldNames.length == 1) {
+			var getter = getter(instanceClass, fieldNames[0]);
+			var fieldType = getter.type()
+					.returnType();
+
+			if (fieldType == int.class || fieldType == short.class || fieldType == byte.class) {
+				int bits = repr.byteSize() * Byte.SIZE;
+				if (bits * vector.size() > Integer.SIZE) {
+					throw new IllegalArgumentException("Vector element '" + name + "' doesn't fit in field '" + fieldNames[0] + "'!");
+				}
+
+				var packed = getter.asType(getter.type()
+						.changeReturnType(int.class));
+				for (int i = 0; i < vector.size(); i++) {
+					var component = MethodHandles.filterReturnValue(packed, MethodHandles.insertArguments(UNPACK, 0, i * bits));
+					components.add(store(offset + (long) i * repr.byteSize(), repr, component));
+				}
+			} else {
+				for (int i = 0; i < vector.size(); i++) {
+					var component = MethodHandles.filterReturnValue(getter, accessor(getter, COMPONENTS[i]));
+					components.add(store(offset + (long) i * repr.byteSize(), repr, component));
+				}
+			}
+		} else if (fieldNames.length == vector.size()) {
+			for (int i = 0; i < vector.size(); i++) {
+				components.add(store(offset + (long) i * repr.byteSize(), repr, getter(instanceClass, fieldNames[i])));
+			}
+		} else {
+			throw new IllegalArgumentException("Vector element '" + name + "' needs 1 or " + vector.size() + " fields!");
+		}
+
+		return sequence(components);
+	}
+
+	/**
+	 * @return A {@code (long, Instance)void} handle storing the value of {@code value} at the given offset.
+	 */
+	private static MethodHandle store(long offset, ValueRepr repr, MethodHandle value) {
+		var type = value.type()
+				.returnType();
+
+		if (type.isEnum()) {
+			value = MethodHandles.filterReturnValue(value.asType(value.type()
+					.changeReturnType(Enum.class)), ORDINAL);
+			type = int.class;
+		}
+
+		MethodHandle put;
+
+		if (repr == FloatRepr.FLOAT) {
+			if (type != float.class && !isInteger(type)) {
+				throw new IllegalArgumentException("Can't write " + type + " as a float!");
+			}
+
+			put = PUT_FLOAT;
+			value = value.asType(value.type()
+					.changeReturnType(float.class));
+		} else if (type == float.class) {
+			put = integerPut(repr);
+			value = MethodHandles.filterReturnValue(value, floatToInteger(repr));
+		} else if (isInteger(type)) {
+			put = integerPut(repr);
+			value = value.asType(value.type()
+					.changeReturnType(int.class));
+		} else {
+			throw new IllegalArgumentException("Can't write " + type + " as " + repr + "!");
+		}
+
+		return MethodHandles.filterArguments(MethodHandles.insertArguments(put, 0, offset), 1, value);
+	}
+
+	private static boolean isInteger(Class<?> type) {
+		return type == int.class || type == short.class || type == byte.class || type == char.class;
+	}
+
+	private static MethodHandle integerPut(ValueRepr repr) {
+		return switch (repr.byteSize()) {
+			case Byte.BYTES -> PUT_BYTE;
+			case Short.BYTES -> PUT_SHORT;
+			case Integer.BYTES -> PUT_INT;
+			default -> throw new IllegalArgumentException("Unknown repr " + repr);
+		};
+	}
+
+	private static MethodHandle floatToInteger(ValueRepr repr) {
+		if (!(repr instanceof FloatRepr floatRepr)) {
+			return TRUNCATE;
+		}
+
+		return switch (floatRepr) {
+			case NORMALIZED_BYTE -> MethodHandles.insertArguments(NORMALIZED_SIGNED, 0, (float) Byte.MAX_VALUE);
+			case NORMALIZED_UNSIGNED_BYTE -> MethodHandles.insertArguments(NORMALIZED_UNSIGNED, 0, 255.0f);
+			case NORMALIZED_SHORT -> MethodHandles.insertArguments(NORMALIZED_SIGNED, 0, (float) Short.MAX_VALUE);
+			case NORMALIZED_UNSIGNED_SHORT -> MethodHandles.insertArguments(NORMALIZED_UNSIGNED, 0, 65535.0f);
+			case NORMALIZED_INT -> NORMALIZED_INT;
+			case NORMALIZED_UNSIGNED_INT -> NORMALIZED_UNSIGNED_INT;
+			default -> TRUNCATE;
+		};
+	}
+
+	/**
+	 * @return A {@code (Instance)T} handle reading the given field.
+	 */
+	private static MethodHandle getter(Class<?> instanceClass, String fieldName) {
+		Field field;
+
+		try {
+			field = instanceClass.getField(fieldName);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException("No public field '" + fieldName + "' in " + instanceClass.getName() + "!", e);
+		}
+
+		if (Modifier.isStatic(field.getModifiers())) {
+			throw new IllegalArgumentException("Field '" + fieldName + "' in " + instanceClass.getName() + " is static!");
+		}
+
+		MethodHandle getter;
+
+		try {
+			getter = MethodHandles.publicLookup()
+					.unreflectGetter(field);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Can't access field '" + fieldName + "' in " + instanceClass.getName() + "!", e);
+		}
+
+		return getter.asType(getter.type()
+				.changeParameterType(0, Instance.class));
+	}
+
+	/**
+	 * @return A handle calling the given no argument method on what {@code getter} returns.
+	 */
+	private static MethodHandle accessor(MethodHandle getter, String methodName) {
+		var type = getter.type()
+				.returnType();
+		Method method;
+
+		try {
+			method = type.getMethod(methodName);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("No public method '" + methodName + "()' in " + type.getName() + "!", e);
+		}
+
+		try {
+			return MethodHandles.publicLookup()
+					.unreflect(method)
+					.asType(MethodType.methodType(method.getReturnType(), type));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Can't access method '" + methodName + "()' in " + type.getName() + "!", e);
+		}
+	}
+
+	/**
+	 * @return A {@code (long, Instance)void} handle calling all the given handles in order.
+	 */
+	private static MethodHandle sequence(List<MethodHandle> handles) {
+		var out = MethodHandles.empty(WRITE_TYPE);
+
+		for (int i = handles.size() - 1; i >= 0; i--) {
+			out = MethodHandles.foldArguments(out, handles.get(i));
+		}
+
+		return out;
+	}
+
+	private static void putByte(long offset, long ptr, int value) {
+		MemoryUtil.memPutByte(ptr + offset, (byte) value);
+	}
+
+	private static void putShort(long offset, long ptr, int value) {
+		MemoryUtil.memPutShort(ptr + offset, (short) value);
+	}
+
+	private static void putInt(long offset, long ptr, int value) {
+		MemoryUtil.memPutInt(ptr + offset, value);
+	}
+
+	private static void putFloat(long offset, long ptr, float value) {
+		MemoryUtil.memPutFloat(ptr + offset, value);
+	}
+
+	private static int unpack(int shift, int value) {
+		return value >>> shift;
+	}
+
+	private static int normalizedSigned(float max, float value) {
+		return Math.round(Math.clamp(value, -1.0f, 1.0f) * max);
+	}
+
+	private static int normalizedUnsigned(float max, float value) {
+		return Math.round(Math.clamp(value, 0.0f, 1.0f) * max);
+	}
+
+	private static int normalizedInt(float value) {
+		return (int) Math.round(Math.clamp(value, -1.0f, 1.0f) * (double) Integer.MAX_VALUE);
+	}
+
+	private static int normalizedUnsignedInt(float value) {
+		return (int) Math.round(Math.clamp(value, 0.0f, 1.0f) * (double) 0xFFFFFFFFL);
+	}
+
+	private static int truncate(float value) {
+		return (int) (long) value;
+	}
+
+	public static final class Builder<I extends Instance> {
+		private final Class<I> instanceClass;
+		private final Layout layout;
+		private final Map<String, String[]> fields = new HashMap<>();
+
+		public Builder(Class<I> instanceClass, Layout layout) {
+			this.instanceClass = instanceClass;
+			this.layout = layout;
+		}
+
+		/**
+		 * Write the element with the given name from the given fields, instead of the ones named after it.
+		 */
+		public Builder<I> field(String elementName, String... fieldNames) {
+			if (!layout.asMap()
+					.containsKey(elementName)) {
+				throw new IllegalArgumentException("No element '" + elementName + "' in layout!");
+			}
+			if (fieldNames.length == 0) {
+				throw new IllegalArgumentException("Element '" + elementName + "' needs at least 1 field!");
+			}
+
+			fields.put(elementName, fieldNames.clone());
+			return this;
+		}
+
+		/**
+		 * @throws IllegalArgumentException If an element has no matching fields, or they can't be written as it.
+		 */
+		public InstanceWriter<I> build() {
+			var elements = new ArrayList<MethodHandle>();
+
+			for (var element : layout.elements()) {
+				var fieldNames = fields.get(element.name());
+				if (fieldNames == null) {
+					fieldNames = defaultFieldNames(element);
+				}
+
+				elements.add(element(instanceClass, element, fieldNames));
+			}
+
+			return new Generated<>(sequence(elements));
+		}
+
+		private String[] defaultFieldNames(Layout.Element element) {
+			var name = element.name();
+
+			if (!(element.type() instanceof VectorElementType vector) || hasField(name)) {
+				return new String[]{name};
+			}
+
+			var out = new String[vector.size()];
+			for (int i = 0; i < out.length; i++) {
+				out[i] = name + COMPONENT_SUFFIXES[i];
+			}
+			return out;
+		}
+
+		private boolean hasField(String name) {
+			try {
+				instanceClass.getField(name);
+				return true;
+			} catch (NoSuchFieldException e) {
+				return false;
+			}
+		}
+	}
+
+	// A record so the JIT can trust the handle to stay the same and inline it when the writer is a constant.
+	private record Generated<I extends Instance>(MethodHandle handle) implements InstanceWriter<I> {
+		@Override
+		public void write(long ptr, I instance) {
+			try {
+				handle.invokeExact(ptr, (Instance) instance);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -13,4 +13,9 @@ public interface FlwLibLink {
 	Logger getLogger();
 
 	PoseTransformStack getPoseTransformStackOf(PoseStack stack);
+
+	/**
+	 * @return The number of ticks the level renderer has counted, i.e. the value of {@code flw_ticks} in shaders.
+	 */
+	int getRenderTicks();
 }
@@ -0,0 +1,88 @@
+package dev.engine_room.flywheel.lib.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joml.Vector4fc;
+
+import com.google.common.collect.ImmutableList;
+
+import dev.engine_room.flywheel.api.model.Mesh;
+import dev.engine_room.flywheel.api.model.Model;
+
+/**
+ * A model with levels of detail.
+ */
+public class LodModel implements Model {
+	/**
+	 * The ratio of distance to the size of the cells used to simplify a level. At a 70 degree field of view on a
+	 * 1080p screen, a cell spans roughly 2 pixels at the distance its level starts at.
+	 */
+	private static final float DISTANCE_PER_CELL_SIZE = 512;
+
+	private final Model base;
+	private final List<LevelOfDetail> levelsOfDetail;
+
+	public LodModel(Model base, List<LevelOfDetail> levelsOfDetail) {
+		this.base = base;
+		this.levelsOfDetail = levelsOfDetail;
+	}
+
+	/**
+	 * Generate levels of detail for the given model by {@link MeshSimplifier simplifying} its meshes.
+	 * Each level starts at twice the distance of the previous one. Levels that would not be any simpler than the
+	 * previous level are skipped.
+	 *
+	 * @param base          The model to generate levels of detail for.
+	 * @param firstDistance The distance at which the first level of detail starts.
+	 * @param maxLevels     The maximum number of levels to generate.
+	 * @return The generated model.
+	 */
+	public static LodModel generate(Model base, float firstDistance, int maxLevels) {
+		ImmutableList.Builder<LevelOfDetail> levels = ImmutableList.builder();
+		List<ConfiguredMesh> previous = base.meshes();
+		float distance = firstDistance;
+
+		for (int level = 0; level < maxLevels; level++) {
+			float cellSize = distance / DISTANCE_PER_CELL_SIZE;
+			List<ConfiguredMesh> meshes = new ArrayList<>();
+			boolean changed = false;
+
+			for (ConfiguredMesh configuredMesh : previous) {
+				Mesh simplified = MeshSimplifier.simplify(configuredMesh.mesh(), cellSize);
+
+				if (simplified != configuredMesh.mesh()) {
+					changed = true;
+				}
+
+				if (simplified != null) {
+					meshes.add(new ConfiguredMesh(configuredMesh.material(), simplified));
+				}
+			}
+
+			if (changed) {
+				levels.add(new LevelOfDetail(distance, ImmutableList.copyOf(meshes)));
+				previous = meshes;
+			}
+
+			distance *= 2;
+		}
+
+		return new LodModel(base, levels.build());
+	}
+
+	@Override
+	public List<ConfiguredMesh> meshes() {
+		return base.meshes();
+	}
+
+	@Override
+	public Vector4fc boundingSphere() {
+		return base.boundingSphere();
+	}
+
+	@Override
+	public List<LevelOfDetail> levelsOfDetail() {
+		return levelsOfDetail;
+	}
+}
@@ -0,0 +1,154 @@
+package dev.engine_room.flywheel.lib.model;
+
+import org.jetbrains.annotations.Nullable;
+
+import dev.engine_room.flywheel.api.model.Mesh;
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+import dev.engine_room.flywheel.lib.vertex.FullVertexView;
+import dev.engine_room.flywheel.lib.vertex.VertexView;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.util.Mth;
+
+/**
+ * Simplifies quad meshes by vertex clustering.
+ *
+ * <p>Space is divided into a grid of cubic cells and every vertex is moved to the average position of the vertices
+ * in its cell. Quads with fewer than 3 distinct corners left are dropped. Details smaller than a cell disappear,
+ * while larger surfaces keep their shape, texture coordinates and normals.</p>
+ */
+public final class MeshSimplifier {
+	private static final int CELL_BITS = 21;
+	private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+
+	private MeshSimplifier() {
+	}
+
+	/**
+	 * Simplify the given mesh.
+	 *
+	 * @param mesh     The mesh to simplify. Only meshes with the {@link QuadIndexSequence} can be simplified.
+	 * @param cellSize The size of the grid cells in blocks.
+	 * @return The simplified mesh, {@code null} if nothing of the mesh is left, or the given mesh if it could not be
+	 * simplified.
+	 */
+	@Nullable
+	public static Mesh simplify(Mesh mesh, float cellSize) {
+		int vertexCount = mesh.vertexCount();
+
+		if (mesh.indexSequence() != QuadIndexSequence.INSTANCE || vertexCount % 4 != 0 || vertexCount == 0) {
+			return mesh;
+		}
+
+		MemoryBlock src = MemoryBlock.malloc(vertexCount * FullVertexView.STRIDE);
+		VertexView srcView = new FullVertexView();
+		srcView.ptr(src.ptr());
+		srcView.vertexCount(vertexCount);
+		mesh.write(srcView);
+
+		float invCellSize = 1 / cellSize;
+
+		// Accumulate the positions of all vertices in each cell.
+		Long2IntOpenHashMap cellIndices = new Long2IntOpenHashMap();
+		cellIndices.defaultReturnValue(-1);
+		FloatArrayList cellSums = new FloatArrayList();
+		int[] vertexCells = new int[vertexCount];
+
+		for (int i = 0; i < vertexCount; i++) {
+			float x = srcView.x(i);
+			float y = srcView.y(i);
+			float z = srcView.z(i);
+			long key = cellKey(x * invCellSize, y * invCellSize, z * invCellSize);
+
+			int cell = cellIndices.get(key);
+			if (cell == -1) {
+				cell = cellSums.size() / 4;
+				cellIndices.put(key, cell);
+				cellSums.add(0);
+				cellSums.add(0);
+				cellSums.add(0);
+				cellSums.add(0);
+			}
+
+			int base = cell * 4;
+			cellSums.set(base, cellSums.getFloat(base) + x);
+			cellSums.set(base + 1, cellSums.getFloat(base + 1) + y);
+			cellSums.set(base + 2, cellSums.getFloat(base + 2) + z);
+			cellSums.set(base + 3, cellSums.getFloat(base + 3) + 1);
+			vertexCells[i] = cell;
+		}
+
+		// Find the quads that survive.
+		int quadCount = vertexCount / 4;
+		boolean[] keep = new boolean[quadCount];
+		int keptQuads = 0;
+
+		for (int quad = 0; quad < quadCount; quad++) {
+			int first = quad * 4;
+			int a = vertexCells[first];
+			int b = vertexCells[first + 1];
+			int c = vertexCells[first + 2];
+			int d = vertexCells[first + 3];
+
+			int distinct = 1;
+			if (b != a) {
+				distinct++;
+			}
+			if (c != a && c != b) {
+				distinct++;
+			}
+			if (d != a && d != b && d != c) {
+				distinct++;
+			}
+
+			if (distinct >= 3) {
+				keep[quad] = true;
+				keptQuads++;
+			}
+		}
+
+		if (keptQuads == quadCount) {
+			src.free();
+			return mesh;
+		}
+
+		if (keptQuads == 0) {
+			src.free();
+			return null;
+		}
+
+		MemoryBlock dst = MemoryBlock.mallocTracked(keptQuads * 4L * FullVertexView.STRIDE);
+		VertexView dstView = new FullVertexView();
+		dstView.ptr(dst.ptr());
+		dstView.vertexCount(keptQuads * 4);
+
+		int dstIndex = 0;
+		for (int quad = 0; quad < quadCount; quad++) {
+			if (!keep[quad]) {
+				continue;
+			}
+
+			srcView.write(dstView, quad * 4, dstIndex, 4);
+
+			for (int i = 0; i < 4; i++) {
+				int base = vertexCells[quad * 4 + i] * 4;
+				float count = cellSums.getFloat(base + 3);
+				dstView.x(dstIndex + i, cellSums.getFloat(base) / count);
+				dstView.y(dstIndex + i, cellSums.getFloat(base + 1) / count);
+				dstView.z(dstIndex + i, cellSums.getFloat(base + 2) / count);
+			}
+
+			dstIndex += 4;
+		}
+
+		src.free();
+		return new SimpleQuadMesh(dstView, dst, "source=MeshSimplifier,cellSize=" + cellSize);
+	}
+
+	private static long cellKey(float x, float y, float z) {
+		long cellX = Mth.floor(x) & CELL_MASK;
+		long cellY = Mth.floor(y) & CELL_MASK;
+		long cellZ = Mth.floor(z) & CELL_MASK;
+		return cellX | cellY << CELL_BITS | cellZ << (CELL_BITS * 2);
+	}
+}
@@ -1,22 +1,50 @@
 package dev.engine_room.flywheel.lib.model;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import dev.engine_room.flywheel.api.model.Model;
+import dev.engine_room.flywheel.lib.internal.FlwLibLink;
 import dev.engine_room.flywheel.lib.util.FlwUtil;
+import net.minecraft.Util;
 
 public final class ModelCache<T> {
 	private static final Set<ModelCache<?>> ALL = FlwUtil.createWeakHashSet();
 	private final Function<T, Model> factory;
+	@Nullable
+	private final ToLongFunction<T> contentHasher;
 	private final Map<T, Model> map = new ConcurrentHashMap<>();
+	private final Map<T, Long> contentHashes = new ConcurrentHashMap<>();
+	private final Set<T> declaredKeys = ConcurrentHashMap.newKeySet();
+	private final List<Supplier<? extends Iterable<? extends T>>> declaredKeySources = new CopyOnWriteArrayList<>();
 
 	public ModelCache(Function<T, Model> factory) {
+		this(factory, null);
+	}
+
+	/**
+	 * Create a model cache whose entries survive resource reloads as long as their content does not change.
+	 *
+	 * @param factory       The function used to create a model for a key.
+	 * @param contentHasher A function that hashes everything the factory reads to create a model for a key.
+	 *                      If the hash of a key is the same after a resource reload, its model is kept as is.
+	 */
+	public ModelCache(Function<T, Model> factory, @Nullable ToLongFunction<T> contentHasher) {
 		this.factory = factory;
+		this.contentHasher = contentHasher;
 
 		synchronized (ALL) {
 			ALL.add(this);
@@ -24,17 +52,106 @@ public final class ModelCache<T> {
 	}
 
 	public Model get(T key) {
-		return map.computeIfAbsent(key, factory);
+		return map.computeIfAbsent(key, this::create);
+	}
+
+	/**
+	 * Declare a key whose model should be created eagerly on worker threads at the end of each resource reload,
+	 * instead of lazily by whichever thread first calls {@link #get}.
+	 *
+	 * @param key The key to create a model for.
+	 */
+	public void declare(T key) {
+		declaredKeys.add(key);
+	}
+
+	/**
+	 * Declare a source of keys whose models should be created eagerly at the end of each resource reload.
+	 * The source is queried anew on every reload.
+	 *
+	 * @param keys A supplier of the keys to create models for.
+	 */
+	public void declareAll(Supplier<? extends Iterable<? extends T>> keys) {
+		declaredKeySources.add(keys);
 	}
 
 	public void clear() {
 		map.clear();
+		contentHashes.clear();
+	}
+
+	private Model create(T key) {
+		Model model = factory.apply(key);
+
+		if (contentHasher != null) {
+			contentHashes.put(key, contentHasher.applyAsLong(key));
+		}
+
+		return model;
+	}
+
+	private void scheduleRebake(Executor executor, List<CompletableFuture<?>> futures) {
+		Set<T> keys = new HashSet<>(declaredKeys);
+
+		for (var source : declaredKeySources) {
+			for (T key : source.get()) {
+				keys.add(key);
+			}
+		}
+
+		if (contentHasher == null) {
+			clear();
+		} else {
+			// Models that were in use before the reload are likely to be used again, so re-check all of them.
+			keys.addAll(map.keySet());
+		}
+
+		for (T key : keys) {
+			futures.add(CompletableFuture.runAsync(() -> rebake(key), executor));
+		}
+	}
+
+	private void rebake(T key) {
+		try {
+			if (contentHasher == null) {
+				map.put(key, factory.apply(key));
+				return;
+			}
+
+			long hash = contentHasher.applyAsLong(key);
+			Long oldHash = contentHashes.get(key);
+
+			if (oldHash != null && oldHash == hash && map.containsKey(key)) {
+				return;
+			}
+
+			map.put(key, factory.apply(key));
+			contentHashes.put(key, hash);
+		} catch (Throwable t) {
+			// Leave the key to be created lazily so the error surfaces where the model is actually used.
+			map.remove(key);
+			contentHashes.remove(key);
+			FlwLibLink.INSTANCE.getLogger()
+					.error("Failed to eagerly create model for key {}", key, t);
+		}
 	}
 
 	@ApiStatus.Internal
 	public static void onEndClientResourceReload() {
-		for (ModelCache<?> cache : ALL) {
-			cache.clear();
+		List<ModelCache<?>> caches;
+
+		synchronized (ALL) {
+			caches = new ArrayList<>(ALL);
 		}
+
+		Executor executor = Util.backgroundExecutor();
+		List<CompletableFuture<?>> futures = new ArrayList<>();
+
+		for (ModelCache<?> cache : caches) {
+			cache.scheduleRebake(executor, futures);
+		}
+
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+				.join();
 	}
 }
@@ -16,6 +16,11 @@ import dev.engine_room.flywheel.lib.memory.MemoryBlock;
 import dev.engine_room.flywheel.lib.vertex.PosVertexView;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.client.renderer.block.BlockRenderDispatcher;
+import net.minecraft.client.renderer.block.model.BakedQuad;
+import net.minecraft.client.resources.model.BakedModel;
+import net.minecraft.core.Direction;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.block.state.BlockState;
 
 public final class ModelUtil {
 	/**
@@ -24,6 +29,8 @@ public final class ModelUtil {
 	 */
 	public static final BlockRenderDispatcher VANILLA_RENDERER = FlwLibXplat.INSTANCE.createVanillaBlockRenderDispatcher();
 	private static final float BOUNDING_SPHERE_EPSILON = 1e-4f;
+	private static final Direction[] CULL_FACES = {null, Direction.DOWN, Direction.UP, Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST};
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
 
 	private ModelUtil() {
 	}
@@ -48,6 +55,45 @@ public final class ModelUtil {
 		return null;
 	}
 
+	/**
+	 * Hash the quads a baked model emits for the given state.
+	 * <br>
+	 * Quad vertices contain positions, atlas UVs, colors and normals, so two models with equal hashes
+	 * will produce the same meshes. Used to keep cached models alive across resource reloads that
+	 * didn't touch them.
+	 *
+	 * @param model The baked model to hash.
+	 * @param state The block state to query quads with, or {@code null}.
+	 * @return A 64-bit hash of the model's quads.
+	 */
+	public static long computeContentHash(@Nullable BakedModel model, @Nullable BlockState state) {
+		if (model == null) {
+			return 0;
+		}
+
+		RandomSource random = RandomSource.create();
+		long hash = 1;
+
+		for (Direction cullFace : CULL_FACES) {
+			// Same seed as used when tesselating so random variants hash the same as they mesh.
+			random.setSeed(42L);
+
+			for (BakedQuad quad : model.getQuads(state, cullFace, random)) {
+				for (int value : quad.getVertices()) {
+					hash = hash * HASH_MULTIPLIER + value;
+				}
+
+				hash = hash * HASH_MULTIPLIER + quad.getTintIndex();
+				hash = hash * HASH_MULTIPLIER + (quad.isShade() ? 1 : 0);
+				hash = hash * HASH_MULTIPLIER + quad.getDirection().ordinal();
+			}
+
+			hash = hash * HASH_MULTIPLIER + (cullFace == null ? -1 : cullFace.ordinal());
+		}
+
+		return hash;
+	}
+
 	public static int computeTotalVertexCount(Iterable<Mesh> meshes) {
 		int vertexCount = 0;
 		for (Mesh mesh : meshes) {
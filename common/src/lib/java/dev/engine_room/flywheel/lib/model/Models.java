@@ -9,6 +9,7 @@ import dev.engine_room.flywheel.lib.model.baked.BakedModelBuilder;
 import dev.engine_room.flywheel.lib.model.baked.BlockModelBuilder;
 import dev.engine_room.flywheel.lib.model.baked.PartialModel;
 import dev.engine_room.flywheel.lib.transform.TransformStack;
+import net.minecraft.client.renderer.ItemBlockRenderTypes;
 import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.state.BlockState;
 
@@ -20,10 +21,14 @@ import net.minecraft.world.level.block.state.BlockState;
  */
 public final class Models {
 	private static final ModelCache<BlockState> BLOCK_STATE = new ModelCache<>(it -> BlockModelBuilder.create(it)
-			.build());
+			.build(), Models::hashBlockState);
 	private static final ModelCache<PartialModel> PARTIAL = new ModelCache<>(it -> BakedModelBuilder.create(it.get())
-			.build());
-	private static final ModelCache<TransformedPartial<?>> TRANSFORMED_PARTIAL = new ModelCache<>(TransformedPartial::create);
+			.build(), Models::hashPartial);
+	private static final ModelCache<TransformedPartial<?>> TRANSFORMED_PARTIAL = new ModelCache<>(TransformedPartial::create, it -> hashPartial(it.partial()));
+
+	static {
+		PARTIAL.declareAll(PartialModel::all);
+	}
 
 	private Models() {
 	}
@@ -76,6 +81,16 @@ public final class Models {
 		return partial(partial, dir, Models::rotateAboutCenterToFace);
 	}
 
+	private static long hashBlockState(BlockState state) {
+		long hash = ModelUtil.computeContentHash(ModelUtil.VANILLA_RENDERER.getBlockModel(state), state);
+		// The render type decides the material, so it is part of the content too.
+		return hash * 31 + ItemBlockRenderTypes.getChunkRenderType(state).hashCode();
+	}
+
+	private static long hashPartial(PartialModel partial) {
+		return ModelUtil.computeContentHash(partial.get(), null);
+	}
+
 	private static void rotateAboutCenterToFace(Direction facing, PoseStack stack) {
 		TransformStack.of(stack)
 				.center()
@@ -1,7 +1,10 @@
 package dev.engine_room.flywheel.lib.model.baked;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.ConcurrentMap;
 
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.UnknownNullability;
 
 import com.google.common.collect.MapMaker;
@@ -38,6 +41,14 @@ public final class PartialModel {
 		return ALL.computeIfAbsent(modelLocation, PartialModel::new);
 	}
 
+	/**
+	 * @return A view of all currently registered partial models.
+	 */
+	@ApiStatus.Internal
+	public static Collection<PartialModel> all() {
+		return Collections.unmodifiableCollection(ALL.values());
+	}
+
 	@UnknownNullability
 	public BakedModel get() {
 		return bakedModel;
@@ -0,0 +1,44 @@
+package dev.engine_room.flywheel.lib.task;
+
+import java.util.List;
+
+import dev.engine_room.flywheel.api.task.TaskExecutor;
+import dev.engine_room.flywheel.lib.task.functional.ConsumerWithContext;
+import dev.engine_room.flywheel.lib.task.functional.SupplierWithContext;
+
+/**
+ * A plan that executes code on each element of a provided list.
+ * <p>
+ * Unlike {@link ForEachPlan}, operations are batched by their estimated cost rather than by count, so a few
+ * expensive elements don't leave one thread doing most of the work.
+ *
+ * @param listSupplier A supplier of the list to iterate over.
+ * @param action       The action to perform on each element.
+ * @param costModel    The estimated cost of the action on each element.
+ * @param <T>          The type of the list elements.
+ * @param <C>          The type of the context object.
+ */
+public record BalancedForEachPlan<T, C>(SupplierWithContext<C, List<T>> listSupplier,
+									   ConsumerWithContext<T, C> action,
+									   CostModel<? super T> costModel) implements SimplyComposedPlan<C> {
+	public static <T, C> BalancedForEachPlan<T, C> of(SupplierWithContext<C, List<T>> iterable, ConsumerWithContext<T, C> forEach, CostModel<? super T> costModel) {
+		return new BalancedForEachPlan<>(iterable, forEach, costModel);
+	}
+
+	public static <T, C> BalancedForEachPlan<T, C> of(SupplierWithContext<C, List<T>> iterable, ConsumerWithContext.Ignored<T, C> forEach, CostModel<? super T> costModel) {
+		return new BalancedForEachPlan<>(iterable, forEach, costModel);
+	}
+
+	public static <T, C> BalancedForEachPlan<T, C> of(SupplierWithContext.Ignored<C, List<T>> iterable, ConsumerWithContext<T, C> forEach, CostModel<? super T> costModel) {
+		return new BalancedForEachPlan<>(iterable, forEach, costModel);
+	}
+
+	public static <T, C> BalancedForEachPlan<T, C> of(SupplierWithContext.Ignored<C, List<T>> iterable, ConsumerWithContext.Ignored<T, C> forEach, CostModel<? super T> costModel) {
+		return new BalancedForEachPlan<>(iterable, forEach, costModel);
+	}
+
+	@Override
+	public void execute(TaskExecutor taskExecutor, C context, Runnable onCompletion) {
+		taskExecutor.execute(() -> Distribute.tasks(taskExecutor, context, onCompletion, listSupplier.get(context), action, costModel));
+	}
+}
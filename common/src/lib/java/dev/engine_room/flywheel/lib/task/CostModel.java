@@ -0,0 +1,24 @@
+package dev.engine_room.flywheel.lib.task;
+
+/**
+ * Estimates how long an action takes on an object, so that work can be split into slices of equal cost
+ * instead of equal length.
+ *
+ * @param <T> The type of object the action runs on.
+ */
+public interface CostModel<T> {
+	/**
+	 * @param t The object the action will run on.
+	 * @return The estimated duration of the action in nanoseconds. Must be positive.
+	 */
+	long estimateNanos(T t);
+
+	/**
+	 * Called after the action ran on an object, possibly from many threads at once.
+	 *
+	 * @param t         The object the action ran on.
+	 * @param tookNanos The duration of the action in nanoseconds.
+	 */
+	default void record(T t, long tookNanos) {
+	}
+}
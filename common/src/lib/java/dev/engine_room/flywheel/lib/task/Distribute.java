@@ -1,5 +1,6 @@
 package dev.engine_room.flywheel.lib.task;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.BiConsumer;
@@ -7,8 +8,19 @@ import java.util.function.BiConsumer;
 import dev.engine_room.flywheel.api.task.Plan;
 import dev.engine_room.flywheel.api.task.TaskExecutor;
 import dev.engine_room.flywheel.lib.math.MoreMath;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 public final class Distribute {
+	/**
+	 * The least work worth scheduling a task for.
+	 */
+	private static final long MIN_SLICE_NANOS = 20_000;
+	/**
+	 * How many slices to aim for per thread when balancing by cost.
+	 * Estimates aren't exact, so a few slices per thread leave room to even out mistakes.
+	 */
+	private static final int COST_SLICES_PER_THREAD = 8;
+
 	private Distribute() {
 	}
 
@@ -69,6 +81,74 @@ public final class Distribute {
 		}
 	}
 
+	/**
+	 * Distribute the given list of tasks across the threads of the task executor, balanced by estimated cost.
+	 *
+	 * <p>Elements are grouped into contiguous slices of roughly equal estimated cost, so an expensive element
+	 * ends up in a slice of its own instead of alongside many others. The most expensive slices are submitted
+	 * first so they don't end up delaying completion. The time each element takes is reported back to the
+	 * cost model.</p>
+	 *
+	 * @param taskExecutor The task executor to run on.
+	 * @param context The context to pass to each task.
+	 * @param onCompletion The action to run when all tasks are complete.
+	 * @param list The list of objects to run tasks on.
+	 * @param action The action to run on each object.
+	 * @param costModel The estimated cost of the action on each object.
+	 * @param <C> The context type.
+	 * @param <T> The object type.
+	 */
+	public static <C, T> void tasks(TaskExecutor taskExecutor, C context, Runnable onCompletion, List<T> list, BiConsumer<T, C> action, CostModel<? super T> costModel) {
+		final int size = list.size();
+
+		if (size == 0) {
+			onCompletion.run();
+			return;
+		}
+
+		long[] costs = new long[size];
+		long totalCost = 0;
+
+		for (int i = 0; i < size; i++) {
+			costs[i] = costModel.estimateNanos(list.get(i));
+			totalCost += costs[i];
+		}
+
+		final long targetCost = Math.max(MIN_SLICE_NANOS, totalCost / ((long) taskExecutor.threadCount() * COST_SLICES_PER_THREAD));
+
+		if (totalCost <= targetCost) {
+			runMeasured(list, context, action, costModel);
+			onCompletion.run();
+			return;
+		}
+
+		int[] bounds = sliceByCost(costs, targetCost);
+		int sliceCount = bounds.length - 1;
+		long[] sliceCosts = new long[sliceCount];
+
+		for (int slice = 0; slice < sliceCount; slice++) {
+			for (int i = bounds[slice]; i < bounds[slice + 1]; i++) {
+				sliceCosts[slice] += costs[i];
+			}
+		}
+
+		Integer[] order = new Integer[sliceCount];
+		for (int i = 0; i < sliceCount; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(sliceCosts[b], sliceCosts[a]));
+
+		var synchronizer = new Synchronizer(sliceCount, onCompletion);
+
+		for (int slice : order) {
+			var subList = list.subList(bounds[slice], bounds[slice + 1]);
+			taskExecutor.execute(() -> {
+				runMeasured(subList, context, action, costModel);
+				synchronizer.decrementAndEventuallyRun();
+			});
+		}
+	}
+
 	/**
 	 * Distribute the given list of tasks in chunks across the threads of the task executor.
 	 *
@@ -180,6 +260,46 @@ public final class Distribute {
 		}
 	}
 
+	/**
+	 * Split a list into contiguous slices, closing each slice once its cost reaches the target.
+	 *
+	 * @param costs The cost of each element.
+	 * @param targetCost The cost to aim for in each slice.
+	 * @return The bounds of the slices. Slice {@code i} covers {@code [bounds[i], bounds[i + 1])}.
+	 */
+	static int[] sliceByCost(long[] costs, long targetCost) {
+		var bounds = new IntArrayList();
+		bounds.add(0);
+		long sliceCost = 0;
+
+		for (int i = 0; i < costs.length; i++) {
+			sliceCost += costs[i];
+
+			if (sliceCost >= targetCost) {
+				bounds.add(i + 1);
+				sliceCost = 0;
+			}
+		}
+
+		if (bounds.getInt(bounds.size() - 1) != costs.length) {
+			bounds.add(costs.length);
+		}
+
+		return bounds.toIntArray();
+	}
+
+	private static <C, T> void runMeasured(List<T> list, C context, BiConsumer<T, C> action, CostModel<? super T> costModel) {
+		long last = System.nanoTime();
+
+		for (T t : list) {
+			action.accept(t, context);
+
+			long now = System.nanoTime();
+			costModel.record(t, now - last);
+			last = now;
+		}
+	}
+
 	public static int sliceSize(TaskExecutor taskExecutor, int totalSize) {
 		return sliceSize(taskExecutor, totalSize, 32);
 	}
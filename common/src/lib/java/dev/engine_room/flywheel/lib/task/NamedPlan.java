@@ -0,0 +1,48 @@
+package dev.engine_room.flywheel.lib.task;
+
+import dev.engine_room.flywheel.api.task.Plan;
+import dev.engine_room.flywheel.api.task.TaskExecutor;
+
+/**
+ * A plan with a name, under which it and the tasks it submits are recorded by the {@link PlanProfiler}.
+ * <br>
+ * Names of nested plans are joined with slashes, e.g. {@code frame/blockEntities/visuals}.
+ *
+ * @param name The name of the plan.
+ * @param plan The plan to run.
+ * @param <C>  The type of the context object.
+ */
+public record NamedPlan<C>(String name, Plan<C> plan) implements SimplyComposedPlan<C> {
+	public static <C> NamedPlan<C> of(String name, Plan<C> plan) {
+		return new NamedPlan<>(name, plan);
+	}
+
+	@Override
+	public void execute(TaskExecutor taskExecutor, C context, Runnable onCompletion) {
+		if (!PlanProfiler.isEnabled()) {
+			plan.execute(taskExecutor, context, onCompletion);
+			return;
+		}
+
+		String previous = PlanProfiler.currentLabel();
+		String label = PlanProfiler.enter(name);
+		long start = System.nanoTime();
+
+		try {
+			plan.execute(taskExecutor, context, () -> {
+				PlanProfiler.recordPlan(label, start, System.nanoTime());
+
+				// The completion may run inside one of our tasks. Whatever comes next isn't part of this plan.
+				String current = PlanProfiler.currentLabel();
+				PlanProfiler.exit(previous);
+				try {
+					onCompletion.run();
+				} finally {
+					PlanProfiler.exit(current);
+				}
+			});
+		} finally {
+			PlanProfiler.exit(previous);
+		}
+	}
+}
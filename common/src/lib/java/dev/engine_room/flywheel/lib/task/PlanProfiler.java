@@ -0,0 +1,244 @@
+package dev.engine_room.flywheel.lib.task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records when {@link NamedPlan named plans} and the tasks they submit run, to find out which parts of a frame are
+ * slow.
+ * <br>
+ * Recording is off by default, in which case the only cost is one volatile read per named plan and per submitted
+ * task. While recording, events go into a fixed size lock-free ring buffer that overwrites the oldest events.
+ */
+public final class PlanProfiler {
+	private static final int CAPACITY = 1 << 18;
+	private static final int MASK = CAPACITY - 1;
+	private static final String UNNAMED = "unnamed";
+
+	private static final Map<String, Integer> LABEL_IDS = new ConcurrentHashMap<>();
+	private static final List<String> LABELS = new CopyOnWriteArrayList<>();
+	private static final Map<Long, String> THREAD_NAMES = new ConcurrentHashMap<>();
+	private static final ThreadLocal<String> CURRENT_LABEL = new ThreadLocal<>();
+
+	private static volatile boolean enabled;
+	@Nullable
+	private static volatile Buffer buffer;
+
+	private PlanProfiler() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Start recording, discarding anything recorded before.
+	 */
+	public static synchronized void start() {
+		buffer = new Buffer();
+		enabled = true;
+	}
+
+	/**
+	 * Stop recording.
+	 *
+	 * @return Everything recorded since the last call to {@link #start}, ordered by start time.
+	 */
+	public static synchronized Profile stop() {
+		enabled = false;
+		Buffer buffer = PlanProfiler.buffer;
+		PlanProfiler.buffer = null;
+
+		if (buffer == null) {
+			return new Profile(List.of(), Map.of());
+		}
+
+		return new Profile(buffer.snapshot(), Map.copyOf(THREAD_NAMES));
+	}
+
+	/**
+	 * Mark the start of a frame.
+	 */
+	public static void markFrame() {
+		if (!enabled) {
+			return;
+		}
+
+		long now = System.nanoTime();
+		record(Kind.FRAME, "frame", now, now);
+	}
+
+	/**
+	 * Wrap a task so its execution is recorded under the label of the plan that submitted it.
+	 * Tasks that the wrapped task submits in turn inherit the same label.
+	 *
+	 * @param task The task to wrap.
+	 * @return The wrapped task, or the task itself if not recording.
+	 */
+	public static Runnable wrap(Runnable task) {
+		if (!enabled) {
+			return task;
+		}
+
+		String label = CURRENT_LABEL.get();
+
+		return () -> {
+			String previous = CURRENT_LABEL.get();
+			CURRENT_LABEL.set(label);
+			long start = System.nanoTime();
+
+			try {
+				task.run();
+			} finally {
+				record(Kind.TASK, label == null ? UNNAMED : label, start, System.nanoTime());
+				CURRENT_LABEL.set(previous);
+			}
+		};
+	}
+
+	@Nullable
+	static String currentLabel() {
+		return CURRENT_LABEL.get();
+	}
+
+	/**
+	 * Enter a named plan on the current thread.
+	 *
+	 * @return The full label of the plan, prefixed by the labels of the plans it is nested in.
+	 */
+	static String enter(String name) {
+		String parent = CURRENT_LABEL.get();
+		String label = parent == null ? name : parent + '/' + name;
+		CURRENT_LABEL.set(label);
+		return label;
+	}
+
+	static void exit(@Nullable String previous) {
+		CURRENT_LABEL.set(previous);
+	}
+
+	static void recordPlan(String label, long start, long end) {
+		record(Kind.PLAN, label, start, end);
+	}
+
+	private static void record(Kind kind, String label, long start, long end) {
+		Buffer buffer = PlanProfiler.buffer;
+
+		if (buffer == null) {
+			return;
+		}
+
+		Thread thread = Thread.currentThread();
+		long threadId = thread.getId();
+		THREAD_NAMES.computeIfAbsent(threadId, $ -> thread.getName());
+
+		buffer.record(kind, labelId(label), start, end, threadId);
+	}
+
+	private static int labelId(String label) {
+		Integer id = LABEL_IDS.get(label);
+
+		if (id != null) {
+			return id;
+		}
+
+		synchronized (LABELS) {
+			return LABEL_IDS.computeIfAbsent(label, $ -> {
+				LABELS.add(label);
+				return LABELS.size() - 1;
+			});
+		}
+	}
+
+	public enum Kind {
+		/**
+		 * A task running on one thread.
+		 */
+		TASK,
+		/**
+		 * A named plan, from when it started executing until it completed, possibly across many threads.
+		 */
+		PLAN,
+		/**
+		 * The start of a frame. Has no duration.
+		 */
+		FRAME,
+	}
+
+	public record Event(Kind kind, String label, long startNanos, long endNanos, long threadId) {
+	}
+
+	/**
+	 * @param events      The recorded events, ordered by start time.
+	 * @param threadNames The names of the threads that recorded events, by thread id.
+	 */
+	public record Profile(List<Event> events, Map<Long, String> threadNames) {
+	}
+
+	private static final class Buffer {
+		private final AtomicLong cursor = new AtomicLong();
+		/**
+		 * The sequence number of the event in each slot, or -1 while it's being written.
+		 */
+		private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+		private final Kind[] kinds = new Kind[CAPACITY];
+		private final int[] labels = new int[CAPACITY];
+		private final long[] starts = new long[CAPACITY];
+		private final long[] ends = new long[CAPACITY];
+		private final long[] threadIds = new long[CAPACITY];
+
+		private Buffer() {
+			for (int i = 0; i < CAPACITY; i++) {
+				sequences.set(i, -1);
+			}
+		}
+
+		private void record(Kind kind, int label, long start, long end, long threadId) {
+			long sequence = cursor.getAndIncrement();
+			int slot = (int) (sequence & MASK);
+
+			sequences.set(slot, -1);
+			kinds[slot] = kind;
+			labels[slot] = label;
+			starts[slot] = start;
+			ends[slot] = end;
+			threadIds[slot] = threadId;
+			// Publishes the plain writes above.
+			sequences.set(slot, sequence);
+		}
+
+		private List<Event> snapshot() {
+			long end = cursor.get();
+			long begin = Math.max(0, end - CAPACITY);
+			List<Event> out = new ArrayList<>((int) (end - begin));
+
+			for (long sequence = begin; sequence < end; sequence++) {
+				int slot = (int) (sequence & MASK);
+
+				if (sequences.get(slot) != sequence) {
+					// Overwritten or still being written.
+					continue;
+				}
+
+				var event = new Event(kinds[slot], LABELS.get(labels[slot]), starts[slot], ends[slot], threadIds[slot]);
+
+				// Make sure the slot wasn't reused while we were reading it.
+				if (sequences.get(slot) == sequence) {
+					out.add(event);
+				}
+			}
+
+			// Tasks are recorded when they end, but are easier to make sense of ordered by when they started.
+			out.sort(Comparator.comparingLong(Event::startNanos));
+			return out;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package dev.engine_room.flywheel.lib.task;
+
+/**
+ * A {@link CostModel} that keeps a moving average of the measured cost for each class of object.
+ * <br>
+ * Objects of the same class tend to do the same amount of work, so e.g. every chest lid is cheap, and
+ * every contraption is expensive. Classes that haven't been measured yet are assumed to cost
+ * {@link #DEFAULT_NANOS} unless specified otherwise.
+ * <br>
+ * Updates are racy on purpose. Losing a sample now and then doesn't matter for a moving average.
+ *
+ * @param <T> The type of object the action runs on.
+ */
+public final class TypeCostModel<T> implements CostModel<T> {
+	public static final long DEFAULT_NANOS = 2_000;
+	// Each sample moves the average 1/8th of the way.
+	private static final int AVERAGE_SHIFT = 3;
+
+	private final long defaultNanos;
+	private final ClassValue<Average> averages = new ClassValue<>() {
+		@Override
+		protected Average computeValue(Class<?> type) {
+			return new Average(defaultNanos);
+		}
+	};
+
+	public TypeCostModel() {
+		this(DEFAULT_NANOS);
+	}
+
+	/**
+	 * @param defaultNanos The cost to assume for classes that haven't been measured yet.
+	 */
+	public TypeCostModel(long defaultNanos) {
+		this.defaultNanos = defaultNanos;
+	}
+
+	@Override
+	public long estimateNanos(T t) {
+		return Math.max(averages.get(t.getClass()).nanos, 1);
+	}
+
+	@Override
+	public void record(T t, long tookNanos) {
+		Average average = averages.get(t.getClass());
+		long nanos = average.nanos;
+		average.nanos = nanos + ((tookNanos - nanos) >> AVERAGE_SHIFT);
+	}
+
+	private static final class Average {
+		private volatile long nanos;
+
+		private Average(long nanos) {
+			this.nanos = nanos;
+		}
+	}
+}
@@ -94,4 +94,22 @@ public final class ExtraMemoryOps {
 		MemoryUtil.memPutFloat(ptr + 56, matrix.m32());
 		MemoryUtil.memPutFloat(ptr + 60, matrix.m33());
 	}
+
+	/**
+	 * Put the first 3 rows of an affine matrix, as a 4x3 matrix.
+	 */
+	public static void putAffineMatrix4f(long ptr, Matrix4fc matrix) {
+		MemoryUtil.memPutFloat(ptr, matrix.m00());
+		MemoryUtil.memPutFloat(ptr + 4, matrix.m01());
+		MemoryUtil.memPutFloat(ptr + 8, matrix.m02());
+		MemoryUtil.memPutFloat(ptr + 12, matrix.m10());
+		MemoryUtil.memPutFloat(ptr + 16, matrix.m11());
+		MemoryUtil.memPutFloat(ptr + 20, matrix.m12());
+		MemoryUtil.memPutFloat(ptr + 24, matrix.m20());
+		MemoryUtil.memPutFloat(ptr + 28, matrix.m21());
+		MemoryUtil.memPutFloat(ptr + 32, matrix.m22());
+		MemoryUtil.memPutFloat(ptr + 36, matrix.m30());
+		MemoryUtil.memPutFloat(ptr + 40, matrix.m31());
+		MemoryUtil.memPutFloat(ptr + 44, matrix.m32());
+	}
 }
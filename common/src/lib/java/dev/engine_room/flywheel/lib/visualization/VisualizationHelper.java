@@ -137,6 +137,15 @@ public final class VisualizationHelper {
 		return visualizer.skipVanillaRender(entity);
 	}
 
+	/**
+	 * Queue the given block entity to be visualized.
+	 * <br>
+	 * Unlike Flywheel's own chunk compilation hooks, this doesn't let vanilla render the block entity while its
+	 * visual is waiting to be created.
+	 * @param blockEntity The block entity to add.
+	 * @param <T> The type of the block entity.
+	 * @return {@code true} if the block entity is visualized and should not be rendered normally.
+	 */
 	public static <T extends BlockEntity> boolean tryAddBlockEntity(T blockEntity) {
 		Level level = blockEntity.getLevel();
 		VisualizationManager manager = VisualizationManager.get(level);
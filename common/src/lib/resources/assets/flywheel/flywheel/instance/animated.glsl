@@ -0,0 +1,30 @@
+#include "flywheel:util/quaternion.glsl"
+
+// Must be kept in sync with AnimatedInstance#progress.
+float animationProgress(in FlwInstance i) {
+    // Subtract whole ticks as integers to avoid losing precision in long sessions.
+    float elapsed = max(float(int(flw_ticks) - i.startTick) + (flw_partialTick - i.startPartialTick), 0.);
+    float distance = i.endProgress - i.startProgress;
+    return i.startProgress + sign(distance) * min(elapsed * i.progressPerTick, abs(distance));
+}
+
+// Must be kept in sync with AnimatedInstance.Easing#ease.
+float animationEase(uint easing, float progress) {
+    if (easing == 1u) {
+        float inverse = 1. - progress;
+        return 1. - inverse * inverse * inverse;
+    } else if (easing == 2u) {
+        float ticks = progress * 50.;
+        return sin(ticks / 3.14159265) / (4. + ticks / 3.);
+    } else {
+        return progress;
+    }
+}
+
+vec4 animationRotation(in FlwInstance i, float eased) {
+    return quaternion(i.axis, i.angle * eased);
+}
+
+vec3 animatePosition(in FlwInstance i, vec4 rotation, float eased, vec3 pos) {
+    return rotateByQuaternion(pos - i.pivot, rotation) + i.pivot + i.translation * eased;
+}
@@ -0,0 +1,13 @@
+#include "flywheel:instance/animated.glsl"
+
+void flw_instanceVertex(in FlwInstance i) {
+    float eased = animationEase(i.easing, animationProgress(i));
+    vec4 rotation = animationRotation(i, eased);
+
+    flw_vertexPos = i.pose * vec4(animatePosition(i, rotation, eased, flw_vertexPos.xyz), 1.0);
+    flw_vertexNormal = i.normal * rotateByQuaternion(flw_vertexNormal, rotation);
+    flw_vertexColor *= i.color;
+    flw_vertexOverlay = i.overlay;
+    // Some drivers have a bug where uint over float division is invalid, so use an explicit cast.
+    flw_vertexLight = vec2(i.light) / 256.0;
+}
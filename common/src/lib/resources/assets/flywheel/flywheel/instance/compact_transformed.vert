@@ -0,0 +1,11 @@
+#include "flywheel:util/matrix.glsl"
+
+void flw_instanceVertex(in FlwInstance i) {
+    mat4 pose = mat4(i.pose);
+    flw_vertexPos = pose * flw_vertexPos;
+    flw_vertexNormal = normalMatrix(mat3(pose)) * flw_vertexNormal;
+    flw_vertexColor *= i.color;
+    flw_vertexOverlay = i.overlay;
+    // Some drivers have a bug where uint over float division is invalid, so use an explicit cast.
+    flw_vertexLight = vec2(i.light) / 256.0;
+}
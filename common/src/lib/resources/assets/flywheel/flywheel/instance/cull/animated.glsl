@@ -0,0 +1,11 @@
+#include "flywheel:instance/animated.glsl"
+#include "flywheel:util/matrix.glsl"
+
+void flw_transformBoundingSphere(in FlwInstance i, inout vec3 center, inout float radius) {
+    float eased = animationEase(i.easing, animationProgress(i));
+    vec4 rotation = animationRotation(i, eased);
+
+    // The animation is rigid so the radius does not change.
+    center = animatePosition(i, rotation, eased, center);
+    transformBoundingSphere(i.pose, center, radius);
+}
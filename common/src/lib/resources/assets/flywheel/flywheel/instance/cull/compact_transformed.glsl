@@ -0,0 +1,5 @@
+#include "flywheel:util/matrix.glsl"
+
+void flw_transformBoundingSphere(in FlwInstance i, inout vec3 center, inout float radius) {
+    transformBoundingSphere(mat4(i.pose), center, radius);
+}
@@ -42,6 +42,16 @@ mat3 modelToNormal(mat4 mat) {
     return m;
 }
 
+/*
+ * The inverse transpose of a matrix, scaled by its determinant's absolute value.
+ * Transforms normals correctly as long as they're normalized afterwards, and is much cheaper than inverse().
+ */
+mat3 normalMatrix(mat3 m) {
+    mat3 cofactor = mat3(cross(m[1], m[2]), cross(m[2], m[0]), cross(m[0], m[1]));
+    // The cofactor matrix is the inverse transpose times the determinant, which flips normals for mirrored matrices.
+    return dot(m[0], cofactor[0]) < 0. ? -cofactor : cofactor;
+}
+
 void transformBoundingSphere(in mat4 mat, inout vec3 center, inout float radius) {
     center = (mat * vec4(center, 1.)).xyz;
 
@@ -10,4 +10,12 @@ public interface FlwConfig {
 	boolean limitUpdates();
 
 	int workerThreads();
+
+	boolean pipelineFrames();
+
+	/**
+	 * @return How long to spend creating visuals of each kind per frame in milliseconds, or a negative number for
+	 * no limit. At least one visual of each kind is created per frame, even with a budget of 0.
+	 */
+	double visualCreationBudget();
 }
@@ -3,6 +3,8 @@ package dev.engine_room.flywheel.impl;
 import java.util.List;
 
 import dev.engine_room.flywheel.api.visualization.VisualizationManager;
+import dev.engine_room.flywheel.backend.engine.LightStorage;
+import dev.engine_room.flywheel.backend.engine.MeshPool;
 import dev.engine_room.flywheel.lib.memory.FlwMemoryTracker;
 import dev.engine_room.flywheel.lib.util.StringUtil;
 import net.minecraft.client.Minecraft;
@@ -21,6 +23,7 @@ public final class FlwDebugInfo {
 		systemInfo.add("Flywheel: " + FlwImplXplat.INSTANCE.getVersionStr());
 		systemInfo.add("Backend: " + BackendManagerImpl.getBackendString());
 		systemInfo.add("Update limiting: " + (FlwConfig.INSTANCE.limitUpdates() ? "on" : "off"));
+		systemInfo.add("Frame pipelining: " + (FlwConfig.INSTANCE.pipelineFrames() ? "on" : "off"));
 
 		VisualizationManager manager = VisualizationManager.get(minecraft.level);
 		if (manager != null) {
@@ -31,6 +34,8 @@ public final class FlwDebugInfo {
 			systemInfo.add("Origin: " + renderOrigin.getX() + ", " + renderOrigin.getY() + ", " + renderOrigin.getZ());
 		}
 
+		systemInfo.add(MeshPool.debugInfo());
+		systemInfo.add(LightStorage.debugInfo());
 		systemInfo.add("Memory Usage: CPU: " + StringUtil.formatBytes(FlwMemoryTracker.getCpuMemory()) + ", GPU: " + StringUtil.formatBytes(FlwMemoryTracker.getGpuMemory()));
 	}
 }
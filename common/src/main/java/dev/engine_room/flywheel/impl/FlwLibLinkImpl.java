@@ -4,9 +4,11 @@ import org.slf4j.Logger;
 
 import com.mojang.blaze3d.vertex.PoseStack;
 
+import dev.engine_room.flywheel.backend.mixin.LevelRendererAccessor;
 import dev.engine_room.flywheel.impl.extension.PoseStackExtension;
 import dev.engine_room.flywheel.lib.internal.FlwLibLink;
 import dev.engine_room.flywheel.lib.transform.PoseTransformStack;
+import net.minecraft.client.Minecraft;
 
 public class FlwLibLinkImpl implements FlwLibLink {
 	@Override
@@ -18,4 +20,9 @@ public class FlwLibLinkImpl implements FlwLibLink {
 	public PoseTransformStack getPoseTransformStackOf(PoseStack stack) {
 		return ((PoseStackExtension) stack).flywheel$transformStack();
 	}
+
+	@Override
+	public int getRenderTicks() {
+		return ((LevelRendererAccessor) Minecraft.getInstance().levelRenderer).flywheel$getTicks();
+	}
 }
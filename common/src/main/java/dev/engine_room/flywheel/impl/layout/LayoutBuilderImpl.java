@@ -1,6 +1,7 @@
 package dev.engine_room.flywheel.impl.layout;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -106,6 +107,7 @@ public class LayoutBuilderImpl implements LayoutBuilder {
 	@Nullable
 	private UnpaddedElement lastElement;
 	private int maxByteAlignment;
+	private boolean packed;
 
 	@Override
 	public LayoutBuilder scalar(String name, ValueRepr repr) {
@@ -147,6 +149,12 @@ public class LayoutBuilderImpl implements LayoutBuilder {
 		return matrixArray(name, repr, size, size, length);
 	}
 
+	@Override
+	public LayoutBuilder packed() {
+		packed = true;
+		return this;
+	}
+
 	private LayoutBuilder element(String name, ElementType type) {
 		UnpaddedElement newElement;
 
@@ -219,15 +227,68 @@ public class LayoutBuilderImpl implements LayoutBuilder {
 
 		List<Element> elements = List.copyOf(this.elements);
 		int maxByteAlignment = this.maxByteAlignment;
+		boolean packed = this.packed;
 		clear();
 
+		if (packed) {
+			var packedLayout = pack(elements, maxByteAlignment);
+
+			// Keep the declared order if it's already as small, no need to move things around.
+			if (packedLayout.byteSize() < byteSize) {
+				return packedLayout;
+			}
+		}
+
 		return new LayoutImpl(elements, byteSize, maxByteAlignment);
 	}
 
+	/**
+	 * Place elements in order of decreasing alignment. Every element's size is a multiple of its alignment, so that
+	 * leaves no padding between them, and the layout is only padded at the end.
+	 */
+	private static LayoutImpl pack(List<Element> elements, int maxByteAlignment) {
+		// The sort is stable, so elements with the same alignment stay in the order they were added.
+		List<Element> placementOrder = new ArrayList<>(elements);
+		placementOrder.sort(Comparator.comparingInt((Element element) -> element.type()
+				.byteAlignment())
+				.reversed());
+
+		Object2IntMap<String> byteOffsets = new Object2IntOpenHashMap<>();
+		int nextByte = 0;
+		for (Element element : placementOrder) {
+			ElementType type = element.type();
+			nextByte = MoreMath.alignPot(nextByte, type.byteAlignment());
+			byteOffsets.put(element.name(), nextByte);
+			nextByte += type.byteSize();
+		}
+		int byteSize = MoreMath.alignPot(nextByte, maxByteAlignment);
+
+		Object2IntMap<String> paddingByteSizes = new Object2IntOpenHashMap<>();
+		for (int i = 0; i < placementOrder.size(); i++) {
+			Element element = placementOrder.get(i);
+			int end = byteOffsets.getInt(element.name()) + element.type()
+					.byteSize();
+			int next = i + 1 < placementOrder.size() ? byteOffsets.getInt(placementOrder.get(i + 1)
+					.name()) : byteSize;
+			paddingByteSizes.put(element.name(), next - end);
+		}
+
+		List<Element> packedElements = new ArrayList<>(elements.size());
+		for (Element element : elements) {
+			String name = element.name();
+			int paddingByteSize = paddingByteSizes.getInt(name);
+			packedElements.add(new ElementImpl(name, element.type(), byteOffsets.getInt(name), element.type()
+					.byteSize() + paddingByteSize, paddingByteSize));
+		}
+
+		return new LayoutImpl(List.copyOf(packedElements), byteSize, maxByteAlignment);
+	}
+
 	private void clear() {
 		elements.clear();
 		lastElement = null;
 		maxByteAlignment = 0;
+		packed = false;
 	}
 
 	private static boolean isValidNameCharacter(char c) {
@@ -9,7 +9,7 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import com.google.common.collect.Lists;
 
-import dev.engine_room.flywheel.api.visualization.VisualizationManager;
+import dev.engine_room.flywheel.impl.visualization.VisualizationManagerImpl;
 import dev.engine_room.flywheel.lib.visualization.VisualizationHelper;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.world.entity.Entity;
@@ -18,14 +18,16 @@ import net.minecraft.world.entity.Entity;
 abstract class ClientLevelMixin  {
 	@Inject(method = "entitiesForRendering()Ljava/lang/Iterable;", at = @At("RETURN"), cancellable = true)
 	private void flywheel$filterEntities(CallbackInfoReturnable<Iterable<Entity>> cir) {
-		if (!VisualizationManager.supportsVisualization((ClientLevel) (Object) this)) {
+		VisualizationManagerImpl manager = VisualizationManagerImpl.get((ClientLevel) (Object) this);
+		if (manager == null) {
 			return;
 		}
 
 		Iterable<Entity> entities = cir.getReturnValue();
 		ArrayList<Entity> filtered = Lists.newArrayList(entities);
 
-		filtered.removeIf(VisualizationHelper::skipVanillaRender);
+		// Let vanilla render entities until their visual is created.
+		filtered.removeIf(entity -> VisualizationHelper.skipVanillaRender(entity) && !manager.isAwaitingVisual(entity));
 
 		cir.setReturnValue(filtered);
 	}
@@ -0,0 +1,32 @@
+package dev.engine_room.flywheel.impl.mixin.visualmanage;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+
+import dev.engine_room.flywheel.impl.visualization.VisualizationManagerImpl;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.blockentity.BlockEntityRenderDispatcher;
+import net.minecraft.world.level.block.entity.BlockEntity;
+
+@Mixin(BlockEntityRenderDispatcher.class)
+abstract class BlockEntityRenderDispatcherMixin {
+	/**
+	 * Block entities that were left to vanilla while waiting for their visual stay in their section's list until
+	 * it's compiled again, so stop rendering them once the visual is there.
+	 */
+	@Inject(method = "render(Lnet/minecraft/world/level/block/entity/BlockEntity;FLcom/mojang/blaze3d/vertex/PoseStack;Lnet/minecraft/client/renderer/MultiBufferSource;)V", at = @At("HEAD"), cancellable = true)
+	private <E extends BlockEntity> void flywheel$skipVisualized(E blockEntity, float partialTick, PoseStack poseStack, MultiBufferSource bufferSource, CallbackInfo ci) {
+		VisualizationManagerImpl manager = VisualizationManagerImpl.get(blockEntity.getLevel());
+		if (manager == null) {
+			return;
+		}
+
+		if (manager.skipVanillaRender(blockEntity)) {
+			ci.cancel();
+		}
+	}
+}
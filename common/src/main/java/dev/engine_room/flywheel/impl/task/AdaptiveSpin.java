@@ -0,0 +1,57 @@
+package dev.engine_room.flywheel.impl.task;
+
+/**
+ * Decides how long a thread should spin before blocking, based on how long recent waits took.
+ * <br>
+ * If waits usually end quickly, spinning for a little longer than they usually take avoids the latency of
+ * parking and unparking. If waits usually take long, spinning would only burn a core, so the budget drops to
+ * the minimum.
+ * <br>
+ * Updates are racy on purpose. Losing a sample now and then doesn't matter for a moving average.
+ */
+public final class AdaptiveSpin {
+	// Each sample moves the average 1/8th of the way.
+	private static final int AVERAGE_SHIFT = 3;
+
+	private final long minNanos;
+	private final long maxNanos;
+
+	private volatile long averageWaitNanos;
+
+	public AdaptiveSpin(long minNanos, long maxNanos, long initialNanos) {
+		if (minNanos < 0 || maxNanos < minNanos) {
+			throw new IllegalArgumentException("Invalid spin range [" + minNanos + ", " + maxNanos + "]");
+		}
+
+		this.minNanos = minNanos;
+		this.maxNanos = maxNanos;
+		averageWaitNanos = initialNanos;
+	}
+
+	/**
+	 * @return How long to spin before blocking, in nanoseconds.
+	 */
+	public long budgetNanos() {
+		long average = averageWaitNanos;
+
+		if (average > maxNanos) {
+			return minNanos;
+		}
+
+		return Math.max(minNanos, Math.min(maxNanos, average * 2));
+	}
+
+	/**
+	 * Record how long a wait took in total, including both spinning and blocking.
+	 *
+	 * @param waitedNanos The duration of the wait.
+	 */
+	public void record(long waitedNanos) {
+		long average = averageWaitNanos;
+		averageWaitNanos = average + ((waitedNanos - average) >> AVERAGE_SHIFT);
+	}
+
+	public long averageWaitNanos() {
+		return averageWaitNanos;
+	}
+}
@@ -0,0 +1,183 @@
+package dev.engine_room.flywheel.impl.task;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import dev.engine_room.flywheel.lib.task.PlanProfiler;
+import it.unimi.dsi.fastutil.objects.AbstractObject2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+/**
+ * Writes a {@link PlanProfiler.Profile} in the Chrome trace event format, which can be opened in
+ * {@code chrome://tracing} or Perfetto.
+ * <br>
+ * Tasks become complete events on the thread that ran them, named plans become async spans, and frames become
+ * global instant events. At each frame the time spent in tasks during the previous frame is also written as a
+ * counter per label.
+ */
+public final class ChromeTrace {
+	private static final int PID = 1;
+
+	private ChromeTrace() {
+	}
+
+	public static void write(PlanProfiler.Profile profile, Writer out) throws IOException {
+		List<PlanProfiler.Event> events = profile.events();
+		long origin = events.stream()
+				.mapToLong(PlanProfiler.Event::startNanos)
+				.min()
+				.orElse(0);
+
+		try (JsonWriter json = new JsonWriter(out)) {
+			json.beginObject();
+			json.name("displayTimeUnit").value("ms");
+			json.name("traceEvents").beginArray();
+
+			for (Map.Entry<Long, String> entry : profile.threadNames().entrySet()) {
+				json.beginObject();
+				json.name("name").value("thread_name");
+				json.name("ph").value("M");
+				json.name("pid").value(PID);
+				json.name("tid").value(entry.getKey());
+				json.name("args").beginObject().name("name").value(entry.getValue()).endObject();
+				json.endObject();
+			}
+
+			int planId = 0;
+			Object2LongMap<String> frameTotals = new Object2LongOpenHashMap<>();
+			boolean inFrame = false;
+
+			for (PlanProfiler.Event event : events) {
+				double ts = micros(event.startNanos() - origin);
+
+				switch (event.kind()) {
+				case TASK -> {
+					json.beginObject();
+					json.name("name").value(event.label());
+					json.name("cat").value("task");
+					json.name("ph").value("X");
+					json.name("ts").value(ts);
+					json.name("dur").value(micros(event.endNanos() - event.startNanos()));
+					json.name("pid").value(PID);
+					json.name("tid").value(event.threadId());
+					json.endObject();
+
+					if (inFrame) {
+						frameTotals.mergeLong(event.label(), event.endNanos() - event.startNanos(), Long::sum);
+					}
+				}
+				case PLAN -> {
+					int id = planId++;
+					writeAsync(json, event, "b", ts, id);
+					writeAsync(json, event, "e", micros(event.endNanos() - origin), id);
+				}
+				case FRAME -> {
+					if (inFrame) {
+						json.beginObject();
+						json.name("name").value("task time per frame (ms)");
+						json.name("ph").value("C");
+						json.name("ts").value(ts);
+						json.name("pid").value(PID);
+						json.name("args").beginObject();
+						for (Object2LongMap.Entry<String> entry : frameTotals.object2LongEntrySet()) {
+							json.name(entry.getKey()).value(entry.getLongValue() / 1_000_000.0);
+						}
+						json.endObject();
+						json.endObject();
+					}
+
+					frameTotals.clear();
+					inFrame = true;
+
+					json.beginObject();
+					json.name("name").value("frame");
+					json.name("ph").value("i");
+					json.name("s").value("g");
+					json.name("ts").value(ts);
+					json.name("pid").value(PID);
+					json.name("tid").value(event.threadId());
+					json.endObject();
+				}
+				}
+			}
+
+			json.endArray();
+			json.endObject();
+		}
+	}
+
+	/**
+	 * Find the labels that took the most task time per frame.
+	 *
+	 * @param profile The profile to summarize.
+	 * @param limit   The maximum number of labels to return.
+	 * @return Labels and their average task time per frame in nanoseconds, most expensive first.
+	 */
+	public static List<Object2LongMap.Entry<String>> slowestLabels(PlanProfiler.Profile profile, int limit) {
+		Object2LongMap<String> totals = new Object2LongOpenHashMap<>();
+		Object2LongMap<String> frameTotals = new Object2LongOpenHashMap<>();
+		int frames = 0;
+		boolean inFrame = false;
+
+		for (PlanProfiler.Event event : profile.events()) {
+			switch (event.kind()) {
+			case TASK -> {
+				if (inFrame) {
+					frameTotals.mergeLong(event.label(), event.endNanos() - event.startNanos(), Long::sum);
+				}
+			}
+			case FRAME -> {
+				// Only count frames we saw from start to end.
+				if (inFrame) {
+					for (Object2LongMap.Entry<String> entry : frameTotals.object2LongEntrySet()) {
+						totals.mergeLong(entry.getKey(), entry.getLongValue(), Long::sum);
+					}
+					frames++;
+				}
+				frameTotals.clear();
+				inFrame = true;
+			}
+			case PLAN -> {
+			}
+			}
+		}
+
+		List<Object2LongMap.Entry<String>> out = new ArrayList<>();
+
+		if (frames == 0) {
+			return out;
+		}
+
+		for (Object2LongMap.Entry<String> entry : totals.object2LongEntrySet()) {
+			out.add(new AbstractObject2LongMap.BasicEntry<>(entry.getKey(), entry.getLongValue() / frames));
+		}
+
+		out.sort(Comparator.comparingLong(Object2LongMap.Entry<String>::getLongValue)
+				.reversed());
+
+		return out.subList(0, Math.min(limit, out.size()));
+	}
+
+	private static void writeAsync(JsonWriter json, PlanProfiler.Event event, String phase, double ts, int id) throws IOException {
+		json.beginObject();
+		json.name("name").value(event.label());
+		json.name("cat").value("plan");
+		json.name("ph").value(phase);
+		json.name("ts").value(ts);
+		json.name("id").value(id);
+		json.name("pid").value(PID);
+		json.name("tid").value(event.threadId());
+		json.endObject();
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1_000.0;
+	}
+}
@@ -8,11 +8,21 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BooleanSupplier;
 
 import dev.engine_room.flywheel.impl.FlwImpl;
+import dev.engine_room.flywheel.lib.task.PlanProfiler;
 import net.minecraft.util.Mth;
 
 // https://github.com/CaffeineMC/sodium-fabric/blob/5d364ed5ba63f9067fcf72a078ca310bff4db3e9/src/main/java/me/jellysquid/mods/sodium/client/render/chunk/compile/ChunkBuilder.java
 // https://stackoverflow.com/questions/29655531
 public class ParallelTaskExecutor implements TaskExecutorImpl {
+	/**
+	 * How long a syncing thread waits for other threads before checking the queue again.
+	 * We get signalled when new tasks are queued, so this is only a safety net.
+	 */
+	private static final long SYNC_TIMEOUT_NANOS = 1_000_000;
+	private static final long MIN_WORKER_SPIN_NANOS = 1_000;
+	private static final long MAX_WORKER_SPIN_NANOS = 50_000;
+	private static final long INITIAL_WORKER_SPIN_NANOS = 10_000;
+
 	private final String name;
 	private final int threadCount;
 
@@ -25,6 +35,10 @@ public class ParallelTaskExecutor implements TaskExecutorImpl {
 	private final Deque<Runnable> taskQueue = new ConcurrentLinkedDeque<>();
 	private final ThreadGroupNotifier taskNotifier = new ThreadGroupNotifier();
 	private final WaitGroup waitGroup = new WaitGroup();
+	/**
+	 * Tracks how long idle workers wait for new tasks.
+	 */
+	private final AdaptiveSpin workerSpin = new AdaptiveSpin(MIN_WORKER_SPIN_NANOS, MAX_WORKER_SPIN_NANOS, INITIAL_WORKER_SPIN_NANOS);
 
 	public ParallelTaskExecutor(String name, int threadCount) {
 		this.name = name;
@@ -97,9 +111,12 @@ public class ParallelTaskExecutor implements TaskExecutorImpl {
 		}
 
 		waitGroup.add();
-		taskQueue.add(task);
+		taskQueue.add(PlanProfiler.wrap(task));
 
 		taskNotifier.postNotification();
+		// Let syncing threads help with the new task instead of waiting for the workers.
+		// Only costs anything while a thread is actually syncing.
+		waitGroup.signal();
 	}
 
 	@Override
@@ -160,9 +177,9 @@ public class ParallelTaskExecutor implements TaskExecutorImpl {
 			return false;
 		} else {
 			// Nothing right now, wait for the other threads to finish.
-			// If we timed-out tasks may have been added to the queue, so check again.
+			// If we timed-out or were signalled tasks may have been added to the queue, so check again.
 			// if they didn't, we're done.
-			return waitGroup.await(10_000);
+			return waitGroup.await(SYNC_TIMEOUT_NANOS);
 		}
 	}
 
@@ -198,17 +215,21 @@ public class ParallelTaskExecutor implements TaskExecutorImpl {
 
 		private void spinThenWait() {
 			var waitStart = System.nanoTime();
+			var spinNanos = workerSpin.budgetNanos();
 
-			// Spin for .01ms before waiting to reduce latency in narrow conditions.
-			while (System.nanoTime() - waitStart < 10_000) {
+			// Spin for a bit before waiting to reduce latency in narrow conditions.
+			// How long depends on how long it usually takes for new tasks to show up.
+			while (System.nanoTime() - waitStart < spinNanos) {
 				if (!taskQueue.isEmpty()) {
 					// Nice! Exit without waiting.
+					workerSpin.record(System.nanoTime() - waitStart);
 					return;
 				}
 
 				Thread.onSpinWait();
 			}
 			taskNotifier.awaitNotification();
+			workerSpin.record(System.nanoTime() - waitStart);
 		}
 	}
 }
@@ -0,0 +1,60 @@
+package dev.engine_room.flywheel.impl.task;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import dev.engine_room.flywheel.impl.FlwImpl;
+import dev.engine_room.flywheel.lib.task.PlanProfiler;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.chat.Component;
+
+/**
+ * Backs the {@code /flywheel profile} command on both platforms.
+ */
+public final class PlanProfiles {
+	private static final int SUMMARY_LENGTH = 5;
+
+	private PlanProfiles() {
+	}
+
+	public static void start(Consumer<Component> feedback, Consumer<Component> error) {
+		if (PlanProfiler.isEnabled()) {
+			error.accept(Component.translatable("command.flywheel.profile.start.running"));
+			return;
+		}
+
+		PlanProfiler.start();
+		feedback.accept(Component.translatable("command.flywheel.profile.start"));
+	}
+
+	public static void stop(Consumer<Component> feedback, Consumer<Component> error) {
+		if (!PlanProfiler.isEnabled()) {
+			error.accept(Component.translatable("command.flywheel.profile.stop.not_running"));
+			return;
+		}
+
+		PlanProfiler.Profile profile = PlanProfiler.stop();
+
+		File file = new File(new File(Minecraft.getInstance().gameDirectory, "flywheel/profiles"), "plans-" + Util.getFilenameFormattedDateTime() + ".json");
+		// mkdirs of the parent so we don't create a directory named by the leaf file we want to write
+		file.getParentFile()
+				.mkdirs();
+		try (FileWriter writer = new FileWriter(file)) {
+			ChromeTrace.write(profile, writer);
+		} catch (IOException e) {
+			FlwImpl.LOGGER.error("Could not write plan profile.", e);
+			error.accept(Component.translatable("command.flywheel.profile.stop.failed"));
+			return;
+		}
+
+		feedback.accept(Component.translatable("command.flywheel.profile.stop", profile.events()
+				.size(), file.getName()));
+
+		for (var entry : ChromeTrace.slowestLabels(profile, SUMMARY_LENGTH)) {
+			feedback.accept(Component.literal(String.format("  %.3f ms  %s", entry.getLongValue() / 1_000_000.0, entry.getKey())));
+		}
+	}
+}
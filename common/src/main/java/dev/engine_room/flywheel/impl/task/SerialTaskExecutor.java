@@ -2,6 +2,8 @@ package dev.engine_room.flywheel.impl.task;
 
 import java.util.function.BooleanSupplier;
 
+import dev.engine_room.flywheel.lib.task.PlanProfiler;
+
 public class SerialTaskExecutor implements TaskExecutorImpl {
 	public static final SerialTaskExecutor INSTANCE = new SerialTaskExecutor();
 
@@ -10,7 +12,8 @@ public class SerialTaskExecutor implements TaskExecutorImpl {
 
 	@Override
 	public void execute(Runnable runnable) {
-		runnable.run();
+		PlanProfiler.wrap(runnable)
+				.run();
 	}
 
 	@Override
@@ -1,11 +1,31 @@
 package dev.engine_room.flywheel.impl.task;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import com.google.common.base.Preconditions;
 
 public class WaitGroup {
+	private static final long MIN_SPIN_NANOS = 1_000;
+	private static final long MAX_SPIN_NANOS = 50_000;
+	private static final long INITIAL_SPIN_NANOS = 10_000;
+
 	private final AtomicInteger counter = new AtomicInteger(0);
+	/**
+	 * Incremented by {@link #signal} to tell waiters to return early.
+	 */
+	private final AtomicInteger signals = new AtomicInteger(0);
+	/**
+	 * Threads spinning or parked in {@link #await}, so {@link #signal} can skip the work when nobody is waiting.
+	 */
+	private final AtomicInteger awaiting = new AtomicInteger(0);
+	/**
+	 * Threads parked in {@link #await}, to be unparked when the counter reaches 0 or on {@link #signal}.
+	 */
+	private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+	private final AdaptiveSpin spin = new AdaptiveSpin(MIN_SPIN_NANOS, MAX_SPIN_NANOS, INITIAL_SPIN_NANOS);
 
 	public void add() {
 		add(1);
@@ -21,30 +41,110 @@ public class WaitGroup {
 	}
 
 	public void done() {
-		if (counter.decrementAndGet() < 0) {
+		int count = counter.decrementAndGet();
+
+		if (count < 0) {
 			throw new IllegalStateException("WaitGroup counter is negative!");
 		}
+
+		if (count == 0) {
+			unparkWaiters();
+		}
 	}
 
 	/**
-	 * Spins for up to the given number of nanoseconds before returning.
+	 * Wake up all threads waiting in {@link #await} without the counter reaching 0, e.g. so they can help with
+	 * newly submitted work. Does nothing if no thread is waiting.
+	 */
+	public void signal() {
+		if (awaiting.get() == 0) {
+			return;
+		}
+
+		signals.incrementAndGet();
+		unparkWaiters();
+	}
+
+	/**
+	 * Wait for the counter to reach 0.
+	 * <br>
+	 * Spins for a while first, for about as long as recent waits took, then parks until the last call to
+	 * {@link #done}, a call to {@link #signal}, or the timeout.
 	 *
 	 * @param nsTimeout How long to wait for the counter to reach 0.
-	 * @return {@code true} if the counter reached 0, {@code false} if the timeout was reached.
+	 * @return {@code true} if the counter reached 0, {@code false} if the timeout was reached or we were signalled.
 	 */
-	public boolean await(int nsTimeout) {
+	public boolean await(long nsTimeout) {
+		if (counter.get() == 0) {
+			return true;
+		}
+
+		awaiting.incrementAndGet();
+
+		try {
+			return awaitSlow(nsTimeout);
+		} finally {
+			awaiting.decrementAndGet();
+		}
+	}
+
+	private boolean awaitSlow(long nsTimeout) {
 		long startTime = System.nanoTime();
-		while (counter.get() > 0) {
-			if (System.nanoTime() - startTime > nsTimeout) {
+		int startSignals = signals.get();
+
+		long spinNanos = Math.min(spin.budgetNanos(), nsTimeout);
+		while (System.nanoTime() - startTime < spinNanos) {
+			if (counter.get() == 0) {
+				spin.record(System.nanoTime() - startTime);
+				return true;
+			}
+
+			if (signals.get() != startSignals) {
 				return false;
 			}
+
 			// spin in place to avoid sleeping the main thread
 			Thread.onSpinWait();
 		}
+
+		Thread thread = Thread.currentThread();
+		waiters.add(thread);
+
+		try {
+			// Registering before checking the counter means either we see it reach 0 here,
+			// or the thread that brings it to 0 sees us in the queue and unparks us. Same for signals.
+			while (counter.get() > 0) {
+				long remaining = nsTimeout - (System.nanoTime() - startTime);
+
+				if (remaining <= 0 || signals.get() != startSignals) {
+					return false;
+				}
+
+				LockSupport.parkNanos(this, remaining);
+			}
+		} finally {
+			waiters.remove(thread);
+		}
+
+		spin.record(System.nanoTime() - startTime);
 		return true;
 	}
 
+	/**
+	 * @return How long to spin for before parking in {@link #await}, in nanoseconds.
+	 */
+	public long spinBudgetNanos() {
+		return spin.budgetNanos();
+	}
+
+	private void unparkWaiters() {
+		for (Thread waiter : waiters) {
+			LockSupport.unpark(waiter);
+		}
+	}
+
 	public void _reset() {
 		counter.set(0);
+		unparkWaiters();
 	}
 }
@@ -5,6 +5,7 @@ import net.minecraft.util.Mth;
 public class BandedPrimeLimiter implements DistanceUpdateLimiterImpl {
 	// 1 followed by the prime numbers
 	private static final int[] DIVISOR_SEQUENCE = new int[]{1, 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31};
+	public static final int BAND_COUNT = DIVISOR_SEQUENCE.length;
 
 	private int tickCount = 0;
 
@@ -19,10 +20,19 @@ public class BandedPrimeLimiter implements DistanceUpdateLimiterImpl {
 	}
 
 	protected int getUpdateDivisor(double distanceSquared) {
+		return DIVISOR_SEQUENCE[distanceBand(distanceSquared)];
+	}
+
+	/**
+	 * Sort distances into the bands that get updated at the same rate.
+	 *
+	 * @return The band, from 0 for the closest to {@link #BAND_COUNT} - 1 for the farthest.
+	 */
+	public static int distanceBand(double distanceSquared) {
 		int dSq = Mth.ceil(distanceSquared);
 
 		int i = (dSq / 2048);
 
-		return DIVISOR_SEQUENCE[Mth.clamp(i, 0, DIVISOR_SEQUENCE.length - 1)];
+		return Mth.clamp(i, 0, BAND_COUNT - 1);
 	}
 }
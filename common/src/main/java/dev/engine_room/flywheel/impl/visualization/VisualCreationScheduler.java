@@ -0,0 +1,140 @@
+package dev.engine_room.flywheel.impl.visualization;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.FrustumIntersection;
+
+import dev.engine_room.flywheel.impl.visual.BandedPrimeLimiter;
+import dev.engine_room.flywheel.impl.visualization.storage.Storage;
+import dev.engine_room.flywheel.lib.task.TypeCostModel;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Decides which visuals to create when there are too many to create in one frame.
+ * <br>
+ * Visuals are created nearest first, by the same distance bands {@link BandedPrimeLimiter} updates them in, and
+ * objects in view go before objects a few bands closer that aren't. As many are picked as are estimated to fit in
+ * the time budget, based on how long visuals of the same class took to create before.
+ * <br>
+ * A budget of 0 still creates one visual per frame, so the backlog always drains. A negative budget creates every
+ * visual right away.
+ */
+final class VisualCreationScheduler<T> {
+	/**
+	 * Visual constructors often build models and instancers, so assume they're expensive until measured.
+	 */
+	private static final long DEFAULT_CREATION_NANOS = 50_000;
+	/**
+	 * How many bands further away an object in view may be and still go before an object that isn't.
+	 */
+	private static final int OUT_OF_VIEW_BANDS = 4;
+
+	private final Storage<T> storage;
+	private final TypeCostModel<T> costs = new TypeCostModel<>(DEFAULT_CREATION_NANOS);
+	private final long budgetNanos;
+
+	@Nullable
+	private volatile Viewpoint viewpoint;
+
+	VisualCreationScheduler(Storage<T> storage, double budgetMillis) {
+		this.storage = storage;
+		budgetNanos = budgetMillis < 0 ? Long.MAX_VALUE : Math.max((long) (budgetMillis * 1_000_000), 1);
+	}
+
+	TypeCostModel<T> costs() {
+		return costs;
+	}
+
+	/**
+	 * @param camera  The position of the camera.
+	 * @param frustum The view frustum, relative to the camera.
+	 */
+	void viewpoint(Vec3 camera, FrustumIntersection frustum) {
+		viewpoint = new Viewpoint(camera, frustum);
+	}
+
+	/**
+	 * Pick the objects to create visuals for this frame.
+	 *
+	 * @param candidates  The objects waiting for a visual, in the order they were queued.
+	 * @param threadCount The number of threads creating visuals in parallel.
+	 * @return The objects to create visuals for, a prefix of the candidates by priority. Never empty unless there
+	 * are no candidates, so that creation always makes progress.
+	 */
+	List<T> select(List<T> candidates, int threadCount) {
+		long budget = budgetNanos == Long.MAX_VALUE ? Long.MAX_VALUE : budgetNanos * Math.max(threadCount, 1);
+		long total = 0;
+
+		for (T candidate : candidates) {
+			total += costs.estimateNanos(candidate);
+
+			if (total > budget) {
+				break;
+			}
+		}
+
+		if (total <= budget) {
+			return candidates;
+		}
+
+		Viewpoint viewpoint = this.viewpoint;
+		List<Candidate<T>> prioritized = new ArrayList<>(candidates.size());
+
+		for (T candidate : candidates) {
+			prioritized.add(prioritize(candidate, viewpoint));
+		}
+
+		prioritized.sort(Comparator.<Candidate<T>>comparingInt(Candidate::priority)
+				.thenComparingDouble(Candidate::distanceSquared));
+
+		List<T> out = new ArrayList<>();
+		total = 0;
+
+		for (Candidate<T> candidate : prioritized) {
+			total += costs.estimateNanos(candidate.obj);
+
+			if (total > budget && !out.isEmpty()) {
+				break;
+			}
+
+			out.add(candidate.obj);
+		}
+
+		return out;
+	}
+
+	private Candidate<T> prioritize(T obj, @Nullable Viewpoint viewpoint) {
+		if (viewpoint == null) {
+			return new Candidate<>(obj, 0, 0);
+		}
+
+		AABB bounds = storage.bounds(obj);
+
+		if (bounds == null) {
+			return new Candidate<>(obj, 0, 0);
+		}
+
+		Vec3 camera = viewpoint.camera;
+		double distanceSquared = bounds.getCenter()
+				.distanceToSqr(camera);
+		int priority = BandedPrimeLimiter.distanceBand(distanceSquared);
+
+		boolean inView = viewpoint.frustum.testAab((float) (bounds.minX - camera.x), (float) (bounds.minY - camera.y), (float) (bounds.minZ - camera.z), (float) (bounds.maxX - camera.x), (float) (bounds.maxY - camera.y), (float) (bounds.maxZ - camera.z));
+
+		if (!inView) {
+			priority += OUT_OF_VIEW_BANDS;
+		}
+
+		return new Candidate<>(obj, priority, distanceSquared);
+	}
+
+	private record Viewpoint(Vec3 camera, FrustumIntersection frustum) {
+	}
+
+	private record Candidate<T>(T obj, int priority, double distanceSquared) {
+	}
+}
@@ -1,24 +1,81 @@
 package dev.engine_room.flywheel.impl.visualization;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.jetbrains.annotations.Nullable;
+import org.joml.FrustumIntersection;
+
 import dev.engine_room.flywheel.api.task.Plan;
+import dev.engine_room.flywheel.api.task.TaskExecutor;
 import dev.engine_room.flywheel.api.visual.DynamicVisual;
 import dev.engine_room.flywheel.api.visual.TickableVisual;
+import dev.engine_room.flywheel.api.visual.Visual;
 import dev.engine_room.flywheel.api.visualization.VisualManager;
+import dev.engine_room.flywheel.impl.FlwConfig;
+import dev.engine_room.flywheel.impl.visualization.storage.Action;
+import dev.engine_room.flywheel.impl.visualization.storage.SectionRefCounts;
 import dev.engine_room.flywheel.impl.visualization.storage.Storage;
 import dev.engine_room.flywheel.impl.visualization.storage.Transaction;
-import dev.engine_room.flywheel.lib.task.SimplePlan;
-import it.unimi.dsi.fastutil.longs.LongSet;
+import dev.engine_room.flywheel.lib.task.CostModel;
+import dev.engine_room.flywheel.lib.task.Distribute;
+import dev.engine_room.flywheel.lib.task.MapContextPlan;
+import dev.engine_room.flywheel.lib.task.SimplyComposedPlan;
+import dev.engine_room.flywheel.lib.task.functional.SupplierWithContext;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import net.minecraft.world.phys.Vec3;
 
 public class VisualManagerImpl<T, S extends Storage<T>> implements VisualManager<T> {
 	private final Queue<Transaction<T>> queue = new ConcurrentLinkedQueue<>();
+	/**
+	 * Queued transactions coalesced by object, in the order the objects were first queued.
+	 * Adds stay here across frames while the creation budget is used up.
+	 */
+	private final Reference2ObjectLinkedOpenHashMap<T, PendingTransaction> pending = new Reference2ObjectLinkedOpenHashMap<>();
+	/**
+	 * Objects queued to be added that don't have a visual yet. Read from the render thread to decide whether
+	 * vanilla should render them in the meantime.
+	 */
+	private final Set<T> awaitingVisual = ConcurrentHashMap.newKeySet();
+	/**
+	 * Objects vanilla was told to render because they were waiting for a visual, until the visual is inserted.
+	 */
+	private final Set<T> vanillaFallback = ConcurrentHashMap.newKeySet();
+	/**
+	 * Objects that fell back to vanilla and have a visual now, but that vanilla still has in a compiled list until
+	 * {@link #vanillaRecompiled}. See {@link #skipVanillaRender}.
+	 */
+	private final Set<T> staleVanilla = ConcurrentHashMap.newKeySet();
+	/**
+	 * Whether the last time the queue was processed, some visuals were left for later.
+	 */
+	private volatile boolean backlogged;
 
 	private final S storage;
+	private final VisualCreationScheduler<T> scheduler;
+	private final CostModel<Creation<T>> creationCosts;
+	private final Plan<Float> queuePlan = new QueuePlan();
 
 	public VisualManagerImpl(S storage) {
 		this.storage = storage;
+		scheduler = new VisualCreationScheduler<>(storage, FlwConfig.INSTANCE.visualCreationBudget());
+
+		var costs = scheduler.costs();
+		creationCosts = new CostModel<>() {
+			@Override
+			public long estimateNanos(Creation<T> creation) {
+				return costs.estimateNanos(creation.obj);
+			}
+
+			@Override
+			public void record(Creation<T> creation, long tookNanos) {
+				costs.record(creation.obj, tookNanos);
+			}
+		};
 	}
 
 	public S getStorage() {
@@ -37,11 +94,15 @@ public class VisualManagerImpl<T, S extends Storage<T>> implements VisualManager
 			return;
 		}
 
+		awaitingVisual.add(obj);
 		queue.add(Transaction.add(obj));
 	}
 
 	@Override
 	public void queueRemove(T obj) {
+		awaitingVisual.remove(obj);
+		vanillaFallback.remove(obj);
+		staleVanilla.remove(obj);
 		queue.add(Transaction.remove(obj));
 	}
 
@@ -54,40 +115,239 @@ public class VisualManagerImpl<T, S extends Storage<T>> implements VisualManager
 		queue.add(Transaction.update(obj));
 	}
 
-	public void processQueue(float partialTick) {
-		var storage = getStorage();
-		Transaction<T> transaction;
-		while ((transaction = queue.poll()) != null) {
-			transaction.apply(storage, partialTick);
-		}
+	/**
+	 * Apply queued transactions.
+	 * <br>
+	 * Transactions for the same object are coalesced, and new visuals are created in parallel and then added to
+	 * storage one by one. Only as many visuals as fit in {@link FlwConfig#visualCreationBudget} are created per
+	 * call, nearest first, the rest are left for the next.
+	 *
+	 * @param partialTick The partial tick to create and update visuals with.
+	 */
+	public <C> Plan<C> processQueuePlan(SupplierWithContext<C, Float> partialTick) {
+		return MapContextPlan.map(partialTick)
+				.to(queuePlan);
 	}
 
 	public Plan<DynamicVisual.Context> framePlan() {
-		return SimplePlan.<DynamicVisual.Context>of(context -> processQueue(context.partialTick()))
+		return this.<DynamicVisual.Context>processQueuePlan(DynamicVisual.Context::partialTick)
 				.then(storage.framePlan());
 	}
 
 	public Plan<TickableVisual.Context> tickPlan() {
-		return SimplePlan.<TickableVisual.Context>of(context -> processQueue(1))
+		return this.<TickableVisual.Context>processQueuePlan(context -> 1f)
 				.then(storage.tickPlan());
 	}
 
+	private void drainQueue() {
+		Transaction<T> transaction;
+		while ((transaction = queue.poll()) != null) {
+			pending.computeIfAbsent(transaction.obj(), $ -> new PendingTransaction())
+					.coalesce(transaction.action());
+		}
+	}
+
+	/**
+	 * Apply all pending removals and updates, and pick the objects to create visuals for.
+	 */
+	private List<Creation<T>> applyPending(float partialTick, int threadCount) {
+		drainQueue();
+
+		List<T> candidates = new ArrayList<>();
+
+		var iterator = pending.reference2ObjectEntrySet()
+				.fastIterator();
+
+		while (iterator.hasNext()) {
+			var entry = iterator.next();
+			T obj = entry.getKey();
+			PendingTransaction transaction = entry.getValue();
+
+			if (transaction.remove) {
+				storage.remove(obj);
+				transaction.remove = false;
+			}
+
+			if (transaction.add && !storage.contains(obj)) {
+				// Keep it pending until it's picked below.
+				candidates.add(obj);
+				continue;
+			}
+
+			if (transaction.add) {
+				// Queued again while it already had a visual, e.g. when its section was compiled again.
+				endVanillaFallback(obj, true);
+			}
+
+			if (transaction.update) {
+				storage.update(obj, partialTick);
+			}
+
+			awaitingVisual.remove(obj);
+			iterator.remove();
+		}
+
+		List<T> selected = scheduler.select(candidates, threadCount);
+		backlogged = selected.size() < candidates.size();
+
+		List<Creation<T>> creations = new ArrayList<>(selected.size());
+		for (T obj : selected) {
+			// The new visual is created from the current state, so no need to update it.
+			pending.remove(obj);
+			creations.add(new Creation<>(obj));
+		}
+
+		return creations;
+	}
+
+	private void insertCreated(List<Creation<T>> creations, float partialTick) {
+		for (Creation<T> creation : creations) {
+			if (creation.visual != null) {
+				storage.insert(creation.obj, creation.visual, partialTick);
+			}
+
+			endVanillaFallback(creation.obj, creation.visual != null);
+			awaitingVisual.remove(creation.obj);
+		}
+	}
+
+	/**
+	 * Set where the camera is, to create the visuals nearest to it first.
+	 * Must not be called while the queue is being processed.
+	 *
+	 * @param camera  The position of the camera.
+	 * @param frustum The view frustum, relative to the camera.
+	 */
+	public void viewpoint(Vec3 camera, FrustumIntersection frustum) {
+		scheduler.viewpoint(camera, frustum);
+	}
+
+	/**
+	 * @return {@code true} if visuals were left to be created later the last time the queue was processed.
+	 */
+	public boolean isBacklogged() {
+		return backlogged;
+	}
+
+	/**
+	 * Safe to call from any thread.
+	 *
+	 * @return {@code true} if the object was queued to be added but doesn't have a visual yet.
+	 */
+	public boolean isAwaitingVisual(T obj) {
+		return awaitingVisual.contains(obj);
+	}
+
+	/**
+	 * Have vanilla render an object until its visual is created, when the visual would otherwise take a while.
+	 * Safe to call from any thread.
+	 *
+	 * @return {@code true} if vanilla should render the object for now.
+	 */
+	public boolean fallBackToVanilla(T obj) {
+		if (!backlogged || !awaitingVisual.contains(obj)) {
+			return false;
+		}
+
+		vanillaFallback.add(obj);
+		return true;
+	}
+
+	/**
+	 * For objects {@link #fallBackToVanilla rendered by vanilla} while waiting for a visual, decide whether vanilla
+	 * should still render them. Safe to call from any thread.
+	 *
+	 * @return {@code true} if the object has fallen back to vanilla rendering and now has a visual.
+	 */
+	public boolean skipVanillaRender(T obj) {
+		return !staleVanilla.isEmpty() && staleVanilla.contains(obj);
+	}
+
+	/**
+	 * Vanilla compiled the list the object is in again, and decides afresh whether to render it.
+	 * Safe to call from any thread.
+	 */
+	public void vanillaRecompiled(T obj) {
+		staleVanilla.remove(obj);
+	}
+
+	private void endVanillaFallback(T obj, boolean hasVisual) {
+		if (vanillaFallback.remove(obj) && hasVisual) {
+			// Vanilla keeps it in its list until that's compiled again, so skip it until then.
+			staleVanilla.add(obj);
+		}
+	}
+
 	public void onLightUpdate(long section) {
 		getStorage().lightUpdatedVisuals()
 				.onLightUpdate(section);
 	}
 
-	public boolean areGpuLightSectionsDirty() {
-		return getStorage().shaderLightVisuals()
-				.isDirty();
-	}
-
-	public LongSet gpuLightSections() {
-		return getStorage().shaderLightVisuals()
-				.sections();
+	public void drainGpuLightSectionChangesInto(SectionRefCounts out) {
+		getStorage().shaderLightVisuals()
+				.drainChangesInto(out);
 	}
 
 	public void invalidate() {
+		pending.clear();
+		awaitingVisual.clear();
+		vanillaFallback.clear();
+		staleVanilla.clear();
 		getStorage().invalidate();
 	}
+
+	private final class QueuePlan implements SimplyComposedPlan<Float> {
+		@Override
+		public void execute(TaskExecutor taskExecutor, Float partialTick, Runnable onCompletion) {
+			List<Creation<T>> creations = applyPending(partialTick, taskExecutor.threadCount());
+
+			if (creations.isEmpty()) {
+				onCompletion.run();
+				return;
+			}
+
+			// Creating visuals is safe to do in parallel, but adding them to storage is not.
+			Distribute.tasks(taskExecutor, partialTick, () -> {
+				insertCreated(creations, partialTick);
+				onCompletion.run();
+			}, creations, (creation, pt) -> creation.visual = storage.createVisual(creation.obj, pt), creationCosts);
+		}
+	}
+
+	/**
+	 * The net effect of the transactions queued for one object.
+	 */
+	private static final class PendingTransaction {
+		/**
+		 * Remove the object's existing visual first.
+		 */
+		private boolean remove;
+		/**
+		 * Make sure the object has a visual.
+		 */
+		private boolean add;
+		private boolean update;
+
+		private void coalesce(Action action) {
+			switch (action) {
+			case ADD -> add = true;
+			case REMOVE -> {
+				remove = true;
+				add = false;
+				update = false;
+			}
+			case UPDATE -> update = true;
+			}
+		}
+	}
+
+	private static final class Creation<T> {
+		private final T obj;
+		@Nullable
+		private Visual visual;
+
+		private Creation(T obj) {
+			this.obj = obj;
+		}
+	}
 }
@@ -35,13 +35,16 @@ import dev.engine_room.flywheel.impl.visual.TickableVisualContextImpl;
 import dev.engine_room.flywheel.impl.visualization.storage.BlockEntityStorage;
 import dev.engine_room.flywheel.impl.visualization.storage.EffectStorage;
 import dev.engine_room.flywheel.impl.visualization.storage.EntityStorage;
+import dev.engine_room.flywheel.impl.visualization.storage.SectionRefCounts;
 import dev.engine_room.flywheel.lib.task.IfElsePlan;
 import dev.engine_room.flywheel.lib.task.MapContextPlan;
+import dev.engine_room.flywheel.lib.task.NamedPlan;
 import dev.engine_room.flywheel.lib.task.NestedPlan;
+import dev.engine_room.flywheel.lib.task.PlanProfiler;
 import dev.engine_room.flywheel.lib.task.SimplePlan;
 import dev.engine_room.flywheel.lib.util.LevelAttached;
+import dev.engine_room.flywheel.lib.visualization.VisualizationHelper;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.client.Minecraft;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.SectionPos;
@@ -52,6 +55,7 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.level.LevelAccessor;
 import net.minecraft.world.level.LightLayer;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.phys.Vec3;
 
 /**
  * A manager class for a single level where visualization is supported.
@@ -67,13 +71,25 @@ public class VisualizationManagerImpl implements VisualizationManager {
 	private final VisualManagerImpl<BlockEntity, BlockEntityStorage> blockEntities;
 	private final VisualManagerImpl<Entity, EntityStorage> entities;
 	private final VisualManagerImpl<Effect, EffectStorage> effects;
+	// The sections any of the visual managers want GPU light for, counted once per manager.
+	private final SectionRefCounts gpuLightSections = new SectionRefCounts();
 
 	private final Flag frameFlag = new Flag("frame");
 	private final Flag tickFlag = new Flag("tick");
+	private final Flag stageFlag = new Flag("stage");
 
 	private final Plan<RenderContext> framePlan;
 	private final Plan<TickableVisual.Context> tickPlan;
 
+	/**
+	 * Whether visual updates for a frame run alongside the upload and draw of the previous frame's state.
+	 * See {@link #beginPipelinedFrame}.
+	 */
+	private final boolean pipelined;
+	private final Plan<RenderContext> pipelinedRecreatePlan;
+	private final Plan<RenderContext> pipelinedUpdatePlan;
+	private final Plan<RenderContext> stagePlan;
+
 	private boolean canEngineRender;
 
 	private VisualizationManagerImpl(LevelAccessor level) {
@@ -90,30 +106,48 @@ public class VisualizationManagerImpl implements VisualizationManager {
 		entities = new VisualManagerImpl<>(entitiesStorage);
 		effects = new VisualManagerImpl<>(effectsStorage);
 
-		var recreate = SimplePlan.<RenderContext>of(context -> blockEntitiesStorage.recreateAll(context.partialTick()),
+		var recreate = NamedPlan.of("recreate", SimplePlan.<RenderContext>of(context -> blockEntitiesStorage.recreateAll(context.partialTick()),
 				context -> entitiesStorage.recreateAll(context.partialTick()),
-				context -> effectsStorage.recreateAll(context.partialTick()));
+				context -> effectsStorage.recreateAll(context.partialTick())));
+
+		var update = NamedPlan.of("update", MapContextPlan.map(this::createVisualFrameContext)
+				.to(NestedPlan.of(NamedPlan.of("blockEntities", blockEntities.framePlan()), NamedPlan.of("entities", entities.framePlan()), NamedPlan.of("effects", effects.framePlan()))));
 
-		var update = MapContextPlan.map(this::createVisualFrameContext)
-				.to(NestedPlan.of(blockEntities.framePlan(), entities.framePlan(), effects.framePlan()));
+		var lightSections = NamedPlan.of("lightSections", SimplePlan.<RenderContext>of(() -> {
+			blockEntities.drainGpuLightSectionChangesInto(gpuLightSections);
+			entities.drainGpuLightSectionChangesInto(gpuLightSections);
+			effects.drainGpuLightSectionChangesInto(gpuLightSections);
 
-		framePlan = IfElsePlan.on((RenderContext ctx) -> engine.updateRenderOrigin(ctx.camera()))
+			if (gpuLightSections.hasChanges()) {
+				engine.lightSections(gpuLightSections.sections(), gpuLightSections.added(), gpuLightSections.removed());
+				gpuLightSections.clearChanges();
+			}
+		}));
+		var engineFramePlan = NamedPlan.of("engine", engine.createFramePlan());
+
+		framePlan = NamedPlan.of("frame", IfElsePlan.on((RenderContext ctx) -> engine.updateRenderOrigin(ctx.camera()))
 				.ifTrue(recreate)
 				.ifFalse(update)
 				.plan()
-				.then(SimplePlan.of(() -> {
-					if (blockEntities.areGpuLightSectionsDirty() || entities.areGpuLightSectionsDirty() || effects.areGpuLightSectionsDirty()) {
-						var out = new LongOpenHashSet();
-						out.addAll(blockEntities.gpuLightSections());
-						out.addAll(entities.gpuLightSections());
-						out.addAll(effects.gpuLightSections());
-						engine.lightSections(out);
-					}
-				}))
-				.then(engine.createFramePlan())
+				.then(lightSections)
+				.then(engineFramePlan))
 				.then(RaisePlan.raise(frameFlag));
 
-		tickPlan = NestedPlan.of(blockEntities.tickPlan(), entities.tickPlan(), effects.tickPlan())
+		pipelined = FlwConfig.INSTANCE.pipelineFrames() && engine.supportsFramePipelining();
+		pipelinedRecreatePlan = recreate.then(RaisePlan.raise(frameFlag));
+		// Queued transactions add and remove visuals from storage, which the render thread reads while rendering
+		// crumbling. Apply them before staging instead of alongside the render thread.
+		pipelinedUpdatePlan = NamedPlan.of("update", MapContextPlan.map(this::createVisualFrameContext)
+				.to(NestedPlan.of(NamedPlan.of("blockEntities", blockEntitiesStorage.framePlan()), NamedPlan.of("entities", entitiesStorage.framePlan()), NamedPlan.of("effects", effectsStorage.framePlan()))))
+				.then(RaisePlan.raise(frameFlag));
+		stagePlan = NamedPlan.of("stage", NamedPlan.of("processQueue", NestedPlan.of(blockEntities.<RenderContext>processQueuePlan(RenderContext::partialTick),
+						entities.<RenderContext>processQueuePlan(RenderContext::partialTick),
+						effects.<RenderContext>processQueuePlan(RenderContext::partialTick)))
+				.then(lightSections)
+				.then(engineFramePlan))
+				.then(RaisePlan.raise(stageFlag));
+
+		tickPlan = NamedPlan.of("tick", NestedPlan.of(NamedPlan.of("blockEntities", blockEntities.tickPlan()), NamedPlan.of("entities", entities.tickPlan()), NamedPlan.of("effects", effects.tickPlan())))
 				.then(RaisePlan.raise(tickFlag));
 
 		if (level instanceof Level l) {
@@ -238,6 +272,20 @@ public class VisualizationManagerImpl implements VisualizationManager {
 		// Note we don't lower here because many frames may happen per tick.
 		taskExecutor.syncUntil(tickFlag::isRaised);
 
+		PlanProfiler.markFrame();
+
+		Vec3 cameraPos = context.camera()
+				.getPosition();
+		FrustumIntersection frustum = new FrustumIntersection(context.viewProjection());
+		blockEntities.viewpoint(cameraPos, frustum);
+		entities.viewpoint(cameraPos, frustum);
+		effects.viewpoint(cameraPos, frustum);
+
+		if (pipelined) {
+			beginPipelinedFrame(context);
+			return;
+		}
+
 		frameFlag.lower();
 
 		frameLimiter.tick();
@@ -246,8 +294,42 @@ public class VisualizationManagerImpl implements VisualizationManager {
 		framePlan.execute(taskExecutor, context);
 	}
 
-	private void ensureCanRender(RenderContext context) {
+	/**
+	 * Stage the results of the previous frame's visual updates, then begin updating visuals for this frame while
+	 * the staged state is uploaded and drawn.
+	 * <br>
+	 * Visuals are drawn with the state they were updated to in the previous frame, trading one frame of latency for
+	 * hiding the cost of visual updates behind the render thread's work.
+	 */
+	private void beginPipelinedFrame(RenderContext context) {
+		// Join the visual updates of the previous frame.
 		taskExecutor.syncUntil(frameFlag::isRaised);
+
+		frameLimiter.tick();
+		canEngineRender = false;
+
+		if (engine.updateRenderOrigin(context.camera())) {
+			// Stale instances would be drawn relative to the new origin, so recreate everything before staging.
+			frameFlag.lower();
+			pipelinedRecreatePlan.execute(taskExecutor, context);
+			taskExecutor.syncUntil(frameFlag::isRaised);
+		}
+
+		stageFlag.lower();
+		stagePlan.execute(taskExecutor, context);
+		taskExecutor.syncUntil(stageFlag::isRaised);
+
+		engine.stageFrame();
+
+		frameFlag.lower();
+		pipelinedUpdatePlan.execute(taskExecutor, context);
+	}
+
+	private void ensureCanRender(RenderContext context) {
+		if (!pipelined) {
+			taskExecutor.syncUntil(frameFlag::isRaised);
+		}
+
 		if (!canEngineRender) {
 			engine.setupRender(context);
 			canEngineRender = true;
@@ -309,6 +391,45 @@ public class VisualizationManagerImpl implements VisualizationManager {
 		}
 	}
 
+	/**
+	 * Queue a block entity found while compiling a chunk section, by vanilla or by Sodium. Called from chunk
+	 * compilation threads.
+	 *
+	 * @return {@code true} if vanilla should not render the block entity.
+	 */
+	public boolean tryAddBlockEntity(BlockEntity blockEntity) {
+		var visualizer = VisualizationHelper.getVisualizer(blockEntity);
+		if (visualizer == null) {
+			return false;
+		}
+
+		blockEntities.vanillaRecompiled(blockEntity);
+		blockEntities.queueAdd(blockEntity);
+
+		if (!visualizer.skipVanillaRender(blockEntity)) {
+			return false;
+		}
+
+		// Vanilla only checks this when the section is compiled, so if the visual may take a few frames,
+		// let vanilla render the block entity until it's there.
+		return !blockEntities.fallBackToVanilla(blockEntity);
+	}
+
+	/**
+	 * @return {@code true} if the block entity was left to vanilla by {@link #tryAddBlockEntity} and has a visual
+	 * by now.
+	 */
+	public boolean skipVanillaRender(BlockEntity blockEntity) {
+		return blockEntities.skipVanillaRender(blockEntity);
+	}
+
+	/**
+	 * @return {@code true} if vanilla should render the entity because it's still waiting for its visual.
+	 */
+	public boolean isAwaitingVisual(Entity entity) {
+		return entities.isAwaitingVisual(entity);
+	}
+
 	public void onLightUpdate(SectionPos sectionPos, LightLayer layer) {
 		engine.onLightUpdate(sectionPos, layer);
 		long longPos = sectionPos.asLong();
@@ -3,6 +3,7 @@ package dev.engine_room.flywheel.impl.visualization.storage;
 import org.jetbrains.annotations.Nullable;
 
 import dev.engine_room.flywheel.api.visual.BlockEntityVisual;
+import dev.engine_room.flywheel.api.visual.Visual;
 import dev.engine_room.flywheel.api.visualization.VisualizationContext;
 import dev.engine_room.flywheel.lib.visualization.VisualizationHelper;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
@@ -11,6 +12,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.phys.AABB;
 
 public class BlockEntityStorage extends Storage<BlockEntity> {
 	private final Long2ObjectMap<BlockEntityVisual<?>> posLookup = new Long2ObjectOpenHashMap<>();
@@ -56,12 +58,18 @@ public class BlockEntityStorage extends Storage<BlockEntity> {
 			return null;
 		}
 
-		var visual = visualizer.createVisual(visualizationContext, obj, partialTick);
+		return visualizer.createVisual(visualizationContext, obj, partialTick);
+	}
 
-		BlockPos blockPos = obj.getBlockPos();
-		posLookup.put(blockPos.asLong(), visual);
+	@Override
+	public AABB bounds(BlockEntity obj) {
+		return new AABB(obj.getBlockPos());
+	}
 
-		return visual;
+	@Override
+	protected void onInserted(BlockEntity obj, Visual visual) {
+		BlockPos blockPos = obj.getBlockPos();
+		posLookup.put(blockPos.asLong(), (BlockEntityVisual<?>) visual);
 	}
 
 	@Override
@@ -5,6 +5,7 @@ import dev.engine_room.flywheel.api.visualization.VisualizationContext;
 import dev.engine_room.flywheel.lib.visualization.VisualizationHelper;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
 
 public class EntityStorage extends Storage<Entity> {
 	public EntityStorage(VisualizationContext visualizationContext) {
@@ -21,6 +22,11 @@ public class EntityStorage extends Storage<Entity> {
 		return visualizer.createVisual(visualizationContext, obj, partialTick);
 	}
 
+	@Override
+	public AABB bounds(Entity obj) {
+		return obj.getBoundingBox();
+	}
+
 	@Override
 	public boolean willAccept(Entity entity) {
 		if (!entity.isAlive()) {
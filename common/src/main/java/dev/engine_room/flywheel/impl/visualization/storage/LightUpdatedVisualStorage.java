@@ -1,9 +1,6 @@
 package dev.engine_room.flywheel.impl.visualization.storage;
 
-import java.util.List;
-import java.util.Map;
 import java.util.Queue;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -14,21 +11,28 @@ import dev.engine_room.flywheel.api.visual.LightUpdatedVisual;
 import dev.engine_room.flywheel.lib.task.Distribute;
 import dev.engine_room.flywheel.lib.task.SimplyComposedPlan;
 import dev.engine_room.flywheel.lib.task.Synchronizer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 
 /**
  * Keeps track of what chunks/sections each listener is in, so we can update exactly what needs to be updated.
+ * <br>
+ * Each visual's entry remembers where it sits in the list of every section it's in, and lists are kept dense by
+ * moving their last entry into the hole left by a removal. Adding, moving and removing a visual only touches the
+ * sections it's in, no matter how many other visuals share them.
  */
 public class LightUpdatedVisualStorage {
 	private static final long NEVER_UPDATED = Long.MIN_VALUE;
 	private static final long INITIAL_UPDATE_ID = NEVER_UPDATED + 1;
 
-	private final Map<LightUpdatedVisual, LongSet> visual2Sections = new WeakHashMap<>();
-	private final Long2ObjectMap<List<Updater>> section2Updaters = new Long2ObjectOpenHashMap<>();
+	private final Reference2ObjectMap<LightUpdatedVisual, Entry> visual2Entry = new Reference2ObjectOpenHashMap<>();
+	private final Long2ObjectMap<SectionEntries> section2Entries = new Long2ObjectOpenHashMap<>();
 
 	private final LongSet sectionsUpdatedThisFrame = new LongOpenHashSet();
 	private final Queue<MovedVisual> movedVisuals = new ConcurrentLinkedQueue<>();
@@ -53,9 +57,9 @@ public class LightUpdatedVisualStorage {
 			Updater.Context updaterContext = new Updater.Context(updateId, context.partialTick());
 
 			for (long section : sectionsUpdatedThisFrame) {
-				var updaters = section2Updaters.get(section);
-				if (updaters != null && !updaters.isEmpty()) {
-					taskExecutor.execute(() -> Distribute.tasks(taskExecutor, updaterContext, sync, updaters, Updater::updateLight));
+				var entries = section2Entries.get(section);
+				if (entries != null) {
+					taskExecutor.execute(() -> Distribute.tasks(taskExecutor, updaterContext, sync, entries.entries, Entry::updateLight));
 				} else {
 					sync.decrementAndEventuallyRun();
 				}
@@ -93,21 +97,14 @@ public class LightUpdatedVisualStorage {
 	}
 
 	private void addInner(LightUpdatedVisual visual, SectionTracker tracker) {
-		if (tracker.sections().isEmpty()) {
-			// Add the visual to the map even if sections is empty, this way we can distinguish from deleted visuals
-			visual2Sections.put(visual, LongSet.of());
-
-			// Don't bother creating an updater if the visual isn't in any sections.
-			return;
-		}
-
 		var sections = tracker.sections();
-		visual2Sections.put(visual, sections);
-		var updater = createUpdater(visual, sections.size());
+		// Add the visual to the map even if sections is empty, this way we can distinguish from deleted visuals
+		var entry = new Entry(createUpdater(visual, sections.size()), sections.toLongArray());
+		visual2Entry.put(visual, entry);
 
-		for (long section : sections) {
-			section2Updaters.computeIfAbsent(section, $ -> new ObjectArrayList<>())
-					.add(updater);
+		for (int i = 0; i < entry.sections.length; i++) {
+			section2Entries.computeIfAbsent(entry.sections[i], $ -> new SectionEntries())
+					.add(entry, i);
 		}
 	}
 
@@ -118,45 +115,46 @@ public class LightUpdatedVisualStorage {
 	 * @return {@code true} if the visual was removed, {@code false} otherwise.
 	 */
 	public boolean remove(LightUpdatedVisual visual) {
-		var sections = visual2Sections.remove(visual);
+		var entry = visual2Entry.remove(visual);
 
-		if (sections == null) {
+		if (entry == null) {
 			return false;
 		}
 
-		for (long section : sections) {
-			List<Updater> updaters = section2Updaters.get(section);
-			if (updaters != null) {
-				updaters.remove(indexOfUpdater(updaters, visual));
+		for (int i = 0; i < entry.sections.length; i++) {
+			long section = entry.sections[i];
+			var entries = section2Entries.get(section);
+			entries.remove(entry.slots[i]);
+
+			if (entries.isEmpty()) {
+				section2Entries.remove(section);
 			}
 		}
 
 		return true;
 	}
 
+	/**
+	 * @return How many entries an update to the given section visits.
+	 */
+	int entryCount(long section) {
+		var entries = section2Entries.get(section);
+		return entries == null ? 0 : entries.entries.size();
+	}
+
 	public void onLightUpdate(long section) {
 		sectionsUpdatedThisFrame.add(section);
 	}
 
 	public void clear() {
-		visual2Sections.clear();
-		section2Updaters.clear();
+		visual2Entry.clear();
+		section2Entries.clear();
 		sectionsUpdatedThisFrame.clear();
 		movedVisuals.clear();
 	}
 
-	private static int indexOfUpdater(List<Updater> updaters, LightUpdatedVisual visual) {
-		for (int i = 0; i < updaters.size(); i++) {
-			if (updaters.get(i)
-					.visual() == visual) {
-				return i;
-			}
-		}
-		return -1;
-	}
-
 	private static Updater createUpdater(LightUpdatedVisual visual, int sectionCount) {
-		if (sectionCount == 1) {
+		if (sectionCount <= 1) {
 			return new Updater.Simple(visual);
 		} else {
 			return new Updater.Synced(visual, new AtomicLong(NEVER_UPDATED));
@@ -167,8 +165,6 @@ public class LightUpdatedVisualStorage {
 	private sealed interface Updater {
 		void updateLight(Context ctx);
 
-		LightUpdatedVisual visual();
-
 		// The visual is only in one section. In this case, we can just update the visual directly.
 		record Simple(LightUpdatedVisual visual) implements Updater {
 			@Override
@@ -194,6 +190,54 @@ public class LightUpdatedVisualStorage {
 		}
 	}
 
+	private static final class Entry {
+		private final Updater updater;
+		private final long[] sections;
+		// Where this entry is in the list of each of its sections, parallel to sections.
+		private final int[] slots;
+
+		private Entry(Updater updater, long[] sections) {
+			this.updater = updater;
+			this.sections = sections;
+			slots = new int[sections.length];
+		}
+
+		private void updateLight(Updater.Context ctx) {
+			updater.updateLight(ctx);
+		}
+	}
+
+	private static final class SectionEntries {
+		private final ObjectArrayList<Entry> entries = new ObjectArrayList<>();
+		// Which of its sections this is for each entry, so we can fix up the slot of an entry we move.
+		private final IntArrayList sectionIndices = new IntArrayList();
+
+		private void add(Entry entry, int sectionIndex) {
+			entry.slots[sectionIndex] = entries.size();
+			entries.add(entry);
+			sectionIndices.add(sectionIndex);
+		}
+
+		private void remove(int slot) {
+			int last = entries.size() - 1;
+
+			if (slot != last) {
+				Entry moved = entries.get(last);
+				int movedSectionIndex = sectionIndices.getInt(last);
+				entries.set(slot, moved);
+				sectionIndices.set(slot, movedSectionIndex);
+				moved.slots[movedSectionIndex] = slot;
+			}
+
+			entries.remove(last);
+			sectionIndices.removeInt(last);
+		}
+
+		private boolean isEmpty() {
+			return entries.isEmpty();
+		}
+	}
+
 	private record MovedVisual(LightUpdatedVisual visual, SectionTracker tracker) {
 	}
 }
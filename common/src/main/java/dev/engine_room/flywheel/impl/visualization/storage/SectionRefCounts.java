@@ -0,0 +1,117 @@
+package dev.engine_room.flywheel.impl.visualization.storage;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+
+/**
+ * A multiset of sections that remembers which sections entered or left it since its changes were last cleared.
+ */
+public final class SectionRefCounts {
+	private final Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+	private final LongSet added = new LongOpenHashSet();
+	private final LongSet removed = new LongOpenHashSet();
+	private final LongSet sectionsView = LongSets.unmodifiable(counts.keySet());
+
+	public void add(long section) {
+		if (counts.addTo(section, 1) == 0) {
+			// If it left and came back since the last clear, nobody needs to know.
+			if (!removed.remove(section)) {
+				added.add(section);
+			}
+		}
+	}
+
+	public void remove(long section) {
+		int count = counts.get(section);
+
+		if (count == 0) {
+			return;
+		}
+
+		if (count == 1) {
+			counts.remove(section);
+
+			if (!added.remove(section)) {
+				removed.add(section);
+			}
+		} else {
+			counts.put(section, count - 1);
+		}
+	}
+
+	public void addAll(LongSet sections) {
+		for (long section : sections) {
+			add(section);
+		}
+	}
+
+	public void removeAll(LongSet sections) {
+		for (long section : sections) {
+			remove(section);
+		}
+	}
+
+	public boolean contains(long section) {
+		return counts.containsKey(section);
+	}
+
+	/**
+	 * @return Every section in this set, as an unmodifiable view.
+	 */
+	public LongSet sections() {
+		return sectionsView;
+	}
+
+	public boolean hasChanges() {
+		return !added.isEmpty() || !removed.isEmpty();
+	}
+
+	/**
+	 * @return The sections that weren't in this set when its changes were last cleared, but are now.
+	 */
+	public LongSet added() {
+		return added;
+	}
+
+	/**
+	 * @return The sections that were in this set when its changes were last cleared, but aren't anymore.
+	 */
+	public LongSet removed() {
+		return removed;
+	}
+
+	public void clearChanges() {
+		added.clear();
+		removed.clear();
+	}
+
+	/**
+	 * Count each section added to this set since the last clear once in another set, uncount each removed one, and
+	 * clear the changes here.
+	 */
+	public void drainChangesInto(SectionRefCounts other) {
+		for (long section : added) {
+			other.add(section);
+		}
+		for (long section : removed) {
+			other.remove(section);
+		}
+
+		clearChanges();
+	}
+
+	/**
+	 * Remove every section, recording them as removed.
+	 */
+	public void clear() {
+		for (long section : counts.keySet()) {
+			if (!added.remove(section)) {
+				removed.add(section);
+			}
+		}
+
+		counts.clear();
+	}
+}
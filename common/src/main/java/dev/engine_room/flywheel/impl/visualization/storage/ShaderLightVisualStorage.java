@@ -1,53 +1,101 @@
 package dev.engine_room.flywheel.impl.visualization.storage;
 
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import dev.engine_room.flywheel.api.visual.ShaderLightVisual;
-import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
 
+/**
+ * Counts how many visuals want GPU light for each section.
+ * <br>
+ * Visuals may report new sections from any thread while they update, so each change is queued and diffed against
+ * the sections the visual was counted in when changes are next collected.
+ */
 public class ShaderLightVisualStorage {
-	private final Map<ShaderLightVisual, SectionTracker> trackers = new Reference2ReferenceOpenHashMap<>();
+	private final Map<ShaderLightVisual, Entry> entries = new Reference2ReferenceOpenHashMap<>();
+	private final Queue<Entry> movedEntries = new ConcurrentLinkedQueue<>();
 
-	private final LongSet sections = new LongOpenHashSet();
-	private boolean isDirty;
+	private final SectionRefCounts sections = new SectionRefCounts();
 
-	public LongSet sections() {
-		if (isDirty) {
-			sections.clear();
-			for (var tracker : trackers.values()) {
-				sections.addAll(tracker.sections());
-			}
-			isDirty = false;
-		}
-		return sections;
+	/**
+	 * Apply the moves visuals reported and count the sections that were added or removed since the last call in
+	 * {@code out}.
+	 */
+	public void drainChangesInto(SectionRefCounts out) {
+		processMoved();
+		sections.drainChangesInto(out);
 	}
 
-	public boolean isDirty() {
-		return isDirty;
-	}
+	private void processMoved() {
+		Entry entry;
+		while ((entry = movedEntries.poll()) != null) {
+			entry.moveQueued.set(false);
+
+			// The visual was deleted before we got to it.
+			if (entry.removed) {
+				continue;
+			}
+
+			LongSet next = entry.tracker.sections();
+			LongSet counted = entry.counted;
+
+			for (long section : counted) {
+				if (!next.contains(section)) {
+					sections.remove(section);
+				}
+			}
+			for (long section : next) {
+				if (!counted.contains(section)) {
+					sections.add(section);
+				}
+			}
 
-	public void markDirty() {
-		isDirty = true;
+			entry.counted = next;
+		}
 	}
 
 	public void add(ShaderLightVisual visual, SectionTracker tracker) {
-		trackers.put(visual, tracker);
+		var entry = new Entry(tracker);
+		entries.put(visual, entry);
 
-		tracker.addListener(this::markDirty);
+		tracker.addListener(() -> {
+			if (entry.moveQueued.compareAndSet(false, true)) {
+				movedEntries.add(entry);
+			}
+		});
 
-		if (!tracker.sections().isEmpty()) {
-			markDirty();
-		}
+		sections.addAll(entry.counted);
 	}
 
 	public void remove(ShaderLightVisual visual) {
-		trackers.remove(visual);
+		var entry = entries.remove(visual);
+
+		if (entry != null) {
+			entry.removed = true;
+			sections.removeAll(entry.counted);
+		}
 	}
 
 	public void clear() {
-		trackers.clear();
-		markDirty();
+		entries.clear();
+		movedEntries.clear();
+		sections.clear();
+	}
+
+	private static final class Entry {
+		private final SectionTracker tracker;
+		private final AtomicBoolean moveQueued = new AtomicBoolean();
+		// The sections this visual is counted in. Tracker section sets are never modified, only replaced.
+		private LongSet counted;
+		private boolean removed;
+
+		private Entry(SectionTracker tracker) {
+			this.tracker = tracker;
+			counted = tracker.sections();
+		}
 	}
 }
@@ -15,12 +15,14 @@ import dev.engine_room.flywheel.api.visual.ShaderLightVisual;
 import dev.engine_room.flywheel.api.visual.TickableVisual;
 import dev.engine_room.flywheel.api.visual.Visual;
 import dev.engine_room.flywheel.api.visualization.VisualizationContext;
-import dev.engine_room.flywheel.lib.task.ForEachPlan;
+import dev.engine_room.flywheel.lib.task.BalancedForEachPlan;
 import dev.engine_room.flywheel.lib.task.NestedPlan;
 import dev.engine_room.flywheel.lib.task.PlanMap;
+import dev.engine_room.flywheel.lib.task.TypeCostModel;
 import dev.engine_room.flywheel.lib.visual.SimpleDynamicVisual;
 import dev.engine_room.flywheel.lib.visual.SimpleTickableVisual;
 import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.phys.AABB;
 
 public abstract class Storage<T> {
 	protected final VisualizationContext visualizationContext;
@@ -32,6 +34,9 @@ public abstract class Storage<T> {
 	protected final List<SimpleTickableVisual> simpleTickableVisuals = new ArrayList<>();
 	protected final LightUpdatedVisualStorage lightUpdatedVisuals = new LightUpdatedVisualStorage();
 	protected final ShaderLightVisualStorage shaderLightVisuals = new ShaderLightVisualStorage();
+	// Simple visuals of different types can differ in cost by orders of magnitude, so balance them by measured cost.
+	private final TypeCostModel<SimpleDynamicVisual> frameCosts = new TypeCostModel<>();
+	private final TypeCostModel<SimpleTickableVisual> tickCosts = new TypeCostModel<>();
 
 	public Storage(VisualizationContext visualizationContext) {
 		this.visualizationContext = visualizationContext;
@@ -42,11 +47,11 @@ public abstract class Storage<T> {
 	}
 
 	public Plan<DynamicVisual.Context> framePlan() {
-		return NestedPlan.of(dynamicVisuals, lightUpdatedVisuals.plan(), ForEachPlan.of(() -> simpleDynamicVisuals, SimpleDynamicVisual::beginFrame));
+		return NestedPlan.of(dynamicVisuals, lightUpdatedVisuals.plan(), BalancedForEachPlan.of(() -> simpleDynamicVisuals, SimpleDynamicVisual::beginFrame, frameCosts));
 	}
 
 	public Plan<TickableVisual.Context> tickPlan() {
-		return NestedPlan.of(tickableVisuals, ForEachPlan.of(() -> simpleTickableVisuals, SimpleTickableVisual::tick));
+		return NestedPlan.of(tickableVisuals, BalancedForEachPlan.of(() -> simpleTickableVisuals, SimpleTickableVisual::tick, tickCosts));
 	}
 
 	public LightUpdatedVisualStorage lightUpdatedVisuals() {
@@ -64,6 +69,10 @@ public abstract class Storage<T> {
 	 */
 	public abstract boolean willAccept(T obj);
 
+	public boolean contains(T obj) {
+		return visuals.containsKey(obj);
+	}
+
 	public void add(T obj, float partialTick) {
 		Visual visual = visuals.get(obj);
 
@@ -128,6 +137,7 @@ public abstract class Storage<T> {
 
 			if (out != null) {
 				setup(out, partialTick);
+				onInserted(obj, out);
 			}
 
 			return out;
@@ -138,14 +148,56 @@ public abstract class Storage<T> {
 		var visual = createRaw(obj, partialTick);
 
 		if (visual != null) {
-			setup(visual, partialTick);
-			visuals.put(obj, visual);
+			insert(obj, visual, partialTick);
 		}
 	}
 
+	/**
+	 * Create a visual for the given object without adding it to this storage.
+	 * <br>
+	 * Unlike the rest of this class, this is safe to call from many threads at once.
+	 */
+	@Nullable
+	public Visual createVisual(T obj, float partialTick) {
+		return createRaw(obj, partialTick);
+	}
+
+	/**
+	 * Add a visual created by {@link #createVisual}.
+	 * If the object already has a visual, the new one is deleted instead.
+	 */
+	public void insert(T obj, Visual visual, float partialTick) {
+		if (visuals.containsKey(obj)) {
+			visual.delete();
+			return;
+		}
+
+		setup(visual, partialTick);
+		visuals.put(obj, visual);
+		onInserted(obj, visual);
+	}
+
+	/**
+	 * Must not touch any state shared between visuals, see {@link #createVisual}.
+	 */
 	@Nullable
 	protected abstract Visual createRaw(T obj, float partialTick);
 
+	protected void onInserted(T obj, Visual visual) {
+	}
+
+	/**
+	 * Used to decide which visuals to create first when there are too many to create at once.
+	 * <br>
+	 * Called from many threads at once, see {@link #createVisual}.
+	 *
+	 * @return The bounds of the object in world space, or {@code null} if it doesn't have any.
+	 */
+	@Nullable
+	public AABB bounds(T obj) {
+		return null;
+	}
+
 	private void setup(Visual visual, float partialTick) {
 		if (visual instanceof DynamicVisual dynamic) {
 			if (visual instanceof SimpleDynamicVisual simpleDynamic) {
@@ -12,12 +12,4 @@ public record Transaction<T>(T obj, Action action) {
 	public static <T> Transaction<T> update(T obj) {
 		return new Transaction<>(obj, Action.UPDATE);
 	}
-
-	public void apply(Storage<T> storage, float partialTick) {
-		switch (action) {
-		case ADD -> storage.add(obj, partialTick);
-		case REMOVE -> storage.remove(obj);
-		case UPDATE -> storage.update(obj, partialTick);
-		}
-	}
 }
@@ -2,15 +2,14 @@ package dev.engine_room.flywheel.vanilla;
 
 import java.util.function.Consumer;
 
-import org.joml.AxisAngle4f;
-import org.joml.Quaternionf;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Vector3f;
 
 import dev.engine_room.flywheel.api.instance.Instance;
 import dev.engine_room.flywheel.api.material.Material;
 import dev.engine_room.flywheel.api.visualization.VisualizationContext;
+import dev.engine_room.flywheel.lib.instance.AnimatedInstance;
 import dev.engine_room.flywheel.lib.instance.InstanceTypes;
-import dev.engine_room.flywheel.lib.instance.OrientedInstance;
 import dev.engine_room.flywheel.lib.material.SimpleMaterial;
 import dev.engine_room.flywheel.lib.model.ModelHolder;
 import dev.engine_room.flywheel.lib.model.SingleMeshModel;
@@ -19,7 +18,7 @@ import dev.engine_room.flywheel.lib.visual.AbstractBlockEntityVisual;
 import dev.engine_room.flywheel.lib.visual.SimpleDynamicVisual;
 import net.minecraft.client.model.geom.ModelLayers;
 import net.minecraft.client.renderer.blockentity.BellRenderer;
-import net.minecraft.util.Mth;
+import net.minecraft.core.Direction;
 import net.minecraft.world.level.block.entity.BellBlockEntity;
 
 public class BellVisual extends AbstractBlockEntityVisual<BellBlockEntity> implements SimpleDynamicVisual {
@@ -31,22 +30,32 @@ public class BellVisual extends AbstractBlockEntityVisual<BellBlockEntity> imple
 		return new SingleMeshModel(ModelPartConverter.convert(ModelLayers.BELL, BellRenderer.BELL_RESOURCE_LOCATION.sprite(), "bell_body"), MATERIAL);
 	});
 
-	private final OrientedInstance bell;
+	/**
+	 * How many ticks a bell shakes for after being rung, see {@link BellBlockEntity}.
+	 */
+	private static final float SHAKE_DURATION = 50;
+	private static final float PROGRESS_EPSILON = 1e-4f;
+
+	private final AnimatedInstance bell;
 
 	private boolean wasShaking = false;
+	@Nullable
+	private Direction lastClickDirection;
 
 	public BellVisual(VisualizationContext ctx, BellBlockEntity blockEntity, float partialTick) {
 		super(ctx, blockEntity, partialTick);
 
 		bell = createBellInstance().pivot(0.5f, 0.75f, 0.5f)
-				.position(getVisualPosition());
-		bell.setChanged();
+				.easing(AnimatedInstance.Easing.DAMPED_SWING)
+				.angle(1);
+		bell.translate(getVisualPosition())
+				.setChanged();
 
 		updateRotation(partialTick);
 	}
 
-	private OrientedInstance createBellInstance() {
-		return instancerProvider.instancer(InstanceTypes.ORIENTED, BELL_MODEL.get())
+	private AnimatedInstance createBellInstance() {
+		return instancerProvider.instancer(InstanceTypes.ANIMATED, BELL_MODEL.get())
 				.createInstance();
 	}
 
@@ -59,23 +68,32 @@ public class BellVisual extends AbstractBlockEntityVisual<BellBlockEntity> imple
 		updateRotation(context.partialTick());
 	}
 
+	/**
+	 * The swing is animated on the GPU, so we only need to upload when the bell is rung or stops shaking.
+	 */
 	private void updateRotation(float partialTick) {
 		if (blockEntity.shaking) {
-			float ringTime = (float) blockEntity.ticks + partialTick;
-			float angle = Mth.sin(ringTime / (float) Math.PI) / (4.0F + ringTime / 3.0F);
+			float progress = ((float) blockEntity.ticks + partialTick) / SHAKE_DURATION;
+
+			if (wasShaking && blockEntity.clickDirection == lastClickDirection && Math.abs(progress - bell.progress(partialTick)) < PROGRESS_EPSILON) {
+				return;
+			}
 
 			Vector3f ringAxis = blockEntity.clickDirection.getCounterClockWise()
 					.step();
 
-			bell.rotation(new Quaternionf(new AxisAngle4f(angle, ringAxis)))
+			bell.axis(ringAxis.x(), ringAxis.y(), ringAxis.z())
+					.animate(progress, 1, 1 / SHAKE_DURATION, partialTick)
 					.setChanged();
 
 			wasShaking = true;
+			lastClickDirection = blockEntity.clickDirection;
 		} else if (wasShaking) {
-			bell.rotation(new Quaternionf())
+			bell.hold(0)
 					.setChanged();
 
 			wasShaking = false;
+			lastClickDirection = null;
 		}
 	}
 
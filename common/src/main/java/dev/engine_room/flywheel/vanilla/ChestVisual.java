@@ -9,11 +9,12 @@ import org.joml.Quaternionf;
 
 import dev.engine_room.flywheel.api.instance.Instance;
 import dev.engine_room.flywheel.api.visualization.VisualizationContext;
+import dev.engine_room.flywheel.lib.instance.AnimatedInstance;
 import dev.engine_room.flywheel.lib.instance.InstanceTypes;
 import dev.engine_room.flywheel.lib.instance.OrientedInstance;
-import dev.engine_room.flywheel.lib.instance.TransformedInstance;
 import dev.engine_room.flywheel.lib.material.CutoutShaders;
 import dev.engine_room.flywheel.lib.material.SimpleMaterial;
+import dev.engine_room.flywheel.lib.model.LodModel;
 import dev.engine_room.flywheel.lib.model.ModelCache;
 import dev.engine_room.flywheel.lib.model.SingleMeshModel;
 import dev.engine_room.flywheel.lib.model.part.ModelPartConverter;
@@ -48,19 +49,28 @@ public class ChestVisual<T extends BlockEntity & LidBlockEntity> extends Abstrac
 		LAYER_LOCATIONS.put(ChestType.RIGHT, ModelLayers.DOUBLE_CHEST_RIGHT);
 	}
 
+	private static final float LOD_DISTANCE = 24;
+	private static final int LOD_LEVELS = 3;
+
 	private static final ModelCache<Pair<ChestType, Material>> BOTTOM_MODELS = new ModelCache<>(key -> {
-		return new SingleMeshModel(ModelPartConverter.convert(LAYER_LOCATIONS.get(key.first()), key.second().sprite(), "bottom"), MATERIAL);
+		return LodModel.generate(new SingleMeshModel(ModelPartConverter.convert(LAYER_LOCATIONS.get(key.first()), key.second().sprite(), "bottom"), MATERIAL), LOD_DISTANCE, LOD_LEVELS);
 	});
 	private static final ModelCache<Pair<ChestType, Material>> LID_MODELS = new ModelCache<>(key -> {
-		return new SingleMeshModel(ModelPartConverter.convert(LAYER_LOCATIONS.get(key.first()), key.second().sprite(), "lid"), MATERIAL);
+		return LodModel.generate(new SingleMeshModel(ModelPartConverter.convert(LAYER_LOCATIONS.get(key.first()), key.second().sprite(), "lid"), MATERIAL), LOD_DISTANCE, LOD_LEVELS);
 	});
 	private static final ModelCache<Pair<ChestType, Material>> LOCK_MODELS = new ModelCache<>(key -> {
-		return new SingleMeshModel(ModelPartConverter.convert(LAYER_LOCATIONS.get(key.first()), key.second().sprite(), "lock"), MATERIAL);
+		return LodModel.generate(new SingleMeshModel(ModelPartConverter.convert(LAYER_LOCATIONS.get(key.first()), key.second().sprite(), "lock"), MATERIAL), LOD_DISTANCE, LOD_LEVELS);
 	});
 
+	/**
+	 * How much the openness of a chest changes per tick, see {@link net.minecraft.world.level.block.entity.ChestLidController}.
+	 */
+	private static final float LID_SPEED = 0.1f;
+	private static final float PROGRESS_EPSILON = 1e-4f;
+
 	private final OrientedInstance bottom;
-	private final TransformedInstance lid;
-	private final TransformedInstance lock;
+	private final AnimatedInstance lid;
+	private final AnimatedInstance lock;
 
 	private final ChestType chestType;
 	private final Float2FloatFunction lidProgress;
@@ -94,7 +104,23 @@ public class ChestVisual<T extends BlockEntity & LidBlockEntity> extends Abstrac
 		bottom.rotation(baseRotation);
 		bottom.setChanged();
 
-		applyLidTransform(lidProgress.get(partialTick));
+		lid.pivot(0, 9f / 16f, 1f / 16f)
+				.axis(1, 0, 0)
+				.angle(-(float) Math.PI / 2F)
+				.easing(AnimatedInstance.Easing.CUBIC_OUT)
+				.setIdentityTransform()
+				.translate(getVisualPosition())
+				.rotateCentered(baseRotation);
+
+		lock.pivot(0, 8f / 16f, 0)
+				.axis(1, 0, 0)
+				.angle(-(float) Math.PI / 2F)
+				.easing(AnimatedInstance.Easing.CUBIC_OUT)
+				.setIdentityTransform()
+				.translate(getVisualPosition())
+				.rotateCentered(baseRotation);
+
+		updateLidAnimation(partialTick);
 	}
 
 	private OrientedInstance createBottomInstance(Material texture) {
@@ -102,13 +128,13 @@ public class ChestVisual<T extends BlockEntity & LidBlockEntity> extends Abstrac
 				.createInstance();
 	}
 
-	private TransformedInstance createLidInstance(Material texture) {
-		return instancerProvider.instancer(InstanceTypes.TRANSFORMED, LID_MODELS.get(Pair.of(chestType, texture)))
+	private AnimatedInstance createLidInstance(Material texture) {
+		return instancerProvider.instancer(InstanceTypes.ANIMATED, LID_MODELS.get(Pair.of(chestType, texture)))
 				.createInstance();
 	}
 
-	private TransformedInstance createLockInstance(Material texture) {
-		return instancerProvider.instancer(InstanceTypes.TRANSFORMED, LOCK_MODELS.get(Pair.of(chestType, texture)))
+	private AnimatedInstance createLockInstance(Material texture) {
+		return instancerProvider.instancer(InstanceTypes.ANIMATED, LOCK_MODELS.get(Pair.of(chestType, texture)))
 				.createInstance();
 	}
 
@@ -123,36 +149,32 @@ public class ChestVisual<T extends BlockEntity & LidBlockEntity> extends Abstrac
 			return;
 		}
 
-		float progress = lidProgress.get(context.partialTick());
-		if (lastProgress == progress) {
-			return;
-		}
-		lastProgress = progress;
-
-		applyLidTransform(progress);
+		updateLidAnimation(context.partialTick());
 	}
 
-	private void applyLidTransform(float progress) {
-		progress = 1.0F - progress;
-		progress = 1.0F - progress * progress * progress;
+	/**
+	 * The lid is animated on the GPU, so we only need to upload when the lid starts or stops moving.
+	 */
+	private void updateLidAnimation(float partialTick) {
+		float progress = lidProgress.get(partialTick);
+		float previousProgress = lastProgress;
+		lastProgress = progress;
 
-		float angleX = -(progress * ((float) Math.PI / 2F));
+		if (Math.abs(progress - lid.progress(partialTick)) < PROGRESS_EPSILON && !Float.isNaN(previousProgress)) {
+			return;
+		}
 
-		lid.setIdentityTransform()
-				.translate(getVisualPosition())
-				.rotateCentered(baseRotation)
-				.translate(0, 9f / 16f, 1f / 16f)
-				.rotateX(angleX)
-				.translate(0, -9f / 16f, -1f / 16f)
-				.setChanged();
+		if (Float.isNaN(previousProgress) || progress == previousProgress) {
+			lid.hold(progress);
+			lock.hold(progress);
+		} else {
+			float target = progress > previousProgress ? 1 : 0;
+			lid.animate(progress, target, LID_SPEED, partialTick);
+			lock.animate(progress, target, LID_SPEED, partialTick);
+		}
 
-		lock.setIdentityTransform()
-				.translate(getVisualPosition())
-				.rotateCentered(baseRotation)
-				.translate(0, 8f / 16f, 0)
-				.rotateX(angleX)
-				.translate(0, -8f / 16f, 0)
-				.setChanged();
+		lid.setChanged();
+		lock.setChanged();
 	}
 
 	@Override
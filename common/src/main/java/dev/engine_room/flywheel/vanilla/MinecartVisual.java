@@ -12,6 +12,7 @@ import dev.engine_room.flywheel.api.visualization.VisualizationContext;
 import dev.engine_room.flywheel.lib.instance.InstanceTypes;
 import dev.engine_room.flywheel.lib.instance.TransformedInstance;
 import dev.engine_room.flywheel.lib.material.SimpleMaterial;
+import dev.engine_room.flywheel.lib.model.LodModel;
 import dev.engine_room.flywheel.lib.model.ModelHolder;
 import dev.engine_room.flywheel.lib.model.Models;
 import dev.engine_room.flywheel.lib.model.SingleMeshModel;
@@ -38,6 +39,9 @@ public class MinecartVisual<T extends AbstractMinecart> extends ComponentEntityV
 			.mipmap(false)
 			.build();
 
+	private static final float LOD_DISTANCE = 24;
+	private static final int LOD_LEVELS = 3;
+
 	public static final ModelHolder CHEST_BODY_MODEL = createBodyModelHolder(ModelLayers.CHEST_MINECART);
 	public static final ModelHolder COMMAND_BLOCK_BODY_MODEL = createBodyModelHolder(ModelLayers.COMMAND_BLOCK_MINECART);
 	public static final ModelHolder FURNACE_BODY_MODEL = createBodyModelHolder(ModelLayers.FURNACE_MINECART);
@@ -76,7 +80,7 @@ public class MinecartVisual<T extends AbstractMinecart> extends ComponentEntityV
 
 	private static ModelHolder createBodyModelHolder(ModelLayerLocation layer) {
 		return new ModelHolder(() -> {
-			return new SingleMeshModel(ModelPartConverter.convert(layer), MATERIAL);
+			return LodModel.generate(new SingleMeshModel(ModelPartConverter.convert(layer), MATERIAL), LOD_DISTANCE, LOD_LEVELS);
 		});
 	}
 
@@ -2,13 +2,11 @@ package dev.engine_room.flywheel.vanilla;
 
 import java.util.function.Consumer;
 
-import org.joml.Quaternionf;
-
 import com.mojang.blaze3d.vertex.PoseStack;
-import com.mojang.math.Axis;
 
 import dev.engine_room.flywheel.api.instance.Instance;
 import dev.engine_room.flywheel.api.visualization.VisualizationContext;
+import dev.engine_room.flywheel.lib.instance.AnimatedInstance;
 import dev.engine_room.flywheel.lib.instance.InstanceTypes;
 import dev.engine_room.flywheel.lib.instance.TransformedInstance;
 import dev.engine_room.flywheel.lib.material.CutoutShaders;
@@ -42,10 +40,14 @@ public class ShulkerBoxVisual extends AbstractBlockEntityVisual<ShulkerBoxBlockE
 		return new SingleMeshModel(ModelPartConverter.convert(ModelLayers.SHULKER, texture.sprite(), "lid"), MATERIAL);
 	});
 
-	private final TransformedInstance base;
-	private final TransformedInstance lid;
+	/**
+	 * How much the progress of a shulker box changes per tick, see {@link ShulkerBoxBlockEntity}.
+	 */
+	private static final float LID_SPEED = 0.1f;
+	private static final float PROGRESS_EPSILON = 1e-4f;
 
-	private final PoseStack stack = new PoseStack();
+	private final TransformedInstance base;
+	private final AnimatedInstance lid;
 
 	private float lastProgress = Float.NaN;
 
@@ -62,7 +64,7 @@ public class ShulkerBoxVisual extends AbstractBlockEntityVisual<ShulkerBoxBlockE
 
 		var rotation = getDirection().getRotation();
 
-		stack.setIdentity();
+		PoseStack stack = new PoseStack();
 		TransformStack.of(stack)
 				.translate(getVisualPosition())
 				.translate(0.5f)
@@ -73,8 +75,13 @@ public class ShulkerBoxVisual extends AbstractBlockEntityVisual<ShulkerBoxBlockE
 
 		base = createBaseInstance(texture).setTransform(stack);
 		base.setChanged();
-		lid = createLidInstance(texture).setTransform(stack);
-		lid.setChanged();
+		lid = createLidInstance(texture);
+		lid.axis(0, 1, 0)
+				.angle((float) Math.toRadians(270))
+				.translation(0, -0.5f, 0)
+				.setTransform(stack);
+
+		updateLidAnimation(partialTick);
 	}
 
 	private TransformedInstance createBaseInstance(Material texture) {
@@ -82,8 +89,8 @@ public class ShulkerBoxVisual extends AbstractBlockEntityVisual<ShulkerBoxBlockE
 				.createInstance();
 	}
 
-	private TransformedInstance createLidInstance(Material texture) {
-		return instancerProvider.instancer(InstanceTypes.TRANSFORMED, LID_MODELS.get(texture))
+	private AnimatedInstance createLidInstance(Material texture) {
+		return instancerProvider.instancer(InstanceTypes.ANIMATED, LID_MODELS.get(texture))
 				.createInstance();
 	}
 
@@ -101,23 +108,28 @@ public class ShulkerBoxVisual extends AbstractBlockEntityVisual<ShulkerBoxBlockE
 			return;
 		}
 
-		float progress = blockEntity.getProgress(context.partialTick());
-		if (progress == lastProgress) {
-			return;
-		}
-		lastProgress = progress;
+		updateLidAnimation(context.partialTick());
+	}
 
-		Quaternionf spin = Axis.YP.rotationDegrees(270.0f * progress);
+	/**
+	 * The lid is animated on the GPU, so we only need to upload when the lid starts or stops moving.
+	 */
+	private void updateLidAnimation(float partialTick) {
+		float progress = blockEntity.getProgress(partialTick);
+		float previousProgress = lastProgress;
+		lastProgress = progress;
 
-		TransformStack.of(stack)
-				.pushPose()
-				.translateY(-progress * 0.5f)
-				.rotate(spin);
+		if (Math.abs(progress - lid.progress(partialTick)) < PROGRESS_EPSILON && !Float.isNaN(previousProgress)) {
+			return;
+		}
 
-		lid.setTransform(stack)
-				.setChanged();
+		if (Float.isNaN(previousProgress) || progress == previousProgress) {
+			lid.hold(progress);
+		} else {
+			lid.animate(progress, progress > previousProgress ? 1 : 0, LID_SPEED, partialTick);
+		}
 
-		stack.popPose();
+		lid.setChanged();
 	}
 
 	@Override
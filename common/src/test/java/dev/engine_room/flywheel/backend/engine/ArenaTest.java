@@ -0,0 +1,176 @@
+package dev.engine_room.flywheel.backend.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+class ArenaTest {
+	private Arena arena;
+
+	@BeforeEach
+	void setUp() {
+		arena = new Arena(Integer.BYTES, 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		arena.delete();
+	}
+
+	@Test
+	void allocReusesLowestFreeIndex() {
+		allocN(5);
+		arena.free(3);
+		arena.free(1);
+
+		Assertions.assertEquals(1, arena.alloc());
+		Assertions.assertEquals(3, arena.alloc());
+		Assertions.assertEquals(5, arena.alloc());
+	}
+
+	@Test
+	void freeingTheEndShrinks() {
+		allocN(5);
+		arena.free(2);
+		arena.free(4);
+
+		Assertions.assertEquals(4, arena.capacity());
+		Assertions.assertEquals(1, arena.freeCount());
+
+		// Takes the free index right below it along.
+		arena.free(3);
+
+		Assertions.assertEquals(2, arena.capacity());
+		Assertions.assertEquals(0, arena.freeCount());
+	}
+
+	@Test
+	void moveLastToFreeKeepsData() {
+		allocN(4);
+		for (int i = 0; i < 4; i++) {
+			MemoryUtil.memPutInt(arena.indexToPointer(i), i * 10);
+		}
+		arena.free(1);
+
+		Assertions.assertEquals(1, arena.moveLastToFree());
+		Assertions.assertEquals(3, arena.capacity());
+		Assertions.assertEquals(30, MemoryUtil.memGetInt(arena.indexToPointer(1)));
+		Assertions.assertEquals(20, MemoryUtil.memGetInt(arena.indexToPointer(2)));
+
+		Assertions.assertEquals(-1, arena.moveLastToFree());
+	}
+
+	@Test
+	void trimGivesMemoryBack() {
+		allocN(64);
+		Assertions.assertEquals(64 * Integer.BYTES, arena.byteCapacity());
+
+		for (int i = 63; i >= 4; i--) {
+			arena.free(i);
+		}
+		arena.trim();
+
+		Assertions.assertEquals(4, arena.capacity());
+		Assertions.assertEquals(8 * Integer.BYTES, arena.byteCapacity());
+
+		for (int i = 3; i >= 0; i--) {
+			arena.free(i);
+		}
+		arena.trim();
+
+		// Never below the initial capacity.
+		Assertions.assertEquals(2 * Integer.BYTES, arena.byteCapacity());
+	}
+
+	@Test
+	void runsGoInTheFirstGapBigEnough() {
+		allocN(6);
+		arena.free(1);
+		arena.free(3);
+		arena.free(4);
+
+		// Index 1 alone is too small.
+		Assertions.assertEquals(3, arena.alloc(2));
+		Assertions.assertEquals(2, arena.length(3));
+		Assertions.assertEquals(6, arena.alloc(3));
+		Assertions.assertEquals(9, arena.capacity());
+		Assertions.assertEquals(1, arena.freeCount());
+	}
+
+	@Test
+	void freeingARunFreesAllOfIt() {
+		allocN(2);
+		int run = arena.alloc(3);
+		arena.alloc();
+
+		arena.free(run);
+		Assertions.assertEquals(3, arena.freeCount());
+
+		// Freeing the end takes the whole run below it along.
+		arena.free(5);
+		Assertions.assertEquals(2, arena.capacity());
+		Assertions.assertEquals(0, arena.freeCount());
+	}
+
+	@Test
+	void moveLastToFreeMovesWholeRuns() {
+		allocN(4);
+		int run = arena.alloc(2);
+		MemoryUtil.memPutInt(arena.indexToPointer(run), 40);
+		MemoryUtil.memPutInt(arena.indexToPointer(run + 1), 50);
+		arena.free(1);
+		arena.free(2);
+
+		Assertions.assertEquals(run, arena.lastStart());
+		Assertions.assertEquals(1, arena.moveLastToFree());
+		Assertions.assertEquals(2, arena.length(1));
+		Assertions.assertEquals(40, MemoryUtil.memGetInt(arena.indexToPointer(1)));
+		Assertions.assertEquals(50, MemoryUtil.memGetInt(arena.indexToPointer(2)));
+		Assertions.assertEquals(4, arena.capacity());
+		Assertions.assertEquals(3, arena.lastStart());
+
+		// Nowhere for the last element to go.
+		Assertions.assertEquals(-1, arena.moveLastToFree());
+	}
+
+	@Test
+	void slideDownMergesHoles() {
+		allocN(2);
+		int middle = arena.alloc(2);
+		arena.alloc();
+		int last = arena.alloc(3);
+		for (int i = 0; i < 3; i++) {
+			MemoryUtil.memPutInt(arena.indexToPointer(last + i), 60 + i);
+		}
+		arena.free(1);
+		arena.free(4);
+
+		// Both holes are too small for the last run.
+		Assertions.assertEquals(-1, arena.moveLastToFree());
+		Assertions.assertEquals(middle, arena.firstStartAfterFree());
+		Assertions.assertEquals(1, arena.slideDown(middle));
+		Assertions.assertEquals(2, arena.length(1));
+
+		// The holes are next to each other now, but still too small.
+		Assertions.assertEquals(-1, arena.moveLastToFree());
+		Assertions.assertEquals(last, arena.firstStartAfterFree());
+		Assertions.assertEquals(3, arena.slideDown(last));
+
+		// The holes ended up at the end, which shrinks the arena.
+		Assertions.assertEquals(6, arena.capacity());
+		Assertions.assertEquals(0, arena.freeCount());
+		Assertions.assertEquals(-1, arena.firstStartAfterFree());
+		Assertions.assertEquals(3, arena.length(3));
+		for (int i = 0; i < 3; i++) {
+			Assertions.assertEquals(60 + i, MemoryUtil.memGetInt(arena.indexToPointer(3 + i)));
+		}
+	}
+
+	private void allocN(int count) {
+		for (int i = 0; i < count; i++) {
+			Assertions.assertEquals(i, arena.alloc());
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package dev.engine_room.flywheel.backend.engine;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+import net.minecraft.world.level.chunk.DataLayer;
+
+class LightCollectionTest {
+	private MemoryBlock expected;
+	private MemoryBlock actual;
+
+	@BeforeEach
+	void setUp() {
+		expected = MemoryBlock.calloc(1, LightStorage.SECTION_SIZE_BYTES);
+		actual = MemoryBlock.calloc(1, LightStorage.SECTION_SIZE_BYTES);
+	}
+
+	@AfterEach
+	void tearDown() {
+		expected.free();
+		actual.free();
+	}
+
+	@Test
+	void matchesPerBlockCollection() {
+		for (int seed = 0; seed < 16; seed++) {
+			var random = new Random(seed);
+			var blockData = new DataLayer[27];
+			var skyData = new DataLayer[27];
+			for (int i = 0; i < 27; i++) {
+				blockData[i] = randomLayer(random);
+				skyData[i] = randomLayer(random);
+			}
+
+			assertMatches(blockData, skyData);
+		}
+	}
+
+	@Test
+	void missingLayersStayDark() {
+		var blockData = new DataLayer[27];
+		var skyData = new DataLayer[27];
+		for (int i = 0; i < 27; i++) {
+			blockData[i] = new DataLayer(7);
+			skyData[i] = new DataLayer(15);
+		}
+		// The section above has no sky light, the one below has no light at all.
+		skyData[LightStorage.neighborIndex(0, 1, 0)] = null;
+		blockData[LightStorage.neighborIndex(0, -1, 0)] = null;
+		skyData[LightStorage.neighborIndex(0, -1, 0)] = null;
+
+		assertMatches(blockData, skyData);
+		Assertions.assertEquals(0, lightAt(actual, 8, 16, 8));
+		Assertions.assertEquals(0, lightAt(actual, 8, -1, 8));
+		Assertions.assertEquals(0xF7, lightAt(actual, 8, 8, 8));
+	}
+
+	@Test
+	void solidMatchesPerBlockCollection() {
+		for (int margin : new int[] { 1, LightStorage.OCCLUSION_MARGIN }) {
+			for (int seed = 0; seed < 4; seed++) {
+				var random = new Random(seed);
+				// A missing section stands for one that gets skipped: outside the build height, or all air.
+				var solid = new BitSet[27];
+				for (int i = 0; i < 27; i++) {
+					if (random.nextInt(4) != 0) {
+						solid[i] = randomBits(random, 16 * 16 * 16);
+					}
+				}
+
+				var actualSolid = new BitSet();
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dz = -1; dz <= 1; dz++) {
+						for (int dx = -1; dx <= 1; dx++) {
+							var bits = solid[LightStorage.neighborIndex(dx, dy, dz)];
+							if (bits != null) {
+								LightStorage.collectNeighborSolid(actualSolid, dx, dy, dz, margin, (x, y, z) -> bits.get(sectionIndex(x, y, z)));
+							}
+						}
+					}
+				}
+
+				Assertions.assertEquals(collectSolidPerBlock(solid, margin), actualSolid, "margin " + margin + " seed " + seed);
+			}
+		}
+	}
+
+	/**
+	 * Find the section and position of every block in the volume one at a time.
+	 */
+	private static BitSet collectSolidPerBlock(BitSet[] solid, int margin) {
+		int size = 16 + margin * 2;
+		var out = new BitSet();
+
+		for (int y = -margin; y < 16 + margin; y++) {
+			for (int z = -margin; z < 16 + margin; z++) {
+				for (int x = -margin; x < 16 + margin; x++) {
+					var bits = solid[LightStorage.neighborIndex(Math.floorDiv(x, 16), Math.floorDiv(y, 16), Math.floorDiv(z, 16))];
+					if (bits != null && bits.get(sectionIndex(Math.floorMod(x, 16), Math.floorMod(y, 16), Math.floorMod(z, 16)))) {
+						out.set((x + margin) + (z + margin) * size + (y + margin) * size * size);
+					}
+				}
+			}
+		}
+
+		return out;
+	}
+
+	private static int sectionIndex(int x, int y, int z) {
+		return x + z * 16 + y * 256;
+	}
+
+	private static BitSet randomBits(Random random, int size) {
+		var out = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			if (random.nextBoolean()) {
+				out.set(i);
+			}
+		}
+		return out;
+	}
+
+	private void assertMatches(DataLayer[] blockData, DataLayer[] skyData) {
+		MemoryUtil.memSet(expected.ptr(), 0, expected.size());
+		MemoryUtil.memSet(actual.ptr(), 0, actual.size());
+
+		collectPerBlock(expected.ptr(), blockData, skyData);
+		LightStorage.collectLight(actual.ptr(), blockData, skyData);
+
+		for (int y = -1; y <= 16; y++) {
+			for (int z = -1; z <= 16; z++) {
+				for (int x = -1; x <= 16; x++) {
+					Assertions.assertEquals(lightAt(expected, x, y, z), lightAt(actual, x, y, z), "block " + x + " " + y + " " + z);
+				}
+			}
+		}
+		// Nothing else gets touched.
+		for (int i = 0; i < LightStorage.SOLID_SIZE_BYTES; i++) {
+			Assertions.assertEquals(0, MemoryUtil.memGetByte(actual.ptr() + i));
+		}
+	}
+
+	/**
+	 * Collect the light one block at a time, like each of the center, plane, and strip passes used to.
+	 */
+	private static void collectPerBlock(long ptr, DataLayer[] blockData, DataLayer[] skyData) {
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (dx != 0 && dy != 0 && dz != 0) {
+						continue;
+					}
+
+					int neighbor = LightStorage.neighborIndex(dx, dy, dz);
+					var block = blockData[neighbor];
+					var sky = skyData[neighbor];
+					if (block == null || sky == null) {
+						continue;
+					}
+
+					for (int y = 0; y < 16; y++) {
+						for (int z = 0; z < 16; z++) {
+							for (int x = 0; x < 16; x++) {
+								int rx = x + dx * 16;
+								int ry = y + dy * 16;
+								int rz = z + dz * 16;
+								if (rx < -1 || rx > 16 || ry < -1 || ry > 16 || rz < -1 || rz > 16) {
+									continue;
+								}
+
+								int packed = block.get(x, y, z) | sky.get(x, y, z) << 4;
+								MemoryUtil.memPutByte(lightPtr(ptr, rx, ry, rz), (byte) packed);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static DataLayer randomLayer(Random random) {
+		return switch (random.nextInt(4)) {
+			case 0 -> null;
+			case 1 -> new DataLayer(random.nextInt(16));
+			default -> {
+				var data = new byte[DataLayer.SIZE];
+				random.nextBytes(data);
+				yield new DataLayer(data);
+			}
+		};
+	}
+
+	private static int lightAt(MemoryBlock data, int x, int y, int z) {
+		return MemoryUtil.memGetByte(lightPtr(data.ptr(), x, y, z)) & 0xFF;
+	}
+
+	private static long lightPtr(long ptr, int x, int y, int z) {
+		return ptr + LightStorage.SOLID_SIZE_BYTES + (x + 1) + (z + 1) * 18 + (y + 1) * 18 * 18;
+	}
+}
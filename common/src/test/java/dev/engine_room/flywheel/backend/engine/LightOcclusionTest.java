@@ -0,0 +1,298 @@
+package dev.engine_room.flywheel.backend.engine;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+
+class LightOcclusionTest {
+	private static final int SIZE = LightStorage.OCCLUSION_SOLID_SIZE;
+	private static final int MARGIN = LightStorage.OCCLUSION_MARGIN;
+
+	private static final int[] WEST = {-1, 0, 0};
+	private static final int[] EAST = {1, 0, 0};
+	private static final int[] DOWN = {0, -1, 0};
+	private static final int[] UP = {0, 1, 0};
+	private static final int[] NORTH = {0, 0, -1};
+	private static final int[] SOUTH = {0, 0, 1};
+
+	// Each face followed by its neighbors in the same order as vanilla's adjacency info.
+	private static final int[][][] ADJACENCY = {
+			{DOWN, WEST, EAST, NORTH, SOUTH},
+			{UP, EAST, WEST, NORTH, SOUTH},
+			{NORTH, UP, DOWN, EAST, WEST},
+			{SOUTH, WEST, EAST, DOWN, UP},
+			{WEST, UP, DOWN, NORTH, SOUTH},
+			{EAST, DOWN, UP, NORTH, SOUTH},
+	};
+
+	private MemoryBlock data;
+
+	@BeforeEach
+	void setUp() {
+		data = MemoryBlock.calloc(1, LightStorage.SECTION_SIZE_BYTES + LightStorage.OCCLUSION_SIZE_BYTES);
+	}
+
+	@AfterEach
+	void tearDown() {
+		data.free();
+	}
+
+	@Test
+	void solidMasksMatchTheBlocksAround() {
+		var solid = random(0, 0.4);
+		LightStorage.collectOcclusionData(data.ptr(), solid);
+
+		for (int y = 0; y < 16; y++) {
+			for (int z = 0; z < 16; z++) {
+				for (int x = 0; x < 16; x++) {
+					int mask = mask(x, y, z);
+					int bit = 0;
+					for (int dy = -1; dy <= 1; dy++) {
+						for (int dz = -1; dz <= 1; dz++) {
+							for (int dx = -1; dx <= 1; dx++) {
+								Assertions.assertEquals(isSolid(solid, x + dx, y + dy, z + dz), (mask & 1 << bit) != 0);
+								bit++;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void matchesVanillaAoForRandomLayouts() {
+		double[] densities = {0.1, 0.3, 0.5, 0.7};
+
+		for (int seed = 0; seed < densities.length; seed++) {
+			var solid = random(seed, densities[seed]);
+			LightStorage.collectOcclusionData(data.ptr(), solid);
+
+			for (int y = 0; y < 16; y++) {
+				for (int z = 0; z < 16; z++) {
+					for (int x = 0; x < 16; x++) {
+						assertMatchesVanilla(solid, x, y, z);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void coveredCornerUsesTheSideInstead() {
+		var solid = new BitSet();
+		// A solid corner above a block, with air beside it and solid blocks past the air.
+		set(solid, 9, 8, 9);
+		set(solid, 9, 9, 8);
+		set(solid, 8, 9, 9);
+		LightStorage.collectOcclusionData(data.ptr(), solid);
+
+		// Vanilla doesn't see the solid corner from the top face, so that vertex isn't darkened at all.
+		Assertions.assertEquals(1, vanillaAo(solid, 8, 7, 8, 1, 1, 1, 1), 1e-6);
+		Assertions.assertEquals(1, shaderAo(8, 7, 8, 1, 1, 1, 1), 1e-6);
+		// The side faces still see it.
+		Assertions.assertEquals(0.8, shaderAo(8, 7, 8, 5, 1, 1, 1), 1e-6);
+		assertMatchesVanilla(solid, 8, 7, 8);
+	}
+
+	@Test
+	void hiddenCornersKeepSectionsApart() {
+		var storage = new LightStorage(null, true);
+
+		try {
+			// Open sky in the light data, but one section has a solid layer just past it.
+			var covered = new BitSet();
+			for (int z = 0; z < SIZE; z++) {
+				for (int x = 0; x < SIZE; x++) {
+					covered.set(x + z * SIZE);
+				}
+			}
+
+			fillSky(new BitSet());
+			storage.store(0, data.ptr());
+			fillSky(new BitSet());
+			storage.store(1, data.ptr());
+			fillSky(covered);
+			storage.store(2, data.ptr());
+
+			Assertions.assertEquals(storage.arenaIndex(0), storage.arenaIndex(1));
+			Assertions.assertNotEquals(storage.arenaIndex(0), storage.arenaIndex(2));
+		} finally {
+			storage.delete();
+		}
+	}
+
+	private void fillSky(BitSet solid) {
+		long ptr = data.ptr();
+		MemoryUtil.memSet(ptr, 0, data.size());
+		LightStorage.writeSolidData(ptr, solid, MARGIN);
+		MemoryUtil.memSet(ptr + LightStorage.SOLID_SIZE_BYTES, 0xF0, LightStorage.LIGHT_SIZE_BYTES);
+		LightStorage.collectOcclusionData(ptr, solid);
+	}
+
+	private void assertMatchesVanilla(BitSet solid, int x, int y, int z) {
+		for (int face = 0; face < ADJACENCY.length; face++) {
+			int[] normal = ADJACENCY[face][0];
+			int axis = axis(normal);
+
+			for (int a = -1; a <= 1; a += 2) {
+				for (int b = -1; b <= 1; b += 2) {
+					int[] corner = new int[3];
+					corner[axis] = normal[axis];
+					corner[(axis + 1) % 3] = a;
+					corner[(axis + 2) % 3] = b;
+
+					float expected = vanillaAo(solid, x, y, z, face, corner);
+					float actual = shaderAo(x, y, z, face, corner);
+
+					Assertions.assertEquals(expected, actual, 1e-6, "block " + x + " " + y + " " + z + " face " + face);
+				}
+			}
+		}
+	}
+
+	private static float vanillaAo(BitSet solid, int x, int y, int z, int face, int cx, int cy, int cz) {
+		return vanillaAo(solid, x, y, z, face, new int[]{cx, cy, cz});
+	}
+
+	/**
+	 * Vanilla's AO for one vertex of a full face, as ModelBlockRenderer.AmbientOcclusionFace does it. Solid blocks
+	 * stand in for both its shade brightness and its view blocking checks.
+	 */
+	private static float vanillaAo(BitSet solid, int x, int y, int z, int face, int[] vertex) {
+		int[] d = ADJACENCY[face][0];
+		int[][] corners = {ADJACENCY[face][1], ADJACENCY[face][2], ADJACENCY[face][3], ADJACENCY[face][4]};
+
+		// The block in front of the face.
+		int qx = x + d[0];
+		int qy = y + d[1];
+		int qz = z + d[2];
+
+		float[] shade = new float[4];
+		boolean[] open = new boolean[4];
+		for (int i = 0; i < 4; i++) {
+			int[] c = corners[i];
+			shade[i] = shade(solid, qx + c[0], qy + c[1], qz + c[2]);
+			open[i] = !isSolid(solid, qx + c[0] + d[0], qy + c[1] + d[1], qz + c[2] + d[2]);
+		}
+
+		// Which of the first two and last two neighbors point towards the vertex.
+		int i = matches(corners[0], vertex) ? 0 : 1;
+		int j = matches(corners[2], vertex) ? 2 : 3;
+
+		float cornerShade;
+		if (open[i] || open[j]) {
+			int[] ci = corners[i];
+			int[] cj = corners[j];
+			cornerShade = shade(solid, qx + ci[0] + cj[0], qy + ci[1] + cj[1], qz + ci[2] + cj[2]);
+		} else {
+			cornerShade = shade[i];
+		}
+
+		return (shade[i] + shade[j] + cornerShade + shade(solid, qx, qy, qz)) * 0.25F;
+	}
+
+	private float shaderAo(int x, int y, int z, int face, int cx, int cy, int cz) {
+		return shaderAo(x, y, z, face, new int[]{cx, cy, cz});
+	}
+
+	/**
+	 * What smooth lighting computes for the AO on a vertex of a face from the occlusion channel, following
+	 * {@code _flw_lightForDirection} in light_lut.glsl.
+	 */
+	private float shaderAo(int x, int y, int z, int face, int[] vertex) {
+		int mask = mask(x, y, z);
+		int[] normal = ADJACENCY[face][0];
+		int axis = axis(normal);
+		int hidden = (hidden(x, y, z) >> (axis * 8)) & 0xFF;
+		// The axis a hidden corner moves back to the center along, the sideStep passed to _flw_lightForDirection.
+		int sideAxis = axis == 2 ? (normal[2] < 0 ? 0 : 1) : 2;
+
+		int validCount = 0;
+		for (int i = 0; i <= 1; i++) {
+			for (int j = 0; j <= 1; j++) {
+				int[] block = vertex.clone();
+				if (i == 0) {
+					block[(axis + 1) % 3] = 0;
+				}
+				if (j == 0) {
+					block[(axis + 2) % 3] = 0;
+				}
+
+				boolean isCorner = block[0] != 0 && block[1] != 0 && block[2] != 0;
+				if (isCorner && (hidden & 1 << ((block[0] + 1) / 2 + (block[2] + 1) + (block[1] + 1) * 2)) != 0) {
+					block[sideAxis] = 0;
+				}
+
+				int bit = (block[0] + 1) + (block[2] + 1) * 3 + (block[1] + 1) * 9;
+				if ((mask & 1 << bit) == 0) {
+					validCount++;
+				}
+			}
+		}
+
+		return 1 - (4 - validCount) * 0.2F;
+	}
+
+	private int mask(int x, int y, int z) {
+		return MemoryUtil.memGetInt(occlusionPtr(x, y, z));
+	}
+
+	private int hidden(int x, int y, int z) {
+		return MemoryUtil.memGetInt(occlusionPtr(x, y, z) + Integer.BYTES);
+	}
+
+	private long occlusionPtr(int x, int y, int z) {
+		return data.ptr() + LightStorage.OCCLUSION_START_BYTES + (x + z * 16L + y * 256L) * 2 * Integer.BYTES;
+	}
+
+	private static boolean matches(int[] direction, int[] vertex) {
+		for (int i = 0; i < 3; i++) {
+			if (direction[i] != 0 && direction[i] != vertex[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int axis(int[] direction) {
+		return direction[0] != 0 ? 0 : direction[1] != 0 ? 1 : 2;
+	}
+
+	private static float shade(BitSet solid, int x, int y, int z) {
+		return isSolid(solid, x, y, z) ? 0.2F : 1.0F;
+	}
+
+	/**
+	 * @param x X coordinate in the section, from [-2, 17].
+	 */
+	private static boolean isSolid(BitSet solid, int x, int y, int z) {
+		return solid.get(index(x, y, z));
+	}
+
+	private static void set(BitSet solid, int x, int y, int z) {
+		solid.set(index(x, y, z));
+	}
+
+	private static int index(int x, int y, int z) {
+		return (x + MARGIN) + (z + MARGIN) * SIZE + (y + MARGIN) * SIZE * SIZE;
+	}
+
+	private static BitSet random(long seed, double density) {
+		var random = new Random(seed);
+		var solid = new BitSet(SIZE * SIZE * SIZE);
+		for (int i = 0; i < SIZE * SIZE * SIZE; i++) {
+			if (random.nextDouble() < density) {
+				solid.set(i);
+			}
+		}
+		return solid;
+	}
+}
@@ -0,0 +1,93 @@
+package dev.engine_room.flywheel.backend.engine;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+
+class LightPaletteTest {
+	private MemoryBlock light;
+	private MemoryBlock encoded;
+
+	@BeforeEach
+	void setUp() {
+		light = MemoryBlock.malloc(LightStorage.LIGHT_SIZE_BYTES);
+		encoded = MemoryBlock.malloc(LightPalette.encodedSizeBytes(LightPalette.RAW_BITS, LightStorage.LIGHT_SIZE_BYTES));
+	}
+
+	@AfterEach
+	void tearDown() {
+		light.free();
+		encoded.free();
+	}
+
+	@Test
+	void roundTripsEveryWidth() {
+		int[] distinct = {1, 2, 3, 4, 5, 16, 17, 256};
+		int[] bits = {0, 1, 2, 2, 4, 4, 8, 8};
+
+		for (int i = 0; i < distinct.length; i++) {
+			fillRandom(i, distinct[i], LightStorage.LIGHT_SIZE_BYTES);
+
+			var palette = roundTrip(LightStorage.LIGHT_SIZE_BYTES);
+
+			Assertions.assertEquals(bits[i], palette.bits(), distinct[i] + " values");
+		}
+	}
+
+	@Test
+	void roundTripsPartialLastInt() {
+		// 37 values never fill the last int exactly, whatever the width.
+		for (int distinct : new int[]{2, 4, 16, 37}) {
+			fillRandom(distinct, distinct, 37);
+			roundTrip(37);
+		}
+	}
+
+	@Test
+	void sizeScalesWithDistinctValues() {
+		int raw = LightPalette.encodedSizeBytes(LightPalette.RAW_BITS, LightStorage.LIGHT_SIZE_BYTES);
+
+		Assertions.assertTrue(LightPalette.encodedSizeBytes(4, LightStorage.LIGHT_SIZE_BYTES) * 2 < raw + 64);
+		Assertions.assertTrue(LightPalette.encodedSizeBytes(2, LightStorage.LIGHT_SIZE_BYTES) * 4 < raw + 128);
+		Assertions.assertTrue(LightPalette.encodedSizeBytes(1, LightStorage.LIGHT_SIZE_BYTES) * 8 < raw + 256);
+		// Still room for one int of indices, which decoding reads regardless.
+		Assertions.assertEquals(LightPalette.encodedSizeBytes(1, 1), LightPalette.encodedSizeBytes(0, LightStorage.LIGHT_SIZE_BYTES));
+	}
+
+	private LightPalette roundTrip(int count) {
+		var palette = LightPalette.of(light.ptr(), count);
+
+		// Leftovers from a previous section mustn't leak into this one.
+		MemoryUtil.memSet(encoded.ptr(), 0xFF, encoded.size());
+		palette.encode(light.ptr(), count, encoded.ptr());
+
+		for (int i = 0; i < count; i++) {
+			int expected = MemoryUtil.memGetByte(light.ptr() + i) & 0xFF;
+			Assertions.assertEquals(expected, LightPalette.decode(encoded.ptr(), i), "index " + i);
+		}
+
+		return palette;
+	}
+
+	private void fillRandom(long seed, int distinct, int count) {
+		var random = new Random(seed);
+
+		int[] values = new int[distinct];
+		for (int i = 0; i < distinct; i++) {
+			// Spread out over all the packed values, not just the first few.
+			values[i] = (i * 167 + 13) & 0xFF;
+		}
+
+		for (int i = 0; i < count; i++) {
+			// Make sure every value shows up at least once.
+			int value = i < distinct ? values[i] : values[random.nextInt(distinct)];
+			MemoryUtil.memPutByte(light.ptr() + i, (byte) value);
+		}
+	}
+}
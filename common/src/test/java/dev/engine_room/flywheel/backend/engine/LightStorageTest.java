@@ -0,0 +1,263 @@
+package dev.engine_room.flywheel.backend.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.impl.task.SerialTaskExecutor;
+import dev.engine_room.flywheel.lib.math.MoreMath;
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+class LightStorageTest {
+	private static final int SKY = 0xF0;
+	private static final int DARK = 0x00;
+	// Every section in these tests has one light value, which only takes a few pages.
+	private static final int PAGES = pages(0);
+
+	private LightStorage storage;
+	private MemoryBlock data;
+
+	@BeforeEach
+	void setUp() {
+		// The level is only needed to collect sections, not to store them.
+		storage = new LightStorage(null, false);
+		data = MemoryBlock.malloc(LightStorage.SECTION_SIZE_BYTES);
+	}
+
+	@AfterEach
+	void tearDown() {
+		storage.delete();
+		data.free();
+	}
+
+	@Test
+	void openSkyIsUniform() {
+		fill(false, SKY);
+
+		Assertions.assertEquals(SKY, LightStorage.uniformValue(data.ptr()));
+	}
+
+	@Test
+	void solidDarknessIsUniform() {
+		fill(true, DARK);
+
+		Assertions.assertEquals(DARK | 1 << 8, LightStorage.uniformValue(data.ptr()));
+	}
+
+	@Test
+	void oneDifferentBlockIsNotUniform() {
+		fill(false, SKY);
+		// The last block in the section, in the corner of the border.
+		MemoryUtil.memPutByte(data.ptr() + LightStorage.SOLID_SIZE_BYTES + LightStorage.LIGHT_SIZE_BYTES - 1, (byte) 0xE0);
+		Assertions.assertEquals(LightStorage.NOT_UNIFORM, LightStorage.uniformValue(data.ptr()));
+
+		fill(false, SKY);
+		setSolid(LightStorage.BLOCKS_PER_SECTION - 1);
+		Assertions.assertEquals(LightStorage.NOT_UNIFORM, LightStorage.uniformValue(data.ptr()));
+
+		fill(true, DARK);
+		clearSolid(LightStorage.BLOCKS_PER_SECTION - 1);
+		Assertions.assertEquals(LightStorage.NOT_UNIFORM, LightStorage.uniformValue(data.ptr()));
+	}
+
+	@Test
+	void uniformSectionsShareASlot() {
+		fill(false, SKY);
+		storage.store(0, data.ptr());
+		storage.store(1, data.ptr());
+
+		Assertions.assertEquals(storage.arenaIndex(0), storage.arenaIndex(1));
+		Assertions.assertEquals(PAGES, storage.capacity());
+
+		fill(true, DARK);
+		storage.store(2, data.ptr());
+
+		Assertions.assertNotEquals(storage.arenaIndex(0), storage.arenaIndex(2));
+		Assertions.assertEquals(2 * PAGES, storage.capacity());
+
+		fillMixed();
+		storage.store(3, data.ptr());
+		storage.store(4, data.ptr());
+
+		Assertions.assertNotEquals(storage.arenaIndex(3), storage.arenaIndex(4));
+		Assertions.assertEquals(4 * PAGES, storage.capacity());
+	}
+
+	@Test
+	void sectionsMoveBetweenSharedAndOwnSlots() {
+		fill(false, SKY);
+		storage.store(0, data.ptr());
+		storage.store(1, data.ptr());
+		int shared = storage.arenaIndex(0);
+
+		fillMixed();
+		storage.store(0, data.ptr());
+
+		Assertions.assertNotEquals(shared, storage.arenaIndex(0));
+		Assertions.assertEquals(shared, storage.arenaIndex(1));
+
+		// The last section using the shared slot leaves it, so it gets reused.
+		storage.store(1, data.ptr());
+
+		Assertions.assertEquals(2 * PAGES, storage.capacity());
+		Assertions.assertEquals(shared, storage.arenaIndex(1));
+
+		// And a section becoming uniform again gives its own slot back.
+		fill(false, SKY);
+		storage.store(0, data.ptr());
+		storage.store(1, data.ptr());
+
+		Assertions.assertEquals(storage.arenaIndex(0), storage.arenaIndex(1));
+		fill(true, DARK);
+		storage.store(2, data.ptr());
+		Assertions.assertEquals(2 * PAGES, storage.capacity());
+	}
+
+	@Test
+	void compactsAfterManySectionsAreRemoved() {
+		fillMixed();
+		for (int i = 0; i < 400; i++) {
+			storage.store(i, data.ptr());
+		}
+		fill(false, SKY);
+		storage.store(1000, data.ptr());
+		storage.store(1001, data.ptr());
+
+		LongSet removed = new LongOpenHashSet();
+		for (int i = 0; i < 300; i++) {
+			removed.add(i);
+		}
+		storage.sections(LongSet.of(), removed);
+		storage.checkNeedsLutRebuildAndClear();
+
+		// 101 sections need to move to the front, which takes more than a frame.
+		runFrame();
+		Assertions.assertEquals((401 - 64) * PAGES, storage.capacity());
+		Assertions.assertTrue(storage.checkNeedsLutRebuildAndClear());
+
+		runFrame();
+		Assertions.assertEquals(101 * PAGES, storage.capacity());
+
+		IntSet indices = new IntOpenHashSet();
+		for (int i = 300; i < 400; i++) {
+			int index = storage.arenaIndex(i);
+			Assertions.assertTrue(index < 101 * PAGES);
+			Assertions.assertTrue(indices.add(index));
+		}
+		Assertions.assertEquals(storage.arenaIndex(1000), storage.arenaIndex(1001));
+		Assertions.assertTrue(indices.add(storage.arenaIndex(1000)));
+	}
+
+	@Test
+	void compactsWhenTheLastSectionFitsNoHole() {
+		fillMixed();
+		for (int i = 0; i < 200; i++) {
+			storage.store(i, data.ptr());
+		}
+		fillRaw();
+		storage.store(1000, data.ptr());
+		int bigPages = pages(LightPalette.RAW_BITS);
+
+		// Holes of two sections each, all smaller than the last section.
+		LongSet removed = new LongOpenHashSet();
+		for (int i = 0; i < 200; i++) {
+			if (i % 3 != 0) {
+				removed.add(i);
+			}
+		}
+		Assertions.assertTrue(2 * PAGES < bigPages);
+		storage.sections(LongSet.of(), removed);
+
+		for (int frame = 0; frame < 4; frame++) {
+			runFrame();
+		}
+
+		Assertions.assertEquals(67 * PAGES + bigPages, storage.capacity());
+
+		// Packed without overlaps.
+		IntSet pages = new IntOpenHashSet();
+		for (int i = 0; i < 200; i += 3) {
+			addPages(pages, storage.arenaIndex(i), PAGES);
+		}
+		addPages(pages, storage.arenaIndex(1000), bigPages);
+		Assertions.assertEquals(storage.capacity(), pages.size());
+
+		// Nothing left to do until sections come or go.
+		storage.checkNeedsLutRebuildAndClear();
+		runFrame();
+		Assertions.assertFalse(storage.checkNeedsLutRebuildAndClear());
+	}
+
+	@Test
+	void sectionsTakeAsManyPagesAsTheirLightNeeds() {
+		fillMixed();
+		storage.store(0, data.ptr());
+		Assertions.assertEquals(PAGES, storage.capacity());
+
+		fillRaw();
+		storage.store(0, data.ptr());
+		Assertions.assertEquals(pages(LightPalette.RAW_BITS), storage.capacity());
+
+		// Back down to two values.
+		fillMixed();
+		MemoryUtil.memPutByte(data.ptr() + LightStorage.SOLID_SIZE_BYTES, (byte) DARK);
+		storage.store(0, data.ptr());
+		Assertions.assertEquals(pages(1), storage.capacity());
+		Assertions.assertTrue(pages(1) * 4 < pages(LightPalette.RAW_BITS));
+	}
+
+	private static int pages(int bits) {
+		return MoreMath.ceilingDiv(LightStorage.SOLID_SIZE_BYTES + LightPalette.encodedSizeBytes(bits, LightStorage.LIGHT_SIZE_BYTES), LightStorage.PAGE_SIZE_BYTES);
+	}
+
+	private void runFrame() {
+		storage.createFramePlan()
+				.execute(SerialTaskExecutor.INSTANCE, null);
+	}
+
+	private void fill(boolean solid, int light) {
+		long ptr = data.ptr();
+		MemoryUtil.memSet(ptr, 0, LightStorage.SOLID_SIZE_BYTES);
+		if (solid) {
+			MemoryUtil.memSet(ptr, 0xFF, LightStorage.BLOCKS_PER_SECTION / Byte.SIZE);
+		}
+		MemoryUtil.memSet(ptr + LightStorage.SOLID_SIZE_BYTES, light, LightStorage.LIGHT_SIZE_BYTES);
+	}
+
+	private void fillMixed() {
+		fill(false, SKY);
+		setSolid(0);
+	}
+
+	/**
+	 * Every block with its own light value, which can't use a palette.
+	 */
+	private void fillRaw() {
+		fillMixed();
+		for (int i = 0; i < LightStorage.LIGHT_SIZE_BYTES; i++) {
+			MemoryUtil.memPutByte(data.ptr() + LightStorage.SOLID_SIZE_BYTES + i, (byte) i);
+		}
+	}
+
+	private static void addPages(IntSet pages, int start, int count) {
+		for (int i = start; i < start + count; i++) {
+			Assertions.assertTrue(pages.add(i), "page " + i);
+		}
+	}
+
+	private void setSolid(int block) {
+		long ptr = data.ptr() + block / Byte.SIZE;
+		MemoryUtil.memPutByte(ptr, (byte) (MemoryUtil.memGetByte(ptr) | 1 << (block % Byte.SIZE)));
+	}
+
+	private void clearSolid(int block) {
+		long ptr = data.ptr() + block / Byte.SIZE;
+		MemoryUtil.memPutByte(ptr, (byte) (MemoryUtil.memGetByte(ptr) & ~(1 << (block % Byte.SIZE))));
+	}
+}
@@ -1,5 +1,8 @@
 package dev.engine_room.flywheel.backend.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -36,4 +39,53 @@ public class TestAtomicBitSet {
 
 		Assertions.assertEquals(bitLength + 1, bs.nextClearBit(0));
 	}
+
+	@Test
+	void testForEachSetSpan() {
+		var bs = new AtomicBitSet();
+
+		Assertions.assertEquals(List.of(), spans(bs, 0));
+
+		bs.set(3, 6);
+		bs.set(8);
+		bs.set(63, 65);
+		bs.set(2000);
+
+		Assertions.assertEquals(List.of(List.of(3, 5), List.of(8, 8), List.of(63, 64), List.of(2000, 2000)), spans(bs, 0));
+	}
+
+	@Test
+	void testForEachSetSpanMergesSmallGaps() {
+		var bs = new AtomicBitSet();
+		bs.set(3, 6);
+		bs.set(8);
+		bs.set(12);
+		bs.set(63, 65);
+		bs.set(2000);
+
+		// Gaps of 2 and 3 bits, then much bigger ones.
+		Assertions.assertEquals(List.of(List.of(3, 8), List.of(12, 12), List.of(63, 64), List.of(2000, 2000)), spans(bs, 2));
+		Assertions.assertEquals(List.of(List.of(3, 12), List.of(63, 64), List.of(2000, 2000)), spans(bs, 3));
+		Assertions.assertEquals(List.of(List.of(3, 64), List.of(2000, 2000)), spans(bs, 50));
+		Assertions.assertEquals(List.of(List.of(3, 2000)), spans(bs, 1 << 20));
+	}
+
+	@Test
+	void testForEachSetSpanEveryOtherBit() {
+		var bitLength = 2 << AtomicBitSet.DEFAULT_LOG2_SEGMENT_SIZE_IN_BITS;
+		var bs = new AtomicBitSet();
+		for (int i = 0; i < bitLength; i += 2) {
+			bs.set(i);
+		}
+
+		Assertions.assertEquals(bitLength / 2, spans(bs, 0).size());
+		// Crosses segment boundaries as one span.
+		Assertions.assertEquals(List.of(List.of(0, bitLength - 2)), spans(bs, 1));
+	}
+
+	private static List<List<Integer>> spans(AtomicBitSet bs, int maxGap) {
+		List<List<Integer>> out = new ArrayList<>();
+		bs.forEachSetSpan(maxGap, (startInclusive, endInclusive) -> out.add(List.of(startInclusive, endInclusive)));
+		return out;
+	}
 }
@@ -0,0 +1,174 @@
+package dev.engine_room.flywheel.impl.layout;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.engine_room.flywheel.api.instance.InstanceType;
+import dev.engine_room.flywheel.api.layout.ArrayElementType;
+import dev.engine_room.flywheel.api.layout.FloatRepr;
+import dev.engine_room.flywheel.api.layout.IntegerRepr;
+import dev.engine_room.flywheel.api.layout.Layout;
+import dev.engine_room.flywheel.api.layout.LayoutBuilder;
+import dev.engine_room.flywheel.api.layout.MatrixElementType;
+import dev.engine_room.flywheel.api.layout.ScalarElementType;
+import dev.engine_room.flywheel.api.layout.VectorElementType;
+import dev.engine_room.flywheel.lib.instance.InstanceTypes;
+
+class LayoutBuilderImplTest {
+	private static final List<InstanceType<?>> BUILT_IN_TYPES = List.of(InstanceTypes.TRANSFORMED, InstanceTypes.COMPACT_TRANSFORMED, InstanceTypes.ORIENTED, InstanceTypes.ANIMATED, InstanceTypes.SHADOW);
+
+	@Test
+	void declarationOrderPadsBetweenElements() {
+		var layout = mixed(new LayoutBuilderImpl());
+
+		assertOffsets(layout, 0, 4, 8, 14, 16, 20);
+		assertPadding(layout, 3, 0, 0, 1, 0, 0);
+		Assertions.assertEquals(56, layout.byteSize());
+	}
+
+	@Test
+	void packingRemovesPadding() {
+		var layout = mixed(new LayoutBuilderImpl().packed());
+
+		// Floats first, then shorts, then bytes, each in the order they were added.
+		assertOffsets(layout, 50, 0, 40, 51, 46, 4);
+		assertPadding(layout, 0, 0, 0, 0, 0, 0);
+		Assertions.assertEquals(52, layout.byteSize());
+		Assertions.assertEquals(4, layout.byteAlignment());
+	}
+
+	@Test
+	void packingPadsTheEnd() {
+		var layout = new LayoutBuilderImpl().packed()
+				.scalar("a", FloatRepr.UNSIGNED_BYTE)
+				.scalar("b", FloatRepr.FLOAT)
+				.scalar("c", IntegerRepr.SHORT)
+				.build();
+
+		assertOffsets(layout, 6, 0, 4);
+		// The stride stays a multiple of the largest alignment.
+		assertPadding(layout, 1, 0, 0);
+		Assertions.assertEquals(8, layout.byteSize());
+	}
+
+	@Test
+	void packingKeepsTheDeclaredInterface() {
+		var declared = mixed(new LayoutBuilderImpl());
+		var packed = mixed(new LayoutBuilderImpl().packed());
+
+		Assertions.assertEquals(declared.elements()
+				.stream()
+				.map(Layout.Element::name)
+				.toList(), packed.elements()
+				.stream()
+				.map(Layout.Element::name)
+				.toList());
+
+		for (int i = 0; i < declared.elements()
+				.size(); i++) {
+			Assertions.assertEquals(declared.elements()
+					.get(i)
+					.type(), packed.elements()
+					.get(i)
+					.type());
+		}
+	}
+
+	@Test
+	void builderForgetsPackingAfterBuild() {
+		var builder = new LayoutBuilderImpl();
+		mixed(builder.packed());
+
+		assertOffsets(mixed(builder), 0, 4, 8, 14, 16, 20);
+	}
+
+	@Test
+	void builtInLayoutsAreMinimal() {
+		for (var type : BUILT_IN_TYPES) {
+			var declared = type.layout();
+			var packed = rebuild(declared, new LayoutBuilderImpl().packed());
+
+			int elementBytes = 0;
+			for (var element : declared.elements()) {
+				elementBytes += element.type()
+						.byteSize();
+				Assertions.assertEquals(0, element.paddingByteSize(), element.name());
+			}
+
+			// No padding at all, so packing keeps them as they are and the hand-written writers stay valid.
+			Assertions.assertEquals(elementBytes, declared.byteSize());
+			Assertions.assertEquals(declared, packed);
+			Assertions.assertEquals(declared.byteSize(), packed.byteSize());
+		}
+	}
+
+	/**
+	 * Add the elements of a layout to a builder again.
+	 */
+	private static Layout rebuild(Layout layout, LayoutBuilder builder) {
+		for (var element : layout.elements()) {
+			var name = element.name();
+			var type = element.type();
+
+			if (type instanceof ScalarElementType scalar) {
+				builder.scalar(name, scalar.repr());
+			} else if (type instanceof VectorElementType vector) {
+				builder.vector(name, vector.repr(), vector.size());
+			} else if (type instanceof MatrixElementType matrix) {
+				builder.matrix(name, matrix.repr(), matrix.rows(), matrix.columns());
+			} else if (type instanceof ArrayElementType array) {
+				var inner = array.innerType();
+
+				if (inner instanceof ScalarElementType scalar) {
+					builder.scalarArray(name, scalar.repr(), array.length());
+				} else if (inner instanceof VectorElementType vector) {
+					builder.vectorArray(name, vector.repr(), vector.size(), array.length());
+				} else if (inner instanceof MatrixElementType matrix) {
+					builder.matrixArray(name, matrix.repr(), matrix.rows(), matrix.columns(), array.length());
+				} else {
+					throw new IllegalArgumentException("Unsupported array element type: " + inner);
+				}
+			}
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * A layout with padding after almost every element when laid out in declaration order.
+	 */
+	private static Layout mixed(LayoutBuilder builder) {
+		return builder.scalar("a", FloatRepr.UNSIGNED_BYTE)
+				.scalar("b", FloatRepr.FLOAT)
+				.vector("c", IntegerRepr.SHORT, 3)
+				.scalar("d", IntegerRepr.BYTE)
+				.vector("e", FloatRepr.NORMALIZED_SHORT, 2)
+				.matrix("f", FloatRepr.FLOAT, 3)
+				.build();
+	}
+
+	private static void assertPadding(Layout layout, int... paddingByteSizes) {
+		var elements = layout.elements();
+		Assertions.assertEquals(paddingByteSizes.length, elements.size());
+
+		for (int i = 0; i < paddingByteSizes.length; i++) {
+			var element = elements.get(i);
+			Assertions.assertEquals(paddingByteSizes[i], element.paddingByteSize(), element.name());
+			Assertions.assertEquals(element.type()
+					.byteSize() + paddingByteSizes[i], element.paddedByteSize(), element.name());
+		}
+	}
+
+	private static void assertOffsets(Layout layout, int... byteOffsets) {
+		var elements = layout.elements();
+		Assertions.assertEquals(byteOffsets.length, elements.size());
+
+		for (int i = 0; i < byteOffsets.length; i++) {
+			Assertions.assertEquals(byteOffsets[i], elements.get(i)
+					.byteOffset(), elements.get(i)
+					.name());
+		}
+	}
+}
@@ -14,6 +14,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import dev.engine_room.flywheel.api.task.Plan;
+import dev.engine_room.flywheel.lib.task.BalancedForEachPlan;
+import dev.engine_room.flywheel.lib.task.CostModel;
 import dev.engine_room.flywheel.lib.task.DynamicNestedPlan;
 import dev.engine_room.flywheel.lib.task.IfElsePlan;
 import dev.engine_room.flywheel.lib.task.NestedPlan;
@@ -190,6 +192,38 @@ class PlanExecutionTest {
 		Assertions.assertEquals(3, counter.get());
 	}
 
+	@Test
+	void balancedForEachPlan() {
+		int size = 1000;
+		List<Integer> list = new ArrayList<>();
+		var visits = new AtomicInteger[size];
+		for (int i = 0; i < size; i++) {
+			list.add(i);
+			visits[i] = new AtomicInteger();
+		}
+
+		var recorded = new AtomicInteger();
+		var costs = new CostModel<Integer>() {
+			@Override
+			public long estimateNanos(Integer i) {
+				// A few expensive elements among many cheap ones.
+				return i % 100 == 0 ? 1_000_000 : 1_000;
+			}
+
+			@Override
+			public void record(Integer i, long tookNanos) {
+				recorded.incrementAndGet();
+			}
+		};
+
+		runAndWait(BalancedForEachPlan.<Integer, Unit>of(() -> list, i -> visits[i].incrementAndGet(), costs));
+
+		for (int i = 0; i < size; i++) {
+			Assertions.assertEquals(1, visits[i].get(), "Element " + i);
+		}
+		Assertions.assertEquals(size, recorded.get());
+	}
+
 	@Test
 	void flagPlan() {
 		var first = new Flag("ready right away");
@@ -0,0 +1,195 @@
+package dev.engine_room.flywheel.impl.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class WaitGroupAwaitTest {
+	private static final long LONG_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		executor.shutdownNow();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void testAwaitEmpty() {
+		WaitGroup wg = new WaitGroup();
+		assertTrue(wg.await(0));
+	}
+
+	@Test
+	void testAwaitTimesOut() {
+		WaitGroup wg = new WaitGroup();
+		wg.add();
+
+		long timeout = TimeUnit.MILLISECONDS.toNanos(20);
+		long start = System.nanoTime();
+
+		assertFalse(wg.await(timeout));
+		assertTrue(System.nanoTime() - start >= timeout);
+	}
+
+	@Test
+	@Timeout(30)
+	void testNoLostWakeups() {
+		WaitGroup wg = new WaitGroup();
+
+		// Race done() against every stage of await: spinning, registering and parking.
+		for (int i = 0; i < 20_000; i++) {
+			wg.add();
+			int delay = i % 50;
+			executor.execute(() -> {
+				for (int j = 0; j < delay; j++) {
+					Thread.onSpinWait();
+				}
+				wg.done();
+			});
+
+			assertTrue(wg.await(LONG_TIMEOUT_NANOS), "Lost wakeup at iteration " + i);
+		}
+	}
+
+	@Test
+	@Timeout(30)
+	void testNoLostWakeupsAfterParking() throws InterruptedException {
+		WaitGroup wg = new WaitGroup();
+
+		for (int i = 0; i < 200; i++) {
+			wg.add();
+			executor.execute(() -> {
+				// Sleep well past any spin budget so the waiter parks.
+				sleepMillis(1);
+				wg.done();
+			});
+
+			long start = System.nanoTime();
+			assertTrue(wg.await(LONG_TIMEOUT_NANOS), "Lost wakeup at iteration " + i);
+			// If the wakeup were lost we would only return at the timeout.
+			assertTrue(System.nanoTime() - start < LONG_TIMEOUT_NANOS / 2);
+		}
+	}
+
+	@Test
+	@Timeout(30)
+	void testLastDoneReleasesAllWaiters() throws InterruptedException {
+		WaitGroup wg = new WaitGroup();
+		int tasks = 8;
+		wg.add(tasks);
+
+		int waiterCount = 3;
+		var released = new AtomicInteger();
+		var waitersDone = new CountDownLatch(waiterCount);
+
+		for (int i = 0; i < waiterCount; i++) {
+			new Thread(() -> {
+				if (wg.await(LONG_TIMEOUT_NANOS)) {
+					released.incrementAndGet();
+				}
+				waitersDone.countDown();
+			}).start();
+		}
+
+		sleepMillis(5);
+
+		for (int i = 0; i < tasks - 1; i++) {
+			wg.done();
+		}
+
+		sleepMillis(5);
+		assertEquals(0, released.get(), "Released before the last done");
+
+		wg.done();
+
+		assertTrue(waitersDone.await(5, TimeUnit.SECONDS));
+		assertEquals(waiterCount, released.get());
+	}
+
+	@Test
+	@Timeout(30)
+	void testSignalWakesParkedWaiter() throws InterruptedException {
+		WaitGroup wg = new WaitGroup();
+		wg.add();
+
+		var result = new AtomicInteger(-1);
+		var waiterDone = new CountDownLatch(1);
+
+		new Thread(() -> {
+			result.set(wg.await(LONG_TIMEOUT_NANOS) ? 1 : 0);
+			waiterDone.countDown();
+		}).start();
+
+		// Give the waiter time to park.
+		sleepMillis(5);
+		wg.signal();
+
+		assertTrue(waiterDone.await(5, TimeUnit.SECONDS), "Signal did not wake the waiter");
+		assertEquals(0, result.get());
+
+		wg.done();
+		assertTrue(wg.await(0));
+	}
+
+	@Test
+	void testSpinAdaptsToShortWaits() {
+		AdaptiveSpin spin = new AdaptiveSpin(1_000, 50_000, 10_000);
+
+		for (int i = 0; i < 100; i++) {
+			spin.record(2_000);
+		}
+
+		// Spin for about twice as long as waits usually take.
+		assertEquals(4_000, spin.budgetNanos(), 100);
+	}
+
+	@Test
+	void testSpinBacksOffForLongWaits() {
+		AdaptiveSpin spin = new AdaptiveSpin(1_000, 50_000, 10_000);
+
+		for (int i = 0; i < 100; i++) {
+			spin.record(5_000_000);
+		}
+
+		// Waits that long would end up parking anyway.
+		assertEquals(1_000, spin.budgetNanos());
+	}
+
+	@Test
+	void testSpinClampsToMax() {
+		AdaptiveSpin spin = new AdaptiveSpin(1_000, 50_000, 10_000);
+
+		for (int i = 0; i < 100; i++) {
+			spin.record(40_000);
+		}
+
+		assertEquals(50_000, spin.budgetNanos());
+	}
+
+	private static void sleepMillis(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package dev.engine_room.flywheel.impl.visualization;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.engine_room.flywheel.api.visual.Visual;
+import dev.engine_room.flywheel.impl.visualization.storage.Storage;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+class VisualCreationSchedulerTest {
+	private static final List<String> CANDIDATES = List.of("a", "b", "c", "d", "e");
+	// Only what's in front of the camera along +x is in view.
+	private static final FrustumIntersection FRUSTUM = new FrustumIntersection(new Matrix4f().ortho(0, 200, -100, 100, -100, 100));
+
+	@Test
+	void zeroBudgetStillCreatesOne() {
+		var scheduler = new VisualCreationScheduler<>(new StubStorage(Map.of()), 0);
+
+		Assertions.assertEquals(List.of("a"), scheduler.select(CANDIDATES, 1));
+		Assertions.assertEquals(List.of("a"), scheduler.select(CANDIDATES, 4));
+	}
+
+	@Test
+	void negativeBudgetCreatesEverything() {
+		var scheduler = new VisualCreationScheduler<>(new StubStorage(Map.of()), -1);
+
+		Assertions.assertEquals(CANDIDATES, scheduler.select(CANDIDATES, 1));
+	}
+
+	@Test
+	void budgetScalesWithThreads() {
+		// Two visuals at the default cost.
+		var scheduler = new VisualCreationScheduler<>(new StubStorage(Map.of()), 0.1);
+
+		Assertions.assertEquals(2, scheduler.select(CANDIDATES, 1)
+				.size());
+		Assertions.assertEquals(CANDIDATES, scheduler.select(CANDIDATES, 4));
+	}
+
+	@Test
+	void nearestFirst() {
+		var storage = new StubStorage(Map.of("far", new Vec3(-150, 0, 0), "near", new Vec3(-10, 0, 0), "mid", new Vec3(-60, 0, 0)));
+		var scheduler = new VisualCreationScheduler<>(storage, 0.1);
+		scheduler.viewpoint(Vec3.ZERO, FRUSTUM);
+
+		Assertions.assertEquals(List.of("near", "mid"), scheduler.select(List.of("far", "near", "mid"), 1));
+	}
+
+	@Test
+	void inViewFirst() {
+		var storage = new StubStorage(Map.of("behind", new Vec3(-10, 0, 0), "ahead", new Vec3(60, 0, 0)));
+		var scheduler = new VisualCreationScheduler<>(storage, 0);
+		scheduler.viewpoint(Vec3.ZERO, FRUSTUM);
+
+		Assertions.assertEquals(List.of("ahead"), scheduler.select(List.of("behind", "ahead"), 1));
+	}
+
+	@Test
+	void unboundedObjectsGoFirst() {
+		var storage = new StubStorage(Map.of("near", new Vec3(-10, 0, 0)));
+		var scheduler = new VisualCreationScheduler<>(storage, 0);
+		scheduler.viewpoint(Vec3.ZERO, FRUSTUM);
+
+		Assertions.assertEquals(List.of("unbounded"), scheduler.select(List.of("near", "unbounded"), 1));
+	}
+
+	/**
+	 * Places each object in a block at the given position, and creates no visuals.
+	 */
+	private static final class StubStorage extends Storage<String> {
+		private final Map<String, Vec3> positions;
+
+		private StubStorage(Map<String, Vec3> positions) {
+			super(null);
+			this.positions = positions;
+		}
+
+		@Override
+		public boolean willAccept(String obj) {
+			return true;
+		}
+
+		@Override
+		@Nullable
+		protected Visual createRaw(String obj, float partialTick) {
+			return null;
+		}
+
+		@Override
+		@Nullable
+		public AABB bounds(String obj) {
+			var position = positions.get(obj);
+
+			if (position == null) {
+				return null;
+			}
+
+			return new AABB(position, position.add(1, 1, 1));
+		}
+	}
+}
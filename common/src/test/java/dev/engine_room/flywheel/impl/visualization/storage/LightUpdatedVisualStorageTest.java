@@ -0,0 +1,158 @@
+package dev.engine_room.flywheel.impl.visualization.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.engine_room.flywheel.api.visual.LightUpdatedVisual;
+import dev.engine_room.flywheel.impl.task.SerialTaskExecutor;
+import dev.engine_room.flywheel.impl.visual.DynamicVisualContextImpl;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+class LightUpdatedVisualStorageTest {
+	@Test
+	void updatesVisualsInUpdatedSections() {
+		var storage = new LightUpdatedVisualStorage();
+		var a = add(storage, 1);
+		var b = add(storage, 1, 2);
+		var c = add(storage, 2);
+		var d = add(storage, 3);
+
+		storage.onLightUpdate(1);
+		storage.onLightUpdate(2);
+		run(storage);
+
+		Assertions.assertEquals(1, a.updates);
+		// In both updated sections, but only updated once.
+		Assertions.assertEquals(1, b.updates);
+		Assertions.assertEquals(1, c.updates);
+		Assertions.assertEquals(0, d.updates);
+	}
+
+	@Test
+	void removedVisualsAreNotUpdated() {
+		var storage = new LightUpdatedVisualStorage();
+		List<TestVisual> visuals = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			visuals.add(add(storage, 1, i % 3 == 0 ? 2 : 1));
+		}
+
+		List<TestVisual> removed = new ArrayList<>(visuals);
+		Collections.shuffle(removed, new Random(0));
+		removed = removed.subList(0, 50);
+
+		for (TestVisual visual : removed) {
+			Assertions.assertTrue(storage.remove(visual));
+			Assertions.assertFalse(storage.remove(visual));
+		}
+
+		storage.onLightUpdate(1);
+		storage.onLightUpdate(2);
+		run(storage);
+
+		for (TestVisual visual : visuals) {
+			Assertions.assertEquals(removed.contains(visual) ? 0 : 1, visual.updates);
+		}
+	}
+
+	@Test
+	void movedVisualsFollowTheirSections() {
+		var storage = new LightUpdatedVisualStorage();
+		var tracker = new SectionTracker();
+		tracker.sections(LongSet.of(1));
+		var visual = new TestVisual();
+		storage.add(visual, tracker);
+
+		tracker.sections(LongSet.of(2));
+
+		storage.onLightUpdate(1);
+		run(storage);
+		Assertions.assertEquals(0, visual.updates);
+
+		storage.onLightUpdate(2);
+		run(storage);
+		Assertions.assertEquals(1, visual.updates);
+	}
+
+	/**
+	 * Many visuals packed into the same few sections, like item frames covering a wall. Removals have to leave the
+	 * section lists dense, so an update only visits the visuals still in the section.
+	 */
+	@Test
+	void packedSectionsStayDense() {
+		var storage = new LightUpdatedVisualStorage();
+		List<TestVisual> visuals = new ArrayList<>();
+		for (int i = 0; i < 4000; i++) {
+			visuals.add(add(storage, i % 4, (i + 1) % 4));
+		}
+		// Every visual is in two of the four sections.
+		for (int i = 0; i < 4; i++) {
+			Assertions.assertEquals(2000, storage.entryCount(i));
+		}
+
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < visuals.size(); i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, new Random(0));
+		List<Integer> kept = order.subList(order.size() - 100, order.size());
+
+		for (int i : order.subList(0, order.size() - 100)) {
+			storage.remove(visuals.get(i));
+		}
+
+		int[] expectedCounts = new int[4];
+		for (int i : kept) {
+			expectedCounts[i % 4]++;
+			expectedCounts[(i + 1) % 4]++;
+		}
+		for (int i = 0; i < 4; i++) {
+			Assertions.assertEquals(expectedCounts[i], storage.entryCount(i));
+			storage.onLightUpdate(i);
+		}
+		run(storage);
+
+		for (int i = 0; i < visuals.size(); i++) {
+			Assertions.assertEquals(kept.contains(i) ? 1 : 0, visuals.get(i).updates);
+		}
+	}
+
+	private static TestVisual add(LightUpdatedVisualStorage storage, long... sections) {
+		var tracker = new SectionTracker();
+		tracker.sections(new LongOpenHashSet(sections));
+		var visual = new TestVisual();
+		storage.add(visual, tracker);
+		return visual;
+	}
+
+	private static void run(LightUpdatedVisualStorage storage) {
+		storage.plan()
+				.execute(SerialTaskExecutor.INSTANCE, new DynamicVisualContextImpl(null, null, 0, null));
+	}
+
+	private static final class TestVisual implements LightUpdatedVisual {
+		private int updates;
+
+		@Override
+		public void updateLight(float partialTick) {
+			updates++;
+		}
+
+		@Override
+		public void setSectionCollector(SectionCollector collector) {
+		}
+
+		@Override
+		public void update(float partialTick) {
+		}
+
+		@Override
+		public void delete() {
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package dev.engine_room.flywheel.impl.visualization.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.engine_room.flywheel.api.visual.ShaderLightVisual;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+class ShaderLightVisualStorageTest {
+	// Stands in for the visualization manager, which passes only the changes on to the engine.
+	private final SectionRefCounts engine = new SectionRefCounts();
+
+	@Test
+	void sharedSectionsAreCountedOnce() {
+		var storage = new ShaderLightVisualStorage();
+		var a = new TestVisual();
+		var b = new TestVisual();
+		storage.add(a, tracker(1, 2));
+		storage.add(b, tracker(2, 3));
+
+		var out = drain(storage);
+		Assertions.assertEquals(LongSet.of(1, 2, 3), out.added());
+		Assertions.assertEquals(LongSet.of(), out.removed());
+
+		storage.remove(a);
+
+		out = drain(storage);
+		Assertions.assertEquals(LongSet.of(), out.added());
+		Assertions.assertEquals(LongSet.of(1), out.removed());
+	}
+
+	@Test
+	void movesOnlyReportTheDifference() {
+		var storage = new ShaderLightVisualStorage();
+		var tracker = tracker(1, 2);
+		storage.add(new TestVisual(), tracker);
+		drain(storage);
+
+		tracker.sections(LongSet.of(2, 3));
+		// Reporting the same sections again changes nothing.
+		tracker.sections(LongSet.of(2, 3));
+
+		var out = drain(storage);
+		Assertions.assertEquals(LongSet.of(3), out.added());
+		Assertions.assertEquals(LongSet.of(1), out.removed());
+
+		out = drain(storage);
+		Assertions.assertTrue(out.added()
+				.isEmpty());
+		Assertions.assertTrue(out.removed()
+				.isEmpty());
+	}
+
+	@Test
+	void changesThatCancelOutAreNotReported() {
+		var storage = new ShaderLightVisualStorage();
+		var visual = new TestVisual();
+		var tracker = tracker(1);
+		storage.add(visual, tracker);
+		drain(storage);
+
+		tracker.sections(LongSet.of(2));
+		tracker.sections(LongSet.of(1));
+		storage.add(new TestVisual(), tracker(4));
+		storage.remove(visual);
+		storage.add(visual, tracker(1));
+
+		var out = drain(storage);
+		Assertions.assertEquals(LongSet.of(4), out.added());
+		Assertions.assertEquals(LongSet.of(), out.removed());
+	}
+
+	@Test
+	void clearRemovesEverything() {
+		var storage = new ShaderLightVisualStorage();
+		storage.add(new TestVisual(), tracker(1, 2));
+		drain(storage);
+		storage.add(new TestVisual(), tracker(3));
+
+		storage.clear();
+
+		var out = drain(storage);
+		Assertions.assertEquals(LongSet.of(), out.added());
+		Assertions.assertEquals(LongSet.of(1, 2), out.removed());
+	}
+
+	private Changes drain(ShaderLightVisualStorage storage) {
+		storage.drainChangesInto(engine);
+		var out = new Changes(new LongOpenHashSet(engine.added()), new LongOpenHashSet(engine.removed()));
+		engine.clearChanges();
+		return out;
+	}
+
+	private static SectionTracker tracker(long... sections) {
+		var tracker = new SectionTracker();
+		tracker.sections(LongSet.of(sections));
+		return tracker;
+	}
+
+	private record Changes(LongSet added, LongSet removed) {
+	}
+
+	private static final class TestVisual implements ShaderLightVisual {
+		@Override
+		public void setSectionCollector(SectionCollector collector) {
+		}
+
+		@Override
+		public void update(float partialTick) {
+		}
+
+		@Override
+		public void delete() {
+		}
+	}
+}
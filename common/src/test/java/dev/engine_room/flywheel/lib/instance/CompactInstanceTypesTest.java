@@ -0,0 +1,64 @@
+package dev.engine_room.flywheel.lib.instance;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+
+class CompactInstanceTypesTest {
+	private static final int SIZE_BYTES = 128;
+
+	private MemoryBlock full;
+	private MemoryBlock compact;
+
+	@BeforeEach
+	void setUp() {
+		full = MemoryBlock.calloc(1, SIZE_BYTES);
+		compact = MemoryBlock.calloc(1, SIZE_BYTES);
+	}
+
+	@AfterEach
+	void tearDown() {
+		full.free();
+		compact.free();
+	}
+
+	@Test
+	void layoutSizes() {
+		Assertions.assertEquals(112, InstanceTypes.TRANSFORMED.layout()
+				.byteSize());
+		Assertions.assertEquals(60, InstanceTypes.COMPACT_TRANSFORMED.layout()
+				.byteSize());
+	}
+
+	@Test
+	void compactTransformedKeepsTopRows() {
+		var instance = InstanceTypes.TRANSFORMED.create(null);
+		instance.color(0x12, 0x34, 0x56, 0x78);
+		instance.overlay(0x00050006);
+		instance.light(0x00F000A0);
+		instance.translate(1.5f, -2.0f, 300.25f)
+				.rotateXDegrees(30)
+				.rotateYDegrees(-45)
+				.scale(2.0f, 0.5f, 3.0f);
+
+		InstanceTypes.TRANSFORMED.writer()
+				.write(full.ptr(), instance);
+		InstanceTypes.COMPACT_TRANSFORMED.writer()
+				.write(compact.ptr(), instance);
+
+		// Color, overlay, and light are unchanged.
+		for (int i = 0; i < 12; i++) {
+			Assertions.assertEquals(MemoryUtil.memGetByte(full.ptr() + i), MemoryUtil.memGetByte(compact.ptr() + i), "byte " + i);
+		}
+		// Every column of the pose, without its last row.
+		for (int column = 0; column < 4; column++) {
+			for (int row = 0; row < 3; row++) {
+				Assertions.assertEquals(MemoryUtil.memGetFloat(full.ptr() + 12 + column * 16 + row * 4), MemoryUtil.memGetFloat(compact.ptr() + 12 + column * 12 + row * 4), "column " + column + " row " + row);
+			}
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package dev.engine_room.flywheel.lib.instance;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import dev.engine_room.flywheel.api.instance.Instance;
+import dev.engine_room.flywheel.api.instance.InstanceType;
+import dev.engine_room.flywheel.api.instance.InstanceWriter;
+import dev.engine_room.flywheel.api.layout.FloatRepr;
+import dev.engine_room.flywheel.api.layout.IntegerRepr;
+import dev.engine_room.flywheel.impl.layout.LayoutBuilderImpl;
+import dev.engine_room.flywheel.lib.memory.MemoryBlock;
+
+class InstanceWritersTest {
+	private static final int SIZE_BYTES = 256;
+
+	private MemoryBlock expected;
+	private MemoryBlock actual;
+
+	@BeforeEach
+	void setUp() {
+		expected = MemoryBlock.calloc(1, SIZE_BYTES);
+		actual = MemoryBlock.calloc(1, SIZE_BYTES);
+	}
+
+	@AfterEach
+	void tearDown() {
+		expected.free();
+		actual.free();
+	}
+
+	@Test
+	void matchesTransformed() {
+		var type = InstanceTypes.TRANSFORMED;
+		var writer = InstanceWriters.builder(TransformedInstance.class, type.layout())
+				.field("color", "red", "green", "blue", "alpha")
+				.field("pose", "model")
+				.build();
+
+		assertMatches(type, writer, (instance, random) -> {
+			randomColoredLit(instance, random);
+			randomFloats(random, instance.model::set);
+			randomFloats(random, instance.normal::set);
+		});
+	}
+
+	@Test
+	void matchesCompactTransformed() {
+		var type = InstanceTypes.COMPACT_TRANSFORMED;
+		var writer = InstanceWriters.builder(TransformedInstance.class, type.layout())
+				.field("color", "red", "green", "blue", "alpha")
+				.field("pose", "model")
+				.build();
+
+		assertMatches(type, writer, (instance, random) -> {
+			randomColoredLit(instance, random);
+			randomFloats(random, instance.model::set);
+		});
+	}
+
+	@Test
+	void matchesOriented() {
+		var type = InstanceTypes.ORIENTED;
+		var writer = InstanceWriters.builder(OrientedInstance.class, type.layout())
+				.field("color", "red", "green", "blue", "alpha")
+				.field("position", "posX", "posY", "posZ")
+				.build();
+
+		assertMatches(type, writer, (instance, random) -> {
+			randomColoredLit(instance, random);
+			instance.position(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			instance.pivot(random.nextFloat(), random.nextFloat(), random.nextFloat());
+			instance.rotation(random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat());
+		});
+	}
+
+	@Test
+	void matchesShadow() {
+		var type = InstanceTypes.SHADOW;
+		var writer = InstanceWriters.builder(ShadowInstance.class, type.layout())
+				.field("pos", "x", "y", "z")
+				.field("entityPosXZ", "entityX", "entityZ")
+				.field("size", "sizeX", "sizeZ")
+				.build();
+
+		assertMatches(type, writer, (instance, random) -> {
+			instance.x = random.nextFloat();
+			instance.y = random.nextFloat();
+			instance.z = random.nextFloat();
+			instance.entityX = random.nextFloat();
+			instance.entityZ = random.nextFloat();
+			instance.sizeX = random.nextFloat();
+			instance.sizeZ = random.nextFloat();
+			instance.alpha = random.nextFloat();
+			instance.radius = random.nextFloat();
+		});
+	}
+
+	@Test
+	void followsPackedOffsets() {
+		var layout = new LayoutBuilderImpl().packed()
+				.scalar("alpha", FloatRepr.NORMALIZED_UNSIGNED_BYTE)
+				.scalar("x", FloatRepr.FLOAT)
+				.scalar("radius", FloatRepr.BYTE)
+				.vector("size", IntegerRepr.SHORT, 2)
+				.build();
+		var writer = InstanceWriters.builder(ShadowInstance.class, layout)
+				.field("size", "sizeX", "sizeZ")
+				.build();
+
+		var instance = InstanceTypes.SHADOW.create(null);
+		instance.alpha = 0.5f;
+		instance.x = 3.0f;
+		instance.radius = -3.9f;
+		instance.sizeX = -2.75f;
+		instance.sizeZ = 40000.0f;
+		writer.write(actual.ptr(), instance);
+
+		// Floats, then shorts, then bytes.
+		Assertions.assertEquals(3.0f, MemoryUtil.memGetFloat(actual.ptr()));
+		Assertions.assertEquals(-2, MemoryUtil.memGetShort(actual.ptr() + 4));
+		Assertions.assertEquals((short) 40000, MemoryUtil.memGetShort(actual.ptr() + 6));
+		Assertions.assertEquals(128, MemoryUtil.memGetByte(actual.ptr() + 8) & 0xFF);
+		Assertions.assertEquals(-3, MemoryUtil.memGetByte(actual.ptr() + 9));
+	}
+
+	@Test
+	void normalizesInts() {
+		var layout = new LayoutBuilderImpl().packed()
+				.scalar("alpha", FloatRepr.NORMALIZED_INT)
+				.scalar("radius", FloatRepr.NORMALIZED_UNSIGNED_INT)
+				.build();
+		var writer = InstanceWriters.builder(ShadowInstance.class, layout)
+				.build();
+		var instance = InstanceTypes.SHADOW.create(null);
+
+		float[] values = { 0.0f, 0.5f, 1.0f };
+		int[] expectedSigned = { 0, 0x40000000, Integer.MAX_VALUE };
+		int[] expectedUnsigned = { 0, 0x80000000, 0xFFFFFFFF };
+
+		for (int i = 0; i < values.length; i++) {
+			instance.alpha = values[i];
+			instance.radius = values[i];
+			writer.write(actual.ptr(), instance);
+
+			Assertions.assertEquals(expectedSigned[i], MemoryUtil.memGetInt(actual.ptr()), "signed " + values[i]);
+			Assertions.assertEquals(expectedUnsigned[i], MemoryUtil.memGetInt(actual.ptr() + 4), "unsigned " + values[i]);
+		}
+	}
+
+	@Test
+	void rejectsMissingFields() {
+		var layout = InstanceTypes.SHADOW.layout();
+
+		// "pos" has no field, and neither do "posX", "posY", and "posZ".
+		Assertions.assertThrows(IllegalArgumentException.class, () -> InstanceWriters.builder(ShadowInstance.class, layout)
+				.field("entityPosXZ", "entityX", "entityZ")
+				.build());
+		Assertions.assertThrows(IllegalArgumentException.class, () -> InstanceWriters.builder(ShadowInstance.class, layout)
+				.field("pos", "x", "y")
+				.build());
+		Assertions.assertThrows(IllegalArgumentException.class, () -> InstanceWriters.builder(ShadowInstance.class, layout)
+				.field("position", "x", "y", "z"));
+	}
+
+	private <I extends Instance> void assertMatches(InstanceType<I> type, InstanceWriter<I> writer, Randomizer<I> randomizer) {
+		int byteSize = type.layout()
+				.byteSize();
+		Assertions.assertTrue(byteSize <= SIZE_BYTES);
+
+		for (int seed = 0; seed < 16; seed++) {
+			var instance = type.create(null);
+			randomizer.randomize(instance, new Random(seed));
+
+			MemoryUtil.memSet(expected.ptr(), 0, SIZE_BYTES);
+			MemoryUtil.memSet(actual.ptr(), 0, SIZE_BYTES);
+			type.writer()
+					.write(expected.ptr(), instance);
+			writer.write(actual.ptr(), instance);
+
+			for (int i = 0; i < SIZE_BYTES; i++) {
+				Assertions.assertEquals(MemoryUtil.memGetByte(expected.ptr() + i), MemoryUtil.memGetByte(actual.ptr() + i), "byte " + i);
+			}
+		}
+	}
+
+	private static void randomColoredLit(ColoredLitInstance instance, Random random) {
+		instance.red = (byte) random.nextInt();
+		instance.green = (byte) random.nextInt();
+		instance.blue = (byte) random.nextInt();
+		instance.alpha = (byte) random.nextInt();
+		instance.overlay = random.nextInt();
+		instance.light = random.nextInt();
+	}
+
+	private static void randomFloats(Random random, Consumer<float[]> setter) {
+		var values = new float[16];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextFloat(-10.0f, 10.0f);
+		}
+		setter.accept(values);
+	}
+
+	@FunctionalInterface
+	private interface Randomizer<I> {
+		void randomize(I instance, Random random);
+	}
+}
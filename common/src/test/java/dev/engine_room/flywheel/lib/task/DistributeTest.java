@@ -0,0 +1,104 @@
+package dev.engine_room.flywheel.lib.task;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+class DistributeTest {
+	private static final int THREADS = 4;
+
+	@Test
+	void sliceByCostCoversEverything() {
+		long[] costs = {5, 1, 1, 1, 10, 1, 1, 1, 1, 3};
+		int[] bounds = Distribute.sliceByCost(costs, 4);
+
+		Assertions.assertArrayEquals(new int[] {0, 1, 5, 9, 10}, bounds);
+	}
+
+	@Test
+	void sliceByCostIsolatesExpensiveElements() {
+		long[] costs = new long[1000];
+		Arrays.fill(costs, 1);
+		costs[500] = 1000;
+
+		int[] bounds = Distribute.sliceByCost(costs, 100);
+
+		int slice = Arrays.binarySearch(bounds, 500);
+		// The expensive element closes the slice it's in, so it shares it with at most the 99 before it.
+		int sliceIndex = slice < 0 ? -slice - 2 : slice;
+		Assertions.assertEquals(501, bounds[sliceIndex + 1]);
+		Assertions.assertTrue(bounds[sliceIndex + 1] - bounds[sliceIndex] < 100);
+	}
+
+	/**
+	 * Simulate running a skewed workload on {@link #THREADS} threads and compare how long the whole frame takes
+	 * with slices of equal length and slices of equal cost.
+	 */
+	@Test
+	void balancingByCostShortensSkewedFrames() {
+		// 2000 cheap visuals and a handful of expensive ones, clustered together like visuals in the same area.
+		long[] costs = new long[2000];
+		Arrays.fill(costs, 1_000);
+		for (int i = 100; i < 110; i++) {
+			costs[i] = 2_000_000;
+		}
+
+		long total = Arrays.stream(costs)
+				.sum();
+		long ideal = total / THREADS;
+
+		// What Distribute.tasks does.
+		int sliceSize = (costs.length + THREADS * 32 - 1) / (THREADS * 32);
+		IntList countBounds = new IntArrayList();
+		for (int i = 0; i < costs.length; i += sliceSize) {
+			countBounds.add(i);
+		}
+		countBounds.add(costs.length);
+		long countMakespan = makespan(costs, countBounds.toIntArray(), false);
+
+		int[] costBounds = Distribute.sliceByCost(costs, total / (THREADS * 8));
+		long costMakespan = makespan(costs, costBounds, true);
+
+		Assertions.assertTrue(costMakespan < countMakespan, "Balanced " + costMakespan + " vs counted " + countMakespan);
+		// The expensive visuals can't be split, so the best we can do is spread them evenly.
+		Assertions.assertTrue(costMakespan <= ideal * 1.25, "Balanced " + costMakespan + " vs ideal " + ideal);
+	}
+
+	/**
+	 * @return The time until the last thread finishes when each slice goes to whichever thread is free first.
+	 */
+	private static long makespan(long[] costs, int[] bounds, boolean mostExpensiveFirst) {
+		int sliceCount = bounds.length - 1;
+		Long[] sliceCosts = new Long[sliceCount];
+		for (int slice = 0; slice < sliceCount; slice++) {
+			long cost = 0;
+			for (int i = bounds[slice]; i < bounds[slice + 1]; i++) {
+				cost += costs[i];
+			}
+			sliceCosts[slice] = cost;
+		}
+
+		if (mostExpensiveFirst) {
+			Arrays.sort(sliceCosts, (a, b) -> Long.compare(b, a));
+		}
+
+		var threads = new PriorityQueue<Long>();
+		for (int i = 0; i < THREADS; i++) {
+			threads.add(0L);
+		}
+
+		for (long cost : sliceCosts) {
+			threads.add(threads.poll() + cost);
+		}
+
+		return threads.stream()
+				.mapToLong(Long::longValue)
+				.max()
+				.orElse(0);
+	}
+}
@@ -32,6 +32,10 @@ public class FabricFlwConfig implements FlwConfig {
 
 	public static final boolean LIMIT_UPDATES_DEFAULT = true;
 	public static final int WORKER_THREADS_DEFAULT = -1;
+	public static final boolean PIPELINE_FRAMES_DEFAULT = false;
+	public static final double VISUAL_CREATION_BUDGET_DEFAULT = 4;
+	public static final double VISUAL_CREATION_BUDGET_MIN = -1;
+	public static final double VISUAL_CREATION_BUDGET_MAX = 1000;
 	public static final int WORKER_THREADS_MAX = Runtime.getRuntime()
 			.availableProcessors();
 
@@ -44,6 +48,8 @@ public class FabricFlwConfig implements FlwConfig {
 	public Backend backend = BackendManager.defaultBackend();
 	public boolean limitUpdates = LIMIT_UPDATES_DEFAULT;
 	public int workerThreads = WORKER_THREADS_DEFAULT;
+	public boolean pipelineFrames = PIPELINE_FRAMES_DEFAULT;
+	public double visualCreationBudget = VISUAL_CREATION_BUDGET_DEFAULT;
 
 	public FabricFlwConfig(File file) {
 		this.file = file;
@@ -66,6 +72,16 @@ public class FabricFlwConfig implements FlwConfig {
 		return workerThreads;
 	}
 
+	@Override
+	public boolean pipelineFrames() {
+		return pipelineFrames;
+	}
+
+	@Override
+	public double visualCreationBudget() {
+		return visualCreationBudget;
+	}
+
 	public void load() {
 		if (file.exists()) {
 			try (FileReader reader = new FileReader(file)) {
@@ -92,12 +108,16 @@ public class FabricFlwConfig implements FlwConfig {
 			backend = BackendManager.defaultBackend();
 			limitUpdates = LIMIT_UPDATES_DEFAULT;
 			workerThreads = WORKER_THREADS_DEFAULT;
+			pipelineFrames = PIPELINE_FRAMES_DEFAULT;
+			visualCreationBudget = VISUAL_CREATION_BUDGET_DEFAULT;
 			return;
 		}
 
 		readBackend(object);
 		readLimitUpdates(object);
 		readWorkerThreads(object);
+		readPipelineFrames(object);
+		readVisualCreationBudget(object);
 		readFlwBackend(object);
 	}
 
@@ -172,27 +192,75 @@ public class FabricFlwConfig implements FlwConfig {
 		workerThreads = WORKER_THREADS_DEFAULT;
 	}
 
+	private void readPipelineFrames(JsonObject object) {
+		var pipelineFramesJson = object.get("pipelineFrames");
+
+		if (pipelineFramesJson instanceof JsonPrimitive primitive && primitive.isBoolean()) {
+			pipelineFrames = primitive.getAsBoolean();
+			return;
+		} else if (pipelineFramesJson != null) {
+			FlwImpl.CONFIG_LOGGER.warn("'pipelineFrames' value must be a boolean");
+		}
+
+		pipelineFrames = PIPELINE_FRAMES_DEFAULT;
+	}
+
+	private void readVisualCreationBudget(JsonObject object) {
+		var visualCreationBudgetJson = object.get("visualCreationBudget");
+
+		if (visualCreationBudgetJson instanceof JsonPrimitive primitive && primitive.isNumber()) {
+			double value = primitive.getAsDouble();
+
+			if (Double.isNaN(value)) {
+				FlwImpl.CONFIG_LOGGER.warn("'visualCreationBudget' value must be a number");
+			} else {
+				double clamped = Mth.clamp(value, VISUAL_CREATION_BUDGET_MIN, VISUAL_CREATION_BUDGET_MAX);
+
+				if (clamped != value) {
+					FlwImpl.CONFIG_LOGGER.warn("'visualCreationBudget' value of {} is out of range, clamping to {}", value, clamped);
+				}
+
+				visualCreationBudget = clamped;
+				return;
+			}
+		} else if (visualCreationBudgetJson != null) {
+			FlwImpl.CONFIG_LOGGER.warn("'visualCreationBudget' value must be a number");
+		}
+
+		visualCreationBudget = VISUAL_CREATION_BUDGET_DEFAULT;
+	}
+
 	public JsonObject toJson() {
 		JsonObject object = new JsonObject();
 		object.addProperty("backend", Backend.REGISTRY.getIdOrThrow(backend).toString());
 		object.addProperty("limitUpdates", limitUpdates);
 		object.addProperty("workerThreads", workerThreads);
+		object.addProperty("pipelineFrames", pipelineFrames);
+		object.addProperty("visualCreationBudget", visualCreationBudget);
 		object.add("flw_backend", backendConfig.toJson());
 		return object;
 	}
 
 	public static class FabricBackendConfig implements BackendConfig {
 		public static final LightSmoothness LIGHT_SMOOTHNESS_DEFAULT = LightSmoothness.SMOOTH;
+		public static final boolean COMPACT_VERTICES_DEFAULT = true;
 
 		public LightSmoothness lightSmoothness = LIGHT_SMOOTHNESS_DEFAULT;
+		public boolean compactVertices = COMPACT_VERTICES_DEFAULT;
 
 		@Override
 		public LightSmoothness lightSmoothness() {
 			return lightSmoothness;
 		}
 
+		@Override
+		public boolean compactVertices() {
+			return compactVertices;
+		}
+
 		public void fromJson(JsonObject object) {
 			readLightSmoothness(object);
+			readCompactVertices(object);
 		}
 
 		private void readLightSmoothness(JsonObject object) {
@@ -222,9 +290,23 @@ public class FabricFlwConfig implements FlwConfig {
 			lightSmoothness = LIGHT_SMOOTHNESS_DEFAULT;
 		}
 
+		private void readCompactVertices(JsonObject object) {
+			var compactVerticesJson = object.get("compactVertices");
+
+			if (compactVerticesJson instanceof JsonPrimitive primitive && primitive.isBoolean()) {
+				compactVertices = primitive.getAsBoolean();
+				return;
+			} else if (compactVerticesJson != null) {
+				FlwBackend.LOGGER.warn("'compactVertices' value must be a boolean");
+			}
+
+			compactVertices = COMPACT_VERTICES_DEFAULT;
+		}
+
 		public JsonObject toJson() {
 			JsonObject object = new JsonObject();
 			object.addProperty("lightSmoothness", lightSmoothness.getSerializedName());
+			object.addProperty("compactVertices", compactVertices);
 			return object;
 		}
 	}
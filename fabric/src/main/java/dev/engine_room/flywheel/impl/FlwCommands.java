@@ -12,6 +12,7 @@ import dev.engine_room.flywheel.backend.LightSmoothnessArgument;
 import dev.engine_room.flywheel.backend.compile.LightSmoothness;
 import dev.engine_room.flywheel.backend.engine.uniform.DebugMode;
 import dev.engine_room.flywheel.backend.engine.uniform.FrameUniforms;
+import dev.engine_room.flywheel.impl.task.PlanProfiles;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
 import net.minecraft.client.Minecraft;
@@ -140,6 +141,18 @@ public final class FlwCommands {
 							return Command.SINGLE_SUCCESS;
 						})));
 
+		command.then(ClientCommandManager.literal("profile")
+				.then(ClientCommandManager.literal("start")
+						.executes(context -> {
+							PlanProfiles.start(context.getSource()::sendFeedback, context.getSource()::sendError);
+							return Command.SINGLE_SUCCESS;
+						}))
+				.then(ClientCommandManager.literal("stop")
+						.executes(context -> {
+							PlanProfiles.stop(context.getSource()::sendFeedback, context.getSource()::sendError);
+							return Command.SINGLE_SUCCESS;
+						})));
+
 		dispatcher.register(command);
 	}
 
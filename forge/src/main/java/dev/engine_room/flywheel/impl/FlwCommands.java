@@ -10,6 +10,7 @@ import dev.engine_room.flywheel.backend.LightSmoothnessArgument;
 import dev.engine_room.flywheel.backend.compile.LightSmoothness;
 import dev.engine_room.flywheel.backend.engine.uniform.DebugMode;
 import dev.engine_room.flywheel.backend.engine.uniform.FrameUniforms;
+import dev.engine_room.flywheel.impl.task.PlanProfiles;
 import net.minecraft.client.Minecraft;
 import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
@@ -138,6 +139,18 @@ public final class FlwCommands {
 							return Command.SINGLE_SUCCESS;
 						})));
 
+		command.then(Commands.literal("profile")
+				.then(Commands.literal("start")
+						.executes(context -> {
+							PlanProfiles.start(message -> sendMessage(context.getSource(), message), message -> sendFailure(context.getSource(), message));
+							return Command.SINGLE_SUCCESS;
+						}))
+				.then(Commands.literal("stop")
+						.executes(context -> {
+							PlanProfiles.stop(message -> sendMessage(context.getSource(), message), message -> sendFailure(context.getSource(), message));
+							return Command.SINGLE_SUCCESS;
+						})));
+
 		event.getDispatcher().register(command);
 	}
 
@@ -68,6 +68,16 @@ public class ForgeFlwConfig implements FlwConfig {
 		return client.workerThreads.get();
 	}
 
+	@Override
+	public boolean pipelineFrames() {
+		return client.pipelineFrames.get();
+	}
+
+	@Override
+	public double visualCreationBudget() {
+		return client.visualCreationBudget.get();
+	}
+
 	public void registerSpecs(ModLoadingContext context) {
 		context.registerConfig(ModConfig.Type.CLIENT, clientSpec);
 	}
@@ -76,6 +86,8 @@ public class ForgeFlwConfig implements FlwConfig {
 		public final ForgeConfigSpec.ConfigValue<String> backend;
 		public final ForgeConfigSpec.BooleanValue limitUpdates;
 		public final ForgeConfigSpec.IntValue workerThreads;
+		public final ForgeConfigSpec.BooleanValue pipelineFrames;
+		public final ForgeConfigSpec.DoubleValue visualCreationBudget;
 
 		public final ForgeBackendConfig backendConfig;
 
@@ -90,6 +102,12 @@ public class ForgeFlwConfig implements FlwConfig {
 					.defineInRange("workerThreads", -1, -1, Runtime.getRuntime()
 							.availableProcessors());
 
+			pipelineFrames = builder.comment("Update visuals for the next frame while the current frame is uploaded and drawn. Hides the cost of visual updates at the expense of one frame of latency. Only supported by the indirect backend. Takes effect when the level or backend is reloaded.")
+					.define("pipelineFrames", false);
+
+			visualCreationBudget = builder.comment("How many milliseconds to spend creating visuals of each kind per frame. When many objects load at once, the nearest ones are created first and the rest over the following frames, rendered normally in the meantime where possible. At least one visual of each kind is created per frame, even at 0. Set to -1 to create everything right away.")
+					.defineInRange("visualCreationBudget", 4.0, -1.0, 1000.0);
+
 			builder.comment("Config options for flywheel's build-in backends.")
 					.push("flw_backends");
 
@@ -99,15 +117,24 @@ public class ForgeFlwConfig implements FlwConfig {
 
 	public static class ForgeBackendConfig implements BackendConfig {
 		public final ForgeConfigSpec.EnumValue<LightSmoothness> lightSmoothness;
+		public final ForgeConfigSpec.BooleanValue compactVertices;
 
 		public ForgeBackendConfig(ForgeConfigSpec.Builder builder) {
 			lightSmoothness = builder.comment("How smooth flywheel's shader-based lighting should be. May have a large performance impact.")
 					.defineEnum("lightSmoothness", LightSmoothness.SMOOTH);
+
+			compactVertices = builder.comment("Store meshes in a smaller, quantized vertex format when it doesn't visibly lose precision. Takes effect when the backend is reloaded.")
+					.define("compactVertices", true);
 		}
 
 		@Override
 		public LightSmoothness lightSmoothness() {
 			return lightSmoothness.get();
 		}
+
+		@Override
+		public boolean compactVertices() {
+			return compactVertices.get();
+		}
 	}
 }